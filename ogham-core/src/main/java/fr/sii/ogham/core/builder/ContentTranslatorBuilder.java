@@ -8,7 +8,10 @@ import org.slf4j.LoggerFactory;
 import fr.sii.ogham.core.exception.builder.BuildException;
 import fr.sii.ogham.core.id.generator.SequentialIdGenerator;
 import fr.sii.ogham.core.message.content.MultiContent;
+import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.JMimeMagicProvider;
+import fr.sii.ogham.core.mimetype.MimeTypeProvider;
+import fr.sii.ogham.core.mimetype.SignatureMimeTypeProvider;
 import fr.sii.ogham.core.resource.resolver.LookupMappingResolver;
 import fr.sii.ogham.core.template.parser.TemplateParser;
 import fr.sii.ogham.core.translator.content.ContentTranslator;
@@ -21,6 +24,7 @@ import fr.sii.ogham.html.inliner.ImageInliner;
 import fr.sii.ogham.html.inliner.impl.jsoup.JsoupAttachImageInliner;
 import fr.sii.ogham.html.inliner.impl.jsoup.JsoupBase64ImageInliner;
 import fr.sii.ogham.html.inliner.impl.jsoup.JsoupCssInliner;
+import fr.sii.ogham.html.translator.HtmlDocumentTranslator;
 import fr.sii.ogham.html.translator.InlineCssTranslator;
 import fr.sii.ogham.html.translator.InlineImageTranslator;
 
@@ -55,6 +59,11 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 	 */
 	private boolean enableInlining;
 
+	/**
+	 * The template parser generated by the last call to {@link #build()}
+	 */
+	private TemplateParser templateParser;
+
 	/**
 	 * Generate a chain translator that delegates translation of content to all
 	 * enabled translators.
@@ -67,8 +76,9 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 	public ContentTranslator build() throws BuildException {
 		LOG.info("Using translator that calls all registered translators");
 		EveryContentTranslator translator = new EveryContentTranslator();
+		templateParser = null;
 		if(templateBuilder != null) {
-			TemplateParser templateParser = templateBuilder.build();
+			templateParser = templateBuilder.build();
 			LOG.debug("Registering content translator that parses templates using {}", templateParser);
 			translator.addTranslator(new TemplateContentTranslator(templateParser));
 		}
@@ -77,18 +87,41 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 			translator.addTranslator(new MultiContentTranslator(translator));
 		}
 		if(enableInlining) {
-			// TODO: extract inliners init to their own builders
-			LOG.debug("CSS inlining is enabled");
-			LookupMappingResolver resolver = new LookupMappingResourceResolverBuilder().useDefaults().build();
-			translator.addTranslator(new InlineCssTranslator(new JsoupCssInliner(), resolver));
-			LOG.debug("Image inlining is enabled");
-			JMimeMagicProvider mimetypeProvider = new JMimeMagicProvider();
-			ImageInliner imageInliner = new EveryImageInliner(new JsoupAttachImageInliner(new SequentialIdGenerator()), new JsoupBase64ImageInliner());
-			translator.addTranslator(new InlineImageTranslator(imageInliner, resolver, mimetypeProvider));
+			addInliningTranslators(translator);
+		}
+		return translator;
+	}
+
+	/**
+	 * Generate a chain translator that only inlines CSS and images (no
+	 * template parsing). This is useful to apply the inlining on a template
+	 * once before evaluating it several times (see
+	 * {@link fr.sii.ogham.email.merge.MailMerge}). If inlining is not enabled
+	 * on this builder, the chain does nothing.
+	 * 
+	 * @return the chain translator
+	 */
+	public ContentTranslator buildInlining() {
+		EveryContentTranslator translator = new EveryContentTranslator();
+		if(enableInlining) {
+			addInliningTranslators(translator);
 		}
 		return translator;
 	}
 
+	private static void addInliningTranslators(EveryContentTranslator translator) {
+		// TODO: extract inliners init to their own builders
+		translator.addTranslator(new HtmlDocumentTranslator());
+		LOG.debug("CSS inlining is enabled");
+		// CSS and images are resolved for every message => keep them in memory
+		LookupMappingResolver resolver = new LookupMappingResourceResolverBuilder().useDefaults().withCache().build();
+		translator.addTranslator(new InlineCssTranslator(new JsoupCssInliner(), resolver));
+		LOG.debug("Image inlining is enabled");
+		MimeTypeProvider mimetypeProvider = new FallbackMimeTypeProvider(new SignatureMimeTypeProvider(), new JMimeMagicProvider());
+		ImageInliner imageInliner = new EveryImageInliner(new JsoupAttachImageInliner(new SequentialIdGenerator()), new JsoupBase64ImageInliner());
+		translator.addTranslator(new InlineImageTranslator(imageInliner, resolver, mimetypeProvider));
+	}
+
 	/**
 	 * Enable the management of templates using all default behaviors and
 	 * values. It will use the default template engines. This method registers
@@ -241,4 +274,16 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 	public TemplateBuilder getTemplateBuilder() {
 		return templateBuilder;
 	}
+
+	/**
+	 * Get the template parser generated by the last call to {@link #build()}.
+	 * It can be used to evaluate templates with the same engines (and caches)
+	 * as the built translator.
+	 * 
+	 * @return the template parser or null if not built yet or if templates are
+	 *         not enabled
+	 */
+	public TemplateParser getTemplateParser() {
+		return templateParser;
+	}
 }
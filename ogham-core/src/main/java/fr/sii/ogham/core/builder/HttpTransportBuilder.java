@@ -0,0 +1,169 @@
+package fr.sii.ogham.core.builder;
+
+import java.util.Properties;
+
+import fr.sii.ogham.core.util.http.ApacheHttpTransport;
+
+/**
+ * Builder that helps to construct the HTTP layer used by senders that call
+ * HTTP APIs. Each sender can have its own configuration: the properties are
+ * read using a prefix specific to the sender (for example
+ * <code>ogham.sms.ovh.http</code>). The available properties are (prefixed):
+ * <ul>
+ * <li><code>.max.connections</code>: the maximum number of connections in
+ * total</li>
+ * <li><code>.max.connections.per.route</code>: the maximum number of
+ * connections to the same host</li>
+ * <li><code>.timeout.connect</code>: the maximum time (in milliseconds) to
+ * establish a connection</li>
+ * <li><code>.timeout.read</code>: the maximum time (in milliseconds) to wait
+ * for data</li>
+ * <li><code>.keep.alive</code>: the time (in milliseconds) an idle connection
+ * is kept open</li>
+ * </ul>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class HttpTransportBuilder implements Builder<ApacheHttpTransport> {
+	/**
+	 * The suffix of the property for the maximum number of connections
+	 */
+	public static final String MAX_CONNECTIONS_SUFFIX = ".max.connections";
+
+	/**
+	 * The suffix of the property for the maximum number of connections to the
+	 * same host
+	 */
+	public static final String MAX_CONNECTIONS_PER_ROUTE_SUFFIX = ".max.connections.per.route";
+
+	/**
+	 * The suffix of the property for the connection timeout
+	 */
+	public static final String CONNECT_TIMEOUT_SUFFIX = ".timeout.connect";
+
+	/**
+	 * The suffix of the property for the read timeout
+	 */
+	public static final String READ_TIMEOUT_SUFFIX = ".timeout.read";
+
+	/**
+	 * The suffix of the property for the keep-alive duration
+	 */
+	public static final String KEEP_ALIVE_SUFFIX = ".keep.alive";
+
+	/**
+	 * The default maximum number of connections
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 100;
+
+	/**
+	 * The default maximum number of connections to the same host
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+	/**
+	 * The default connection timeout
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+	/**
+	 * The default read timeout
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+	/**
+	 * The default keep-alive duration
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 30000;
+
+	private int maxConnections;
+
+	private int maxConnectionsPerRoute;
+
+	private int connectTimeout;
+
+	private int readTimeout;
+
+	private long keepAlive;
+
+	public HttpTransportBuilder() {
+		super();
+		maxConnections = DEFAULT_MAX_CONNECTIONS;
+		maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+		connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+		readTimeout = DEFAULT_READ_TIMEOUT;
+		keepAlive = DEFAULT_KEEP_ALIVE;
+	}
+
+	@Override
+	public ApacheHttpTransport build() {
+		return new ApacheHttpTransport(maxConnections, maxConnectionsPerRoute, connectTimeout, readTimeout, keepAlive);
+	}
+
+	/**
+	 * Configure the transport using the properties that start with the
+	 * provided prefix. Missing properties keep their current value.
+	 * 
+	 * @param props
+	 *            the properties to use
+	 * @param prefix
+	 *            the prefix of the properties specific to a sender
+	 * @return this instance for fluent use
+	 */
+	public HttpTransportBuilder useDefaults(Properties props, String prefix) {
+		maxConnections = getProperty(props, prefix + MAX_CONNECTIONS_SUFFIX, maxConnections);
+		maxConnectionsPerRoute = getProperty(props, prefix + MAX_CONNECTIONS_PER_ROUTE_SUFFIX, maxConnectionsPerRoute);
+		connectTimeout = getProperty(props, prefix + CONNECT_TIMEOUT_SUFFIX, connectTimeout);
+		readTimeout = getProperty(props, prefix + READ_TIMEOUT_SUFFIX, readTimeout);
+		keepAlive = Long.parseLong(props.getProperty(prefix + KEEP_ALIVE_SUFFIX, String.valueOf(keepAlive)));
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of connections.
+	 * 
+	 * @param maxConnections
+	 *            the maximum number of connections in total
+	 * @param maxConnectionsPerRoute
+	 *            the maximum number of connections to the same host
+	 * @return this instance for fluent use
+	 */
+	public HttpTransportBuilder withMaxConnections(int maxConnections, int maxConnectionsPerRoute) {
+		this.maxConnections = maxConnections;
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
+	/**
+	 * Set the timeouts (0 for no timeout).
+	 * 
+	 * @param connectTimeout
+	 *            the maximum time (in milliseconds) to establish a connection
+	 * @param readTimeout
+	 *            the maximum time (in milliseconds) to wait for data
+	 * @return this instance for fluent use
+	 */
+	public HttpTransportBuilder withTimeouts(int connectTimeout, int readTimeout) {
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		return this;
+	}
+
+	/**
+	 * Set the time an idle connection is kept open when the server doesn't
+	 * indicate it.
+	 * 
+	 * @param keepAlive
+	 *            the keep-alive duration in milliseconds
+	 * @return this instance for fluent use
+	 */
+	public HttpTransportBuilder withKeepAlive(long keepAlive) {
+		this.keepAlive = keepAlive;
+		return this;
+	}
+
+	private static int getProperty(Properties props, String key, int defaultValue) {
+		return Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)));
+	}
+}
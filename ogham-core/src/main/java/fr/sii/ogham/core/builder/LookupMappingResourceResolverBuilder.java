@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.resource.resolver.CachingResourceResolver;
 import fr.sii.ogham.core.resource.resolver.ClassPathResolver;
 import fr.sii.ogham.core.resource.resolver.FileResolver;
 import fr.sii.ogham.core.resource.resolver.LookupMappingResolver;
@@ -62,6 +63,26 @@ public class LookupMappingResourceResolverBuilder implements Builder<LookupMappi
 	 */
 	private String suffix;
 
+	/**
+	 * True to keep resolved resources in memory
+	 */
+	private boolean cacheEnabled;
+
+	/**
+	 * The maximum total size (in bytes) of the cached resources
+	 */
+	private long cacheMaxSize;
+
+	/**
+	 * The maximum size (in bytes) of a single cached resource
+	 */
+	private long cacheMaxEntrySize;
+
+	/**
+	 * The time (in milliseconds) a resource is kept in cache
+	 */
+	private long cacheTimeToLive;
+
 	public LookupMappingResourceResolverBuilder() {
 		super();
 		resolvers = new HashMap<>();
@@ -71,13 +92,25 @@ public class LookupMappingResourceResolverBuilder implements Builder<LookupMappi
 
 	@Override
 	public LookupMappingResolver build() throws BuildException {
+		// work on a copy to be able to build several times without applying
+		// prefix and suffix twice
+		Map<String, ResourceResolver> built = new HashMap<>(resolvers);
 		if (!prefix.isEmpty() || !suffix.isEmpty()) {
 			LOG.debug("Using prefix {} and suffix {} for resource resolution", prefix, suffix);
 			for (Entry<String, ResourceResolver> entry : resolvers.entrySet()) {
-				resolvers.put(entry.getKey(), new RelativeResolver(entry.getValue(), prefix, suffix));
+				built.put(entry.getKey(), new RelativeResolver(entry.getValue(), prefix, suffix));
+			}
+		}
+		if (cacheEnabled) {
+			LOG.debug("Caching resolved resources (max size: {} bytes, time to live: {}ms)", cacheMaxSize, cacheTimeToLive);
+			for (Entry<String, ResourceResolver> entry : built.entrySet()) {
+				// string resources are already in memory
+				if (!(resolvers.get(entry.getKey()) instanceof StringResourceResolver)) {
+					entry.setValue(new CachingResourceResolver(entry.getValue(), cacheMaxSize, cacheMaxEntrySize, cacheTimeToLive));
+				}
 			}
 		}
-		return new LookupMappingResolver(resolvers);
+		return new LookupMappingResolver(built);
 	}
 
 	/**
@@ -187,4 +220,42 @@ public class LookupMappingResourceResolverBuilder implements Builder<LookupMappi
 		this.suffix = suffix;
 		return this;
 	}
+
+	/**
+	 * Keep the resolved resources in memory using the default limits (see
+	 * {@link CachingResourceResolver#DEFAULT_MAX_SIZE} and
+	 * {@link CachingResourceResolver#DEFAULT_MAX_ENTRY_SIZE}). Cached resources
+	 * never expire but resources that are files are loaded again when they are
+	 * modified.
+	 * 
+	 * @return The current builder for fluent use
+	 * @see CachingResourceResolver
+	 */
+	public LookupMappingResourceResolverBuilder withCache() {
+		return withCache(CachingResourceResolver.DEFAULT_MAX_SIZE, CachingResourceResolver.DEFAULT_MAX_ENTRY_SIZE, 0);
+	}
+
+	/**
+	 * Keep the resolved resources in memory. This is useful for resources that
+	 * are read directly for each message (CSS files, images...). Resources
+	 * loaded by template engines should rather rely on the cache of the
+	 * template engine.
+	 * 
+	 * @param maxSize
+	 *            the maximum total size (in bytes) of the cached resources
+	 * @param maxEntrySize
+	 *            the maximum size (in bytes) of a single cached resource
+	 * @param timeToLive
+	 *            the time (in milliseconds) a resource is kept in cache (0 or
+	 *            negative means no expiration)
+	 * @return The current builder for fluent use
+	 * @see CachingResourceResolver
+	 */
+	public LookupMappingResourceResolverBuilder withCache(long maxSize, long maxEntrySize, long timeToLive) {
+		cacheEnabled = true;
+		cacheMaxSize = maxSize;
+		cacheMaxEntrySize = maxEntrySize;
+		cacheTimeToLive = timeToLive;
+		return this;
+	}
 }
@@ -8,12 +8,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.resource.resolver.MemoryResourceResolver;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
 import fr.sii.ogham.core.sender.ConditionalSender;
+import fr.sii.ogham.core.service.AsyncMessagingService;
+import fr.sii.ogham.core.service.AsyncMessagingService.RejectionPolicy;
+import fr.sii.ogham.core.service.BulkMessagingService;
 import fr.sii.ogham.core.service.WrapExceptionMessagingService;
 import fr.sii.ogham.core.service.EverySupportingMessagingService;
 import fr.sii.ogham.core.service.MessagingService;
+import fr.sii.ogham.core.template.parser.TemplateParser;
 import fr.sii.ogham.core.util.BuilderUtils;
 import fr.sii.ogham.email.builder.EmailBuilder;
+import fr.sii.ogham.email.merge.MailMerge;
 import fr.sii.ogham.sms.builder.SmsBuilder;
 
 /**
@@ -46,9 +53,35 @@ public class MessagingBuilder implements MessagingServiceBuilder {
 	 */
 	private EmailBuilder emailBuilder;
 
+	/**
+	 * The maximum number of messages sent in parallel by the asynchronous
+	 * service
+	 */
+	private int asyncThreads;
+
+	/**
+	 * The maximum number of messages waiting to be sent by the asynchronous
+	 * service
+	 */
+	private int asyncQueueCapacity;
+
+	/**
+	 * The behavior of the asynchronous service when the queue is full
+	 */
+	private RejectionPolicy asyncRejectionPolicy;
+
+	/**
+	 * The templates prepared for mail-merge (registered as template lookup
+	 * only once)
+	 */
+	private MemoryResourceResolver mailMergeTemplates;
+
 	public MessagingBuilder() {
 		super();
 		builders = new ArrayList<MessagingSenderBuilder<ConditionalSender>>();
+		asyncThreads = Runtime.getRuntime().availableProcessors();
+		asyncQueueCapacity = 1000;
+		asyncRejectionPolicy = RejectionPolicy.BLOCK;
 	}
 
 	/**
@@ -65,6 +98,19 @@ public class MessagingBuilder implements MessagingServiceBuilder {
 	 *             when one of the sender couldn't be built
 	 */
 	public MessagingService build() throws BuildException {
+		return buildBulk();
+	}
+
+	/**
+	 * Build the messaging service (see {@link #build()}) with the ability to
+	 * send many messages at once (see
+	 * {@link BulkMessagingService#sendAll(java.util.Collection)}).
+	 * 
+	 * @return the messaging service instance
+	 * @throws BuildException
+	 *             when one of the sender couldn't be built
+	 */
+	public BulkMessagingService buildBulk() throws BuildException {
 		List<ConditionalSender> senders = new ArrayList<ConditionalSender>();
 		for (MessagingSenderBuilder<ConditionalSender> builder : builders) {
 			senders.add(builder.build());
@@ -74,6 +120,77 @@ public class MessagingBuilder implements MessagingServiceBuilder {
 		return new WrapExceptionMessagingService(new EverySupportingMessagingService(senders));
 	}
 
+	/**
+	 * Build the messaging service (see {@link #buildBulk()}) and the
+	 * mail-merge helper that sends the same template to many recipients. The
+	 * template is loaded using the same resolvers (with same prefix and
+	 * suffix) as the email templates. The translators and the template engines
+	 * configured for emails are used to prepare and evaluate the template.
+	 * 
+	 * @return the mail-merge helper
+	 * @throws BuildException
+	 *             when one of the sender couldn't be built or when email
+	 *             templates are not enabled
+	 */
+	public MailMerge buildMailMerge() throws BuildException {
+		if (emailBuilder == null || emailBuilder.getContentTranslatorBuilder() == null || emailBuilder.getTemplateBuilder() == null) {
+			throw new BuildException("Mail-merge requires email with template support");
+		}
+		ContentTranslatorBuilder translatorBuilder = emailBuilder.getContentTranslatorBuilder();
+		// register the lookup for prepared templates before the template
+		// parser is built (only once even if several helpers are built)
+		if (mailMergeTemplates == null) {
+			mailMergeTemplates = new MemoryResourceResolver();
+			translatorBuilder.getTemplateBuilder().withLookupResolver(MailMerge.LOOKUP, mailMergeTemplates);
+		}
+		BulkMessagingService service = buildBulk();
+		TemplateParser parser = translatorBuilder.getTemplateParser();
+		if (parser == null) {
+			throw new BuildException("Mail-merge requires email with template support");
+		}
+		// template builder has already been built so prefix and suffix are
+		// resolved
+		ResourceResolver resolver = translatorBuilder.getTemplateBuilder().getResolverBuilder().build();
+		return new MailMerge(service, resolver, translatorBuilder.buildInlining(), parser, mailMergeTemplates);
+	}
+
+	/**
+	 * Build the messaging service (see {@link #build()}) and decorate it in
+	 * order to be able to send messages in background. See
+	 * {@link #withAsync(int, int, RejectionPolicy)} to configure the executor.
+	 * 
+	 * @return the asynchronous messaging service instance
+	 * @throws BuildException
+	 *             when one of the sender couldn't be built
+	 */
+	public AsyncMessagingService buildAsync() throws BuildException {
+		MessagingService service = build();
+		LOG.info("Using asynchronous service with {} threads and a queue of {} messages", asyncThreads, asyncQueueCapacity);
+		return new AsyncMessagingService(service, asyncThreads, asyncQueueCapacity, asyncRejectionPolicy);
+	}
+
+	/**
+	 * Configure the executor used by the service built with
+	 * {@link #buildAsync()}.
+	 * 
+	 * @param threads
+	 *            the maximum number of messages sent in parallel (number of
+	 *            available processors by default)
+	 * @param queueCapacity
+	 *            the maximum number of messages waiting to be sent (1000 by
+	 *            default)
+	 * @param policy
+	 *            the behavior when the queue is full ({@link RejectionPolicy#BLOCK}
+	 *            by default)
+	 * @return this builder instance for fluent use
+	 */
+	public MessagingBuilder withAsync(int threads, int queueCapacity, RejectionPolicy policy) {
+		asyncThreads = threads;
+		asyncQueueCapacity = queueCapacity;
+		asyncRejectionPolicy = policy;
+		return this;
+	}
+
 	/**
 	 * Tells the builder to use all default behavior and values. The
 	 * configuration values will be read from the system properties. The builder
@@ -0,0 +1,129 @@
+package fr.sii.ogham.core.message.content;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import fr.sii.ogham.core.util.EqualsBuilder;
+import fr.sii.ogham.core.util.HashCodeBuilder;
+
+/**
+ * HTML content that keeps the parsed document. The aim is to parse the HTML
+ * only once for all the steps that need to analyze or update it (CSS inlining,
+ * image inlining, subject extraction...) and to serialize it only once when the
+ * string is needed.
+ * <p>
+ * The document is parsed lazily the first time it is requested. The string
+ * value is generated from the document lazily too and kept until the document
+ * is updated (see {@link #setDocument(Document)}) or the string is replaced
+ * (see {@link #setStringContent(String)}).
+ * </p>
+ * <p>
+ * Any change made on the document returned by {@link #getDocument()} must be
+ * notified by calling {@link #setDocument(Document)} otherwise the string value
+ * may not reflect the changes.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class HtmlDocumentContent extends StringContent {
+	/**
+	 * The parsed HTML (null until parsed)
+	 */
+	private Document document;
+
+	/**
+	 * The HTML as string (null if it has to be generated from the document)
+	 */
+	private String html;
+
+	/**
+	 * Initialize the content with the HTML string. The HTML is parsed only
+	 * when the document is requested.
+	 *
+	 * @param html
+	 *            the HTML content
+	 */
+	public HtmlDocumentContent(String html) {
+		super(html);
+		this.html = html;
+	}
+
+	/**
+	 * Initialize the content with an already parsed HTML document.
+	 *
+	 * @param document
+	 *            the HTML document
+	 */
+	public HtmlDocumentContent(Document document) {
+		super(null);
+		this.document = document;
+	}
+
+	/**
+	 * Get the parsed HTML document. The HTML is parsed on first call, then the
+	 * same document is returned.
+	 *
+	 * @return the HTML document
+	 */
+	public Document getDocument() {
+		if (document == null) {
+			document = Jsoup.parse(html);
+		}
+		return document;
+	}
+
+	/**
+	 * Update the content with the document. This must also be called when the
+	 * document returned by {@link #getDocument()} has been modified.
+	 *
+	 * @param document
+	 *            the updated document
+	 */
+	public void setDocument(Document document) {
+		this.document = document;
+		this.html = null;
+	}
+
+	@Override
+	public String getMimeType() {
+		return "text/html";
+	}
+
+	@Override
+	public String getContent() {
+		if (html == null) {
+			html = document.outerHtml();
+		}
+		return html;
+	}
+
+	@Override
+	public String asString() {
+		return getContent();
+	}
+
+	@Override
+	public void setStringContent(String content) {
+		this.html = content;
+		this.document = null;
+	}
+
+	@Override
+	public String toString() {
+		return getContent();
+	}
+
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder().append(getContent()).hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		return new EqualsBuilder().append(getContent(), ((HtmlDocumentContent) obj).getContent()).isEqual();
+	}
+}
@@ -0,0 +1,104 @@
+package fr.sii.ogham.core.message.content;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Content that is not generated in memory but rendered directly into a
+ * {@link Writer} when the message is transmitted. For example, a template can
+ * be evaluated directly into the MIME body of an email instead of generating
+ * an intermediate string.
+ * <p>
+ * The content is rendered each time {@link #writeTo(Writer)} is called. As
+ * the content is not available as string, translators that need the string
+ * (CSS inlining, image inlining, subject extraction...) ignore this kind of
+ * content.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class RenderableContent implements Content {
+	/**
+	 * The function that generates the content
+	 */
+	private final Renderer renderer;
+
+	/**
+	 * The Mime Type of the rendered content
+	 */
+	private final String mimeType;
+
+	/**
+	 * Initialize the content with the renderer and the Mime Type of the
+	 * rendered content.
+	 * 
+	 * @param renderer
+	 *            the function that generates the content
+	 * @param mimeType
+	 *            the Mime Type of the rendered content
+	 */
+	public RenderableContent(Renderer renderer, String mimeType) {
+		super();
+		this.renderer = renderer;
+		this.mimeType = mimeType;
+	}
+
+	/**
+	 * Render the content into the writer.
+	 * 
+	 * @param writer
+	 *            the writer that receives the content
+	 * @throws IOException
+	 *             when the content couldn't be rendered or written
+	 */
+	public void writeTo(Writer writer) throws IOException {
+		renderer.render(writer);
+	}
+
+	/**
+	 * Render the content into a string. This should only be used by
+	 * implementations that can't work with streams.
+	 * 
+	 * @return the rendered content
+	 * @throws IOException
+	 *             when the content couldn't be rendered
+	 */
+	public String renderToString() throws IOException {
+		StringWriter writer = new StringWriter();
+		writeTo(writer);
+		return writer.toString();
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	public Renderer getRenderer() {
+		return renderer;
+	}
+
+	@Override
+	public String toString() {
+		return "RenderableContent [renderer=" + renderer + ", mimeType=" + mimeType + "]";
+	}
+
+	/**
+	 * Generates the content into a writer.
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	public static interface Renderer {
+		/**
+		 * Generate the content into the writer.
+		 * 
+		 * @param writer
+		 *            the writer that receives the content
+		 * @throws IOException
+		 *             when the content couldn't be generated or written
+		 */
+		public void render(Writer writer) throws IOException;
+	}
+}
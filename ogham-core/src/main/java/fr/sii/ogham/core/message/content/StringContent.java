@@ -16,6 +16,12 @@ public class StringContent implements MayHaveStringContent, UpdatableStringConte
 	 */
 	private String content;
 
+	/**
+	 * The Mime Type of the content if already known (null if it has to be
+	 * detected)
+	 */
+	private String mimeType;
+
 	/**
 	 * Initialize the content with the string.
 	 * 
@@ -23,8 +29,23 @@ public class StringContent implements MayHaveStringContent, UpdatableStringConte
 	 *            the content value
 	 */
 	public StringContent(String content) {
+		this(content, null);
+	}
+
+	/**
+	 * Initialize the content with the string and its Mime Type. When the Mime
+	 * Type is known (for example from the template extension), there is no
+	 * need to detect it when the message is sent.
+	 * 
+	 * @param content
+	 *            the content value
+	 * @param mimeType
+	 *            the Mime Type of the content (null if unknown)
+	 */
+	public StringContent(String content, String mimeType) {
 		super();
 		this.content = content;
+		this.mimeType = mimeType;
 	}
 
 	/**
@@ -36,6 +57,15 @@ public class StringContent implements MayHaveStringContent, UpdatableStringConte
 		return content;
 	}
 
+	/**
+	 * Get the Mime Type of the content if it is already known.
+	 * 
+	 * @return the Mime Type or null if it has to be detected
+	 */
+	public String getMimeType() {
+		return mimeType;
+	}
+
 	@Override
 	public String toString() {
 		return content;
@@ -1,6 +1,6 @@
 package fr.sii.ogham.core.mimetype;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,7 +14,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
-import fr.sii.ogham.core.util.IOUtils;
 
 /**
  * Implementation that will try several delegate implementations until one is
@@ -74,10 +73,16 @@ public class FallbackMimeTypeProvider implements MimeTypeProvider {
 
 	@Override
 	public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+		return detect(stream, null);
+	}
+
+	@Override
+	public MimeType detect(InputStream stream, String name) throws MimeTypeDetectionException {
 		try {
-			ByteArrayInputStream copy = new ByteArrayInputStream(IOUtils.toByteArray(stream));
-			copy.mark(Integer.MAX_VALUE);
-			MimeType mimetype = detect(copy);
+			// only the bytes actually read by the providers are kept in memory
+			InputStream markable = stream.markSupported() ? stream : new BufferedInputStream(stream);
+			markable.mark(Integer.MAX_VALUE);
+			MimeType mimetype = detectMarked(markable, name);
 			if(mimetype==null) {
 				throw new MimeTypeDetectionException("No mimetype provider could provide the mimetype from the provided content");
 			}
@@ -87,12 +92,12 @@ public class FallbackMimeTypeProvider implements MimeTypeProvider {
 		}
 	}
 
-	private MimeType detect(ByteArrayInputStream copy) {
+	private MimeType detectMarked(InputStream copy, String name) throws IOException {
 		MimeType mimetype = null;
 		for (MimeTypeProvider provider : providers) {
 			try {
 				LOG.debug("Trying to get mime type from stream using {}", provider);
-				mimetype = provider.detect(copy);
+				mimetype = provider.detect(copy, name);
 				LOG.debug("{} has detected mime type {} from stream", provider, mimetype);
 				break;
 			} catch (MimeTypeDetectionException e) {
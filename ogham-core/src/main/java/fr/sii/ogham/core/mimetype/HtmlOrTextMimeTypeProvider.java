@@ -0,0 +1,107 @@
+package fr.sii.ogham.core.mimetype;
+
+import java.io.File;
+import java.io.InputStream;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+
+/**
+ * Lightweight detection dedicated to message bodies. A string content is
+ * either <code>text/html</code> or <code>text/plain</code>. The content is
+ * considered as HTML if a doctype or an <code>html</code> tag is found at the
+ * beginning of the content. Only the first characters are inspected (see
+ * {@link #DEFAULT_MAX_SCAN_SIZE}) and nothing is allocated for the analysis.
+ * <p>
+ * Files and streams are not supported: a {@link MimeTypeDetectionException}
+ * is thrown so another provider can be used (see
+ * {@link FallbackMimeTypeProvider}).
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class HtmlOrTextMimeTypeProvider implements MimeTypeProvider {
+	/**
+	 * The default maximum number of characters to inspect
+	 */
+	public static final int DEFAULT_MAX_SCAN_SIZE = 1024;
+
+	private static final String HTML_TAG = "<html";
+	private static final String DOCTYPE_HTML = "<!doctype html";
+
+	/**
+	 * The maximum number of characters to inspect
+	 */
+	private final int maxScanSize;
+
+	public HtmlOrTextMimeTypeProvider() {
+		this(DEFAULT_MAX_SCAN_SIZE);
+	}
+
+	/**
+	 * Initialize the provider with the maximum number of characters to
+	 * inspect.
+	 * 
+	 * @param maxScanSize
+	 *            the maximum number of characters to inspect
+	 */
+	public HtmlOrTextMimeTypeProvider(int maxScanSize) {
+		super();
+		this.maxScanSize = maxScanSize;
+	}
+
+	@Override
+	public MimeType getMimeType(File file) throws MimeTypeDetectionException {
+		throw new MimeTypeDetectionException("Only string contents are supported");
+	}
+
+	@Override
+	public MimeType getMimeType(String filePath) throws MimeTypeDetectionException {
+		throw new MimeTypeDetectionException("Only string contents are supported");
+	}
+
+	@Override
+	public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+		throw new MimeTypeDetectionException("Only string contents are supported");
+	}
+
+	@Override
+	public MimeType detect(InputStream stream, String name) throws MimeTypeDetectionException {
+		return detect(stream);
+	}
+
+	@Override
+	public MimeType detect(String content) throws MimeTypeDetectionException {
+		try {
+			return new MimeType("text", isHtml(content) ? "html" : "plain");
+		} catch (MimeTypeParseException e) {
+			throw new MimeTypeDetectionException("Invalid mimetype", e);
+		}
+	}
+
+	/**
+	 * Indicates if the beginning of the content contains a doctype or an
+	 * <code>html</code> tag.
+	 * 
+	 * @param content
+	 *            the content to inspect
+	 * @return true if the content is HTML
+	 */
+	public boolean isHtml(String content) {
+		int end = Math.min(content.length(), maxScanSize);
+		for (int i = 0; i < end; i++) {
+			if (content.charAt(i) == '<' && (content.regionMatches(true, i, HTML_TAG, 0, HTML_TAG.length()) || content.regionMatches(true, i, DOCTYPE_HTML, 0, DOCTYPE_HTML.length()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "HtmlOrTextMimeTypeProvider [maxScanSize=" + maxScanSize + "]";
+	}
+}
@@ -77,6 +77,11 @@ public class JMimeMagicProvider implements MimeTypeProvider {
 		}
 	}
 
+	@Override
+	public MimeType detect(InputStream stream, String name) throws MimeTypeDetectionException {
+		return detect(stream);
+	}
+
 	@Override
 	public MimeType detect(String content) throws MimeTypeDetectionException {
 		try {
@@ -56,6 +56,11 @@ public class JavaActivationProvider implements MimeTypeProvider {
 		return null;
 	}
 
+	@Override
+	public MimeType detect(InputStream stream, String name) throws MimeTypeDetectionException {
+		return detect(stream);
+	}
+
 	@Override
 	public MimeType detect(String content) throws MimeTypeDetectionException {
 		// TODO delegate to another mimetype engine capable of detecting
@@ -82,6 +82,23 @@ public interface MimeTypeProvider {
 	 */
 	public MimeType detect(InputStream stream) throws MimeTypeDetectionException;
 
+	/**
+	 * Get the Mime Type of a named content. The name is not a path to a
+	 * readable file, it can only be used as a hint (the extension for
+	 * example). Implementations that don't use the name detect the Mime Type
+	 * from the content only.
+	 * 
+	 * @param stream
+	 *            the content to analyze
+	 * @param name
+	 *            the name of the content (may be null)
+	 * @return the Mime Type of the stream
+	 * @throws MimeTypeDetectionException
+	 *             when the Mime Type detection has either failed due to
+	 *             unreadable file or because no Mime Type could be determined
+	 */
+	public MimeType detect(InputStream stream, String name) throws MimeTypeDetectionException;
+
 	/**
 	 * Get the Mime Type based on the content. The detection is done using magic
 	 * numbers algorithm.
@@ -0,0 +1,428 @@
+package fr.sii.ogham.core.mimetype;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+
+/**
+ * Fast Mime Type detection based on:
+ * <ul>
+ * <li>the extension of the file (or of the name of the content) if it is
+ * known (no read at all)</li>
+ * <li>the magic numbers found in the first bytes of the content</li>
+ * <li>a simple text analysis (plain text, HTML, XML, SVG) if no magic number
+ * matches</li>
+ * </ul>
+ * <p>
+ * The signatures are compiled into a prefix tree so each byte of the header is
+ * read only once whatever the number of signatures. Only the first bytes are
+ * read from streams (the size of the longest signature, at least
+ * {@link #MIN_HEADER_SIZE}).
+ * </p>
+ * <p>
+ * The Mime Types detected for files are kept in memory (up to
+ * {@link #DEFAULT_CACHE_SIZE} files). The cached value is used as long as the
+ * file is not modified (same modification date and size).
+ * </p>
+ * <p>
+ * If the Mime Type can't be determined, a {@link MimeTypeDetectionException}
+ * is thrown so another provider can be used (see
+ * {@link FallbackMimeTypeProvider}).
+ * </p>
+ * <p>
+ * Signatures and extensions must be registered before using the provider.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SignatureMimeTypeProvider implements MimeTypeProvider {
+	private static final Logger LOG = LoggerFactory.getLogger(SignatureMimeTypeProvider.class);
+
+	/**
+	 * The minimum number of bytes read from the content for text analysis
+	 */
+	public static final int MIN_HEADER_SIZE = 512;
+
+	/**
+	 * The default maximum number of files in cache
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private static final int WILDCARD = -1;
+	private static final int BYTE_MASK = 0xFF;
+	private static final int HEX = 16;
+	private static final int TAB = 0x09;
+	private static final int CARRIAGE_RETURN = 0x0D;
+	private static final int ESCAPE = 0x1B;
+	private static final int SPACE = 0x20;
+
+	/**
+	 * The root of the prefix tree of signatures
+	 */
+	private final Node signatures;
+
+	/**
+	 * The Mime Types indexed by lower case extension
+	 */
+	private final Map<String, String> extensions;
+
+	/**
+	 * The Mime Types already detected for files
+	 */
+	private final Map<String, CachedMimeType> cache;
+
+	/**
+	 * The size of the longest signature
+	 */
+	private int headerSize;
+
+	/**
+	 * Initialize with the default signatures and extensions.
+	 */
+	public SignatureMimeTypeProvider() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Initialize with the default signatures and extensions.
+	 * 
+	 * @param cacheSize
+	 *            the maximum number of files in cache (0 to disable the
+	 *            cache)
+	 */
+	public SignatureMimeTypeProvider(final int cacheSize) {
+		super();
+		signatures = new Node();
+		extensions = new HashMap<>();
+		headerSize = MIN_HEADER_SIZE;
+		cache = new LinkedHashMap<String, CachedMimeType>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<String, CachedMimeType> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		registerDefaults();
+	}
+
+	/**
+	 * Register a magic number signature. The signature is written in
+	 * hexadecimal. Each byte is separated by a space. A byte can be replaced
+	 * by <code>??</code> to match any value. For example, WebP images are
+	 * registered with <code>"52 49 46 46 ?? ?? ?? ?? 57 45 42 50"</code>.
+	 * <p>
+	 * If several signatures match, the longest one is used.
+	 * </p>
+	 * 
+	 * @param mimeType
+	 *            the Mime Type associated to the signature
+	 * @param signature
+	 *            the signature
+	 * @return this instance for fluent use
+	 */
+	public SignatureMimeTypeProvider registerSignature(String mimeType, String signature) {
+		String[] parts = signature.trim().split("\\s+");
+		Node node = signatures;
+		for (String part : parts) {
+			int value = "??".equals(part) ? WILDCARD : Integer.parseInt(part, HEX);
+			node = node.child(value);
+		}
+		node.mimeType = mimeType;
+		headerSize = Math.max(headerSize, parts.length);
+		return this;
+	}
+
+	/**
+	 * Register a Mime Type for a file extension.
+	 * 
+	 * @param extension
+	 *            the extension (without '.')
+	 * @param mimeType
+	 *            the Mime Type associated to the extension
+	 * @return this instance for fluent use
+	 */
+	public SignatureMimeTypeProvider registerExtension(String extension, String mimeType) {
+		extensions.put(extension.toLowerCase(Locale.ENGLISH), mimeType);
+		return this;
+	}
+
+	@Override
+	public MimeType getMimeType(File file) throws MimeTypeDetectionException {
+		String mimeType = getMimeTypeFromExtension(file.getName());
+		if (mimeType != null) {
+			LOG.debug("Mime type {} found for file {} from extension", mimeType, file);
+			return toMimeType(mimeType);
+		}
+		String key = file.getAbsolutePath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+		CachedMimeType cached;
+		synchronized (cache) {
+			cached = cache.get(key);
+		}
+		if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+			LOG.debug("Mime type {} found for file {} in cache", cached.mimeType, file);
+			return toMimeType(cached.mimeType);
+		}
+		try (InputStream stream = new FileInputStream(file)) {
+			mimeType = detectMimeType(stream);
+		} catch (IOException e) {
+			throw new MimeTypeDetectionException("Failed to read the file " + file, e);
+		}
+		synchronized (cache) {
+			cache.put(key, new CachedMimeType(mimeType, lastModified, length));
+		}
+		LOG.debug("Mime type {} detected for file {}", mimeType, file);
+		return toMimeType(mimeType);
+	}
+
+	@Override
+	public MimeType getMimeType(String filePath) throws MimeTypeDetectionException {
+		String mimeType = getMimeTypeFromExtension(filePath);
+		if (mimeType != null) {
+			return toMimeType(mimeType);
+		}
+		return getMimeType(new File(filePath));
+	}
+
+	@Override
+	public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+		try {
+			return toMimeType(detectMimeType(stream));
+		} catch (IOException e) {
+			throw new MimeTypeDetectionException("Failed to detect the mimetype because the stream is not readable", e);
+		}
+	}
+
+	@Override
+	public MimeType detect(InputStream stream, String name) throws MimeTypeDetectionException {
+		String mimeType = name == null ? null : getMimeTypeFromExtension(name);
+		if (mimeType != null) {
+			LOG.debug("Mime type {} found for {} from extension", mimeType, name);
+			return toMimeType(mimeType);
+		}
+		return detect(stream);
+	}
+
+	@Override
+	public MimeType detect(String content) throws MimeTypeDetectionException {
+		return toMimeType(detectText(content));
+	}
+
+	/**
+	 * Remove all the Mime Types detected for files.
+	 */
+	public void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private String getMimeTypeFromExtension(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		if (dot < 0 || dot < fileName.lastIndexOf('/') || dot < fileName.lastIndexOf(File.separatorChar)) {
+			return null;
+		}
+		return extensions.get(fileName.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+	}
+
+	private String detectMimeType(InputStream stream) throws IOException, MimeTypeDetectionException {
+		byte[] header = new byte[headerSize];
+		int length = 0;
+		int read;
+		while (length < header.length && (read = stream.read(header, length, header.length - length)) != -1) {
+			length += read;
+		}
+		String mimeType = signatures.match(header, length, 0);
+		if (mimeType != null) {
+			return mimeType;
+		}
+		if (!isText(header, length)) {
+			throw new MimeTypeDetectionException("No signature matches the content");
+		}
+		return detectText(new String(header, 0, length, ISO_8859_1));
+	}
+
+	private static String detectText(String text) {
+		int end = Math.min(text.length(), MIN_HEADER_SIZE);
+		String start = text.substring(0, end).trim().toLowerCase(Locale.ENGLISH);
+		if (start.contains("<svg")) {
+			return "image/svg+xml";
+		}
+		if (start.contains("<!doctype html") || start.contains("<html")) {
+			return "text/html";
+		}
+		if (start.startsWith("<?xml")) {
+			return "application/xml";
+		}
+		return "text/plain";
+	}
+
+	private static boolean isText(byte[] header, int length) {
+		for (int i = 0; i < length; i++) {
+			int b = header[i] & BYTE_MASK;
+			if (b < SPACE && (b < TAB || b > CARRIAGE_RETURN) && b != ESCAPE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static MimeType toMimeType(String mimeType) throws MimeTypeDetectionException {
+		try {
+			return new MimeType(mimeType);
+		} catch (MimeTypeParseException e) {
+			throw new MimeTypeDetectionException("Invalid mimetype", e);
+		}
+	}
+
+	private void registerDefaults() {
+		// @formatter:off
+		registerSignature("image/png", "89 50 4E 47 0D 0A 1A 0A");
+		registerSignature("image/jpeg", "FF D8 FF");
+		registerSignature("image/gif", "47 49 46 38 37 61");
+		registerSignature("image/gif", "47 49 46 38 39 61");
+		registerSignature("image/bmp", "42 4D");
+		registerSignature("image/tiff", "49 49 2A 00");
+		registerSignature("image/tiff", "4D 4D 00 2A");
+		registerSignature("image/x-icon", "00 00 01 00");
+		registerSignature("image/webp", "52 49 46 46 ?? ?? ?? ?? 57 45 42 50");
+		registerSignature("audio/x-wav", "52 49 46 46 ?? ?? ?? ?? 57 41 56 45");
+		registerSignature("video/x-msvideo", "52 49 46 46 ?? ?? ?? ?? 41 56 49 20");
+		registerSignature("video/mp4", "?? ?? ?? ?? 66 74 79 70");
+		registerSignature("audio/mpeg", "49 44 33");
+		registerSignature("audio/ogg", "4F 67 67 53");
+		registerSignature("audio/flac", "66 4C 61 43");
+		registerSignature("audio/midi", "4D 54 68 64");
+		registerSignature("application/pdf", "25 50 44 46 2D");
+		registerSignature("application/postscript", "25 21 50 53");
+		registerSignature("application/rtf", "7B 5C 72 74 66");
+		registerSignature("application/zip", "50 4B 03 04");
+		registerSignature("application/zip", "50 4B 05 06");
+		registerSignature("application/gzip", "1F 8B");
+		registerSignature("application/x-bzip2", "42 5A 68");
+		registerSignature("application/x-7z-compressed", "37 7A BC AF 27 1C");
+		registerSignature("application/x-rar-compressed", "52 61 72 21 1A 07");
+		registerSignature("application/x-msdownload", "4D 5A");
+		registerSignature("application/msword", "D0 CF 11 E0 A1 B1 1A E1");
+		registerSignature("application/font-woff", "77 4F 46 46");
+		registerSignature("application/font-woff2", "77 4F 46 32");
+		registerExtension("png", "image/png");
+		registerExtension("jpg", "image/jpeg");
+		registerExtension("jpeg", "image/jpeg");
+		registerExtension("gif", "image/gif");
+		registerExtension("bmp", "image/bmp");
+		registerExtension("tif", "image/tiff");
+		registerExtension("tiff", "image/tiff");
+		registerExtension("ico", "image/x-icon");
+		registerExtension("webp", "image/webp");
+		registerExtension("svg", "image/svg+xml");
+		registerExtension("pdf", "application/pdf");
+		registerExtension("zip", "application/zip");
+		registerExtension("gz", "application/gzip");
+		registerExtension("doc", "application/msword");
+		registerExtension("xls", "application/vnd.ms-excel");
+		registerExtension("ppt", "application/vnd.ms-powerpoint");
+		registerExtension("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+		registerExtension("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+		registerExtension("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+		registerExtension("odt", "application/vnd.oasis.opendocument.text");
+		registerExtension("ods", "application/vnd.oasis.opendocument.spreadsheet");
+		registerExtension("rtf", "application/rtf");
+		registerExtension("txt", "text/plain");
+		registerExtension("csv", "text/csv");
+		registerExtension("html", "text/html");
+		registerExtension("htm", "text/html");
+		registerExtension("css", "text/css");
+		registerExtension("js", "application/javascript");
+		registerExtension("json", "application/json");
+		registerExtension("xml", "application/xml");
+		registerExtension("ics", "text/calendar");
+		registerExtension("mp3", "audio/mpeg");
+		registerExtension("mp4", "video/mp4");
+		// @formatter:on
+	}
+
+	@Override
+	public String toString() {
+		return "SignatureMimeTypeProvider [extensions=" + extensions.size() + ", headerSize=" + headerSize + "]";
+	}
+
+	/**
+	 * Node of the prefix tree. A node is reached by a byte value or by any
+	 * byte (wildcard).
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class Node {
+		private Node[] children;
+		private Node any;
+		private String mimeType;
+
+		public Node child(int value) {
+			if (value == WILDCARD) {
+				if (any == null) {
+					any = new Node();
+				}
+				return any;
+			}
+			if (children == null) {
+				children = new Node[BYTE_MASK + 1];
+			}
+			if (children[value] == null) {
+				children[value] = new Node();
+			}
+			return children[value];
+		}
+
+		/**
+		 * Find the longest signature that matches the header starting at this
+		 * node.
+		 */
+		public String match(byte[] header, int length, int index) {
+			if (index < length) {
+				Node exact = children == null ? null : children[header[index] & BYTE_MASK];
+				String found = exact == null ? null : exact.match(header, length, index + 1);
+				if (found == null && any != null) {
+					found = any.match(header, length, index + 1);
+				}
+				if (found != null) {
+					return found;
+				}
+			}
+			return mimeType;
+		}
+	}
+
+	private static class CachedMimeType {
+		private final String mimeType;
+		private final long lastModified;
+		private final long length;
+
+		public CachedMimeType(String mimeType, long lastModified, long length) {
+			super();
+			this.mimeType = mimeType;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+}
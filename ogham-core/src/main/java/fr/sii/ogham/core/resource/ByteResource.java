@@ -27,8 +27,21 @@ public class ByteResource implements NamedResource {
 	 */
 	private String name;
 
+	/**
+	 * Initialize the resource with the provided name and the content of the
+	 * stream. The bytes read from the stream are not copied again.
+	 * 
+	 * @param name
+	 *            the name of the resource
+	 * @param stream
+	 *            the content of the resource
+	 * @throws IOException
+	 *             when the stream can't be read
+	 */
 	public ByteResource(String name, InputStream stream) throws IOException {
-		this(name, IOUtils.toByteArray(stream));
+		super();
+		this.name = name;
+		this.bytes = IOUtils.toByteArray(stream);
 	}
 
 	/**
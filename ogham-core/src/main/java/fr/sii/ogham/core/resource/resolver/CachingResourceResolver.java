@@ -0,0 +1,288 @@
+package fr.sii.ogham.core.resource.resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.resource.ByteResource;
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.core.resource.NamedResource;
+import fr.sii.ogham.core.resource.Resource;
+
+/**
+ * <p>
+ * Decorator resource resolver that keeps the content of the resolved resources
+ * in memory. The next resolutions of the same path are served from memory
+ * without reading the resource again.
+ * </p>
+ * <p>
+ * The cache is bounded by the total size of the cached contents. When the
+ * limit is reached, the least recently used resources are evicted. Resources
+ * that are bigger than the maximum size of an entry are never cached.
+ * Optionally, the cached resources expire after a time to live.
+ * </p>
+ * <p>
+ * If the delegate resolver provides a file (see {@link FileResource}), the
+ * modification date and the size of the file are checked on each resolution
+ * and the resource is loaded again if the file has changed.
+ * </p>
+ * <p>
+ * The cached resources are provided as {@link ByteResource} that shares the
+ * cached bytes.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class CachingResourceResolver implements ConditionalResolver {
+	private static final Logger LOG = LoggerFactory.getLogger(CachingResourceResolver.class);
+
+	/**
+	 * Default maximum total size of the cached resources (10MB)
+	 */
+	public static final long DEFAULT_MAX_SIZE = 10L * 1024 * 1024;
+
+	/**
+	 * Default maximum size of a single cached resource (1MB)
+	 */
+	public static final long DEFAULT_MAX_ENTRY_SIZE = 1024L * 1024;
+
+	/**
+	 * The delegate resolver that will do the real resource resolution
+	 */
+	private final ResourceResolver delegate;
+
+	/**
+	 * The maximum total size (in bytes) of the cached resources
+	 */
+	private final long maxSize;
+
+	/**
+	 * The maximum size (in bytes) of a single resource to be cached
+	 */
+	private final long maxEntrySize;
+
+	/**
+	 * The time (in milliseconds) a resource is kept in cache (0 or negative
+	 * means no expiration)
+	 */
+	private final long timeToLive;
+
+	/**
+	 * The cached resources indexed by path in access order
+	 */
+	private final LinkedHashMap<String, CacheEntry> cache;
+
+	/**
+	 * The current total size of the cached resources
+	 */
+	private long size;
+
+	/**
+	 * Initialize the resolver with the delegate and the default cache limits
+	 * ({@link #DEFAULT_MAX_SIZE} and {@link #DEFAULT_MAX_ENTRY_SIZE}). Entries
+	 * never expire.
+	 *
+	 * @param delegate
+	 *            the resolver that will do the real resource resolution
+	 */
+	public CachingResourceResolver(ResourceResolver delegate) {
+		this(delegate, DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Initialize the resolver with the delegate and the cache limits. Entries
+	 * never expire.
+	 *
+	 * @param delegate
+	 *            the resolver that will do the real resource resolution
+	 * @param maxSize
+	 *            the maximum total size (in bytes) of the cached resources
+	 * @param maxEntrySize
+	 *            the maximum size (in bytes) of a single resource to be cached
+	 */
+	public CachingResourceResolver(ResourceResolver delegate, long maxSize, long maxEntrySize) {
+		this(delegate, maxSize, maxEntrySize, 0);
+	}
+
+	/**
+	 * Initialize the resolver with the delegate and the cache limits.
+	 *
+	 * @param delegate
+	 *            the resolver that will do the real resource resolution
+	 * @param maxSize
+	 *            the maximum total size (in bytes) of the cached resources
+	 * @param maxEntrySize
+	 *            the maximum size (in bytes) of a single resource to be cached
+	 * @param timeToLive
+	 *            the time (in milliseconds) a resource is kept in cache (0 or
+	 *            negative means no expiration)
+	 */
+	public CachingResourceResolver(ResourceResolver delegate, long maxSize, long maxEntrySize, long timeToLive) {
+		super();
+		this.delegate = delegate;
+		this.maxSize = maxSize;
+		this.maxEntrySize = Math.min(maxEntrySize, maxSize);
+		this.timeToLive = timeToLive;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	@Override
+	public Resource getResource(String path) throws ResourceResolutionException {
+		CacheEntry entry = getValidEntry(path);
+		if (entry != null) {
+			LOG.trace("Resource {} served from cache", path);
+			return entry.resource;
+		}
+		Resource resource = delegate.getResource(path);
+		try {
+			return load(path, resource);
+		} catch (IOException e) {
+			throw new ResourceResolutionException("The resource " + path + " is not readable", path, e);
+		}
+	}
+
+	@Override
+	public boolean supports(String path) {
+		return delegate instanceof ConditionalResolver ? ((ConditionalResolver) delegate).supports(path) : true;
+	}
+
+	/**
+	 * Remove the resource from the cache.
+	 *
+	 * @param path
+	 *            the path of the resource
+	 */
+	public synchronized void invalidate(String path) {
+		remove(path);
+	}
+
+	/**
+	 * Remove all the resources from the cache.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return the current total size (in bytes) of the cached resources
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public ResourceResolver getDelegate() {
+		return delegate;
+	}
+
+	private synchronized CacheEntry getValidEntry(String path) {
+		CacheEntry entry = cache.get(path);
+		if (entry != null && !entry.isValid(timeToLive)) {
+			LOG.debug("Cached resource {} is outdated", path);
+			remove(path);
+			return null;
+		}
+		return entry;
+	}
+
+	private Resource load(String path, Resource resource) throws IOException {
+		File file = resource instanceof FileResource ? ((FileResource) resource).getFile() : null;
+		// read file information before reading content to detect updates
+		// while reading
+		long lastModified = file == null ? 0 : file.lastModified();
+		long length = file == null ? 0 : file.length();
+		if (file != null && length > maxEntrySize) {
+			LOG.debug("Resource {} is too big to be cached", path);
+			return resource;
+		}
+		ByteResource bytes = toByteResource(path, resource);
+		if (bytes.getBytes().length > maxEntrySize) {
+			LOG.debug("Resource {} is too big to be cached", path);
+			return bytes;
+		}
+		put(path, new CacheEntry(bytes, file, lastModified, length));
+		return bytes;
+	}
+
+	private synchronized void put(String path, CacheEntry entry) {
+		remove(path);
+		cache.put(path, entry);
+		size += entry.getSize();
+		Iterator<CacheEntry> it = cache.values().iterator();
+		while (size > maxSize && it.hasNext()) {
+			CacheEntry eldest = it.next();
+			it.remove();
+			size -= eldest.getSize();
+		}
+		LOG.debug("Resource {} cached (cache size: {} bytes)", path, size);
+	}
+
+	private void remove(String path) {
+		CacheEntry removed = cache.remove(path);
+		if (removed != null) {
+			size -= removed.getSize();
+		}
+	}
+
+	private static ByteResource toByteResource(String path, Resource resource) throws IOException {
+		if (resource instanceof ByteResource) {
+			return (ByteResource) resource;
+		}
+		String name = resource instanceof NamedResource ? ((NamedResource) resource).getName() : new File(path).getName();
+		InputStream stream = resource.getInputStream();
+		try {
+			return new ByteResource(name, stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("CachingResourceResolver [delegate=").append(delegate).append(", maxSize=").append(maxSize).append(", timeToLive=").append(timeToLive).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * A cached resource with the information needed to check if it is still
+	 * valid.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class CacheEntry {
+		private final ByteResource resource;
+		private final File file;
+		private final long lastModified;
+		private final long length;
+		private final long creationTime;
+
+		public CacheEntry(ByteResource resource, File file, long lastModified, long length) {
+			super();
+			this.resource = resource;
+			this.file = file;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.creationTime = System.currentTimeMillis();
+		}
+
+		public boolean isValid(long timeToLive) {
+			if (timeToLive > 0 && System.currentTimeMillis() - creationTime > timeToLive) {
+				return false;
+			}
+			return file == null || (file.exists() && file.lastModified() == lastModified && file.length() == length);
+		}
+
+		public long getSize() {
+			return resource.getBytes().length;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package fr.sii.ogham.core.resource.resolver;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.resource.Resource;
+import fr.sii.ogham.core.resource.SimpleResource;
+
+/**
+ * Resource resolver for contents that are already in memory. Unlike
+ * {@link StringResourceResolver}, the content is registered once and is then
+ * referenced by a short generated path. The path is absolute so no prefix or
+ * suffix is applied on it.
+ *
+ * <p>
+ * The content is only weakly referenced: it is available as long as the
+ * caller keeps a reference to the registered string.
+ * </p>
+ *
+ * <p>
+ * The content is provided as bytes encoded with {@link #getCharset()} (UTF-8
+ * by default). The template engines must decode it with the same charset.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class MemoryResourceResolver implements ResourceResolver {
+	/**
+	 * The registered contents indexed by their path
+	 */
+	private final ConcurrentMap<String, WeakReference<String>> contents;
+
+	/**
+	 * Used to generate the paths
+	 */
+	private final AtomicLong counter;
+
+	/**
+	 * The charset used to convert the contents into bytes
+	 */
+	private final Charset charset;
+
+	public MemoryResourceResolver() {
+		this(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Initialize the resolver.
+	 *
+	 * @param charset
+	 *            the charset used to convert the contents into bytes
+	 */
+	public MemoryResourceResolver(Charset charset) {
+		super();
+		this.contents = new ConcurrentHashMap<>();
+		this.counter = new AtomicLong();
+		this.charset = charset;
+	}
+
+	/**
+	 * Register the content and generate the path to use to resolve it.
+	 *
+	 * @param content
+	 *            the content to register
+	 * @return the path of the content
+	 */
+	public String register(String content) {
+		purge();
+		String path = "/" + counter.incrementAndGet();
+		contents.put(path, new WeakReference<>(content));
+		return path;
+	}
+
+	@Override
+	public Resource getResource(String path) throws ResourceResolutionException {
+		WeakReference<String> ref = contents.get(path);
+		String content = ref == null ? null : ref.get();
+		if (content == null) {
+			throw new ResourceResolutionException("No content registered in memory for path " + path, path);
+		}
+		return new SimpleResource(content.getBytes(charset));
+	}
+
+	/**
+	 * @return the charset used to convert the contents into bytes
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+	private void purge() {
+		for (Iterator<WeakReference<String>> it = contents.values().iterator(); it.hasNext();) {
+			if (it.next().get() == null) {
+				it.remove();
+			}
+		}
+	}
+}
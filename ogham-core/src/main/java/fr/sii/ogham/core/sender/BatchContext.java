@@ -0,0 +1,143 @@
+package fr.sii.ogham.core.sender;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scope opened while several messages are sent one after the other by the same
+ * thread (see
+ * {@link fr.sii.ogham.core.service.BulkMessagingService#sendAll(java.util.Iterator, fr.sii.ogham.core.service.BulkSendListener)}
+ * ).
+ *
+ * <p>
+ * Sender implementations can use it to keep a resource (a connection for
+ * example) for the whole batch instead of acquiring and releasing it for each
+ * message. The resources registered in the context are released when the
+ * batch ends.
+ * </p>
+ *
+ * <p>
+ * Batches can be nested: the context is really ended only when the outermost
+ * batch ends.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public final class BatchContext {
+	private static final Logger LOG = LoggerFactory.getLogger(BatchContext.class);
+
+	private static final ThreadLocal<BatchContext> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * The resources kept during the batch indexed by a key chosen by the
+	 * sender
+	 */
+	private final Map<Object, Resource> resources;
+
+	/**
+	 * The number of nested batches
+	 */
+	private int depth;
+
+	private BatchContext() {
+		super();
+		resources = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Start a batch for the current thread. If a batch is already started, the
+	 * same context is returned.
+	 *
+	 * @return the context of the batch
+	 */
+	public static BatchContext begin() {
+		BatchContext context = CURRENT.get();
+		if (context == null) {
+			context = new BatchContext();
+			CURRENT.set(context);
+		}
+		context.depth++;
+		return context;
+	}
+
+	/**
+	 * Get the batch started by the current thread.
+	 *
+	 * @return the context of the batch or null if no batch is started
+	 */
+	public static BatchContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * End the batch. If it is the outermost batch, all registered resources are
+	 * released.
+	 */
+	public void end() {
+		if (--depth > 0) {
+			return;
+		}
+		CURRENT.remove();
+		List<Resource> toRelease = new ArrayList<>(resources.values());
+		resources.clear();
+		for (Resource resource : toRelease) {
+			try {
+				resource.release();
+			} catch (RuntimeException e) {
+				LOG.warn("Failed to release resource " + resource + " at the end of the batch", e);
+			}
+		}
+	}
+
+	/**
+	 * Get a resource registered during the batch.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @return the resource or null if not registered
+	 */
+	public Resource get(Object key) {
+		return resources.get(key);
+	}
+
+	/**
+	 * Register a resource that will be released at the end of the batch.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @param resource
+	 *            the resource to keep during the batch
+	 */
+	public void put(Object key, Resource resource) {
+		resources.put(key, resource);
+	}
+
+	/**
+	 * Unregister a resource. The resource is not released at the end of the
+	 * batch anymore.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @return the unregistered resource or null if not registered
+	 */
+	public Resource remove(Object key) {
+		return resources.remove(key);
+	}
+
+	/**
+	 * A resource kept during the whole batch.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	public static interface Resource {
+		/**
+		 * Called at the end of the batch.
+		 */
+		public void release();
+	}
+}
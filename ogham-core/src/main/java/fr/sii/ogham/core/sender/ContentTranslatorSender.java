@@ -1,5 +1,7 @@
 package fr.sii.ogham.core.sender;
 
+import java.io.Closeable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,6 +10,7 @@ import fr.sii.ogham.core.exception.MessageNotSentException;
 import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
 import fr.sii.ogham.core.message.Message;
 import fr.sii.ogham.core.translator.content.ContentTranslator;
+import fr.sii.ogham.core.util.IOUtils;
 
 /**
  * Decorator sender that transforms the content of the message before really
@@ -18,7 +21,7 @@ import fr.sii.ogham.core.translator.content.ContentTranslator;
  * @author Aurélien Baudet
  * @see ContentTranslator
  */
-public class ContentTranslatorSender implements ConditionalSender {
+public class ContentTranslatorSender implements ConditionalSender, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(ContentTranslatorSender.class);
 
 	/**
@@ -66,6 +69,14 @@ public class ContentTranslatorSender implements ConditionalSender {
 		}
 	}
 
+	/**
+	 * Close the decorated sender if it holds resources.
+	 */
+	@Override
+	public void close() {
+		IOUtils.closeQuietly(delegate);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -1,5 +1,6 @@
 package fr.sii.ogham.core.sender;
 
+import java.io.Closeable;
 import java.util.Arrays;
 import java.util.List;
 
@@ -8,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.util.IOUtils;
 
 /**
  * Decorator implementation that will try to send the message until one
@@ -18,7 +20,7 @@ import fr.sii.ogham.core.message.Message;
  * @author Aurélien Baudet
  *
  */
-public class FallbackSender implements MessageSender {
+public class FallbackSender implements MessageSender, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(FallbackSender.class);
 
 	/**
@@ -74,4 +76,14 @@ public class FallbackSender implements MessageSender {
 	public void addSender(MessageSender sender) {
 		senders.add(sender);
 	}
+
+	/**
+	 * Close every registered sender that holds resources.
+	 */
+	@Override
+	public void close() {
+		for (MessageSender sender : senders) {
+			IOUtils.closeQuietly(sender);
+		}
+	}
 }
@@ -1,11 +1,14 @@
 package fr.sii.ogham.core.sender;
 
+import java.io.Closeable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.filler.MessageFiller;
 import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.util.IOUtils;
 
 /**
  * Decorator sender that adds extra information to the message. This sender
@@ -16,7 +19,7 @@ import fr.sii.ogham.core.message.Message;
  * @author Aurélien Baudet
  *
  */
-public class FillerSender implements ConditionalSender {
+public class FillerSender implements ConditionalSender, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(FillerSender.class);
 
 	/**
@@ -61,6 +64,14 @@ public class FillerSender implements ConditionalSender {
 		return delegate instanceof ConditionalSender ? ((ConditionalSender) delegate).supports(message) : true;
 	}
 
+	/**
+	 * Close the decorated sender if it holds resources.
+	 */
+	@Override
+	public void close() {
+		IOUtils.closeQuietly(delegate);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -1,8 +1,11 @@
 package fr.sii.ogham.core.sender;
 
+import java.io.Closeable;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -11,7 +14,9 @@ import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.condition.Condition;
 import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.exception.MessageNotSentException;
 import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.util.IOUtils;
 
 /**
  * Decorator sender that is able to handle a particular type of message. And for
@@ -21,8 +26,10 @@ import fr.sii.ogham.core.message.Message;
  * There can be any kind of condition (for example, based on a required class in
  * the classpath or a particular property value...).
  * 
- * The implementation selection is done in the {@link #supports(Message)}
- * method.
+ * The implementation selection is done for each message (see
+ * {@link #getSender(Message)}). Nothing is stored between
+ * {@link #supports(Message)} and {@link #send(Message)} so a single instance
+ * can be shared by several threads.
  * 
  * @author Aurélien Baudet
  *
@@ -30,24 +37,40 @@ import fr.sii.ogham.core.message.Message;
  *            The type of message that the implementations can handle
  * @see Condition
  */
-public class MultiImplementationSender<M extends Message> implements ConditionalSender {
+public class MultiImplementationSender<M extends Message> implements ConditionalSender, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(MultiImplementationSender.class);
 
 	/**
 	 * The map of possible implementations indexed by the associated condition
 	 */
-	private Map<Condition<Message>, MessageSender> implementations;
+	private final Map<Condition<Message>, MessageSender> implementations;
 
 	/**
-	 * The selected sender implementation
+	 * Copy of the registered implementations that is read at each dispatch.
+	 * The array is replaced (never modified) when a new implementation is
+	 * registered so it can be safely read by concurrent threads without
+	 * locking.
 	 */
-	private MessageSender sender;
+	private volatile Implementation[] snapshot;
+
+	/**
+	 * The type of message handled by this sender (resolved once from the
+	 * generic type of the sub-class)
+	 */
+	private final Class<M> managedClass;
+
+	/**
+	 * The implementation selected by the last call to
+	 * {@link #supports(Message)} in each thread (only for
+	 * {@link #getSender()})
+	 */
+	private final ThreadLocal<MessageSender> selected = new ThreadLocal<>();
 
 	/**
 	 * Initialize with no registered implementation.
 	 */
 	public MultiImplementationSender() {
-		this(new HashMap<Condition<Message>, MessageSender>());
+		this(Collections.<Condition<Message>, MessageSender> emptyMap());
 	}
 
 	/**
@@ -73,7 +96,9 @@ public class MultiImplementationSender<M extends Message> implements Conditional
 	 */
 	public MultiImplementationSender(Map<Condition<Message>, MessageSender> implementations) {
 		super();
-		this.implementations = implementations;
+		this.implementations = new HashMap<>(implementations);
+		this.snapshot = toArray(implementations);
+		this.managedClass = resolveManagedClass();
 	}
 
 	/**
@@ -89,51 +114,127 @@ public class MultiImplementationSender<M extends Message> implements Conditional
 	 * @return this instance for fluent use
 	 */
 	public final MultiImplementationSender<M> addImplementation(Condition<Message> condition, MessageSender implementation) {
-		implementations.put(condition, implementation);
+		synchronized (implementations) {
+			implementations.put(condition, implementation);
+			snapshot = toArray(implementations);
+		}
 		return this;
 	}
 
 	@Override
 	public boolean supports(Message message) {
-		sender = null;
-		boolean supports = message.getClass().isAssignableFrom(getManagedClass());
-		if (supports) {
-			LOG.debug("Can handle the message type {}. Is there any implementation available to send it ?", message.getClass());
-			for (Entry<Condition<Message>, MessageSender> entry : implementations.entrySet()) {
-				if (entry.getKey().accept(message)) {
-					sender = entry.getValue();
-					break;
-				}
-			}
-			if(sender!=null) {
-				LOG.debug("The implementation {} can handle the message {}", sender, message);
-			}
-		} else {
-			LOG.debug("Can't handle the message type {}", message.getClass());
-		}
-		return supports && sender != null;
+		MessageSender sender = getSender(message);
+		selected.set(sender);
+		return sender != null;
 	}
 
-	@SuppressWarnings("unchecked")
-	private Class<M> getManagedClass() {
-		Type genericSuperclass = getClass().getGenericSuperclass();
-		if (genericSuperclass instanceof ParameterizedType) {
-			return (Class<M>) ((ParameterizedType) genericSuperclass).getActualTypeArguments()[0];
+	/**
+	 * Get the implementation selected by the last call to
+	 * {@link #supports(Message)} made by the current thread.
+	 * 
+	 * @return the selected implementation or null if the last message
+	 *         couldn't be handled
+	 * @deprecated the implementation depends on the message, use
+	 *             {@link #getSender(Message)} instead
+	 */
+	@Deprecated
+	public MessageSender getSender() {
+		return selected.get();
+	}
+
+	/**
+	 * Find the implementation that is able to send the message. The selection
+	 * is done for each message and is never stored so the same instance can
+	 * be used concurrently by several threads.
+	 * 
+	 * @param message
+	 *            the message to send
+	 * @return the implementation to use or null if the message can't be
+	 *         handled
+	 */
+	public MessageSender getSender(Message message) {
+		if (managedClass == null || !message.getClass().isAssignableFrom(managedClass)) {
+			LOG.debug("Can't handle the message type {}", message.getClass());
+			return null;
+		}
+		LOG.debug("Can handle the message type {}. Is there any implementation available to send it ?", message.getClass());
+		for (Implementation impl : snapshot) {
+			if (impl.condition.accept(message)) {
+				LOG.debug("The implementation {} can handle the message {}", impl.sender, message);
+				return impl.sender;
+			}
 		}
 		return null;
 	}
 
 	@Override
 	public void send(Message message) throws MessageException {
+		MessageSender sender = getSender(message);
+		if (sender == null) {
+			throw new MessageNotSentException("No implementation available to send the message", message);
+		}
 		LOG.debug("Sending message {} using {} implementation", message, sender);
 		sender.send(message);
 	}
 
+	/**
+	 * Get the registered implementations. The returned map is a read-only
+	 * copy: use {@link #addImplementation(Condition, MessageSender)} to
+	 * register a new implementation.
+	 * 
+	 * @return the implementations indexed by the associated condition
+	 */
 	public Map<Condition<Message>, MessageSender> getImplementations() {
-		return implementations;
+		Implementation[] current = snapshot;
+		Map<Condition<Message>, MessageSender> copy = new LinkedHashMap<>(current.length * 2);
+		for (Implementation impl : current) {
+			copy.put(impl.condition, impl.sender);
+		}
+		return Collections.unmodifiableMap(copy);
 	}
 
-	public MessageSender getSender() {
-		return sender;
+	/**
+	 * Close every registered implementation that holds resources.
+	 */
+	@Override
+	public void close() {
+		for (Implementation impl : snapshot) {
+			IOUtils.closeQuietly(impl.sender);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<M> resolveManagedClass() {
+		Type genericSuperclass = getClass().getGenericSuperclass();
+		if (genericSuperclass instanceof ParameterizedType) {
+			return (Class<M>) ((ParameterizedType) genericSuperclass).getActualTypeArguments()[0];
+		}
+		return null;
+	}
+
+	private static Implementation[] toArray(Map<Condition<Message>, MessageSender> implementations) {
+		Implementation[] array = new Implementation[implementations.size()];
+		int i = 0;
+		for (Entry<Condition<Message>, MessageSender> entry : implementations.entrySet()) {
+			array[i++] = new Implementation(entry.getKey(), entry.getValue());
+		}
+		return array;
+	}
+
+	/**
+	 * An implementation associated to its condition.
+	 * 
+	 * @author Aurélien Baudet
+	 */
+	private static final class Implementation {
+		private final Condition<Message> condition;
+
+		private final MessageSender sender;
+
+		public Implementation(Condition<Message> condition, MessageSender sender) {
+			super();
+			this.condition = condition;
+			this.sender = sender;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package fr.sii.ogham.core.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.sender.BatchContext;
+
+/**
+ * Base class for services that send many messages by sending them one by one
+ * using {@link #send(Message)} within a {@link BatchContext}.
+ * 
+ * @author Aurélien Baudet
+ */
+public abstract class AbstractBulkMessagingService implements BulkMessagingService {
+	private static final Logger LOG = LoggerFactory.getLogger(AbstractBulkMessagingService.class);
+
+	@Override
+	public BulkSendReport sendAll(Collection<? extends Message> messages) {
+		BulkSendReport report = new BulkSendReport();
+		sendAll(messages.iterator(), report);
+		return report;
+	}
+
+	/**
+	 * Sends the messages one by one using {@link #send(Message)} within a
+	 * {@link BatchContext}. A {@link MessagingException} on a message is
+	 * reported to the listener and the next messages are still sent.
+	 * 
+	 * @param messages
+	 *            the messages to send
+	 * @param listener
+	 *            notified of the result of each message
+	 */
+	@Override
+	public void sendAll(Iterator<? extends Message> messages, BulkSendListener listener) {
+		BatchContext batch = BatchContext.begin();
+		try {
+			while (messages.hasNext()) {
+				Message message = messages.next();
+				try {
+					send(message);
+					listener.onSuccess(message);
+				} catch (MessagingException e) {
+					LOG.debug("Message {} couldn't be sent", message, e);
+					listener.onFailure(message, e);
+				}
+			}
+		} finally {
+			batch.end();
+		}
+	}
+}
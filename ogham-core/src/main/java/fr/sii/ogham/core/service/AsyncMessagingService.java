@@ -0,0 +1,335 @@
+package fr.sii.ogham.core.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.MessageNotSentException;
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.util.DaemonThreadFactory;
+
+/**
+ * Decorator that is able to send messages in background. The real sending is
+ * delegated to the decorated service and is executed by a bounded pool of
+ * threads.
+ *
+ * <p>
+ * Messages are queued while all the threads are busy. Once the queue is full,
+ * the behavior depends on the {@link RejectionPolicy}:
+ * </p>
+ * <ul>
+ * <li>{@link RejectionPolicy#REJECT}: {@link #sendAsync(Message)} fails
+ * immediately</li>
+ * <li>{@link RejectionPolicy#CALLER_RUNS}: the message is sent by the calling
+ * thread</li>
+ * <li>{@link RejectionPolicy#BLOCK}: the calling thread waits until there is
+ * room in the queue</li>
+ * </ul>
+ * <p>
+ * Whatever the policy, messages are rejected once the service has been shut
+ * down.
+ * </p>
+ *
+ * <p>
+ * {@link #send(Message)} still sends the message synchronously in the calling
+ * thread.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class AsyncMessagingService implements MessagingService {
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncMessagingService.class);
+
+	/**
+	 * The behavior when the queue is full
+	 *
+	 * @author Aurélien Baudet
+	 */
+	public static enum RejectionPolicy {
+		/**
+		 * The message is not sent and an exception is thrown
+		 */
+		REJECT,
+		/**
+		 * The message is sent in the thread that called
+		 * {@link AsyncMessagingService#sendAsync(Message)}
+		 */
+		CALLER_RUNS,
+		/**
+		 * The thread that called {@link AsyncMessagingService#sendAsync(Message)}
+		 * waits until the message can be queued
+		 */
+		BLOCK
+	}
+
+	/**
+	 * The delegate service that will really send messages
+	 */
+	private final MessagingService delegate;
+
+	/**
+	 * The executor that sends messages in background
+	 */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * The number of messages successfully sent in background
+	 */
+	private final AtomicLong succeeded = new AtomicLong();
+
+	/**
+	 * The number of messages that couldn't be sent in background
+	 */
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * The sum of the times (in nanoseconds) between the call to
+	 * {@link #sendAsync(Message)} and the end of the sending
+	 */
+	private final AtomicLong totalLatency = new AtomicLong();
+
+	/**
+	 * Initialize the service.
+	 *
+	 * @param delegate
+	 *            the service that really sends the messages
+	 * @param threads
+	 *            the maximum number of messages sent in parallel
+	 * @param queueCapacity
+	 *            the maximum number of messages waiting to be sent
+	 * @param policy
+	 *            the behavior when the queue is full
+	 */
+	public AsyncMessagingService(MessagingService delegate, int threads, int queueCapacity, RejectionPolicy policy) {
+		super();
+		this.delegate = delegate;
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), new DaemonThreadFactory("ogham-async"), toHandler(policy));
+		// release the threads when there is nothing to send
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Sends the message synchronously using the decorated service.
+	 *
+	 * @param message
+	 *            the message to send
+	 * @throws MessagingException
+	 *             when the message couldn't be sent
+	 */
+	@Override
+	public void send(Message message) throws MessagingException {
+		delegate.send(message);
+	}
+
+	/**
+	 * Sends the message in background. The returned future provides the sent
+	 * message once done or the {@link MessagingException} (wrapped in an
+	 * {@link java.util.concurrent.ExecutionException}) if the message couldn't
+	 * be sent.
+	 *
+	 * @param message
+	 *            the message to send
+	 * @return the future to track the sending
+	 * @throws MessagingException
+	 *             when the message is rejected because the queue is full or
+	 *             the service has been shut down
+	 */
+	public Future<Message> sendAsync(Message message) throws MessagingException {
+		try {
+			return executor.submit(new SendTask(message));
+		} catch (RejectedExecutionException e) {
+			throw new MessageNotSentException("Message rejected: too many messages waiting to be sent or service shut down", message, e);
+		}
+	}
+
+	/**
+	 * Stop accepting new messages. Messages already queued are still sent.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Wait until all queued messages are sent after a {@link #shutdown()}.
+	 *
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return true if all messages have been handled, false if the timeout
+	 *         elapsed before
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Stop accepting new messages, wait until the queued messages are sent and
+	 * then close the decorated service. If the current thread is interrupted
+	 * while waiting, the remaining messages are not sent.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.info("Waiting for {} queued message(s) to be sent before closing", getQueueSize() + getActiveCount());
+			}
+		} catch (InterruptedException e) {
+			LOG.warn("Interrupted while waiting for queued messages. Remaining messages are dropped");
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		delegate.close();
+	}
+
+	/**
+	 * @return the number of messages waiting to be sent
+	 */
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * @return the number of messages currently being sent
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * @return the number of messages successfully sent in background
+	 */
+	public long getSucceededCount() {
+		return succeeded.get();
+	}
+
+	/**
+	 * @return the number of messages that couldn't be sent in background
+	 */
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * The average time (in milliseconds) between the call to
+	 * {@link #sendAsync(Message)} and the end of the sending (successful or
+	 * not). It includes the time spent in the queue.
+	 *
+	 * @return the average latency in milliseconds
+	 */
+	public double getAverageLatency() {
+		long count = succeeded.get() + failed.get();
+		return count == 0 ? 0 : totalLatency.get() / (count * 1000000d);
+	}
+
+	private RejectedExecutionHandler toHandler(RejectionPolicy policy) {
+		switch (policy) {
+			case CALLER_RUNS:
+				return new CallerRunsPolicy();
+			case BLOCK:
+				return new BlockPolicy();
+			case REJECT:
+			default:
+				return new ThreadPoolExecutor.AbortPolicy();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("AsyncMessagingService [delegate=").append(delegate).append(", threads=").append(executor.getMaximumPoolSize()).append(", queued=").append(getQueueSize())
+				.append(", active=").append(getActiveCount()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Sends the message using the decorated service and records statistics.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private class SendTask implements Callable<Message> {
+		private final Message message;
+
+		private final long submitted;
+
+		public SendTask(Message message) {
+			super();
+			this.message = message;
+			this.submitted = System.nanoTime();
+		}
+
+		@Override
+		public Message call() throws MessagingException {
+			try {
+				delegate.send(message);
+				succeeded.incrementAndGet();
+				return message;
+			} catch (MessagingException | RuntimeException e) {
+				LOG.debug("Message {} couldn't be sent in background", message, e);
+				failed.incrementAndGet();
+				throw e;
+			} finally {
+				totalLatency.addAndGet(System.nanoTime() - submitted);
+			}
+		}
+	}
+
+	/**
+	 * Waits for room in the queue instead of rejecting the task. The task is
+	 * rejected if the service is shut down before or while waiting.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static class BlockPolicy implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Service is shut down");
+			}
+			try {
+				executor.getQueue().put(r);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for room in the queue", e);
+			}
+			// the service may have been shut down while waiting: the task
+			// would either never run (no more thread) or run after shutdown
+			if (executor.isShutdown() && executor.getQueue().remove(r)) {
+				if (r instanceof Future) {
+					((Future<?>) r).cancel(false);
+				}
+				throw new RejectedExecutionException("Service is shut down");
+			}
+		}
+	}
+
+	/**
+	 * Runs the task in the calling thread. Unlike
+	 * {@link ThreadPoolExecutor.CallerRunsPolicy} that silently discards the
+	 * task (and the future never completes), the task is rejected once the
+	 * service is shut down.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static class CallerRunsPolicy implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Service is shut down");
+			}
+			r.run();
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package fr.sii.ogham.core.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.sender.BatchContext;
+
+/**
+ * Extension of the messaging service that is able to send many messages at
+ * once. Each message goes through the same steps as with
+ * {@link #send(Message)} but the messages are sent within a
+ * {@link BatchContext} so sender implementations can reuse the same connection
+ * for all the messages.
+ *
+ * <p>
+ * A failure on one message doesn't stop the sending of the next messages.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public interface BulkMessagingService extends MessagingService {
+	/**
+	 * Sends all the messages and reports the result of each one.
+	 *
+	 * @param messages
+	 *            the messages to send
+	 * @return the result of each message
+	 */
+	public BulkSendReport sendAll(Collection<? extends Message> messages);
+
+	/**
+	 * Sends the messages one by one as they are provided by the iterator. The
+	 * messages are not kept once sent so this is suitable for very large
+	 * amounts of messages.
+	 *
+	 * @param messages
+	 *            the messages to send
+	 * @param listener
+	 *            notified of the result of each message
+	 */
+	public void sendAll(Iterator<? extends Message> messages, BulkSendListener listener);
+}
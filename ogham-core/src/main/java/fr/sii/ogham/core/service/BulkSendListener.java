@@ -0,0 +1,31 @@
+package fr.sii.ogham.core.service;
+
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.message.Message;
+
+/**
+ * Notified of the result of each message sent by
+ * {@link BulkMessagingService#sendAll(java.util.Iterator, BulkSendListener)}.
+ *
+ * @author Aurélien Baudet
+ */
+public interface BulkSendListener {
+	/**
+	 * Called when the message has been sent.
+	 *
+	 * @param message
+	 *            the sent message
+	 */
+	public void onSuccess(Message message);
+
+	/**
+	 * Called when the message couldn't be sent. The next messages are still
+	 * sent.
+	 *
+	 * @param message
+	 *            the message that couldn't be sent
+	 * @param cause
+	 *            the reason of the failure
+	 */
+	public void onFailure(Message message, MessagingException cause);
+}
@@ -0,0 +1,83 @@
+package fr.sii.ogham.core.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.message.Message;
+
+/**
+ * Collects the result of each message sent by
+ * {@link BulkMessagingService#sendAll(java.util.Collection)}.
+ *
+ * @author Aurélien Baudet
+ */
+public class BulkSendReport implements BulkSendListener {
+	/**
+	 * The messages successfully sent
+	 */
+	private final List<Message> succeeded = new ArrayList<>();
+
+	/**
+	 * The messages that couldn't be sent with the associated error
+	 */
+	private final List<Failure> failures = new ArrayList<>();
+
+	@Override
+	public void onSuccess(Message message) {
+		succeeded.add(message);
+	}
+
+	@Override
+	public void onFailure(Message message, MessagingException cause) {
+		failures.add(new Failure(message, cause));
+	}
+
+	/**
+	 * @return true if all messages have been sent
+	 */
+	public boolean isSuccess() {
+		return failures.isEmpty();
+	}
+
+	public List<Message> getSucceeded() {
+		return Collections.unmodifiableList(succeeded);
+	}
+
+	public List<Failure> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("BulkSendReport [succeeded=").append(succeeded.size()).append(", failed=").append(failures.size()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * A message that couldn't be sent.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	public static class Failure {
+		private final Message message;
+
+		private final MessagingException cause;
+
+		public Failure(Message message, MessagingException cause) {
+			super();
+			this.message = message;
+			this.cause = cause;
+		}
+
+		public Message getMessage() {
+			return message;
+		}
+
+		public MessagingException getCause() {
+			return cause;
+		}
+	}
+}
@@ -10,6 +10,7 @@ import fr.sii.ogham.core.exception.MessageNotSentException;
 import fr.sii.ogham.core.exception.MessagingException;
 import fr.sii.ogham.core.message.Message;
 import fr.sii.ogham.core.sender.ConditionalSender;
+import fr.sii.ogham.core.util.IOUtils;
 
 /**
  * Implementation that will ask each sender if it is able to handle the message.
@@ -22,7 +23,7 @@ import fr.sii.ogham.core.sender.ConditionalSender;
  * @author Aurélien Baudet
  * @see ConditionalSender
  */
-public class EverySupportingMessagingService implements MessagingService {
+public class EverySupportingMessagingService extends AbstractBulkMessagingService {
 	private static final Logger LOG = LoggerFactory.getLogger(EverySupportingMessagingService.class);
 
 	/**
@@ -103,4 +104,14 @@ public class EverySupportingMessagingService implements MessagingService {
 		senders.add(sender);
 		return this;
 	}
+
+	/**
+	 * Close every registered sender that holds resources.
+	 */
+	@Override
+	public void close() {
+		for (ConditionalSender sender : senders) {
+			IOUtils.closeQuietly(sender);
+		}
+	}
 }
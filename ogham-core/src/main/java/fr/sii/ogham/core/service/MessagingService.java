@@ -1,5 +1,7 @@
 package fr.sii.ogham.core.service;
 
+import java.io.Closeable;
+
 import fr.sii.ogham.core.exception.MessagingException;
 import fr.sii.ogham.core.message.Message;
 import fr.sii.ogham.core.sender.MessageSender;
@@ -11,12 +13,17 @@ import fr.sii.ogham.core.sender.MessageSender;
  * 
  * The service internally delegates to a {@link MessageSender}.
  * 
+ * Some senders hold resources (pooled SMTP connections, SMPP sessions,
+ * threads...). The service must be closed ({@link #close()}) when the
+ * application doesn't need it anymore in order to release them. The service
+ * can't be used once closed.
+ * 
  * @author Aurélien Baudet
  * @see MessageSender
  * @see Message
  *
  */
-public interface MessagingService {
+public interface MessagingService extends Closeable {
 	/**
 	 * Sends the message. The message can be anything with any content and that
 	 * must be delivered to something or someone.
@@ -27,4 +34,12 @@ public interface MessagingService {
 	 *             when the message couldn't be sent
 	 */
 	public void send(Message message) throws MessagingException;
+
+	/**
+	 * Release the resources held by the service and its senders (connections,
+	 * sessions, threads). Failures while closing are logged and ignored.
+	 * Calling this method several times has no effect.
+	 */
+	@Override
+	public void close();
 }
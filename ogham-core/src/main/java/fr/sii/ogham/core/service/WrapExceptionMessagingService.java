@@ -9,7 +9,7 @@ import fr.sii.ogham.core.message.Message;
  * 
  * @author Aurélien Baudet
  */
-public class WrapExceptionMessagingService implements MessagingService {
+public class WrapExceptionMessagingService extends AbstractBulkMessagingService {
 	/**
 	 * The delegate service that will really send messages
 	 */
@@ -45,4 +45,12 @@ public class WrapExceptionMessagingService implements MessagingService {
 			throw new MessagingException("Message can't be sent due to uncaught exception. Cause: "+e.getMessage(), e);
 		}
 	}
+
+	/**
+	 * Close the delegate service.
+	 */
+	@Override
+	public void close() {
+		delegate.close();
+	}
 }
@@ -3,6 +3,7 @@ package fr.sii.ogham.core.subject.provider;
 import fr.sii.ogham.core.message.Message;
 import fr.sii.ogham.core.message.content.MayHaveStringContent;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
 import fr.sii.ogham.core.util.HtmlUtils;
 
 /**
@@ -19,6 +20,11 @@ public class HtmlTitleSubjectProvider implements SubjectProvider {
 	@Override
 	public String provide(Message message) {
 		Content content = message.getContent();
+		HtmlDocumentContent documentContent = HtmlUtils.getDocumentContent(content);
+		if (documentContent != null) {
+			// reuse the already parsed document
+			return HtmlUtils.getTitle(documentContent.getDocument());
+		}
 		if(content instanceof MayHaveStringContent && ((MayHaveStringContent) content).canProvideString()) {
 			String stringContent = ((MayHaveStringContent) content).asString();
 			if (HtmlUtils.isHtml(stringContent)) {
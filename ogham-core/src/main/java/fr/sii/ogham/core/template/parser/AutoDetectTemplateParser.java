@@ -1,5 +1,7 @@
 package fr.sii.ogham.core.template.parser;
 
+import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -11,6 +13,7 @@ import fr.sii.ogham.core.exception.template.EngineDetectionException;
 import fr.sii.ogham.core.exception.template.NoEngineDetectionException;
 import fr.sii.ogham.core.exception.template.ParseException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.resource.FileResource;
 import fr.sii.ogham.core.resource.Resource;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
 import fr.sii.ogham.core.template.context.Context;
@@ -23,13 +26,27 @@ import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
  * 
  * The detection mechanism loop through the engine detectors until one indicates
  * that the associated engine can parse the template.
+ * <p>
+ * The result of the detection is kept in memory for each template name so the
+ * template is neither resolved nor read again for detection on next parsing.
+ * If the template is a file, the detection is done again if the file has
+ * changed (modification date or size). The detection results are bounded (see
+ * {@link #DEFAULT_CACHE_SIZE}) and the least recently used are removed first.
+ * The cache assumes that the detection only depends on the template, not on
+ * the evaluation context. The cache can be disabled by providing a size of 0.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
  */
 public class AutoDetectTemplateParser implements TemplateParser {
 	private static final Logger LOG = LoggerFactory.getLogger(AutoDetectTemplateParser.class);
-	
+
+	/**
+	 * The default maximum number of detection results kept in memory
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+
 	/**
 	 * The template resolver used to find the template
 	 */
@@ -40,29 +57,46 @@ public class AutoDetectTemplateParser implements TemplateParser {
 	 */
 	private Map<TemplateEngineDetector, TemplateParser> detectors;
 
+	/**
+	 * The detection results indexed by template name in access order
+	 */
+	private final Map<String, Detection> detections;
+
 	public AutoDetectTemplateParser(ResourceResolver resolver, Map<TemplateEngineDetector, TemplateParser> detectors) {
+		this(resolver, detectors, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Initialize the parser.
+	 * 
+	 * @param resolver
+	 *            the template resolver used to find the template
+	 * @param detectors
+	 *            the pairs of engine detector and template engine parser
+	 * @param cacheSize
+	 *            the maximum number of detection results kept in memory (0 to
+	 *            disable the cache)
+	 */
+	public AutoDetectTemplateParser(ResourceResolver resolver, Map<TemplateEngineDetector, TemplateParser> detectors, final int cacheSize) {
 		super();
 		this.resolver = resolver;
 		this.detectors = detectors;
+		this.detections = new LinkedHashMap<String, Detection>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<String, Detection> eldest) {
+				return size() > cacheSize;
+			}
+		};
 	}
 
 	@Override
 	public Content parse(String templateName, Context ctx) throws ParseException {
 		try {
-			LOG.info("Start template engine automatic detection for {}", templateName);
-			Resource template = resolver.getResource(templateName);
-			TemplateParser parser = null;
-			for (Entry<TemplateEngineDetector, TemplateParser> entry : detectors.entrySet()) {
-				if (entry.getKey().canParse(templateName, ctx, template)) {
-					LOG.debug("Template engine {} is used for {}", parser, templateName);
-					parser = entry.getValue();
-					break;
-				} else {
-					LOG.debug("Template engine {} can't be used for {}", parser, templateName);
-				}
-			}
+			TemplateParser parser = getCachedParser(templateName);
 			if (parser == null) {
-				throw new NoEngineDetectionException("Auto detection couldn't find any parser able to handle the template " + templateName);
+				parser = detect(templateName, ctx);
 			}
 			LOG.info("Parse the template {} using template engine {}", templateName, parser);
 			return parser.parse(templateName, ctx);
@@ -73,4 +107,93 @@ public class AutoDetectTemplateParser implements TemplateParser {
 		}
 	}
 
+	/**
+	 * Remove the detection result of the template.
+	 * 
+	 * @param templateName
+	 *            the name of the template
+	 */
+	public void invalidate(String templateName) {
+		synchronized (detections) {
+			detections.remove(templateName);
+		}
+	}
+
+	/**
+	 * Remove all the detection results.
+	 */
+	public void clear() {
+		synchronized (detections) {
+			detections.clear();
+		}
+	}
+
+	private TemplateParser getCachedParser(String templateName) {
+		synchronized (detections) {
+			Detection detection = detections.get(templateName);
+			if (detection == null) {
+				return null;
+			}
+			if (!detection.isValid()) {
+				LOG.debug("Template {} has changed since last detection", templateName);
+				detections.remove(templateName);
+				return null;
+			}
+			LOG.debug("Template engine {} already detected for {}", detection.parser, templateName);
+			return detection.parser;
+		}
+	}
+
+	private TemplateParser detect(String templateName, Context ctx) throws ResourceResolutionException, EngineDetectionException {
+		LOG.info("Start template engine automatic detection for {}", templateName);
+		Resource template = resolver.getResource(templateName);
+		// read file information before detection to detect updates while
+		// reading
+		File file = template instanceof FileResource ? ((FileResource) template).getFile() : null;
+		long lastModified = file == null ? 0 : file.lastModified();
+		long length = file == null ? 0 : file.length();
+		TemplateParser parser = null;
+		for (Entry<TemplateEngineDetector, TemplateParser> entry : detectors.entrySet()) {
+			if (entry.getKey().canParse(templateName, ctx, template)) {
+				parser = entry.getValue();
+				LOG.debug("Template engine {} is used for {}", parser, templateName);
+				break;
+			} else {
+				LOG.debug("Template engine {} can't be used for {}", entry.getValue(), templateName);
+			}
+		}
+		if (parser == null) {
+			throw new NoEngineDetectionException("Auto detection couldn't find any parser able to handle the template " + templateName);
+		}
+		synchronized (detections) {
+			detections.put(templateName, new Detection(parser, file, lastModified, length));
+		}
+		return parser;
+	}
+
+	/**
+	 * The result of the detection for a template with the information needed
+	 * to check if it is still valid.
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class Detection {
+		private final TemplateParser parser;
+		private final File file;
+		private final long lastModified;
+		private final long length;
+
+		public Detection(TemplateParser parser, File file, long lastModified, long length) {
+			super();
+			this.parser = parser;
+			this.file = file;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		public boolean isValid() {
+			return file == null || (file.exists() && file.lastModified() == lastModified && file.length() == length);
+		}
+	}
 }
@@ -1,12 +1,7 @@
 package fr.sii.ogham.core.util;
 
-import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -18,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.template.BeanException;
+import fr.sii.ogham.core.util.bean.BeanPropertiesMap;
 import fr.sii.ogham.core.util.converter.EmailAddressConverter;
 import fr.sii.ogham.core.util.converter.SmsSenderConverter;
 import fr.sii.ogham.email.message.EmailAddress;
@@ -61,7 +57,13 @@ public final class BeanUtils {
 	 * Convert a Java object into a map. Each property of the bean is added to
 	 * the map. The key of each entry is the name of the property. The value of
 	 * each entry is the value of the property.
-	 * 
+	 * </p>
+	 * <p>
+	 * The returned map is a read-only view on the bean (see
+	 * {@link BeanPropertiesMap}): a getter is only invoked when the value of
+	 * the property is requested. The class of the bean is introspected only
+	 * once.
+	 * </p>
 	 * <p>
 	 * If the provided object is already a Map then it is returned as-is
 	 * 
@@ -78,10 +80,10 @@ public final class BeanUtils {
 				// TODO: handle Map with object keys
 				map = (Map<String, Object>) bean;
 			} else {
-				map = convertBean(bean);
+				map = new BeanPropertiesMap(bean);
 			}
 			return map;
-		} catch (ReflectiveOperationException | IntrospectionException e) {
+		} catch (IntrospectionException e) {
 			throw new BeanException("failed to convert bean to map", bean, e);
 		}
 	}
@@ -249,22 +251,6 @@ public final class BeanUtils {
 	}
 
 	
-	private static Map<String, Object> convertBean(Object bean) throws IntrospectionException, IllegalAccessException, InvocationTargetException {
-		Map<String, Object> map;
-		map = new HashMap<String, Object>();
-		BeanInfo info = Introspector.getBeanInfo(bean.getClass());
-		for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
-			if(!"class".equals(pd.getName())) {
-				Method reader = pd.getReadMethod();
-				// TODO: convert recursively ?
-				if (reader != null) {
-					map.put(pd.getName(), reader.invoke(bean));
-				}
-			}
-		}
-		return map;
-	}
-
 	private static void handleUnknown(Object bean, Options options, Entry<String, Object> entry, Exception e) throws BeanException {
 		if (options.isSkipUnknown()) {
 			LOG.debug("skipping property " + entry.getKey() + ": it doesn't exist or is not accessible", e);
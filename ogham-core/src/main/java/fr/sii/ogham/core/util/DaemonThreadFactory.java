@@ -0,0 +1,29 @@
+package fr.sii.ogham.core.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads so that background executors never prevent the JVM
+ * from exiting. Threads are named using the provided prefix followed by a
+ * sequence number.
+ *
+ * @author Aurélien Baudet
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+	private final String prefix;
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	public DaemonThreadFactory(String prefix) {
+		super();
+		this.prefix = prefix;
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
@@ -6,9 +6,17 @@ import java.util.regex.Pattern;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Document.OutputSettings.Syntax;
+import org.jsoup.nodes.Entities.EscapeMode;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.DecoratorContent;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.message.content.UpdatableDecoratorContent;
+
 /**
  * Utility class for handling HTML content. It helps for repetitive tasks for
  * manipulating HTML.
@@ -22,6 +30,7 @@ public final class HtmlUtils {
 	private static final String HREF_ATTR = "href";
 	private static final String IMG_SELECTOR = "img";
 	private static final String SRC_ATTR = "src";
+	private static final Pattern INLINED_IMAGE_PATTERN = Pattern.compile("^(cid|data):", Pattern.CASE_INSENSITIVE);
 
 	/**
 	 * Indicates if the provided content is HTML or not. It is considered HTML
@@ -48,7 +57,19 @@ public final class HtmlUtils {
 	 *         found
 	 */
 	public static List<String> getDistinctCssUrls(String htmlContent) {
-		Document doc = Jsoup.parse(htmlContent);
+		return getDistinctCssUrls(Jsoup.parse(htmlContent));
+	}
+
+	/**
+	 * Same as {@link #getDistinctCssUrls(String)} but on an already parsed
+	 * document.
+	 * 
+	 * @param doc
+	 *            the html document that may contain external CSS files
+	 * @return the list of found CSS inclusions (paths only) or empty if nothing
+	 *         found
+	 */
+	public static List<String> getDistinctCssUrls(Document doc) {
 		Elements els = doc.select(CSS_LINKS_SELECTOR);
 		List<String> cssFiles = new ArrayList<>(els.size());
 		for (Element e : els) {
@@ -63,19 +84,32 @@ public final class HtmlUtils {
 	/**
 	 * Finds all image inclusions (looks for <code>img</code> tags). Returns
 	 * only the path or URL to the image. If the several images have the same
-	 * path, the path is present in the list only one time.
+	 * path, the path is present in the list only one time. Images that are
+	 * already inlined (<code>cid:</code> or <code>data:</code> URLs) are
+	 * ignored.
 	 * 
 	 * @param htmlContent
 	 *            the html content that may contain image files
 	 * @return the list of found images (paths only) or empty if nothing found
 	 */
 	public static List<String> getDistinctImageUrls(String htmlContent) {
-		Document doc = Jsoup.parse(htmlContent);
+		return getDistinctImageUrls(Jsoup.parse(htmlContent));
+	}
+
+	/**
+	 * Same as {@link #getDistinctImageUrls(String)} but on an already parsed
+	 * document.
+	 * 
+	 * @param doc
+	 *            the html document that may contain image files
+	 * @return the list of found images (paths only) or empty if nothing found
+	 */
+	public static List<String> getDistinctImageUrls(Document doc) {
 		Elements els = doc.select(IMG_SELECTOR);
 		List<String> images = new ArrayList<>(els.size());
 		for (Element e : els) {
 			String path = e.attr(SRC_ATTR);
-			if (!images.contains(path)) {
+			if (!images.contains(path) && !INLINED_IMAGE_PATTERN.matcher(path).find()) {
 				images.add(path);
 			}
 		}
@@ -91,11 +125,87 @@ public final class HtmlUtils {
 	 * @return the title of the HTML or null if none
 	 */
 	public static String getTitle(String htmlContent) {
-		Document doc = Jsoup.parse(htmlContent);
+		return getTitle(Jsoup.parse(htmlContent));
+	}
+
+	/**
+	 * Same as {@link #getTitle(String)} but on an already parsed document.
+	 * 
+	 * @param doc
+	 *            the HTML document that may contain a title
+	 * @return the title of the HTML or null if none
+	 */
+	public static String getTitle(Document doc) {
 		Elements titleNode = doc.select("head > title");
 		return titleNode.isEmpty() ? null : doc.title();
 	}
 
+	/**
+	 * Serializes the HTML content as well-formed XHTML (void elements are
+	 * closed, attributes are quoted...). This is useful for providing HTML to
+	 * parsers that require XML.
+	 * 
+	 * @param htmlContent
+	 *            the HTML content to convert
+	 * @return the XHTML equivalent
+	 */
+	public static String toXhtml(String htmlContent) {
+		Document doc = Jsoup.parse(htmlContent);
+		doc.outputSettings().syntax(Syntax.xml).escapeMode(EscapeMode.xhtml);
+		return doc.outerHtml();
+	}
+
+	/**
+	 * Converts the HTML string content into a {@link HtmlDocumentContent} so
+	 * that every following step can work on the same parsed document. If the
+	 * string content is decorated by an updatable content, the decorated
+	 * content is replaced in place. Contents that are not HTML are left
+	 * unchanged.
+	 * 
+	 * @param content
+	 *            the content to convert
+	 * @return the content to use instead of the provided one (may be the same
+	 *         instance)
+	 */
+	public static Content toDocumentContent(Content content) {
+		if (content instanceof HtmlDocumentContent) {
+			return content;
+		}
+		if (content instanceof DecoratorContent && content instanceof UpdatableDecoratorContent) {
+			Content decorated = ((DecoratorContent) content).getContent();
+			Content converted = toDocumentContent(decorated);
+			if (converted != decorated) {
+				((UpdatableDecoratorContent) content).setContent(converted);
+			}
+			return content;
+		}
+		// only plain string contents are converted to keep specific content
+		// types untouched
+		if (content != null && content.getClass() == StringContent.class) {
+			String html = ((StringContent) content).getContent();
+			if (html != null && isHtml(html)) {
+				return new HtmlDocumentContent(html);
+			}
+		}
+		return content;
+	}
+
+	/**
+	 * Finds the {@link HtmlDocumentContent} that is either the provided content
+	 * or decorated by the provided content.
+	 * 
+	 * @param content
+	 *            the content that may be or may decorate an HTML document
+	 * @return the HTML document content or null if none
+	 */
+	public static HtmlDocumentContent getDocumentContent(Content content) {
+		Content current = content;
+		while (!(current instanceof HtmlDocumentContent) && current instanceof DecoratorContent) {
+			current = ((DecoratorContent) current).getContent();
+		}
+		return current instanceof HtmlDocumentContent ? (HtmlDocumentContent) current : null;
+	}
+
 	private HtmlUtils() {
 		super();
 	}
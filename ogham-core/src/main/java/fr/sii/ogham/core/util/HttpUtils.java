@@ -1,6 +1,7 @@
 package fr.sii.ogham.core.util;
 
-import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -9,30 +10,24 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.message.BasicNameValuePair;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import fr.sii.ogham.core.builder.HttpTransportBuilder;
 import fr.sii.ogham.core.exception.template.BeanException;
 import fr.sii.ogham.core.exception.util.HttpException;
+import fr.sii.ogham.core.util.http.HttpTransport;
 import fr.sii.ogham.core.util.http.Parameter;
 import fr.sii.ogham.core.util.http.Response;
 
 /**
- * Utility class that helps to send HTTP requests.
+ * Utility class that helps to send HTTP requests. The requests are sent using
+ * a shared {@link HttpTransport} configured with default values (see
+ * {@link HttpTransportBuilder}). Senders that need a specific configuration
+ * should use their own {@link HttpTransport}.
  * 
  * @author Aurélien Baudet
  *
  */
 public final class HttpUtils {
-	private static final Logger LOG = LoggerFactory.getLogger(HttpUtils.class);
-	private static final HttpClient CLIENT = HttpClientBuilder.create().useSystemProperties().build();
+	private static final String UTF_8 = "UTF-8";
 
 	/**
 	 * Do a GET request on the provided URL and construct the Query String part
@@ -52,23 +47,7 @@ public final class HttpUtils {
 	 *             when the request has failed
 	 */
 	public static Response get(String url, List<Parameter> params) throws HttpException {
-		String fullUrl = url;
-		String paramsStr = URLEncodedUtils.format(convert(params), "UTF-8");
-		fullUrl += (fullUrl.contains("?") ? "&" : "?") + paramsStr;
-		// spaces are replaced by '+' but some servers doesn't handle it
-		// correctly
-		// => convert space to '%20'
-		fullUrl = fullUrl.replaceAll("\\+", "%20");
-		try {
-			LOG.debug("Sending HTTP GET request to {}", fullUrl);
-			HttpGet request = new HttpGet(fullUrl);
-			HttpResponse response = CLIENT.execute(request);
-			int statusCode = response.getStatusLine().getStatusCode();
-			LOG.debug("HTTP GET request successfully sent to {}. Status code: {}", fullUrl, statusCode);
-			return new Response(statusCode, IOUtils.toString(response.getEntity().getContent()));
-		} catch (IOException e) {
-			throw new HttpException("Failed to send GET request to " + fullUrl, e);
-		}
+		return getDefaultTransport().get(url, params);
 	}
 
 	/**
@@ -121,8 +100,47 @@ public final class HttpUtils {
 	 * @throws HttpException
 	 *             when the request has failed
 	 */
-	@SuppressWarnings("unchecked")
 	public static Response get(String url, Object... params) throws HttpException {
+		return get(url, toParameters(params));
+	}
+
+	/**
+	 * Do a POST request on the provided URL with the provided body.
+	 * 
+	 * @param url
+	 *            the url
+	 * @param body
+	 *            the body of the request
+	 * @param contentType
+	 *            the Mime Type of the body
+	 * @return the response
+	 * @throws HttpException
+	 *             when the request has failed
+	 */
+	public static Response post(String url, String body, String contentType) throws HttpException {
+		return getDefaultTransport().post(url, body, contentType);
+	}
+
+	/**
+	 * Convert anything into a list of parameters:
+	 * <ul>
+	 * <li>{@link Parameter}: used as-is</li>
+	 * <li>{@link Map}: each entry is used as a parameter. The key of the entry
+	 * is the name of the parameter, the value of the entry is the value of the
+	 * parameter</li>
+	 * <li>A bean (any object): each property of the bean is used as parameter
+	 * (see {@link BeanUtils}). The name of the property is the name of the
+	 * parameter, the value of the property is the value of the parameter</li>
+	 * </ul>
+	 * 
+	 * @param params
+	 *            none, one or several parameters
+	 * @return the list of parameters
+	 * @throws HttpException
+	 *             when a bean couldn't be converted
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Parameter> toParameters(Object... params) throws HttpException {
 		try {
 			Map<String, Object> map = new HashMap<>();
 			for (Object bean : params) {
@@ -135,12 +153,49 @@ public final class HttpUtils {
 					map.putAll(BeanUtils.convert(bean));
 				}
 			}
-			return get(url, map);
+			return convert(map);
 		} catch (BeanException e) {
 			throw new HttpException("Failed to convert bean fields into request parameters", e);
 		}
 	}
 
+	/**
+	 * Encode the parameters as a query string
+	 * (<code>application/x-www-form-urlencoded</code> using UTF-8). Parameters
+	 * without value are skipped. Spaces are encoded into '%20'. This is useful
+	 * to encode only once parameters that are sent in every request.
+	 * 
+	 * @param params
+	 *            the parameters to encode
+	 * @return the query string (without '?')
+	 */
+	public static String toQueryString(List<Parameter> params) {
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (Parameter param : params) {
+				if (param.getValue() != null) {
+					if (sb.length() > 0) {
+						sb.append('&');
+					}
+					sb.append(URLEncoder.encode(param.getName(), UTF_8)).append('=').append(URLEncoder.encode(param.getValue(), UTF_8));
+				}
+			}
+			return sb.toString().replace("+", "%20");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException("UTF-8 is not supported", e);
+		}
+	}
+
+	/**
+	 * Get the shared transport used by the static methods. It is created on
+	 * first use.
+	 * 
+	 * @return the shared transport
+	 */
+	public static HttpTransport getDefaultTransport() {
+		return DefaultTransportHolder.TRANSPORT;
+	}
+
 	/**
 	 * Do a GET request on the provided URL and construct the Query String part
 	 * with the provided list of parameters. If the URL already contains
@@ -185,25 +240,11 @@ public final class HttpUtils {
 		return parameters;
 	}
 
-	/**
-	 * Convert a list of parameters to a list of {@link NameValuePair}.
-	 * 
-	 * @param params
-	 *            the parameters abstraction used in the library
-	 * @return the parameters used by the real implementation (Apache Commons
-	 *         HTTP)
-	 */
-	private static List<NameValuePair> convert(List<Parameter> params) {
-		List<NameValuePair> pairs = new ArrayList<>(params.size());
-		for (Parameter param : params) {
-			if (param.getValue() != null) {
-				pairs.add(new BasicNameValuePair(param.getName(), param.getValue()));
-			}
-		}
-		return pairs;
-	}
-
 	private HttpUtils() {
 		super();
 	}
+
+	private static class DefaultTransportHolder {
+		private static final HttpTransport TRANSPORT = new HttpTransportBuilder().build();
+	}
 }
@@ -1,12 +1,17 @@
 package fr.sii.ogham.core.util;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Helper class for I/O management:
  * <ul>
  * <li>Read a stream and provide its content as byte array</li>
+ * <li>Release the resources held by an object</li>
  * </ul>
  * <p>
  * This work can be done by several libraries. The aim of this class is to be
@@ -22,6 +27,8 @@ import java.io.InputStream;
  *
  */
 public final class IOUtils {
+	private static final Logger LOG = LoggerFactory.getLogger(IOUtils.class);
+
 	/**
 	 * <p>
 	 * Get the contents of an InputStream as a byte[].
@@ -65,6 +72,24 @@ public final class IOUtils {
 		return org.apache.commons.io.IOUtils.toString(stream);
 	}
 
+	/**
+	 * Close the object if it holds resources (implements {@link Closeable}).
+	 * Nothing is done for other objects. The failure to close is logged and
+	 * ignored.
+	 * 
+	 * @param obj
+	 *            the object to close (may be null)
+	 */
+	public static void closeQuietly(Object obj) {
+		if (obj instanceof Closeable) {
+			try {
+				((Closeable) obj).close();
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("Failed to close {}", obj, e);
+			}
+		}
+	}
+
 	private IOUtils() {
 		super();
 	}
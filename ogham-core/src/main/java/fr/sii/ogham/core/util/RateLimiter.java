@@ -0,0 +1,129 @@
+package fr.sii.ogham.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free rate limiter that paces requests smoothly: each permit is
+ * scheduled one interval (1 / rate) after the previous one instead of letting
+ * bursts go through.
+ *
+ * <p>
+ * The rate adapts to the feedback of the remote server: each time the server
+ * indicates that it is overloaded ({@link #throttled()}), the rate is halved
+ * (at most down to 1/32 of the maximum rate) and the next permits are delayed.
+ * Each successful request ({@link #succeeded()}) then increases the rate
+ * progressively until the maximum rate is reached again.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class RateLimiter {
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+	private static final int MAX_BACKOFF = 32;
+	private static final int RECOVERY_DIVISOR = 64;
+
+	/**
+	 * The interval (in nanoseconds) between two permits at the maximum rate
+	 */
+	private final long minInterval;
+
+	/**
+	 * The interval (in nanoseconds) between two permits at the minimum rate
+	 */
+	private final long maxInterval;
+
+	/**
+	 * The current interval (in nanoseconds) between two permits
+	 */
+	private final AtomicLong interval;
+
+	/**
+	 * The date (in nanoseconds) at which the next permit is available
+	 */
+	private final AtomicLong next;
+
+	/**
+	 * Initialize the rate limiter.
+	 *
+	 * @param maxRate
+	 *            the maximum number of permits per second
+	 */
+	public RateLimiter(double maxRate) {
+		super();
+		if (maxRate <= 0) {
+			throw new IllegalArgumentException("The rate must be positive");
+		}
+		this.minInterval = Math.max(1, (long) (NANOS_PER_SECOND / maxRate));
+		this.maxInterval = minInterval * MAX_BACKOFF;
+		this.interval = new AtomicLong(minInterval);
+		this.next = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Wait until a permit is available.
+	 *
+	 * @throws InterruptedException
+	 *             when the thread is interrupted while waiting
+	 */
+	public void acquire() throws InterruptedException {
+		long wait = reserve();
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Indicates that the server rejected a request because the rate is too
+	 * high. The rate is halved and the next permits are delayed.
+	 */
+	public void throttled() {
+		long current;
+		long slower;
+		do {
+			current = interval.get();
+			slower = Math.min(maxInterval, current * 2);
+		} while (current != slower && !interval.compareAndSet(current, slower));
+		// let the server recover before sending the next request
+		long pause = System.nanoTime() + slower;
+		long scheduled;
+		do {
+			scheduled = next.get();
+		} while (scheduled - pause < 0 && !next.compareAndSet(scheduled, pause));
+	}
+
+	/**
+	 * Indicates that the server accepted a request. If the rate has been
+	 * lowered, it is slightly increased.
+	 */
+	public void succeeded() {
+		long current = interval.get();
+		if (current > minInterval) {
+			interval.compareAndSet(current, Math.max(minInterval, current - current / RECOVERY_DIVISOR));
+		}
+	}
+
+	/**
+	 * @return the current number of permits per second
+	 */
+	public double getRate() {
+		return (double) NANOS_PER_SECOND / interval.get();
+	}
+
+	/**
+	 * Reserve the next permit.
+	 *
+	 * @return the time to wait (in nanoseconds) before using the permit
+	 */
+	private long reserve() {
+		while (true) {
+			long now = System.nanoTime();
+			long scheduled = next.get();
+			// no credit is kept while unused => no burst
+			long start = scheduled - now < 0 ? now : scheduled;
+			if (next.compareAndSet(scheduled, start + interval.get())) {
+				return start - now;
+			}
+		}
+	}
+}
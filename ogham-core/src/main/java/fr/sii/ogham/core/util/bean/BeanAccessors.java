@@ -0,0 +1,114 @@
+package fr.sii.ogham.core.util.bean;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the read accessors (getters) of bean classes. The introspection of
+ * a class is done only once, then the accessors are reused for every bean of
+ * the same class.
+ * <p>
+ * The accessors are stored with the class itself (see {@link ClassValue}) and
+ * not in a static map. They are collected with the class so the cache doesn't
+ * retain the class loaders of the beans.
+ * </p>
+ * <p>
+ * The accessors are made accessible once so the security checks are not done
+ * on each invocation. If the introspection or the reflective access fails, the
+ * accessors of the class are introspected on each call without being made
+ * accessible.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public final class BeanAccessors {
+	private static final Logger LOG = LoggerFactory.getLogger(BeanAccessors.class);
+
+	/**
+	 * The read accessors indexed by property name for each introspected class
+	 * (null if the class couldn't be introspected once for all)
+	 */
+	private static volatile ClassValue<Map<String, Method>> accessors = new AccessorsCache();
+
+	/**
+	 * Get the read accessors of the class. The "class" property is excluded.
+	 *
+	 * @param clazz
+	 *            the bean class
+	 * @return the read accessors indexed by property name (unmodifiable)
+	 * @throws IntrospectionException
+	 *             when the class can't be introspected
+	 */
+	public static Map<String, Method> getReadAccessors(Class<?> clazz) throws IntrospectionException {
+		Map<String, Method> cached = accessors.get(clazz);
+		if (cached == null) {
+			return introspect(clazz, false);
+		}
+		return cached;
+	}
+
+	/**
+	 * Remove all the cached accessors (for example when classes are
+	 * reloaded).
+	 */
+	public static void clear() {
+		accessors = new AccessorsCache();
+	}
+
+	private static Map<String, Method> introspect(Class<?> clazz, boolean accessible) throws IntrospectionException {
+		Map<String, Method> readers = new LinkedHashMap<>();
+		for (PropertyDescriptor pd : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+			Method reader = pd.getReadMethod();
+			if (!"class".equals(pd.getName()) && reader != null) {
+				if (accessible) {
+					makeAccessible(reader);
+				}
+				readers.put(pd.getName(), reader);
+			}
+		}
+		return Collections.unmodifiableMap(readers);
+	}
+
+	private static void makeAccessible(Method method) {
+		try {
+			method.setAccessible(true);
+		} catch (SecurityException e) {
+			// keep standard access checks
+			LOG.trace("Accessor {} can't be made accessible", method, e);
+		}
+	}
+
+	/**
+	 * Introspects the class the first time its accessors are requested.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class AccessorsCache extends ClassValue<Map<String, Method>> {
+		@Override
+		protected Map<String, Method> computeValue(Class<?> type) {
+			try {
+				return introspect(type, true);
+			} catch (IntrospectionException | RuntimeException e) {
+				LOG.debug("Accessors of {} can't be cached", type, e);
+				return null;
+			} finally {
+				// the accessors are kept here, no need to keep the bean info
+				Introspector.flushFromCaches(type);
+			}
+		}
+	}
+
+	private BeanAccessors() {
+		super();
+	}
+}
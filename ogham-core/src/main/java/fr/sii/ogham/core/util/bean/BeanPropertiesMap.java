@@ -0,0 +1,121 @@
+package fr.sii.ogham.core.util.bean;
+
+import java.beans.IntrospectionException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+
+/**
+ * Read-only view of a bean as a map. Each property of the bean is an entry of
+ * the map. The key is the name of the property and the value is the value of
+ * the property.
+ * <p>
+ * The getters are invoked only when a value is requested (see
+ * {@link #get(Object)}) and each getter is invoked at most once. Iterating over
+ * the map reads all the properties.
+ * </p>
+ * <p>
+ * The accessors of the bean class are provided by {@link BeanAccessors} so the
+ * class is introspected only once.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class BeanPropertiesMap extends AbstractMap<String, Object> {
+	/**
+	 * The bean to read
+	 */
+	private final Object bean;
+
+	/**
+	 * The read accessors of the bean class
+	 */
+	private final Map<String, Method> accessors;
+
+	/**
+	 * The values already read
+	 */
+	private final Map<String, Object> values;
+
+	/**
+	 * Initialize the view on the bean.
+	 * 
+	 * @param bean
+	 *            the bean to read
+	 * @throws IntrospectionException
+	 *             when the bean class can't be introspected
+	 */
+	public BeanPropertiesMap(Object bean) throws IntrospectionException {
+		super();
+		this.bean = bean;
+		this.accessors = BeanAccessors.getReadAccessors(bean.getClass());
+		this.values = new HashMap<>();
+	}
+
+	@Override
+	public Object get(Object key) {
+		Method accessor = accessors.get(key);
+		if (accessor == null) {
+			return null;
+		}
+		String name = (String) key;
+		if (values.containsKey(name)) {
+			return values.get(name);
+		}
+		Object value = read(name, accessor);
+		values.put(name, value);
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return accessors.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return accessors.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return accessors.isEmpty();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return accessors.keySet();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		Map<String, Object> all = new LinkedHashMap<>();
+		for (String name : accessors.keySet()) {
+			all.put(name, get(name));
+		}
+		return Collections.unmodifiableMap(all).entrySet();
+	}
+
+	/**
+	 * @return the bean that is viewed as a map
+	 */
+	public Object getBean() {
+		return bean;
+	}
+
+	private Object read(String name, Method accessor) {
+		try {
+			return accessor.invoke(bean);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new FieldAccessException("Failed to read property " + name + " of bean " + bean, e);
+		}
+	}
+}
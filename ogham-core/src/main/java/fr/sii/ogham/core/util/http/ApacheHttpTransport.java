@@ -0,0 +1,257 @@
+package fr.sii.ogham.core.util.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.util.HttpException;
+import fr.sii.ogham.core.util.DaemonThreadFactory;
+
+/**
+ * {@link HttpTransport} based on Apache HTTP Client. The connections are
+ * pooled and reused (keep-alive). The number of connections (in total and per
+ * route), the connect and read timeouts and the keep-alive duration are
+ * configurable. Asynchronous requests are executed by a bounded pool of daemon
+ * threads (sized like the number of connections per route) so that background
+ * requests never wait for a connection held by another background request.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ApacheHttpTransport implements HttpTransport, Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(ApacheHttpTransport.class);
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int MILLISECONDS = 1000;
+
+	/**
+	 * The pool of connections
+	 */
+	private final PoolingHttpClientConnectionManager connectionManager;
+
+	/**
+	 * The client that uses the pool of connections
+	 */
+	private final CloseableHttpClient client;
+
+	/**
+	 * The threads used to execute asynchronous requests
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Initialize the transport.
+	 * 
+	 * @param maxConnections
+	 *            the maximum number of connections in total
+	 * @param maxConnectionsPerRoute
+	 *            the maximum number of connections to the same host
+	 * @param connectTimeout
+	 *            the maximum time (in milliseconds) to establish a connection
+	 *            (0 for no timeout)
+	 * @param readTimeout
+	 *            the maximum time (in milliseconds) to wait for data (0 for no
+	 *            timeout)
+	 * @param keepAlive
+	 *            the time (in milliseconds) an idle connection is kept open
+	 *            when the server doesn't indicate it
+	 */
+	public ApacheHttpTransport(int maxConnections, int maxConnectionsPerRoute, int connectTimeout, int readTimeout, long keepAlive) {
+		super();
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		// @formatter:off
+		RequestConfig requestConfig = RequestConfig.custom()
+										.setConnectTimeout(connectTimeout)
+										.setConnectionRequestTimeout(connectTimeout)
+										.setSocketTimeout(readTimeout)
+										.setStaleConnectionCheckEnabled(true)
+										.build();
+		client = HttpClientBuilder.create()
+									.useSystemProperties()
+									.setConnectionManager(connectionManager)
+									.setDefaultRequestConfig(requestConfig)
+									.setKeepAliveStrategy(new DefaultKeepAliveStrategy(keepAlive))
+									.build();
+		// @formatter:on
+		executor = Executors.newFixedThreadPool(maxConnectionsPerRoute, new DaemonThreadFactory("ogham-http"));
+	}
+
+	@Override
+	public Response get(String url, List<Parameter> params) throws HttpException {
+		String fullUrl = url;
+		String paramsStr = URLEncodedUtils.format(convert(params), UTF_8);
+		fullUrl += (fullUrl.contains("?") ? "&" : "?") + paramsStr;
+		// spaces are replaced by '+' but some servers doesn't handle it
+		// correctly
+		// => convert space to '%20'
+		fullUrl = fullUrl.replaceAll("\\+", "%20");
+		return execute(new HttpGet(fullUrl));
+	}
+
+	@Override
+	public Response post(String url, List<Parameter> params) throws HttpException {
+		HttpPost request = new HttpPost(url);
+		request.setEntity(new UrlEncodedFormEntity(convert(params), UTF_8));
+		return execute(request);
+	}
+
+	@Override
+	public Response post(String url, String body, String contentType) throws HttpException {
+		return post(url, body, contentType, Collections.<Parameter> emptyList());
+	}
+
+	@Override
+	public Response post(String url, String body, String contentType, List<Parameter> headers) throws HttpException {
+		HttpPost request = new HttpPost(url);
+		for (Parameter header : headers) {
+			request.addHeader(header.getName(), header.getValue());
+		}
+		request.setEntity(new StringEntity(body, ContentType.create(contentType, UTF_8)));
+		return execute(request);
+	}
+
+	@Override
+	public Future<Response> getAsync(final String url, final List<Parameter> params) {
+		return executor.submit(new Callable<Response>() {
+			@Override
+			public Response call() throws HttpException {
+				return get(url, params);
+			}
+		});
+	}
+
+	@Override
+	public Future<Response> postAsync(String url, String body, String contentType) {
+		return postAsync(url, body, contentType, Collections.<Parameter> emptyList());
+	}
+
+	@Override
+	public Future<Response> postAsync(final String url, final String body, final String contentType, final List<Parameter> headers) {
+		return executor.submit(new Callable<Response>() {
+			@Override
+			public Response call() throws HttpException {
+				return post(url, body, contentType, headers);
+			}
+		});
+	}
+
+	/**
+	 * Stop the background threads and close all the connections.
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		client.close();
+	}
+
+	/**
+	 * @return the number of connections currently used to execute requests
+	 */
+	public int getLeasedConnections() {
+		return connectionManager.getTotalStats().getLeased();
+	}
+
+	/**
+	 * @return the number of open connections that are waiting for a request
+	 */
+	public int getAvailableConnections() {
+		return connectionManager.getTotalStats().getAvailable();
+	}
+
+	private Response execute(HttpUriRequest request) throws HttpException {
+		LOG.debug("Sending HTTP {} request to {}", request.getMethod(), request.getURI());
+		try (CloseableHttpResponse response = client.execute(request)) {
+			int statusCode = response.getStatusLine().getStatusCode();
+			LOG.debug("HTTP {} request successfully sent to {}. Status code: {}", request.getMethod(), request.getURI(), statusCode);
+			// the body is fully consumed so the connection goes back to the
+			// pool
+			HttpEntity entity = response.getEntity();
+			return new Response(statusCode, entity == null ? "" : EntityUtils.toString(entity, UTF_8));
+		} catch (IOException e) {
+			throw new HttpException("Failed to send " + request.getMethod() + " request to " + request.getURI(), e);
+		}
+	}
+
+	/**
+	 * Convert a list of parameters to a list of {@link NameValuePair}.
+	 * 
+	 * @param params
+	 *            the parameters abstraction used in the library
+	 * @return the parameters used by the real implementation (Apache Commons
+	 *         HTTP)
+	 */
+	private static List<NameValuePair> convert(List<Parameter> params) {
+		List<NameValuePair> pairs = new ArrayList<>(params.size());
+		for (Parameter param : params) {
+			if (param.getValue() != null) {
+				pairs.add(new BasicNameValuePair(param.getName(), param.getValue()));
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Use the keep-alive duration indicated by the server or the default one.
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class DefaultKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+		private final long keepAlive;
+
+		public DefaultKeepAliveStrategy(long keepAlive) {
+			super();
+			this.keepAlive = keepAlive;
+		}
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+			while (it.hasNext()) {
+				HeaderElement element = it.nextElement();
+				if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+					try {
+						return Long.parseLong(element.getValue()) * MILLISECONDS;
+					} catch (NumberFormatException e) {
+						LOG.debug("Invalid keep-alive timeout {}", element.getValue(), e);
+					}
+				}
+			}
+			return keepAlive;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package fr.sii.ogham.core.util.http;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import fr.sii.ogham.core.exception.util.HttpException;
+
+/**
+ * Abstraction of the HTTP layer used by the senders that call REST/HTTP APIs.
+ * Implementations are responsible for connection reuse, timeouts and
+ * concurrency so that each sender can be configured independently.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface HttpTransport {
+	/**
+	 * Do a GET request on the provided URL and construct the Query String part
+	 * with the provided list of parameters. If the URL already contains
+	 * parameters (already contains a '?' character), then the parameters are
+	 * added to the existing parameters. The parameters are converted into
+	 * <code>application/x-www-form-urlencoded</code>. If there is a space, it
+	 * is encoded into '%20'.
+	 * 
+	 * @param url
+	 *            the base url
+	 * @param params
+	 *            the list of parameters to append to the query string
+	 * @return the response
+	 * @throws HttpException
+	 *             when the request has failed
+	 */
+	public Response get(String url, List<Parameter> params) throws HttpException;
+
+	/**
+	 * Do a POST request on the provided URL. The parameters are sent in the
+	 * body using <code>application/x-www-form-urlencoded</code> format.
+	 * 
+	 * @param url
+	 *            the url
+	 * @param params
+	 *            the list of parameters to send in the body
+	 * @return the response
+	 * @throws HttpException
+	 *             when the request has failed
+	 */
+	public Response post(String url, List<Parameter> params) throws HttpException;
+
+	/**
+	 * Do a POST request on the provided URL with the provided body.
+	 * 
+	 * @param url
+	 *            the url
+	 * @param body
+	 *            the body of the request
+	 * @param contentType
+	 *            the Mime Type of the body (for example
+	 *            <code>application/json</code>)
+	 * @return the response
+	 * @throws HttpException
+	 *             when the request has failed
+	 */
+	public Response post(String url, String body, String contentType) throws HttpException;
+
+	/**
+	 * Do a POST request on the provided URL with the provided body and
+	 * additional headers (for example for authentication).
+	 * 
+	 * @param url
+	 *            the url
+	 * @param body
+	 *            the body of the request
+	 * @param contentType
+	 *            the Mime Type of the body (for example
+	 *            <code>application/json</code>)
+	 * @param headers
+	 *            the headers to add to the request
+	 * @return the response
+	 * @throws HttpException
+	 *             when the request has failed
+	 */
+	public Response post(String url, String body, String contentType, List<Parameter> headers) throws HttpException;
+
+	/**
+	 * Same as {@link #get(String, List)} but the request is executed in
+	 * background. If the request fails, the {@link HttpException} is the cause
+	 * of the {@link java.util.concurrent.ExecutionException} thrown by
+	 * {@link Future#get()}.
+	 * 
+	 * @param url
+	 *            the base url
+	 * @param params
+	 *            the list of parameters to append to the query string
+	 * @return the future response
+	 */
+	public Future<Response> getAsync(String url, List<Parameter> params);
+
+	/**
+	 * Same as {@link #post(String, String, String)} but the request is
+	 * executed in background. If the request fails, the {@link HttpException}
+	 * is the cause of the {@link java.util.concurrent.ExecutionException}
+	 * thrown by {@link Future#get()}.
+	 * 
+	 * @param url
+	 *            the url
+	 * @param body
+	 *            the body of the request
+	 * @param contentType
+	 *            the Mime Type of the body
+	 * @return the future response
+	 */
+	public Future<Response> postAsync(String url, String body, String contentType);
+
+	/**
+	 * Same as {@link #post(String, String, String, List)} but the request is
+	 * executed in background. If the request fails, the {@link HttpException}
+	 * is the cause of the {@link java.util.concurrent.ExecutionException}
+	 * thrown by {@link Future#get()}.
+	 * 
+	 * @param url
+	 *            the url
+	 * @param body
+	 *            the body of the request
+	 * @param contentType
+	 *            the Mime Type of the body
+	 * @param headers
+	 *            the headers to add to the request
+	 * @return the future response
+	 */
+	public Future<Response> postAsync(String url, String body, String contentType, List<Parameter> headers);
+}
@@ -28,6 +28,68 @@ public class EmailConstants {
 		 */
 		public static final String AUTHENTICATOR_PASSWORD_KEY = AUTHENTICATOR_PROPERTIES_PREFIX+".password";
 		
+		/**
+		 * The prefix for SMTP connection pool properties
+		 */
+		public static final String TRANSPORT_POOL_PROPERTIES_PREFIX = EmailConstants.PROPERTIES_PREFIX+".transport.pool";
+		
+		/**
+		 * The key in the properties for the maximum number of idle connections
+		 * kept per server (0 to disable pooling)
+		 */
+		public static final String TRANSPORT_POOL_MAX_IDLE_KEY = TRANSPORT_POOL_PROPERTIES_PREFIX+".max.idle";
+		
+		/**
+		 * The key in the properties for the maximum number of messages sent on
+		 * the same connection
+		 */
+		public static final String TRANSPORT_POOL_MAX_MESSAGES_KEY = TRANSPORT_POOL_PROPERTIES_PREFIX+".max.messages";
+		
+		/**
+		 * The key in the properties for the time before an unused connection is
+		 * closed
+		 */
+		public static final String TRANSPORT_POOL_IDLE_TIMEOUT_KEY = TRANSPORT_POOL_PROPERTIES_PREFIX+".idle.timeout";
+		
+		/**
+		 * The key in the properties for the time before an unused connection is
+		 * checked before being reused
+		 */
+		public static final String TRANSPORT_POOL_VALIDATION_INTERVAL_KEY = TRANSPORT_POOL_PROPERTIES_PREFIX+".validation.interval";
+		
+		/**
+		 * The default maximum number of idle connections kept per server
+		 */
+		public static final int DEFAULT_TRANSPORT_POOL_MAX_IDLE = 1;
+		
+		/**
+		 * The default maximum number of messages sent on the same connection
+		 */
+		public static final int DEFAULT_TRANSPORT_POOL_MAX_MESSAGES = 100;
+		
+		/**
+		 * The default time before an unused connection is closed
+		 */
+		public static final long DEFAULT_TRANSPORT_POOL_IDLE_TIMEOUT = 30000;
+		
+		/**
+		 * The default time before an unused connection is checked. A reused
+		 * connection is always checked: the server may have closed it at any
+		 * time and a failed message is never sent again.
+		 */
+		public static final long DEFAULT_TRANSPORT_POOL_VALIDATION_INTERVAL = 0;
+		
+		/**
+		 * The key in the properties for the maximum total size (in bytes) of
+		 * encoded attachments kept in memory (0 to disable the cache)
+		 */
+		public static final String ATTACHMENT_CACHE_MAX_SIZE_KEY = EmailConstants.PROPERTIES_PREFIX+".attachment.cache.max.size";
+		
+		/**
+		 * By default, encoded attachments are not cached
+		 */
+		public static final long DEFAULT_ATTACHMENT_CACHE_MAX_SIZE = 0;
+		
 		private SmtpConstants() {
 			super();
 		}
@@ -7,12 +7,16 @@ import javax.mail.Authenticator;
 import fr.sii.ogham.core.builder.Builder;
 import fr.sii.ogham.core.charset.FixedCharsetProvider;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
+import fr.sii.ogham.core.message.content.RenderableContent;
 import fr.sii.ogham.core.message.content.MultiContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FixedMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.HtmlOrTextMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.JMimeMagicProvider;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
+import fr.sii.ogham.core.mimetype.SignatureMimeTypeProvider;
 import fr.sii.ogham.core.resource.ByteResource;
 import fr.sii.ogham.core.resource.FileResource;
 import fr.sii.ogham.core.resource.NamedResource;
@@ -20,6 +24,7 @@ import fr.sii.ogham.core.util.BuilderUtils;
 import fr.sii.ogham.email.EmailConstants.SmtpConstants;
 import fr.sii.ogham.email.message.content.ContentWithAttachments;
 import fr.sii.ogham.email.sender.impl.JavaMailSender;
+import fr.sii.ogham.email.sender.impl.javamail.CachingAttachmentResourceHandler;
 import fr.sii.ogham.email.sender.impl.javamail.ContentWithAttachmentsHandler;
 import fr.sii.ogham.email.sender.impl.javamail.FileResourceHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailAttachmentResourceHandler;
@@ -30,7 +35,9 @@ import fr.sii.ogham.email.sender.impl.javamail.MapContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.MultiContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.PropertiesUsernamePasswordAuthenticator;
 import fr.sii.ogham.email.sender.impl.javamail.StreamResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.RenderableContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.StringContentHandler;
+import fr.sii.ogham.email.sender.impl.javamail.TransportPool;
 
 /**
  * Builder that helps to construct the Java mail API implementation.
@@ -83,6 +90,17 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 	 */
 	private Authenticator authenticator;
 
+	/**
+	 * The pool of SMTP connections
+	 */
+	private TransportPool transportPool;
+
+	/**
+	 * The maximum total size of encoded attachments kept in memory (0 to
+	 * disable the cache)
+	 */
+	private long attachmentCacheMaxSize;
+
 	public JavaMailBuilder() {
 		super();
 		mapContentHandler = new MapContentHandler();
@@ -95,10 +113,12 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 	 * Tells the builder to use all default behaviors and values:
 	 * <ul>
 	 * <li>Use the system properties</li>
+	 * <li>Reuse SMTP connections</li>
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
 	 * <li>Handle {@link MultiContent}</li>
-	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StringContent} (body type detected by {@link HtmlOrTextMimeTypeProvider})</li>
+	 * <li>Handle {@link RenderableContent}</li>
 	 * <li>Handle {@link ByteResource}</li>
 	 * <li>Handle {@link FileResource}</li>
 	 * </ul>
@@ -114,10 +134,12 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 	 * Tells the builder to use all default behaviors and values:
 	 * <ul>
 	 * <li>Use the provided properties</li>
+	 * <li>Reuse SMTP connections</li>
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
 	 * <li>Handle {@link MultiContent}</li>
-	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StringContent} (body type detected by {@link HtmlOrTextMimeTypeProvider})</li>
+	 * <li>Handle {@link RenderableContent}</li>
 	 * <li>Handle {@link ByteResource}</li>
 	 * <li>Handle {@link FileResource}</li>
 	 * </ul>
@@ -131,11 +153,22 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 		if (props.containsKey(SmtpConstants.AUTHENTICATOR_USERNAME_KEY)) {
 			setAuthenticator(new PropertiesUsernamePasswordAuthenticator(props));
 		}
+		// @formatter:off
+		withTransportPool(getProperty(props, SmtpConstants.TRANSPORT_POOL_MAX_IDLE_KEY, SmtpConstants.DEFAULT_TRANSPORT_POOL_MAX_IDLE),
+				getProperty(props, SmtpConstants.TRANSPORT_POOL_MAX_MESSAGES_KEY, SmtpConstants.DEFAULT_TRANSPORT_POOL_MAX_MESSAGES),
+				getProperty(props, SmtpConstants.TRANSPORT_POOL_IDLE_TIMEOUT_KEY, SmtpConstants.DEFAULT_TRANSPORT_POOL_IDLE_TIMEOUT),
+				getProperty(props, SmtpConstants.TRANSPORT_POOL_VALIDATION_INTERVAL_KEY, SmtpConstants.DEFAULT_TRANSPORT_POOL_VALIDATION_INTERVAL));
+		// @formatter:on
+		withAttachmentCache(getProperty(props, SmtpConstants.ATTACHMENT_CACHE_MAX_SIZE_KEY, SmtpConstants.DEFAULT_ATTACHMENT_CACHE_MAX_SIZE));
+		registerMimeTypeProvider(new SignatureMimeTypeProvider());
 		registerMimeTypeProvider(new JMimeMagicProvider());
 		registerMimeTypeProvider(new FixedMimeTypeProvider());
 		registerContentHandler(MultiContent.class, new MultiContentHandler(mapContentHandler));
 		// TODO: make charset provider configurable
-		registerContentHandler(StringContent.class, new StringContentHandler(mimetypeProvider, new FixedCharsetProvider()));
+		StringContentHandler stringContentHandler = new StringContentHandler(new HtmlOrTextMimeTypeProvider(), new FixedCharsetProvider());
+		registerContentHandler(StringContent.class, stringContentHandler);
+		registerContentHandler(HtmlDocumentContent.class, stringContentHandler);
+		registerContentHandler(RenderableContent.class, new RenderableContentHandler(new FixedCharsetProvider()));
 		registerContentHandler(ContentWithAttachments.class, new ContentWithAttachmentsHandler(mapContentHandler));
 		registerAttachmentResourceHandler(ByteResource.class, new StreamResourceHandler(mimetypeProvider));
 		registerAttachmentResourceHandler(FileResource.class, new FileResourceHandler(mimetypeProvider));
@@ -227,8 +260,61 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 		return this;
 	}
 
+	/**
+	 * Keep SMTP connections open to reuse them for the next emails instead of
+	 * opening a new connection for each email.
+	 * 
+	 * @param maxIdle
+	 *            the maximum number of idle connections kept per server (0 to
+	 *            disable connection reuse)
+	 * @param maxMessagesPerConnection
+	 *            the maximum number of emails sent on the same connection (0
+	 *            for no limit)
+	 * @param idleTimeout
+	 *            the time (in milliseconds) after which an unused connection
+	 *            is closed
+	 * @param validationInterval
+	 *            the time (in milliseconds) after which an unused connection
+	 *            is checked before being reused
+	 * @return this instance for fluent use
+	 */
+	public JavaMailBuilder withTransportPool(int maxIdle, int maxMessagesPerConnection, long idleTimeout, long validationInterval) {
+		transportPool = new TransportPool(maxIdle, maxMessagesPerConnection, idleTimeout, validationInterval);
+		return this;
+	}
+
+	/**
+	 * Keep the transfer-encoded content of the attachments in memory to reuse
+	 * it when the same attachment is sent in several emails (see
+	 * {@link CachingAttachmentResourceHandler}).
+	 * 
+	 * @param maxSize
+	 *            the maximum total size (in bytes) of encoded attachments kept
+	 *            in memory (0 to disable the cache)
+	 * @return this instance for fluent use
+	 */
+	public JavaMailBuilder withAttachmentCache(long maxSize) {
+		attachmentCacheMaxSize = maxSize;
+		return this;
+	}
+
 	@Override
 	public JavaMailSender build() {
-		return new JavaMailSender(properties, contentHandler, attachmentResourceHandler, authenticator, interceptor);
+		JavaMailAttachmentResourceHandler attachmentHandler = attachmentResourceHandler;
+		if (attachmentCacheMaxSize > 0) {
+			attachmentHandler = new CachingAttachmentResourceHandler(attachmentResourceHandler, attachmentCacheMaxSize);
+		}
+		if (transportPool == null) {
+			return new JavaMailSender(properties, contentHandler, attachmentHandler, authenticator, interceptor);
+		}
+		return new JavaMailSender(properties, contentHandler, attachmentHandler, authenticator, interceptor, transportPool);
+	}
+
+	private int getProperty(Properties props, String key, int defaultValue) {
+		return Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)));
+	}
+
+	private long getProperty(Properties props, String key, long defaultValue) {
+		return Long.parseLong(props.getProperty(key, String.valueOf(defaultValue)));
 	}
 }
@@ -5,12 +5,16 @@ import java.util.Properties;
 import fr.sii.ogham.core.builder.Builder;
 import fr.sii.ogham.core.exception.builder.BuildException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
+import fr.sii.ogham.core.message.content.RenderableContent;
 import fr.sii.ogham.core.message.content.MultiContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FixedMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.HtmlOrTextMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.JMimeMagicProvider;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
+import fr.sii.ogham.core.mimetype.SignatureMimeTypeProvider;
 import fr.sii.ogham.core.util.BuilderUtils;
 import fr.sii.ogham.email.EmailConstants.SendGridConstants;
 import fr.sii.ogham.email.sender.impl.SendGridSender;
@@ -79,7 +83,7 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
 	 * <li>Handle {@link MultiContent}</li>
-	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StringContent} (body type detected by {@link HtmlOrTextMimeTypeProvider})</li>
 	 * </ul>
 	 * 
 	 * @return this instance for fluent use
@@ -96,7 +100,7 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
 	 * <li>Handle {@link MultiContent}</li>
-	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StringContent} (body type detected by {@link HtmlOrTextMimeTypeProvider})</li>
 	 * </ul>
 	 * 
 	 * @param props
@@ -106,10 +110,14 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	public SendGridBuilder useDefaults(Properties props) {
 		withCredentials(props.getProperty(SendGridConstants.USERNAME), props.getProperty(SendGridConstants.PASSWORD));
 		withApiKey(props.getProperty(SendGridConstants.API_KEY));
+		registerMimeTypeProvider(new SignatureMimeTypeProvider());
 		registerMimeTypeProvider(new JMimeMagicProvider());
 		registerMimeTypeProvider(new FixedMimeTypeProvider());
 		registerContentHandler(MultiContent.class, new MultiContentHandler(mapContentHandler));
-		registerContentHandler(StringContent.class, new StringContentHandler(mimetypeProvider));
+		StringContentHandler stringContentHandler = new StringContentHandler(new HtmlOrTextMimeTypeProvider());
+		registerContentHandler(StringContent.class, stringContentHandler);
+		registerContentHandler(HtmlDocumentContent.class, stringContentHandler);
+		registerContentHandler(RenderableContent.class, stringContentHandler);
 		return this;
 	}
 
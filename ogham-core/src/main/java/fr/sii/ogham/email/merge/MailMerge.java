@@ -0,0 +1,218 @@
+package fr.sii.ogham.email.merge;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.MayHaveStringContent;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.resource.resolver.MemoryResourceResolver;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.service.BulkMessagingService;
+import fr.sii.ogham.core.service.BulkSendListener;
+import fr.sii.ogham.core.service.BulkSendReport;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.core.translator.content.ContentTranslator;
+import fr.sii.ogham.core.util.HtmlUtils;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.email.attachment.Attachment;
+import fr.sii.ogham.email.message.content.ContentWithAttachments;
+
+/**
+ * Sends the same template to many recipients. The template is loaded and the
+ * static work (CSS and image inlining) is done only once (see
+ * {@link #prepare(String)}). Then for each recipient, an email is generated
+ * with the prepared template and the recipient context. Only the variables are
+ * evaluated for each recipient. The emails are generated one at a time while
+ * they are sent so memory stays bounded whatever the number of recipients.
+ *
+ * <p>
+ * As the inlining is applied on the template source and not on the evaluated
+ * template, only the resources that are statically referenced are inlined. A
+ * CSS rule that relies on attributes generated by the template engine won't be
+ * applied.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class MailMerge {
+	private static final Logger LOG = LoggerFactory.getLogger(MailMerge.class);
+
+	/**
+	 * The lookup used to reference the prepared templates
+	 */
+	public static final String LOOKUP = "merge";
+
+	/**
+	 * The service used to send the generated emails
+	 */
+	private final BulkMessagingService service;
+
+	/**
+	 * The resolver used to load the template source
+	 */
+	private final ResourceResolver resolver;
+
+	/**
+	 * The translator applied once on the template source
+	 */
+	private final ContentTranslator staticTranslator;
+
+	/**
+	 * The parser used to evaluate the prepared templates
+	 */
+	private final TemplateParser parser;
+
+	/**
+	 * Keeps the prepared templates. The parser must resolve the
+	 * {@link #LOOKUP} lookup with this resolver.
+	 */
+	private final MemoryResourceResolver templates;
+
+	/**
+	 * Initialize the mail-merge.
+	 *
+	 * @param service
+	 *            the service used to send the generated emails
+	 * @param resolver
+	 *            the resolver used to load the template source
+	 * @param staticTranslator
+	 *            the translator applied once on the template source (CSS and
+	 *            image inlining for example)
+	 * @param parser
+	 *            the parser used to evaluate the prepared templates
+	 * @param templates
+	 *            the resolver registered for the {@link #LOOKUP} lookup of the
+	 *            parser
+	 */
+	public MailMerge(BulkMessagingService service, ResourceResolver resolver, ContentTranslator staticTranslator, TemplateParser parser, MemoryResourceResolver templates) {
+		super();
+		this.service = service;
+		this.resolver = resolver;
+		this.staticTranslator = staticTranslator;
+		this.parser = parser;
+		this.templates = templates;
+	}
+
+	/**
+	 * Load the template and apply the static translations on it.
+	 *
+	 * @param templatePath
+	 *            the path of the template
+	 * @return the prepared template
+	 * @throws ContentTranslatorException
+	 *             when the template couldn't be loaded or translated
+	 */
+	public MergeTemplate prepare(String templatePath) throws ContentTranslatorException {
+		LOG.debug("Preparing template {} for mail-merge", templatePath);
+		String source = load(templatePath);
+		Content translated = staticTranslator.translate(new StringContent(source));
+		List<Attachment> attachments = Collections.emptyList();
+		if (translated instanceof ContentWithAttachments) {
+			attachments = ((ContentWithAttachments) translated).getAttachments();
+			translated = ((ContentWithAttachments) translated).getContent();
+		}
+		if (!(translated instanceof MayHaveStringContent) || !((MayHaveStringContent) translated).canProvideString()) {
+			throw new ContentTranslatorException("Template " + templatePath + " can't be used for mail-merge because the translated content is not a string");
+		}
+		String template = ((MayHaveStringContent) translated).asString();
+		if (!template.equals(source) && HtmlUtils.isHtml(template)) {
+			// inliners serialize as HTML but template engines may require
+			// well-formed XML
+			template = HtmlUtils.toXhtml(template);
+		}
+		String name = LOOKUP + ":" + templates.register(template);
+		String mimeType = HtmlUtils.isHtml(template) ? "text/html" : "text/plain";
+		LOG.debug("Template {} prepared for mail-merge as {} with {} attachments", templatePath, name, attachments.size());
+		return new MergeTemplate(templatePath, template, name, mimeType, parser, attachments);
+	}
+
+	/**
+	 * Send an email to each entry and collect the result of each email.
+	 *
+	 * @param template
+	 *            the prepared template
+	 * @param subject
+	 *            the subject of the emails
+	 * @param entries
+	 *            the recipients and their context
+	 * @return the result of each email
+	 */
+	public BulkSendReport send(MergeTemplate template, String subject, Collection<MergeEntry> entries) {
+		BulkSendReport report = new BulkSendReport();
+		send(template, subject, entries.iterator(), report);
+		return report;
+	}
+
+	/**
+	 * Send an email to each entry. Emails are generated one by one as entries
+	 * are provided by the iterator.
+	 *
+	 * @param template
+	 *            the prepared template
+	 * @param subject
+	 *            the subject of the emails
+	 * @param entries
+	 *            the recipients and their context
+	 * @param listener
+	 *            notified of the result of each email
+	 */
+	public void send(MergeTemplate template, String subject, Iterator<MergeEntry> entries, BulkSendListener listener) {
+		LOG.info("Sending mail-merge of template {}", template.getPath());
+		service.sendAll(new EmailIterator(template, subject, entries), listener);
+	}
+
+	private String load(String templatePath) throws ContentTranslatorException {
+		try {
+			return IOUtils.toString(resolver.getResource(templatePath).getInputStream());
+		} catch (IOException e) {
+			throw new ContentTranslatorException("Failed to load template " + templatePath + " because it can't be read", e);
+		} catch (ResourceResolutionException e) {
+			throw new ContentTranslatorException("Failed to load template " + templatePath + " because it can't be resolved", e);
+		}
+	}
+
+	/**
+	 * Generates the emails lazily from the entries.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static class EmailIterator implements Iterator<Message> {
+		private final MergeTemplate template;
+
+		private final String subject;
+
+		private final Iterator<MergeEntry> entries;
+
+		public EmailIterator(MergeTemplate template, String subject, Iterator<MergeEntry> entries) {
+			super();
+			this.template = template;
+			this.subject = subject;
+			this.entries = entries;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return entries.hasNext();
+		}
+
+		@Override
+		public Message next() {
+			return template.createEmail(subject, entries.next());
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+	}
+}
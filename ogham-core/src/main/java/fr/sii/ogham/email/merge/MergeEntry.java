@@ -0,0 +1,90 @@
+package fr.sii.ogham.email.merge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.sii.ogham.core.template.context.BeanContext;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.email.message.Recipient;
+
+/**
+ * The values specific to one recipient of a mail-merge: the recipients of the
+ * generated email and the context used to evaluate the template.
+ *
+ * @author Aurélien Baudet
+ * @see MailMerge
+ */
+public class MergeEntry {
+	/**
+	 * The context (variable values) for this entry
+	 */
+	private final Context context;
+
+	/**
+	 * The recipients of the generated email
+	 */
+	private final List<Recipient> recipients;
+
+	/**
+	 * Initialize the entry with the context and the recipients.
+	 *
+	 * @param context
+	 *            the context (variable values)
+	 * @param recipients
+	 *            the recipients of the generated email
+	 */
+	public MergeEntry(Context context, List<Recipient> recipients) {
+		super();
+		this.context = context;
+		this.recipients = recipients;
+	}
+
+	/**
+	 * Initialize the entry with the context and the addresses used in to field.
+	 *
+	 * @param context
+	 *            the context (variable values)
+	 * @param to
+	 *            the addresses used in to field
+	 */
+	public MergeEntry(Context context, String... to) {
+		this(context, toRecipients(to));
+	}
+
+	/**
+	 * Shortcut for directly using any object as source for variable
+	 * substitutions.
+	 *
+	 * @param bean
+	 *            the object that contains the variable values
+	 * @param to
+	 *            the addresses used in to field
+	 */
+	public MergeEntry(Object bean, String... to) {
+		this(new BeanContext(bean), to);
+	}
+
+	public Context getContext() {
+		return context;
+	}
+
+	public List<Recipient> getRecipients() {
+		return recipients;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("MergeEntry [recipients=").append(recipients).append(", context=").append(context).append("]");
+		return builder.toString();
+	}
+
+	private static List<Recipient> toRecipients(String... to) {
+		List<Recipient> recipients = new ArrayList<>(to.length);
+		for (String address : Arrays.asList(to)) {
+			recipients.add(new Recipient(address));
+		}
+		return recipients;
+	}
+}
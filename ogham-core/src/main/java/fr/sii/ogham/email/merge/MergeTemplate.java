@@ -0,0 +1,159 @@
+package fr.sii.ogham.email.merge;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.MayHaveStringContent;
+import fr.sii.ogham.core.message.content.RenderableContent;
+import fr.sii.ogham.core.message.content.RenderableContent.Renderer;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.email.attachment.Attachment;
+import fr.sii.ogham.email.message.Email;
+
+/**
+ * A template that has been loaded and prepared once for a mail-merge. The
+ * static work (CSS inlining, image inlining) has already been applied on the
+ * template source. Only the evaluation of the variables remains to be done
+ * for each recipient.
+ *
+ * <p>
+ * The prepared template is registered in memory under a short generated name
+ * that the template engine uses to find and cache it. The content of each
+ * email is a {@link RenderableContent} that is evaluated when the email is
+ * transmitted, so the content translators of the email (HTML parsing, CSS and
+ * image inlining) don't apply on it again.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ * @see MailMerge#prepare(String)
+ */
+public class MergeTemplate {
+	/**
+	 * The path of the original template
+	 */
+	private final String path;
+
+	/**
+	 * The prepared template source (still containing the variables)
+	 */
+	private final String template;
+
+	/**
+	 * The short name used to reference the prepared template
+	 */
+	private final String name;
+
+	/**
+	 * The Mime Type of the evaluated template
+	 */
+	private final String mimeType;
+
+	/**
+	 * The parser used to evaluate the template for each recipient
+	 */
+	private final TemplateParser parser;
+
+	/**
+	 * The attachments generated by the preparation (inlined images for
+	 * example) that must be joined to every email
+	 */
+	private final List<Attachment> attachments;
+
+	public MergeTemplate(String path, String template, String name, String mimeType, TemplateParser parser, List<Attachment> attachments) {
+		super();
+		this.path = path;
+		this.template = template;
+		this.name = name;
+		this.mimeType = mimeType;
+		this.parser = parser;
+		this.attachments = Collections.unmodifiableList(attachments);
+	}
+
+	/**
+	 * Generate the email for one recipient. The content of the email is the
+	 * prepared template with the context of the entry so the variables are
+	 * evaluated when the email is sent.
+	 *
+	 * @param subject
+	 *            the subject of the email
+	 * @param entry
+	 *            the recipients and the context
+	 * @return the email to send
+	 */
+	public Email createEmail(String subject, MergeEntry entry) {
+		// each email has its own list because attachments may be added while
+		// sending
+		return new Email(subject, new RenderableContent(new MergeRenderer(parser, name, entry.getContext()), mimeType), entry.getRecipients(), new ArrayList<>(attachments));
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getTemplate() {
+		return template;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<Attachment> getAttachments() {
+		return attachments;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("MergeTemplate [path=").append(path).append(", name=").append(name).append(", attachments=").append(attachments.size()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Evaluates the prepared template with the context of one recipient.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static class MergeRenderer implements Renderer {
+		private final TemplateParser parser;
+
+		private final String name;
+
+		private final Context context;
+
+		public MergeRenderer(TemplateParser parser, String name, Context context) {
+			super();
+			this.parser = parser;
+			this.name = name;
+			this.context = context;
+		}
+
+		@Override
+		public void render(Writer writer) throws IOException {
+			Content content;
+			try {
+				content = parser.parse(name, context);
+			} catch (ParseException e) {
+				throw new IOException("Failed to evaluate mail-merge template " + name, e);
+			}
+			if (content instanceof RenderableContent) {
+				((RenderableContent) content).writeTo(writer);
+			} else if (content instanceof MayHaveStringContent && ((MayHaveStringContent) content).canProvideString()) {
+				writer.write(((MayHaveStringContent) content).asString());
+			} else {
+				throw new IOException("Mail-merge template " + name + " can't be written because the evaluated content is not a string");
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "MergeRenderer [name=" + name + ", context=" + context + "]";
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package fr.sii.ogham.email.sender;
 
+import java.io.Closeable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +13,7 @@ import fr.sii.ogham.core.resource.resolver.ResourceResolver;
 import fr.sii.ogham.core.sender.ConditionalSender;
 import fr.sii.ogham.core.sender.MessageSender;
 import fr.sii.ogham.core.translator.resource.AttachmentResourceTranslator;
+import fr.sii.ogham.core.util.IOUtils;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.exception.attachment.translator.ResourceTranslatorException;
 import fr.sii.ogham.email.message.Email;
@@ -25,7 +28,7 @@ import fr.sii.ogham.email.message.Email;
  * @see ResourceResolver
  * @see NamedResource
  */
-public class AttachmentResourceTranslatorSender implements ConditionalSender {
+public class AttachmentResourceTranslatorSender implements ConditionalSender, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(AttachmentResourceTranslatorSender.class);
 
 	/**
@@ -74,6 +77,14 @@ public class AttachmentResourceTranslatorSender implements ConditionalSender {
 		}
 	}
 
+	/**
+	 * Close the decorated sender if it holds resources.
+	 */
+	@Override
+	public void close() {
+		IOUtils.closeQuietly(delegate);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -1,5 +1,6 @@
 package fr.sii.ogham.email.sender.impl;
 
+import java.io.Closeable;
 import java.io.UnsupportedEncodingException;
 import java.util.Properties;
 
@@ -7,8 +8,8 @@ import javax.mail.Authenticator;
 import javax.mail.Message.RecipientType;
 import javax.mail.MessagingException;
 import javax.mail.Multipart;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
-import javax.mail.Transport;
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
@@ -20,6 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.sender.AbstractSpecializedSender;
+import fr.sii.ogham.email.EmailConstants.SmtpConstants;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.attachment.ContentDisposition;
 import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
@@ -30,14 +32,22 @@ import fr.sii.ogham.email.message.Recipient;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailAttachmentResourceHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailInterceptor;
+import fr.sii.ogham.email.sender.impl.javamail.TransportPool;
+import fr.sii.ogham.email.sender.impl.javamail.TransportPool.PooledTransport;
 
 /**
  * Java mail API implementation.
  * 
+ * <p>
+ * The Java mail session is created once and SMTP connections are kept open (see
+ * {@link TransportPool}) so that sending several emails doesn't require to
+ * connect and authenticate for each email.
+ * </p>
+ * 
  * @author Aurélien Baudet
  * @see JavaMailContentHandler
  */
-public class JavaMailSender extends AbstractSpecializedSender<Email> {
+public class JavaMailSender extends AbstractSpecializedSender<Email> implements Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(JavaMailSender.class);
 
 	/**
@@ -65,26 +75,44 @@ public class JavaMailSender extends AbstractSpecializedSender<Email> {
 	 */
 	private Authenticator authenticator;
 
+	/**
+	 * The session shared by all messages
+	 */
+	private Session session;
+
+	/**
+	 * The pool of SMTP connections
+	 */
+	private TransportPool transportPool;
+
 	public JavaMailSender(Properties properties, JavaMailContentHandler contentHandler, JavaMailAttachmentResourceHandler attachmentResourceHandler, Authenticator authenticator) {
 		this(properties, contentHandler, attachmentResourceHandler, authenticator, null);
 	}
 
 	public JavaMailSender(Properties properties, JavaMailContentHandler contentHandler, JavaMailAttachmentResourceHandler attachmentHandler, Authenticator authenticator,
 			JavaMailInterceptor interceptor) {
+		this(properties, contentHandler, attachmentHandler, authenticator, interceptor, new TransportPool(SmtpConstants.DEFAULT_TRANSPORT_POOL_MAX_IDLE,
+				SmtpConstants.DEFAULT_TRANSPORT_POOL_MAX_MESSAGES, SmtpConstants.DEFAULT_TRANSPORT_POOL_IDLE_TIMEOUT, SmtpConstants.DEFAULT_TRANSPORT_POOL_VALIDATION_INTERVAL));
+	}
+
+	public JavaMailSender(Properties properties, JavaMailContentHandler contentHandler, JavaMailAttachmentResourceHandler attachmentHandler, Authenticator authenticator,
+			JavaMailInterceptor interceptor, TransportPool transportPool) {
 		super();
 		this.properties = properties;
 		this.contentHandler = contentHandler;
 		this.attachmentHandler = attachmentHandler;
 		this.authenticator = authenticator;
 		this.interceptor = interceptor;
+		this.transportPool = transportPool;
+		LOG.debug("Initialize Java mail session with authenticator {} and properties {}", authenticator, properties);
+		this.session = Session.getInstance(properties, authenticator);
 	}
 
 	@Override
 	public void send(Email email) throws MessageException {
 		try {
-			LOG.debug("Initialize Java mail session with authenticator {} and properties {}", authenticator, properties);
 			LOG.debug("Create the mime message for email {}", email);
-			MimeMessage mimeMsg = createMimeMessage();
+			MimeMessage mimeMsg = new MimeMessage(session);
 			// set the sender address
 			setFrom(email, mimeMsg);
 			// set recipients (to, cc, bcc)
@@ -101,21 +129,47 @@ public class JavaMailSender extends AbstractSpecializedSender<Email> {
 			// message is ready => send it
 			LOG.info("Sending email using Java Mail API through server {}:{}...", properties.getProperty("mail.smtp.host", properties.getProperty("mail.host")),
 					properties.getProperty("mail.smtp.port", properties.getProperty("mail.port")));
-			Transport.send(mimeMsg);
+			send(mimeMsg);
 		} catch (UnsupportedEncodingException | MessagingException | ContentHandlerException | AttachmentResourceHandlerException e) {
 			throw new MessageException("failed to send message using Java Mail API", email, e);
 		}
 	}
 
 	/**
-	 * Initialize the session and create the mime message.
+	 * Close the SMTP connections that are kept open.
+	 */
+	@Override
+	public void close() {
+		transportPool.close();
+	}
+
+	/**
+	 * Send the message using a pooled connection. A reused connection that has
+	 * been closed by the server is replaced when acquired (see
+	 * {@link TransportPool}). A failure while sending is never replayed: the
+	 * server may have already accepted the message.
 	 * 
-	 * @return the mime message
+	 * @param mimeMsg
+	 *            the message to send
+	 * @throws MessagingException
+	 *             when the message couldn't be sent
 	 */
-	private MimeMessage createMimeMessage() {
-		// prepare the message
-		Session session = Session.getDefaultInstance(properties, authenticator);
-		return new MimeMessage(session);
+	private void send(MimeMessage mimeMsg) throws MessagingException {
+		PooledTransport transport = transportPool.acquire(session, authenticator);
+		try {
+			transport.send(mimeMsg);
+		} catch (SendFailedException e) {
+			// rejected addresses: the connection is still usable
+			transportPool.release(transport);
+			throw e;
+		} catch (MessagingException e) {
+			transportPool.invalidate(transport);
+			throw e;
+		} catch (RuntimeException e) {
+			transportPool.invalidate(transport);
+			throw e;
+		}
+		transportPool.release(transport);
 	}
 
 	/**
@@ -0,0 +1,284 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.activation.DataHandler;
+import javax.mail.BodyPart;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeUtility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.resource.ByteResource;
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.core.resource.NamedResource;
+import fr.sii.ogham.email.attachment.Attachment;
+import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
+
+/**
+ * Decorator that keeps the transfer-encoded content of the attachments in
+ * memory. When the same attachment is sent in many emails, the content is
+ * read, its Mime Type is detected and it is encoded (base64 for binary
+ * content) only once. The encoded bytes are then shared by all the generated
+ * messages and written as-is to the transport.
+ * <p>
+ * Attachments are identified by:
+ * </p>
+ * <ul>
+ * <li>the path, the modification date and the size for {@link FileResource}s</li>
+ * <li>a hash of the content for {@link ByteResource}s</li>
+ * </ul>
+ * <p>
+ * Other resources are directly handled by the delegate.
+ * </p>
+ * <p>
+ * The cache is limited by the total size of the encoded content. The least
+ * recently used attachments are evicted first. Attachments that are bigger
+ * than the whole budget are never cached (and are streamed by the delegate).
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class CachingAttachmentResourceHandler implements JavaMailAttachmentResourceHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(CachingAttachmentResourceHandler.class);
+
+	private static final String CONTENT_TYPE = "Content-Type";
+	private static final String TRANSFER_ENCODING = "Content-Transfer-Encoding";
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	/**
+	 * Base64 expands content by 4/3 plus line breaks (76 chars per line)
+	 */
+	private static final int BASE64_NUMERATOR = 137;
+	private static final int BASE64_DENOMINATOR = 100;
+
+	/**
+	 * The handler that really reads the attachment content
+	 */
+	private final JavaMailAttachmentResourceHandler delegate;
+
+	/**
+	 * The maximum total size (in bytes) of the cached encoded content
+	 */
+	private final long maxBytes;
+
+	/**
+	 * The encoded attachments (least recently used first)
+	 */
+	private final Map<Object, EncodedAttachment> cache;
+
+	/**
+	 * The current total size of the cached encoded content
+	 */
+	private long currentBytes;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Initialize with the handler that reads the attachments and the maximum
+	 * total size of encoded content kept in memory.
+	 * 
+	 * @param delegate
+	 *            the handler that reads the attachments
+	 * @param maxBytes
+	 *            the maximum total size (in bytes) of the cached content
+	 */
+	public CachingAttachmentResourceHandler(JavaMailAttachmentResourceHandler delegate, long maxBytes) {
+		super();
+		this.delegate = delegate;
+		this.maxBytes = maxBytes;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	@Override
+	public void setData(BodyPart part, NamedResource resource, Attachment attachment) throws AttachmentResourceHandlerException {
+		long size = getSize(resource);
+		Object key = size * BASE64_NUMERATOR / BASE64_DENOMINATOR > maxBytes ? null : getKey(resource);
+		if (key == null) {
+			LOG.debug("Attachment {} is not cacheable", resource.getName());
+			delegate.setData(part, resource, attachment);
+			return;
+		}
+		EncodedAttachment encoded;
+		synchronized (cache) {
+			encoded = cache.get(key);
+			if (encoded == null) {
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+		try {
+			if (encoded == null) {
+				encoded = encode(resource, attachment);
+				put(key, encoded);
+			} else {
+				LOG.debug("Reusing encoded content of attachment {}", resource.getName());
+			}
+			part.setDataHandler(encoded.toDataHandler());
+		} catch (MessagingException e) {
+			throw new AttachmentResourceHandlerException("Failed to attach " + resource.getName(), attachment, e);
+		} catch (IOException e) {
+			throw new AttachmentResourceHandlerException("Failed to attach " + resource.getName() + ". Content can't be encoded", attachment, e);
+		}
+	}
+
+	/**
+	 * Remove all the encoded attachments from the cache.
+	 */
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+			currentBytes = 0;
+		}
+	}
+
+	/**
+	 * @return the number of times an attachment was found in the cache
+	 */
+	public long getHits() {
+		synchronized (cache) {
+			return hits;
+		}
+	}
+
+	/**
+	 * @return the number of times an attachment had to be encoded
+	 */
+	public long getMisses() {
+		synchronized (cache) {
+			return misses;
+		}
+	}
+
+	/**
+	 * @return the current total size of the cached encoded content
+	 */
+	public long getSize() {
+		synchronized (cache) {
+			return currentBytes;
+		}
+	}
+
+	private EncodedAttachment encode(NamedResource resource, Attachment attachment) throws AttachmentResourceHandlerException, MessagingException, IOException {
+		// let the delegate read the content and detect the Mime Type
+		MimeBodyPart source = new MimeBodyPart();
+		delegate.setData(source, resource, attachment);
+		DataHandler dataHandler = source.getDataHandler();
+		String encoding = MimeUtility.getEncoding(dataHandler);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (OutputStream encoder = MimeUtility.encode(bos, encoding)) {
+			dataHandler.writeTo(encoder);
+		}
+		LOG.debug("Attachment {} encoded in {}", resource.getName(), encoding);
+		return new EncodedAttachment(dataHandler.getContentType(), encoding, bos.toByteArray());
+	}
+
+	private void put(Object key, EncodedAttachment encoded) {
+		if (encoded.content.length > maxBytes) {
+			return;
+		}
+		synchronized (cache) {
+			EncodedAttachment previous = cache.put(key, encoded);
+			if (previous != null) {
+				currentBytes -= previous.content.length;
+			}
+			currentBytes += encoded.content.length;
+			Iterator<Entry<Object, EncodedAttachment>> it = cache.entrySet().iterator();
+			while (currentBytes > maxBytes && it.hasNext()) {
+				currentBytes -= it.next().getValue().content.length;
+				it.remove();
+			}
+		}
+	}
+
+	private static long getSize(NamedResource resource) {
+		if (resource instanceof FileResource) {
+			return ((FileResource) resource).getFile().length();
+		}
+		if (resource instanceof ByteResource) {
+			return ((ByteResource) resource).getBytes().length;
+		}
+		return 0;
+	}
+
+	private static Object getKey(NamedResource resource) {
+		if (resource instanceof FileResource) {
+			File file = ((FileResource) resource).getFile();
+			return Arrays.asList(file.getAbsolutePath(), file.lastModified(), file.length());
+		}
+		if (resource instanceof ByteResource) {
+			try {
+				return new ContentKey(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(((ByteResource) resource).getBytes()));
+			} catch (NoSuchAlgorithmException e) {
+				LOG.warn("Can't compute hash of attachment content", e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The transfer-encoded content of an attachment.
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class EncodedAttachment {
+		private final String contentType;
+		private final String encoding;
+		private final byte[] content;
+
+		public EncodedAttachment(String contentType, String encoding, byte[] content) {
+			super();
+			this.contentType = contentType;
+			this.encoding = encoding;
+			this.content = content;
+		}
+
+		/**
+		 * Create a data handler that writes the encoded content without
+		 * encoding it again. The bytes are shared, not copied.
+		 */
+		public DataHandler toDataHandler() throws MessagingException {
+			InternetHeaders headers = new InternetHeaders();
+			headers.setHeader(CONTENT_TYPE, contentType);
+			headers.setHeader(TRANSFER_ENCODING, encoding);
+			return new MimeBodyPart(headers, content).getDataHandler();
+		}
+	}
+
+	private static class ContentKey {
+		private final byte[] hash;
+
+		public ContentKey(byte[] hash) {
+			super();
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(hash);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ContentKey && Arrays.equals(hash, ((ContentKey) obj).hash);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import javax.activation.DataSource;
+
+/**
+ * {@link DataSource} that reads the file only when the content is needed
+ * (when the message is written to the transport). The file is read by chunks
+ * through a {@link FileChannel} so the whole file is never loaded in memory.
+ * Each call to {@link #getInputStream()} opens a new channel so the content
+ * can be read several times (JavaMail may read it once to determine the
+ * transfer encoding and once to encode it).
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class FileChannelDataSource implements DataSource {
+	/**
+	 * The size of the chunks read from the file
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The file to read
+	 */
+	private final File file;
+
+	/**
+	 * The Mime Type of the file content
+	 */
+	private final String contentType;
+
+	/**
+	 * Initialize the data source with the file to read and the associated Mime
+	 * Type.
+	 * 
+	 * @param file
+	 *            the file to read
+	 * @param contentType
+	 *            the Mime Type of the file content
+	 */
+	public FileChannelDataSource(File file, String contentType) {
+		super();
+		this.file = file;
+		this.contentType = contentType;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return new BufferedInputStream(Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ)), BUFFER_SIZE);
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		throw new IOException("FileChannelDataSource is read-only");
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public String getName() {
+		return file.getName();
+	}
+
+	public File getFile() {
+		return file;
+	}
+}
@@ -1,13 +1,10 @@
 package fr.sii.ogham.email.sender.impl.javamail;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
+import java.io.File;
 
 import javax.activation.DataHandler;
 import javax.mail.BodyPart;
 import javax.mail.MessagingException;
-import javax.mail.util.ByteArrayDataSource;
 
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
@@ -16,6 +13,15 @@ import fr.sii.ogham.core.resource.NamedResource;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
 
+/**
+ * Implementation that is able to handle {@link FileResource}. The file is not
+ * loaded in memory. It is read by chunks when the message is sent (see
+ * {@link FileChannelDataSource}). Only the header of the file may be read
+ * beforehand to detect the Mime Type.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
 public class FileResourceHandler implements JavaMailAttachmentResourceHandler {
 	private static final String ERROR_MESSAGE_PREFIX = "Failed to attach ";
 	
@@ -32,16 +38,15 @@ public class FileResourceHandler implements JavaMailAttachmentResourceHandler {
 	@Override
 	public void setData(BodyPart part, NamedResource resource, Attachment attachment) throws AttachmentResourceHandlerException {
 		try {
-			FileResource fileResource = (FileResource) resource;
-			part.setDataHandler(new DataHandler(new ByteArrayDataSource(new FileInputStream(fileResource.getFile()), mimetypeProvider.getMimeType(fileResource.getFile()).toString())));
+			File file = ((FileResource) resource).getFile();
+			if (!file.isFile()) {
+				throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". File doesn't exists", attachment);
+			}
+			part.setDataHandler(new DataHandler(new FileChannelDataSource(file, mimetypeProvider.getMimeType(file).toString())));
 		} catch (MimeTypeDetectionException e) {
 			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". Mime type can't be detected", attachment, e);
-		} catch (FileNotFoundException e) {
-			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". File doesn't exists", attachment, e);
 		} catch (MessagingException e) {
 			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName(), attachment, e);
-		} catch (IOException e) {
-			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". File can't be read", attachment, e);
 		}
 	}
 
@@ -0,0 +1,145 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimePart;
+
+import fr.sii.ogham.core.charset.CharsetProvider;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.RenderableContent;
+import fr.sii.ogham.email.exception.javamail.ContentHandlerException;
+import fr.sii.ogham.email.message.Email;
+
+/**
+ * Content handler that adds contents that are rendered directly into the MIME
+ * body when the email is transmitted (see {@link RenderableContent}). The
+ * content is written directly into the transfer encoder so the rendered
+ * content is never fully kept in memory.
+ * <p>
+ * The transfer encoding is forced to quoted-printable because the JavaMail
+ * automatic detection would need to render the content once more.
+ * </p>
+ * <p>
+ * The charset used to write the content is always declared in the
+ * Content-Type header. If the charset provider doesn't provide any charset,
+ * UTF-8 is used.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class RenderableContentHandler implements JavaMailContentHandler {
+	private static final String TRANSFER_ENCODING = "quoted-printable";
+
+	/**
+	 * The charset provider
+	 */
+	private CharsetProvider charsetProvider;
+
+	public RenderableContentHandler(CharsetProvider charsetProvider) {
+		super();
+		this.charsetProvider = charsetProvider;
+	}
+
+	@Override
+	public void setContent(MimePart message, Multipart multipart, Email email, Content content) throws ContentHandlerException {
+		try {
+			RenderableContent renderable = (RenderableContent) content;
+			// the content is not available yet
+			Charset charset = charsetProvider.getCharset(null);
+			if (charset == null) {
+				charset = StandardCharsets.UTF_8;
+			}
+			String contentType = renderable.getMimeType() + ";charset=" + charset.name();
+			MimeBodyPart part = new MimeBodyPart();
+			part.setDataHandler(new RenderingDataHandler(new RenderingDataSource(renderable, contentType, charset)));
+			part.setHeader("Content-Type", contentType);
+			part.setHeader("Content-Transfer-Encoding", TRANSFER_ENCODING);
+			multipart.addBodyPart(part);
+		} catch (MessagingException e) {
+			throw new ContentHandlerException("failed to set content on mime message", content, e);
+		}
+	}
+
+	/**
+	 * Data handler that renders the content directly into the output stream.
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class RenderingDataHandler extends DataHandler {
+		private final RenderingDataSource source;
+
+		public RenderingDataHandler(RenderingDataSource source) {
+			super(source);
+			this.source = source;
+		}
+
+		@Override
+		public void writeTo(OutputStream os) throws IOException {
+			source.writeTo(os);
+		}
+	}
+
+	/**
+	 * Data source used when the content has to be read as stream (rendered in
+	 * memory).
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class RenderingDataSource implements DataSource {
+		private final RenderableContent content;
+		private final String contentType;
+		private final Charset charset;
+
+		public RenderingDataSource(RenderableContent content, String contentType, Charset charset) {
+			super();
+			this.content = content;
+			this.contentType = contentType;
+			this.charset = charset;
+		}
+
+		public void writeTo(OutputStream os) throws IOException {
+			Writer writer = new OutputStreamWriter(os, charset);
+			content.writeTo(writer);
+			// the stream is managed by JavaMail: flush but don't close
+			writer.flush();
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			writeTo(bos);
+			return new ByteArrayInputStream(bos.toByteArray());
+		}
+
+		@Override
+		public OutputStream getOutputStream() throws IOException {
+			throw new IOException("Rendered content is read-only");
+		}
+
+		@Override
+		public String getContentType() {
+			return contentType;
+		}
+
+		@Override
+		public String getName() {
+			return null;
+		}
+	}
+}
@@ -17,7 +17,9 @@ import fr.sii.ogham.email.message.Email;
 
 /**
  * Content handler that adds string contents (HTML, text, ...). It needs to
- * detect Mime Type for indicating the type of the added content.
+ * detect Mime Type for indicating the type of the added content. If the Mime
+ * Type is already known by the content (see {@link StringContent#getMimeType()}
+ * ), the detection is skipped.
  * 
  * @author Aurélien Baudet
  *
@@ -43,10 +45,12 @@ public class StringContentHandler implements JavaMailContentHandler {
 	public void setContent(MimePart message, Multipart multipart, Email email, Content content) throws ContentHandlerException {
 		try {
 			MimeBodyPart part = new MimeBodyPart();
-			String strContent = ((StringContent) content).getContent();
+			StringContent stringContent = (StringContent) content;
+			String strContent = stringContent.getContent();
 			Charset charset = charsetProvider.getCharset(strContent);
 			String charsetParam = charset == null ? "" : (";charset=" + charset.name());
-			part.setContent(strContent, mimetypeProvider.detect(strContent).toString() + charsetParam);
+			String mimeType = stringContent.getMimeType() == null ? mimetypeProvider.detect(strContent).toString() : stringContent.getMimeType();
+			part.setContent(strContent, mimeType + charsetParam);
 			multipart.addBodyPart(part);
 		} catch (MessagingException e) {
 			throw new ContentHandlerException("failed to set content on mime message", content, e);
@@ -0,0 +1,465 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import javax.mail.Address;
+import javax.mail.Authenticator;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.sender.BatchContext;
+import fr.sii.ogham.core.util.EqualsBuilder;
+import fr.sii.ogham.core.util.HashCodeBuilder;
+
+/**
+ * Pool of connected {@link Transport}s. Opening a connection to the mail
+ * server (TCP connection, STARTTLS negotiation and authentication) is costly so
+ * connections are kept open and reused for several messages.
+ *
+ * <p>
+ * Connections are grouped by server (protocol, host, port, user and
+ * authenticator). A connection is closed instead of being given back to the
+ * pool when:
+ * </p>
+ * <ul>
+ * <li>it has sent {@link #getMaxMessagesPerConnection()} messages</li>
+ * <li>there are already {@link #getMaxIdle()} idle connections for the same
+ * server</li>
+ * <li>it has been unused for more than {@link #getIdleTimeout()}
+ * milliseconds</li>
+ * <li>it is broken (checked when unused for more than
+ * {@link #getValidationInterval()} milliseconds)</li>
+ * </ul>
+ *
+ * <p>
+ * A connection that is reused (idle connection or connection kept for a batch)
+ * is checked (NOOP command) before any command of the message is sent. If the
+ * server has closed it, a new connection is opened instead. This is the only
+ * place where a failure is recovered: a failure while sending the message is
+ * never replayed as the server may have already accepted the message.
+ * </p>
+ *
+ * <p>
+ * The pool only limits the idle connections. The total number of connections
+ * is not limited: a new connection is opened each time no idle connection is
+ * available, so the number of connections in use is bounded by the number of
+ * threads that send messages at the same time.
+ * </p>
+ *
+ * <p>
+ * When messages are sent within a {@link BatchContext}, the connection is kept
+ * by the thread for the whole batch (or until
+ * {@link #getMaxMessagesPerConnection()} is reached) and given back to the
+ * pool when the batch ends.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class TransportPool {
+	private static final Logger LOG = LoggerFactory.getLogger(TransportPool.class);
+
+	/**
+	 * The idle connections indexed by server
+	 */
+	private final ConcurrentMap<TransportKey, BlockingDeque<PooledTransport>> idle;
+
+	/**
+	 * The maximum number of idle connections kept per server
+	 */
+	private final int maxIdle;
+
+	/**
+	 * The maximum number of messages sent on the same connection
+	 */
+	private final int maxMessagesPerConnection;
+
+	/**
+	 * The time (in milliseconds) after which an unused connection is closed
+	 */
+	private final long idleTimeout;
+
+	/**
+	 * The time (in milliseconds) after which an unused connection is checked
+	 * before being reused
+	 */
+	private final long validationInterval;
+
+	/**
+	 * Initialize the pool.
+	 *
+	 * @param maxIdle
+	 *            the maximum number of idle connections kept per server (0 to
+	 *            disable pooling). Connections in use are not limited.
+	 * @param maxMessagesPerConnection
+	 *            the maximum number of messages sent on the same connection
+	 *            before closing it (0 for no limit)
+	 * @param idleTimeout
+	 *            the time (in milliseconds) after which an unused connection
+	 *            is closed
+	 * @param validationInterval
+	 *            the time (in milliseconds) after which an unused connection
+	 *            is checked before being reused (0 to check it before each
+	 *            reuse)
+	 */
+	public TransportPool(int maxIdle, int maxMessagesPerConnection, long idleTimeout, long validationInterval) {
+		super();
+		this.maxIdle = maxIdle;
+		this.maxMessagesPerConnection = maxMessagesPerConnection;
+		this.idleTimeout = idleTimeout;
+		this.validationInterval = validationInterval;
+		this.idle = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get a connected transport for the server configured in the session. An
+	 * idle connection is reused if available, otherwise a new connection is
+	 * opened.
+	 *
+	 * @param session
+	 *            the session that provides server configuration
+	 * @param authenticator
+	 *            the authenticator used by the session (may be null)
+	 * @return the connected transport
+	 * @throws MessagingException
+	 *             when the connection couldn't be opened
+	 */
+	public PooledTransport acquire(Session session, Authenticator authenticator) throws MessagingException {
+		TransportKey key = TransportKey.of(session, authenticator);
+		BatchContext batch = BatchContext.current();
+		if (batch != null) {
+			PooledTransport pinned = (PooledTransport) batch.get(new BatchKey(this, key));
+			if (pinned != null) {
+				if (isConnected(pinned)) {
+					pinned.reused = true;
+					return pinned;
+				}
+				invalidate(pinned);
+			}
+		}
+		PooledTransport pooled = acquire(session, key);
+		if (batch != null) {
+			LOG.debug("Keeping connection {} for the whole batch", pooled);
+			pooled.pinned = true;
+			batch.put(new BatchKey(this, key), pooled);
+		}
+		return pooled;
+	}
+
+	private PooledTransport acquire(Session session, TransportKey key) throws MessagingException {
+		BlockingDeque<PooledTransport> connections = getIdle(key);
+		PooledTransport pooled;
+		while ((pooled = connections.pollFirst()) != null) {
+			if (isReusable(pooled)) {
+				LOG.debug("Reusing connection {}", pooled);
+				pooled.reused = true;
+				return pooled;
+			}
+			close(pooled);
+		}
+		Transport transport = session.getTransport();
+		LOG.debug("Opening a new connection to {}", key);
+		transport.connect();
+		return new PooledTransport(this, key, transport);
+	}
+
+	/**
+	 * Give back the connection once the message has been sent.
+	 *
+	 * @param pooled
+	 *            the connection to give back
+	 */
+	public void release(PooledTransport pooled) {
+		boolean limitReached = maxMessagesPerConnection > 0 && pooled.sent >= maxMessagesPerConnection;
+		if (pooled.pinned) {
+			if (!limitReached) {
+				// still used by the batch
+				return;
+			}
+			unpin(pooled);
+		}
+		BlockingDeque<PooledTransport> connections = getIdle(pooled.key);
+		evictExpired(connections);
+		if (limitReached) {
+			LOG.debug("Connection {} has sent {} messages, closing it", pooled, pooled.sent);
+			close(pooled);
+		} else if (connections.size() >= maxIdle) {
+			close(pooled);
+		} else {
+			pooled.lastUsed = System.currentTimeMillis();
+			connections.offerFirst(pooled);
+		}
+	}
+
+	/**
+	 * Close a connection that is not usable anymore.
+	 *
+	 * @param pooled
+	 *            the broken connection
+	 */
+	public void invalidate(PooledTransport pooled) {
+		LOG.debug("Connection {} invalidated", pooled);
+		if (pooled.pinned) {
+			unpin(pooled);
+		}
+		close(pooled);
+	}
+
+	/**
+	 * Close all idle connections.
+	 */
+	public void close() {
+		for (BlockingDeque<PooledTransport> connections : idle.values()) {
+			PooledTransport pooled;
+			while ((pooled = connections.pollFirst()) != null) {
+				close(pooled);
+			}
+		}
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	public int getMaxMessagesPerConnection() {
+		return maxMessagesPerConnection;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public long getValidationInterval() {
+		return validationInterval;
+	}
+
+	private BlockingDeque<PooledTransport> getIdle(TransportKey key) {
+		BlockingDeque<PooledTransport> connections = idle.get(key);
+		if (connections == null) {
+			BlockingDeque<PooledTransport> created = new LinkedBlockingDeque<>();
+			connections = idle.putIfAbsent(key, created);
+			if (connections == null) {
+				connections = created;
+			}
+		}
+		return connections;
+	}
+
+	private boolean isReusable(PooledTransport pooled) {
+		long unused = System.currentTimeMillis() - pooled.lastUsed;
+		if (unused > idleTimeout) {
+			LOG.debug("Connection {} unused for {}ms, closing it", pooled, unused);
+			return false;
+		}
+		return isConnected(pooled);
+	}
+
+	private boolean isConnected(PooledTransport pooled) {
+		// isConnected() sends a NOOP command to the server so only check
+		// connections that may have been closed by the server
+		long unused = System.currentTimeMillis() - pooled.lastUsed;
+		if (unused >= validationInterval && !pooled.transport.isConnected()) {
+			LOG.debug("Connection {} closed by the server", pooled);
+			return false;
+		}
+		return true;
+	}
+
+	private void evictExpired(BlockingDeque<PooledTransport> connections) {
+		// least recently used connections are at the tail
+		PooledTransport pooled;
+		while ((pooled = connections.peekLast()) != null && System.currentTimeMillis() - pooled.lastUsed > idleTimeout) {
+			if (connections.removeLastOccurrence(pooled)) {
+				close(pooled);
+			}
+		}
+	}
+
+	private void unpin(PooledTransport pooled) {
+		pooled.pinned = false;
+		BatchContext batch = BatchContext.current();
+		if (batch != null) {
+			batch.remove(new BatchKey(this, pooled.key));
+		}
+	}
+
+	private static void close(PooledTransport pooled) {
+		try {
+			pooled.transport.close();
+		} catch (MessagingException e) {
+			LOG.debug("Failed to close connection " + pooled, e);
+		}
+	}
+
+	/**
+	 * A connection managed by the pool.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	public static class PooledTransport implements BatchContext.Resource {
+		private final TransportPool pool;
+
+		private final TransportKey key;
+
+		private final Transport transport;
+
+		private int sent;
+
+		private volatile long lastUsed;
+
+		private boolean pinned;
+
+		private boolean reused;
+
+		PooledTransport(TransportPool pool, TransportKey key, Transport transport) {
+			super();
+			this.pool = pool;
+			this.key = key;
+			this.transport = transport;
+			this.lastUsed = System.currentTimeMillis();
+		}
+
+		/**
+		 * Send the message on this connection.
+		 *
+		 * @param message
+		 *            the message to send
+		 * @throws MessagingException
+		 *             when the message couldn't be sent
+		 */
+		public void send(MimeMessage message) throws MessagingException {
+			message.saveChanges();
+			Address[] recipients = message.getAllRecipients();
+			if (recipients == null || recipients.length == 0) {
+				throw new SendFailedException("No recipient addresses");
+			}
+			transport.sendMessage(message, recipients);
+			sent++;
+			lastUsed = System.currentTimeMillis();
+		}
+
+		/**
+		 * Indicates if the connection was already opened before it was
+		 * acquired. A failure on a reused connection may be due to the server
+		 * that has closed it in the meantime.
+		 *
+		 * @return true if the connection has been reused, false if it has been
+		 *         opened by the last {@link TransportPool#acquire} call
+		 */
+		public boolean isReused() {
+			return reused;
+		}
+
+		/**
+		 * Give back the connection to the pool at the end of the batch.
+		 */
+		@Override
+		public void release() {
+			pinned = false;
+			pool.release(this);
+		}
+
+		@Override
+		public String toString() {
+			return key + "#" + Integer.toHexString(System.identityHashCode(transport));
+		}
+	}
+
+	/**
+	 * Identifies the connection kept by a pool during a batch.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static final class BatchKey {
+		private final TransportPool pool;
+
+		private final TransportKey key;
+
+		BatchKey(TransportPool pool, TransportKey key) {
+			super();
+			this.pool = pool;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof BatchKey)) {
+				return false;
+			}
+			BatchKey other = (BatchKey) obj;
+			return pool == other.pool && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(pool) + key.hashCode();
+		}
+	}
+
+	/**
+	 * Identifies the server and the credentials used by a connection.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static final class TransportKey {
+		private final String protocol;
+
+		private final String host;
+
+		private final String port;
+
+		private final String user;
+
+		private final Authenticator authenticator;
+
+		private TransportKey(String protocol, String host, String port, String user, Authenticator authenticator) {
+			super();
+			this.protocol = protocol;
+			this.host = host;
+			this.port = port;
+			this.user = user;
+			this.authenticator = authenticator;
+		}
+
+		static TransportKey of(Session session, Authenticator authenticator) {
+			String protocol = session.getProperty("mail.transport.protocol");
+			if (protocol == null) {
+				protocol = "smtp";
+			}
+			return new TransportKey(protocol, getProperty(session, protocol, "host"), getProperty(session, protocol, "port"), getProperty(session, protocol, "user"), authenticator);
+		}
+
+		private static String getProperty(Session session, String protocol, String name) {
+			String value = session.getProperty("mail." + protocol + "." + name);
+			return value == null ? session.getProperty("mail." + name) : value;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TransportKey)) {
+				return false;
+			}
+			TransportKey other = (TransportKey) obj;
+			return new EqualsBuilder().append(protocol, other.protocol).append(host, other.host).append(port, other.port).append(user, other.user).isEqual()
+					&& authenticator == other.authenticator;
+		}
+
+		@Override
+		public int hashCode() {
+			return new HashCodeBuilder().append(protocol, host, port, user).append(System.identityHashCode(authenticator)).hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return protocol + "://" + (user == null ? "" : user + "@") + host + ":" + port;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package fr.sii.ogham.email.sender.impl.sendgrid.handler;
 
+import java.io.IOException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,6 +9,7 @@ import com.sendgrid.SendGrid.Email;
 
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.RenderableContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.email.exception.sendgrid.ContentHandlerException;
@@ -43,7 +46,9 @@ public final class StringContentHandler implements SendGridContentHandler {
 	 * 
 	 * While the method signature accepts any {@link Content} instance as
 	 * parameter, the method will fail if anything other than a
-	 * {@link StringContent} is provided.
+	 * {@link StringContent} or a {@link RenderableContent} is provided. As
+	 * SendGrid needs the whole content, a {@link RenderableContent} is
+	 * rendered in memory.
 	 * 
 	 * @param email
 	 *            the email to put the content in
@@ -65,16 +70,24 @@ public final class StringContentHandler implements SendGridContentHandler {
 
 		if (content instanceof StringContent) {
 			final String contentStr = ((StringContent) content).getContent();
+			final String knownMime = ((StringContent) content).getMimeType();
 
 			try {
-				final String mime = mimeProvider.detect(contentStr).toString();
+				final String mime = knownMime == null ? mimeProvider.detect(contentStr).toString() : knownMime;
 				LOG.debug("Email content {} has detected type {}", content, mime);
 				setMimeContent(email, contentStr, mime);
 			} catch (MimeTypeDetectionException e) {
 				throw new ContentHandlerException("Unable to set the email content", e);
 			}
+		} else if (content instanceof RenderableContent) {
+			RenderableContent renderable = (RenderableContent) content;
+			try {
+				setMimeContent(email, renderable.renderToString(), renderable.getMimeType());
+			} catch (IOException e) {
+				throw new ContentHandlerException("Unable to render the email content", e);
+			}
 		} else {
-			throw new IllegalArgumentException("This instance can only work with StringContent instances, but was passed " + content.getClass().getSimpleName());
+			throw new IllegalArgumentException("This instance can only work with StringContent or RenderableContent instances, but was passed " + content.getClass().getSimpleName());
 		}
 
 	}
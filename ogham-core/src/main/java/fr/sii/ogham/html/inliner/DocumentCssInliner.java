@@ -0,0 +1,25 @@
+package fr.sii.ogham.html.inliner;
+
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * CSS inliner that is able to work directly on an already parsed HTML
+ * document. This avoids parsing and serializing the HTML again when several
+ * transformations are applied on the same content.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface DocumentCssInliner extends CssInliner {
+	/**
+	 * Update the HTML document in order to inline the styles.
+	 * 
+	 * @param doc
+	 *            the HTML document that may reference external CSS files
+	 * @param cssContents
+	 *            the list of external css files with their content
+	 */
+	public void inline(Document doc, List<ExternalCss> cssContents);
+}
@@ -0,0 +1,28 @@
+package fr.sii.ogham.html.inliner;
+
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+
+import fr.sii.ogham.email.attachment.Attachment;
+
+/**
+ * Image inliner that is able to work directly on an already parsed HTML
+ * document. This avoids parsing and serializing the HTML again when several
+ * transformations are applied on the same content.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface DocumentImageInliner extends ImageInliner {
+	/**
+	 * Update the HTML document in order to inline images.
+	 * 
+	 * @param doc
+	 *            the HTML document that may contain images to inline
+	 * @param images
+	 *            the list of found images to inline
+	 * @return the images to attach to the mail (may be empty)
+	 */
+	public List<Attachment> inline(Document doc, List<ImageResource> images);
+}
@@ -1,17 +1,30 @@
 package fr.sii.ogham.html.inliner;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Node;
+
+import fr.sii.ogham.email.attachment.Attachment;
+
 /**
  * Applies in sequence all provided decorated inliners. This may be useful to
  * allow several strategies to be applied on the same message content according
  * to the images.
+ * <p>
+ * When working on a parsed document, inliners that are able to work on the
+ * document directly (see {@link DocumentImageInliner}) update it without
+ * serialization. The other inliners work on the serialized HTML and the
+ * document is then updated with the result.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
  */
-public class EveryImageInliner implements ImageInliner {
+public class EveryImageInliner implements DocumentImageInliner {
 	/**
 	 * The list of inliners to apply in sequence
 	 */
@@ -37,4 +50,25 @@ public class EveryImageInliner implements ImageInliner {
 		return combined;
 	}
 
+	@Override
+	public List<Attachment> inline(Document doc, List<ImageResource> images) {
+		List<Attachment> attachments = new ArrayList<>();
+		for (ImageInliner inliner : inliners) {
+			if (inliner instanceof DocumentImageInliner) {
+				attachments.addAll(((DocumentImageInliner) inliner).inline(doc, images));
+			} else {
+				ContentWithImages partial = inliner.inline(doc.outerHtml(), images);
+				replaceContent(doc, Jsoup.parse(partial.getContent()));
+				attachments.addAll(partial.getAttachments());
+			}
+		}
+		return attachments;
+	}
+
+	private static void replaceContent(Document doc, Document newDoc) {
+		doc.empty();
+		for (Node node : new ArrayList<>(newDoc.childNodes())) {
+			doc.appendChild(node);
+		}
+	}
 }
@@ -0,0 +1,310 @@
+package fr.sii.ogham.html.inliner.impl.jsoup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A stylesheet that has been parsed once. It contains the rules that can be
+ * inlined with their parsed selectors and declarations. The parts of the
+ * stylesheet that can't be inlined (media queries, font faces, dynamic
+ * pseudo-classes...) are kept as is in order to be left in the HTML.
+ * <p>
+ * Comments are ignored and selector groups are split into one rule per
+ * selector so each selector has its own specificity.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class CompiledStylesheet {
+	/**
+	 * The rules that can be inlined in the order of the stylesheet
+	 */
+	private final List<CssRule> rules;
+
+	/**
+	 * The CSS that can't be inlined (empty if none)
+	 */
+	private final String preserved;
+
+	public CompiledStylesheet(List<CssRule> rules, String preserved) {
+		super();
+		this.rules = Collections.unmodifiableList(rules);
+		this.preserved = preserved;
+	}
+
+	/**
+	 * Parse the stylesheet.
+	 *
+	 * @param css
+	 *            the CSS content
+	 * @return the compiled stylesheet
+	 */
+	public static CompiledStylesheet compile(String css) {
+		List<CssRule> rules = new ArrayList<>();
+		StringBuilder preserved = new StringBuilder();
+		String source = removeComments(css);
+		int pos = 0;
+		while (pos < source.length()) {
+			int open = indexOf(source, '{', pos);
+			int semicolon = indexOf(source, ';', pos);
+			String prelude = source.substring(pos, open < 0 ? source.length() : open).trim();
+			if (prelude.startsWith("@") && semicolon >= 0 && (open < 0 || semicolon < open)) {
+				// statement at-rule (@import, @charset...)
+				preserved.append(source.substring(pos, semicolon + 1).trim()).append('\n');
+				pos = semicolon + 1;
+				continue;
+			}
+			if (open < 0) {
+				break;
+			}
+			int close = matchingBrace(source, open);
+			String block = source.substring(open + 1, close < 0 ? source.length() : close);
+			pos = close < 0 ? source.length() : close + 1;
+			if (prelude.startsWith("@")) {
+				// block at-rule (@media, @font-face...)
+				preserved.append(prelude).append(" {").append(block).append("}\n");
+			} else if (!prelude.isEmpty()) {
+				addRules(rules, preserved, prelude, block);
+			}
+		}
+		return new CompiledStylesheet(rules, preserved.toString().trim());
+	}
+
+	private static void addRules(List<CssRule> rules, StringBuilder preserved, String selectors, String block) {
+		List<CssDeclaration> declarations = CssDeclaration.parse(block);
+		StringBuilder notInlinable = new StringBuilder();
+		for (String selector : splitSelectors(selectors)) {
+			CssSelector parsed = CssSelector.parse(selector);
+			if (parsed.isInlinable()) {
+				rules.add(new CssRule(parsed, declarations));
+			} else if (!parsed.getSelector().isEmpty()) {
+				notInlinable.append(notInlinable.length() == 0 ? "" : ", ").append(parsed.getSelector());
+			}
+		}
+		if (notInlinable.length() > 0) {
+			preserved.append(notInlinable).append(" {").append(block).append("}\n");
+		}
+	}
+
+	/**
+	 * Splits a selector group on the commas that are neither in parenthesis
+	 * (<code>:not(a, b)</code>), in brackets nor in a string
+	 * (<code>[title="a,b"]</code>)
+	 */
+	private static List<String> splitSelectors(String selectors) {
+		List<String> parts = new ArrayList<>();
+		int depth = 0;
+		char quote = 0;
+		int start = 0;
+		for (int i = 0; i < selectors.length(); i++) {
+			char c = selectors.charAt(i);
+			if (quote != 0) {
+				if (c == '\\') {
+					i++;
+				} else if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '(' || c == '[') {
+				depth++;
+			} else if ((c == ')' || c == ']') && depth > 0) {
+				depth--;
+			} else if (c == ',' && depth == 0) {
+				parts.add(selectors.substring(start, i));
+				start = i + 1;
+			}
+		}
+		parts.add(selectors.substring(start));
+		return parts;
+	}
+
+	private static String removeComments(String css) {
+		StringBuilder sb = new StringBuilder(css.length());
+		int pos = 0;
+		char quote = 0;
+		while (pos < css.length()) {
+			char c = css.charAt(pos);
+			if (quote != 0) {
+				if (c == '\\' && pos + 1 < css.length()) {
+					sb.append(c);
+					c = css.charAt(++pos);
+				} else if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '/' && pos + 1 < css.length() && css.charAt(pos + 1) == '*') {
+				int end = css.indexOf("*/", pos + 2);
+				pos = end < 0 ? css.length() : end + 2;
+				continue;
+			}
+			sb.append(c);
+			pos++;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Finds the next character that is not in a string
+	 */
+	private static int indexOf(String css, char searched, int from) {
+		char quote = 0;
+		for (int i = from; i < css.length(); i++) {
+			char c = css.charAt(i);
+			if (quote != 0) {
+				if (c == '\\') {
+					i++;
+				} else if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == searched) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int matchingBrace(String css, int open) {
+		int depth = 0;
+		int pos = open;
+		while (pos >= 0 && pos < css.length()) {
+			int nextOpen = indexOf(css, '{', pos + 1);
+			int nextClose = indexOf(css, '}', pos + 1);
+			if (nextClose < 0) {
+				return -1;
+			}
+			if (nextOpen >= 0 && nextOpen < nextClose) {
+				depth++;
+				pos = nextOpen;
+			} else if (depth == 0) {
+				return nextClose;
+			} else {
+				depth--;
+				pos = nextClose;
+			}
+		}
+		return -1;
+	}
+
+	public List<CssRule> getRules() {
+		return rules;
+	}
+
+	public String getPreserved() {
+		return preserved;
+	}
+
+	/**
+	 * A rule with a single selector and the associated declarations.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	public static class CssRule {
+		/**
+		 * The parsed selector
+		 */
+		private final CssSelector selector;
+
+		/**
+		 * The declarations in the order of the stylesheet
+		 */
+		private final List<CssDeclaration> declarations;
+
+		public CssRule(CssSelector selector, List<CssDeclaration> declarations) {
+			super();
+			this.selector = selector;
+			this.declarations = declarations;
+		}
+
+		public CssSelector getSelector() {
+			return selector;
+		}
+
+		public List<CssDeclaration> getDeclarations() {
+			return declarations;
+		}
+
+		@Override
+		public String toString() {
+			return selector + " " + declarations;
+		}
+	}
+
+	/**
+	 * A single CSS property declaration.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	public static class CssDeclaration {
+		private static final String IMPORTANT = "!important";
+
+		/**
+		 * The name of the property
+		 */
+		private final String property;
+
+		/**
+		 * The value (including <code>!important</code> if any)
+		 */
+		private final String value;
+
+		/**
+		 * True if the declaration is marked as important
+		 */
+		private final boolean important;
+
+		public CssDeclaration(String property, String value) {
+			super();
+			this.property = property;
+			this.value = value;
+			this.important = value.toLowerCase().endsWith(IMPORTANT);
+		}
+
+		/**
+		 * Parse the declarations of a block.
+		 *
+		 * @param block
+		 *            the content of the block (without braces)
+		 * @return the list of declarations
+		 */
+		public static List<CssDeclaration> parse(String block) {
+			List<CssDeclaration> declarations = new ArrayList<>();
+			int pos = 0;
+			while (pos < block.length()) {
+				int end = indexOf(block, ';', pos);
+				String declaration = block.substring(pos, end < 0 ? block.length() : end);
+				int colon = declaration.indexOf(':');
+				if (colon > 0) {
+					String value = declaration.substring(colon + 1).trim().replaceAll("\\s+", " ");
+					declarations.add(new CssDeclaration(declaration.substring(0, colon).trim(), value));
+				}
+				pos = end < 0 ? block.length() : end + 1;
+			}
+			return Collections.unmodifiableList(declarations);
+		}
+
+		public String getProperty() {
+			return property;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public boolean isImportant() {
+			return important;
+		}
+
+		@Override
+		public String toString() {
+			return property + ": " + value + ";";
+		}
+	}
+}
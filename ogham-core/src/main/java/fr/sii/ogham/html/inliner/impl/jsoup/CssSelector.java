@@ -0,0 +1,503 @@
+package fr.sii.ogham.html.inliner.impl.jsoup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Tag;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.Selector.SelectorParseException;
+
+/**
+ * A CSS selector that is parsed only once. The selector is compiled into jsoup
+ * {@link Evaluator}s that are directly matched against the elements of the
+ * document.
+ * <p>
+ * Common selectors (type, universal, id, class, attribute, structural
+ * pseudo-classes and the four combinators) are compiled. Other selectors that
+ * jsoup understands are kept as string and are evaluated by jsoup on each
+ * document (see {@link #isCompiled()}). Selectors that can't be applied on a
+ * static document (<code>:hover</code>, <code>::before</code>...) are not
+ * inlinable (see {@link #isInlinable()}).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public final class CssSelector {
+	private static final Pattern NOT_INLINABLE = Pattern.compile("::|:(hover|active|focus|visited|link|target|before|after|first-line|first-letter|selection)\\b", Pattern.CASE_INSENSITIVE);
+	private static final char DESCENDANT = ' ';
+	private static final char CHILD = '>';
+	private static final char ADJACENT = '+';
+	private static final char SIBLING = '~';
+	private static final int MAX_SPECIFICITY_PART = 0xFF;
+
+	/**
+	 * The original selector
+	 */
+	private final String selector;
+
+	/**
+	 * The compound selectors from the right-most to the left-most (null if not
+	 * compiled)
+	 */
+	private final List<List<Evaluator>> compounds;
+
+	/**
+	 * The combinators between the compound selectors: combinator at index i
+	 * links compound i to compound i+1
+	 */
+	private final List<Character> combinators;
+
+	/**
+	 * The specificity of the selector (ids, then classes, then types), one
+	 * byte for each
+	 */
+	private final int specificity;
+
+	/**
+	 * The id required by the right-most compound (null if none)
+	 */
+	private final String id;
+
+	/**
+	 * A class required by the right-most compound (null if none)
+	 */
+	private final String className;
+
+	/**
+	 * The type required by the right-most compound (null if none)
+	 */
+	private final String tagName;
+
+	/**
+	 * True if the selector can be applied on a static document
+	 */
+	private final boolean inlinable;
+
+	private CssSelector(String selector, List<List<Evaluator>> compounds, List<Character> combinators, int specificity, String id, String className, String tagName, boolean inlinable) {
+		super();
+		this.selector = selector;
+		this.compounds = compounds;
+		this.combinators = combinators;
+		this.specificity = specificity;
+		this.id = id;
+		this.className = className;
+		this.tagName = tagName;
+		this.inlinable = inlinable;
+	}
+
+	/**
+	 * Parse a single selector (no selector group).
+	 *
+	 * @param selector
+	 *            the selector to parse
+	 * @return the parsed selector
+	 */
+	public static CssSelector parse(String selector) {
+		String trimmed = selector.trim();
+		if (trimmed.isEmpty() || NOT_INLINABLE.matcher(trimmed).find() || !isValid(trimmed)) {
+			return new CssSelector(trimmed, null, null, 0, null, null, null, false);
+		}
+		return new Parser(trimmed).parse();
+	}
+
+	/**
+	 * Check if the element matches the selector. Must only be called on
+	 * compiled selectors.
+	 *
+	 * @param root
+	 *            the root of the document
+	 * @param element
+	 *            the element to check
+	 * @return true if the element matches
+	 */
+	public boolean matches(Element root, Element element) {
+		return matches(root, element, 0);
+	}
+
+	private boolean matches(Element root, Element element, int index) {
+		for (Evaluator evaluator : compounds.get(index)) {
+			if (!evaluator.matches(root, element)) {
+				return false;
+			}
+		}
+		if (index == compounds.size() - 1) {
+			return true;
+		}
+		switch (combinators.get(index)) {
+			case CHILD:
+				return isElement(element.parent()) && matches(root, element.parent(), index + 1);
+			case ADJACENT:
+				Element previous = element.previousElementSibling();
+				return previous != null && matches(root, previous, index + 1);
+			case SIBLING:
+				for (Element sibling = element.previousElementSibling(); sibling != null; sibling = sibling.previousElementSibling()) {
+					if (matches(root, sibling, index + 1)) {
+						return true;
+					}
+				}
+				return false;
+			default:
+				for (Element ancestor = element.parent(); isElement(ancestor); ancestor = ancestor.parent()) {
+					if (matches(root, ancestor, index + 1)) {
+						return true;
+					}
+				}
+				return false;
+		}
+	}
+
+	private static boolean isElement(Element element) {
+		return element != null && !(element instanceof Document);
+	}
+
+	private static boolean isValid(String selector) {
+		try {
+			new Element(Tag.valueOf("div"), "").select(selector);
+			return true;
+		} catch (SelectorParseException e) {
+			return false;
+		}
+	}
+
+	public String getSelector() {
+		return selector;
+	}
+
+	public int getSpecificity() {
+		return specificity;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public String getTagName() {
+		return tagName;
+	}
+
+	/**
+	 * @return true if the selector can be applied on a static document
+	 */
+	public boolean isInlinable() {
+		return inlinable;
+	}
+
+	/**
+	 * @return true if the selector is compiled, false if it has to be
+	 *         evaluated by jsoup
+	 */
+	public boolean isCompiled() {
+		return compounds != null;
+	}
+
+	@Override
+	public String toString() {
+		return selector;
+	}
+
+	/**
+	 * Simple parser for selectors. If the selector uses an unsupported
+	 * feature, the selector is not compiled.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class Parser {
+		private final String selector;
+		private int pos;
+		private String id;
+		private String className;
+		private String tagName;
+
+		public Parser(String selector) {
+			super();
+			this.selector = selector;
+		}
+
+		public CssSelector parse() {
+			List<List<Evaluator>> compounds = new ArrayList<>();
+			List<Character> combinators = new ArrayList<>();
+			try {
+				while (true) {
+					id = null;
+					className = null;
+					tagName = null;
+					compounds.add(parseCompound());
+					if (pos >= selector.length()) {
+						break;
+					}
+					combinators.add(parseCombinator());
+				}
+			} catch (UnsupportedSelectorException e) {
+				// the specificity doesn't depend on how the selector is
+				// evaluated
+				return new CssSelector(selector, null, null, new SpecificityCounter(selector).count(), null, null, null, true);
+			}
+			Collections.reverse(compounds);
+			Collections.reverse(combinators);
+			return new CssSelector(selector, compounds, combinators, new SpecificityCounter(selector).count(), id, className, tagName, true);
+		}
+
+		private List<Evaluator> parseCompound() throws UnsupportedSelectorException {
+			List<Evaluator> evaluators = new ArrayList<>();
+			if (pos < selector.length() && selector.charAt(pos) == '*') {
+				pos++;
+				evaluators.add(new Evaluator.AllElements());
+			} else if (pos < selector.length() && isNameChar(selector.charAt(pos))) {
+				tagName = readName().toLowerCase();
+				evaluators.add(new Evaluator.Tag(tagName));
+			}
+			while (pos < selector.length()) {
+				char c = selector.charAt(pos);
+				if (c == '#') {
+					pos++;
+					id = readName();
+					evaluators.add(new Evaluator.Id(id));
+				} else if (c == '.') {
+					pos++;
+					className = readName();
+					evaluators.add(new Evaluator.Class(className));
+				} else if (c == '[') {
+					pos++;
+					evaluators.add(parseAttribute());
+				} else if (c == ':') {
+					pos++;
+					evaluators.add(parsePseudoClass());
+				} else {
+					break;
+				}
+			}
+			if (evaluators.isEmpty()) {
+				throw new UnsupportedSelectorException();
+			}
+			return evaluators;
+		}
+
+		private char parseCombinator() throws UnsupportedSelectorException {
+			char combinator = DESCENDANT;
+			skipWhitespaces();
+			if (pos < selector.length()) {
+				char c = selector.charAt(pos);
+				if (c == CHILD || c == ADJACENT || c == SIBLING) {
+					combinator = c;
+					pos++;
+					skipWhitespaces();
+				}
+			}
+			if (pos >= selector.length()) {
+				throw new UnsupportedSelectorException();
+			}
+			return combinator;
+		}
+
+		private Evaluator parseAttribute() throws UnsupportedSelectorException {
+			int end = selector.indexOf(']', pos);
+			if (end < 0) {
+				throw new UnsupportedSelectorException();
+			}
+			String attr = selector.substring(pos, end);
+			pos = end + 1;
+			int eq = attr.indexOf('=');
+			if (eq < 0) {
+				return new Evaluator.Attribute(attr.trim());
+			}
+			String value = unquote(attr.substring(eq + 1).trim());
+			char op = eq > 0 ? attr.charAt(eq - 1) : '=';
+			switch (op) {
+				case '^':
+					return new Evaluator.AttributeWithValueStarting(attr.substring(0, eq - 1).trim(), value);
+				case '$':
+					return new Evaluator.AttributeWithValueEnding(attr.substring(0, eq - 1).trim(), value);
+				case '*':
+					return new Evaluator.AttributeWithValueContaining(attr.substring(0, eq - 1).trim(), value);
+				case '~':
+				case '|':
+				case '!':
+					throw new UnsupportedSelectorException();
+				default:
+					return new Evaluator.AttributeWithValue(attr.substring(0, eq).trim(), value);
+			}
+		}
+
+		private Evaluator parsePseudoClass() throws UnsupportedSelectorException {
+			String name = readName().toLowerCase();
+			if (pos < selector.length() && selector.charAt(pos) == '(') {
+				throw new UnsupportedSelectorException();
+			}
+			switch (name) {
+				case "first-child":
+					return new Evaluator.IsFirstChild();
+				case "last-child":
+					return new Evaluator.IsLastChild();
+				case "only-child":
+					return new Evaluator.IsOnlyChild();
+				case "first-of-type":
+					return new Evaluator.IsFirstOfType();
+				case "last-of-type":
+					return new Evaluator.IsLastOfType();
+				case "only-of-type":
+					return new Evaluator.IsOnlyOfType();
+				case "empty":
+					return new Evaluator.IsEmpty();
+				case "root":
+					return new Evaluator.IsRoot();
+				default:
+					throw new UnsupportedSelectorException();
+			}
+		}
+
+		private String readName() throws UnsupportedSelectorException {
+			int start = pos;
+			while (pos < selector.length() && isNameChar(selector.charAt(pos))) {
+				pos++;
+			}
+			if (start == pos) {
+				throw new UnsupportedSelectorException();
+			}
+			return selector.substring(start, pos);
+		}
+
+		private void skipWhitespaces() {
+			while (pos < selector.length() && Character.isWhitespace(selector.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private static boolean isNameChar(char c) {
+			return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+		}
+
+		private static String unquote(String value) {
+			if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'') && value.charAt(value.length() - 1) == value.charAt(0)) {
+				return value.substring(1, value.length() - 1);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Computes the specificity of the whole selector string, whether the
+	 * selector is compiled or evaluated by jsoup. Ids count in the first part;
+	 * classes, attributes and pseudo-classes in the second part; types and
+	 * pseudo-elements in the last part. The argument of <code>:not()</code>
+	 * counts as the negation itself is ignored.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class SpecificityCounter {
+		private final String selector;
+		private int pos;
+		private int ids;
+		private int classes;
+		private int types;
+
+		public SpecificityCounter(String selector) {
+			super();
+			this.selector = selector;
+		}
+
+		public int count() {
+			count(selector.length());
+			return Math.min(ids, MAX_SPECIFICITY_PART) << 16 | Math.min(classes, MAX_SPECIFICITY_PART) << 8 | Math.min(types, MAX_SPECIFICITY_PART);
+		}
+
+		private void count(int end) {
+			boolean compoundStart = true;
+			while (pos < end) {
+				char c = selector.charAt(pos);
+				if (c == '#') {
+					pos++;
+					skipName();
+					ids++;
+				} else if (c == '.') {
+					pos++;
+					skipName();
+					classes++;
+				} else if (c == '[') {
+					pos = skipUntil(']', end) + 1;
+					classes++;
+				} else if (c == ':') {
+					countPseudo(end);
+				} else if (Parser.isNameChar(c) && compoundStart) {
+					skipName();
+					types++;
+				} else {
+					pos++;
+				}
+				compoundStart = c == DESCENDANT || c == CHILD || c == ADJACENT || c == SIBLING || Character.isWhitespace(c) || c == ',';
+			}
+		}
+
+		private void countPseudo(int end) {
+			pos++;
+			boolean element = pos < end && selector.charAt(pos) == ':';
+			if (element) {
+				pos++;
+			}
+			int start = pos;
+			skipName();
+			String name = selector.substring(start, pos);
+			if (pos < end && selector.charAt(pos) == '(') {
+				int close = skipUntil(')', end);
+				if ("not".equalsIgnoreCase(name)) {
+					pos++;
+					count(close);
+					pos = close + 1;
+					return;
+				}
+				pos = close + 1;
+			}
+			if (element) {
+				types++;
+			} else {
+				classes++;
+			}
+		}
+
+		private int skipUntil(char closing, int end) {
+			int depth = 0;
+			char quote = 0;
+			for (int i = pos; i < end; i++) {
+				char c = selector.charAt(i);
+				if (quote != 0) {
+					quote = c == quote ? 0 : quote;
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+				} else if (c == '(' || c == '[') {
+					depth++;
+				} else if (c == closing && --depth == 0) {
+					return i;
+				} else if (c == ')' || c == ']') {
+					depth--;
+				}
+			}
+			return end - 1;
+		}
+
+		private void skipName() {
+			while (pos < selector.length() && Parser.isNameChar(selector.charAt(pos))) {
+				pos++;
+			}
+		}
+	}
+
+	/**
+	 * Thrown by the parser when the selector can't be compiled.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class UnsupportedSelectorException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -14,7 +14,7 @@ import fr.sii.ogham.core.resource.ByteResource;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.attachment.ContentDisposition;
 import fr.sii.ogham.html.inliner.ContentWithImages;
-import fr.sii.ogham.html.inliner.ImageInliner;
+import fr.sii.ogham.html.inliner.DocumentImageInliner;
 import fr.sii.ogham.html.inliner.ImageResource;
 
 /**
@@ -28,7 +28,7 @@ import fr.sii.ogham.html.inliner.ImageResource;
  * @author Aurélien Baudet
  *
  */
-public class JsoupAttachImageInliner implements ImageInliner {
+public class JsoupAttachImageInliner implements DocumentImageInliner {
 	private static final String CONTENT_ID = "<{0}>";
 	private static final String SRC_ATTR = "src";
 	private static final String SRC_VALUE = "cid:{0}";
@@ -45,6 +45,12 @@ public class JsoupAttachImageInliner implements ImageInliner {
 	@Override
 	public ContentWithImages inline(String htmlContent, List<ImageResource> images) {
 		Document doc = Jsoup.parse(htmlContent);
+		List<Attachment> attachments = inline(doc, images);
+		return new ContentWithImages(doc.outerHtml(), attachments);
+	}
+
+	@Override
+	public List<Attachment> inline(Document doc, List<ImageResource> images) {
 		List<Attachment> attachments = new ArrayList<>(images.size());
 		for (ImageResource image : images) {
 			// search all images in the HTML with the provided path or URL that are not skipped
@@ -60,7 +66,7 @@ public class JsoupAttachImageInliner implements ImageInliner {
 				attachments.add(attachment);
 			}
 		}
-		return new ContentWithImages(doc.outerHtml(), attachments);
+		return attachments;
 	}
 
 	private Elements getImagesToAttach(Document doc, ImageResource image) {
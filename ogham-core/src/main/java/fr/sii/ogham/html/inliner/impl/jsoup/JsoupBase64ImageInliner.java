@@ -12,7 +12,7 @@ import org.jsoup.select.Elements;
 import fr.sii.ogham.core.util.Base64Utils;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.html.inliner.ContentWithImages;
-import fr.sii.ogham.html.inliner.ImageInliner;
+import fr.sii.ogham.html.inliner.DocumentImageInliner;
 import fr.sii.ogham.html.inliner.ImageResource;
 
 /**
@@ -27,7 +27,7 @@ import fr.sii.ogham.html.inliner.ImageResource;
  * @author Aurélien Baudet
  *
  */
-public class JsoupBase64ImageInliner implements ImageInliner {
+public class JsoupBase64ImageInliner implements DocumentImageInliner {
 	private static final String SRC_ATTR = "src";
 	private static final String IMG_SELECTOR = "img[src=\"{0}\"]";
 	private static final String BASE64_URI = "data:{0};base64,{1}";
@@ -36,13 +36,19 @@ public class JsoupBase64ImageInliner implements ImageInliner {
 	@Override
 	public ContentWithImages inline(String htmlContent, List<ImageResource> images) {
 		Document doc = Jsoup.parse(htmlContent);
+		List<Attachment> attachments = inline(doc, images);
+		return new ContentWithImages(doc.outerHtml(), attachments);
+	}
+
+	@Override
+	public List<Attachment> inline(Document doc, List<ImageResource> images) {
 		for (ImageResource image : images) {
 			Elements imgs = getImagesToInline(doc, image);
 			for (Element img : imgs) {
 				img.attr(SRC_ATTR, MessageFormat.format(BASE64_URI, image.getMimetype(), Base64Utils.encodeToString(image.getContent())));
 			}
 		}
-		return new ContentWithImages(doc.outerHtml(), new ArrayList<Attachment>(0));
+		return new ArrayList<>(0);
 	}
 
 	private Elements getImagesToInline(Document doc, ImageResource image) {
@@ -1,7 +1,14 @@
 package fr.sii.ogham.html.inliner.impl.jsoup;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.StringTokenizer;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.DataNode;
@@ -10,50 +17,82 @@ import org.jsoup.nodes.Element;
 import org.jsoup.parser.Tag;
 import org.jsoup.select.Elements;
 
-import fr.sii.ogham.html.inliner.CssInliner;
+import fr.sii.ogham.html.inliner.DocumentCssInliner;
 import fr.sii.ogham.html.inliner.ExternalCss;
+import fr.sii.ogham.html.inliner.impl.jsoup.CompiledStylesheet.CssDeclaration;
+import fr.sii.ogham.html.inliner.impl.jsoup.CompiledStylesheet.CssRule;
 
-public class JsoupCssInliner implements CssInliner {
+/**
+ * CSS inliner based on jsoup. The styles (external CSS files and
+ * <code>style</code> tags) are applied to the <code>style</code> attribute of
+ * the matching elements. The rules are applied according to their specificity
+ * and then to their order in the stylesheets. The styles that are already
+ * defined on the element have priority.
+ * <p>
+ * Each stylesheet is parsed only once (see {@link CompiledStylesheet}). The
+ * compiled stylesheets are kept in a cache indexed by their content so the
+ * same CSS files used for every email are not parsed again. The parts of the
+ * stylesheets that can't be inlined (media queries for example) are kept in a
+ * <code>style</code> tag.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class JsoupCssInliner implements DocumentCssInliner {
 	private static final String HREF_ATTR = "href";
 	private static final String TRUE_VALUE = "true";
 	private static final String SKIP_INLINE = "data-skip-inline";
-	private static final String TEMP_STYLE_ATTR = "data-cssstyle";
+	private static final int DEFAULT_CACHE_SIZE = 100;
 	private static final String STYLE_ATTR = "style";
 	private static final String STYLE_TAG = "style";
 	private static final String CSS_LINKS_SELECTOR = "link[rel*=\"stylesheet\"], link[type=\"text/css\"], link[href$=\".css\"]";
 
-	@Override
-	public String inline(String htmlContent, List<ExternalCss> cssContents) {
-		Document doc = Jsoup.parse(htmlContent);
-
-		internStyles(doc, cssContents);
-		String stylesheet = fetchStyles(doc);
-		extractStyles(doc, stylesheet);
-		applyStyles(doc);
+	/**
+	 * The compiled stylesheets indexed by their content
+	 */
+	private final Map<String, CompiledStylesheet> cache;
 
-		return doc.outerHtml();
+	/**
+	 * Initialize the inliner with a cache that keeps at most 100 compiled
+	 * stylesheets.
+	 */
+	public JsoupCssInliner() {
+		this(DEFAULT_CACHE_SIZE);
 	}
 
 	/**
-	 * Applies the styles to a <code>data-cssstyle</code> attribute. This is
-	 * because the styles need to be applied sequentially, but before the
-	 * <code>style</code> defined for the element inline.
-	 *
-	 * @param doc
-	 *            the html document
+	 * Initialize the inliner with a cache of compiled stylesheets. The least
+	 * recently used stylesheets are removed when the cache is full.
+	 * 
+	 * @param cacheSize
+	 *            the maximum number of compiled stylesheets to keep (0 to
+	 *            disable cache)
 	 */
-	private void extractStyles(Document doc, String stylesheet) {
-		String trimmedStylesheet = stylesheet.replaceAll("\n", "").replaceAll("/\\*.*?\\*/", "").replaceAll(" +", " ");
-		String styleRules = trimmedStylesheet.trim(), delims = "{}";
-		StringTokenizer st = new StringTokenizer(styleRules, delims);
-		while (st.countTokens() > 1) {
-			String selector = st.nextToken(), properties = st.nextToken();
-			Elements selectedElements = doc.select(selector);
-			for (Element selElem : selectedElements) {
-				String oldProperties = selElem.attr(TEMP_STYLE_ATTR);
-				selElem.attr(TEMP_STYLE_ATTR, oldProperties.length() > 0 ? concatenateProperties(oldProperties, properties) : properties);
+	public JsoupCssInliner(final int cacheSize) {
+		super();
+		cache = Collections.synchronizedMap(new LinkedHashMap<String, CompiledStylesheet>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<String, CompiledStylesheet> eldest) {
+				return size() > cacheSize;
 			}
-		}
+		});
+	}
+
+	@Override
+	public String inline(String htmlContent, List<ExternalCss> cssContents) {
+		Document doc = Jsoup.parse(htmlContent);
+		inline(doc, cssContents);
+		return doc.outerHtml();
+	}
+
+	@Override
+	public void inline(Document doc, List<ExternalCss> cssContents) {
+		internStyles(doc, cssContents);
+		List<CompiledStylesheet> stylesheets = fetchStyles(doc);
+		applyStyles(doc, stylesheets);
 	}
 
 	/**
@@ -87,47 +126,205 @@ public class JsoupCssInliner implements CssInliner {
 	}
 
 	/**
-	 * Generates a stylesheet from an html document
+	 * Get the compiled stylesheets from the <code>style</code> tags. The
+	 * <code>style</code> tags are removed except if they contain CSS that
+	 * can't be inlined.
 	 *
 	 * @param doc
 	 *            the html document
-	 * @return a string representing the stylesheet.
+	 * @return the compiled stylesheets in the order of the document
 	 */
-	private String fetchStyles(Document doc) {
+	private List<CompiledStylesheet> fetchStyles(Document doc) {
 		Elements els = doc.select(STYLE_TAG);
-		StringBuilder styles = new StringBuilder();
+		List<CompiledStylesheet> stylesheets = new ArrayList<>(els.size());
 		for (Element e : els) {
 			if (!TRUE_VALUE.equals(e.attr(SKIP_INLINE))) {
-				styles.append(e.data());
-				e.remove();
+				CompiledStylesheet stylesheet = compile(e.data());
+				stylesheets.add(stylesheet);
+				if (stylesheet.getPreserved().isEmpty()) {
+					e.remove();
+				} else {
+					e.empty();
+					e.appendChild(new DataNode(stylesheet.getPreserved(), ""));
+				}
 			}
 		}
-		return styles.toString();
+		return stylesheets;
+	}
+
+	private CompiledStylesheet compile(String css) {
+		CompiledStylesheet stylesheet = cache.get(css);
+		if (stylesheet == null) {
+			stylesheet = CompiledStylesheet.compile(css);
+			cache.put(css, stylesheet);
+		}
+		return stylesheet;
 	}
 
 	/**
-	 * Transfers styles from the <code>data-cssstyle</code> attribute to the
-	 * <code>style</code> attribute.
+	 * Applies the matching rules to the <code>style</code> attribute of each
+	 * element. The declarations defined directly on the element are kept after
+	 * the inlined ones so they still have priority.
 	 *
 	 * @param doc
 	 *            the html document
+	 * @param stylesheets
+	 *            the compiled stylesheets
 	 */
-	private void applyStyles(Document doc) {
-		Elements allStyledElements = doc.getElementsByAttribute(TEMP_STYLE_ATTR);
-
-		for (Element e : allStyledElements) {
-			String newStyle = e.attr(TEMP_STYLE_ATTR);
+	private static void applyStyles(Document doc, List<CompiledStylesheet> stylesheets) {
+		Map<Element, List<MatchedRule>> matches = match(doc, stylesheets);
+		for (Entry<Element, List<MatchedRule>> entry : matches.entrySet()) {
+			Element e = entry.getKey();
+			String newStyle = merge(entry.getValue());
 			String oldStyle = e.attr(STYLE_ATTR);
 			e.attr(STYLE_ATTR, (newStyle + "; " + oldStyle).replaceAll(";+", ";").trim());
-			e.removeAttr(TEMP_STYLE_ATTR);
 		}
 	}
 
-	private static String concatenateProperties(String oldProp, String newProp) {
-		String prop = oldProp;
-		if (!prop.endsWith(";")) {
-			prop += ";";
+	private static Map<Element, List<MatchedRule>> match(Document doc, List<CompiledStylesheet> stylesheets) {
+		Map<Element, List<MatchedRule>> matches = new IdentityHashMap<>();
+		RuleIndex index = new RuleIndex();
+		int order = 0;
+		for (CompiledStylesheet stylesheet : stylesheets) {
+			for (CssRule rule : stylesheet.getRules()) {
+				MatchedRule matched = new MatchedRule(rule, order++);
+				if (rule.getSelector().isCompiled()) {
+					index.add(matched);
+				} else {
+					for (Element e : doc.select(rule.getSelector().getSelector())) {
+						addMatch(matches, e, matched);
+					}
+				}
+			}
+		}
+		if (!index.isEmpty()) {
+			for (Element e : doc.getAllElements()) {
+				index.match(doc, e, matches);
+			}
+		}
+		return matches;
+	}
+
+	private static String merge(List<MatchedRule> rules) {
+		Collections.sort(rules, MatchedRule.CASCADE_ORDER);
+		Map<String, CssDeclaration> declarations = new LinkedHashMap<>();
+		for (MatchedRule matched : rules) {
+			for (CssDeclaration declaration : matched.rule.getDeclarations()) {
+				String property = declaration.getProperty().toLowerCase();
+				CssDeclaration existing = declarations.get(property);
+				if (existing == null || declaration.isImportant() || !existing.isImportant()) {
+					declarations.put(property, declaration);
+				}
+			}
+		}
+		StringBuilder style = new StringBuilder();
+		for (CssDeclaration declaration : declarations.values()) {
+			style.append(style.length() == 0 ? "" : " ").append(declaration);
+		}
+		return style.toString();
+	}
+
+	private static void addMatch(Map<Element, List<MatchedRule>> matches, Element e, MatchedRule rule) {
+		List<MatchedRule> rules = matches.get(e);
+		if (rules == null) {
+			rules = new ArrayList<>();
+			matches.put(e, rules);
+		}
+		rules.add(rule);
+	}
+
+	/**
+	 * A rule with its position in all the stylesheets.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class MatchedRule {
+		private static final Comparator<MatchedRule> CASCADE_ORDER = new Comparator<MatchedRule>() {
+			@Override
+			public int compare(MatchedRule o1, MatchedRule o2) {
+				int spec1 = o1.rule.getSelector().getSpecificity();
+				int spec2 = o2.rule.getSelector().getSpecificity();
+				if (spec1 != spec2) {
+					return spec1 < spec2 ? -1 : 1;
+				}
+				return o1.order < o2.order ? -1 : (o1.order == o2.order ? 0 : 1);
+			}
+		};
+
+		private final CssRule rule;
+
+		private final int order;
+
+		public MatchedRule(CssRule rule, int order) {
+			super();
+			this.rule = rule;
+			this.order = order;
+		}
+	}
+
+	/**
+	 * Index of the compiled rules by the id, class or type required by the
+	 * right-most part of their selector. Only the rules that may match an
+	 * element are evaluated.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class RuleIndex {
+		private final Map<String, List<MatchedRule>> byId = new HashMap<>();
+		private final Map<String, List<MatchedRule>> byClass = new HashMap<>();
+		private final Map<String, List<MatchedRule>> byTag = new HashMap<>();
+		private final List<MatchedRule> others = new ArrayList<>();
+
+		public void add(MatchedRule matched) {
+			CssSelector selector = matched.rule.getSelector();
+			if (selector.getId() != null) {
+				add(byId, selector.getId(), matched);
+			} else if (selector.getClassName() != null) {
+				add(byClass, selector.getClassName(), matched);
+			} else if (selector.getTagName() != null) {
+				add(byTag, selector.getTagName(), matched);
+			} else {
+				others.add(matched);
+			}
+		}
+
+		public boolean isEmpty() {
+			return byId.isEmpty() && byClass.isEmpty() && byTag.isEmpty() && others.isEmpty();
+		}
+
+		public void match(Document doc, Element e, Map<Element, List<MatchedRule>> matches) {
+			if (!byId.isEmpty() && !e.id().isEmpty()) {
+				match(doc, e, byId.get(e.id()), matches);
+			}
+			if (!byClass.isEmpty()) {
+				for (String className : e.classNames()) {
+					match(doc, e, byClass.get(className), matches);
+				}
+			}
+			match(doc, e, byTag.get(e.tagName()), matches);
+			match(doc, e, others, matches);
+		}
+
+		private static void match(Document doc, Element e, List<MatchedRule> candidates, Map<Element, List<MatchedRule>> matches) {
+			if (candidates == null) {
+				return;
+			}
+			for (MatchedRule candidate : candidates) {
+				if (candidate.rule.getSelector().matches(doc, e)) {
+					addMatch(matches, e, candidate);
+				}
+			}
+		}
+
+		private static void add(Map<String, List<MatchedRule>> index, String key, MatchedRule matched) {
+			List<MatchedRule> rules = index.get(key);
+			if (rules == null) {
+				rules = new ArrayList<>();
+				index.put(key, rules);
+			}
+			rules.add(matched);
 		}
-		return prop.trim() + " " + newProp.trim() + ";";
 	}
 }
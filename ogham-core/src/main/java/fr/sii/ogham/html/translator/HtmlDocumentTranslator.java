@@ -0,0 +1,34 @@
+package fr.sii.ogham.html.translator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
+import fr.sii.ogham.core.translator.content.ContentTranslator;
+import fr.sii.ogham.core.util.HtmlUtils;
+
+/**
+ * Translator that converts HTML string content into {@link HtmlDocumentContent}.
+ * The following translators (CSS inlining, image inlining...) and the subject
+ * generation can then work on the same parsed document. The HTML is parsed
+ * once and serialized once when the message is sent. If not HTML, the
+ * translator has no effect.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class HtmlDocumentTranslator implements ContentTranslator {
+	private static final Logger LOG = LoggerFactory.getLogger(HtmlDocumentTranslator.class);
+
+	@Override
+	public Content translate(Content content) throws ContentTranslatorException {
+		Content result = HtmlUtils.toDocumentContent(content);
+		if (result != content) {
+			LOG.debug("HTML content converted to a shared HTML document");
+		}
+		return result;
+	}
+
+}
@@ -4,12 +4,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
 import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
 import fr.sii.ogham.core.message.content.MayHaveStringContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.message.content.UpdatableStringContent;
@@ -18,6 +20,7 @@ import fr.sii.ogham.core.translator.content.ContentTranslator;
 import fr.sii.ogham.core.util.HtmlUtils;
 import fr.sii.ogham.core.util.IOUtils;
 import fr.sii.ogham.html.inliner.CssInliner;
+import fr.sii.ogham.html.inliner.DocumentCssInliner;
 import fr.sii.ogham.html.inliner.ExternalCss;
 
 /**
@@ -26,6 +29,11 @@ import fr.sii.ogham.html.inliner.ExternalCss;
  * found image, it uses the resource resolver in order to find the css file.
  * Once all css files are found, the HTML is transformed in order to inline the
  * styles.
+ * <p>
+ * If the content is a {@link HtmlDocumentContent} (see
+ * {@link HtmlDocumentTranslator}), the already parsed document is directly
+ * updated so the HTML is neither parsed nor serialized again.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
@@ -51,6 +59,14 @@ public class InlineCssTranslator implements ContentTranslator {
 
 	@Override
 	public Content translate(Content content) throws ContentTranslatorException {
+		HtmlDocumentContent documentContent = HtmlUtils.getDocumentContent(content);
+		if (documentContent != null) {
+			List<String> cssFiles = HtmlUtils.getDistinctCssUrls(documentContent.getDocument());
+			if (!cssFiles.isEmpty()) {
+				inline(documentContent, load(cssFiles));
+			}
+			return content;
+		}
 		if (content instanceof MayHaveStringContent && ((MayHaveStringContent) content).canProvideString()) {
 			String stringContent = ((MayHaveStringContent) content).asString();
 			if (HtmlUtils.isHtml(stringContent)) {
@@ -70,6 +86,17 @@ public class InlineCssTranslator implements ContentTranslator {
 		return content;
 	}
 
+	private void inline(HtmlDocumentContent content, List<ExternalCss> cssResources) {
+		if (cssInliner instanceof DocumentCssInliner) {
+			LOG.debug("Inline CSS directly in the parsed HTML document");
+			Document doc = content.getDocument();
+			((DocumentCssInliner) cssInliner).inline(doc, cssResources);
+			content.setDocument(doc);
+		} else {
+			content.setStringContent(cssInliner.inline(content.asString(), cssResources));
+		}
+	}
+
 	private List<ExternalCss> load(List<String> cssFiles) throws ContentTranslatorException {
 		List<ExternalCss> cssResources = new ArrayList<>(cssFiles.size());
 		for (String path : cssFiles) {
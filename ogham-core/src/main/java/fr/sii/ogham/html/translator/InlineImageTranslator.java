@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +14,7 @@ import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
 import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
 import fr.sii.ogham.core.message.content.MayHaveStringContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.message.content.UpdatableStringContent;
@@ -21,8 +23,10 @@ import fr.sii.ogham.core.resource.resolver.ResourceResolver;
 import fr.sii.ogham.core.translator.content.ContentTranslator;
 import fr.sii.ogham.core.util.HtmlUtils;
 import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.message.content.ContentWithAttachments;
 import fr.sii.ogham.html.inliner.ContentWithImages;
+import fr.sii.ogham.html.inliner.DocumentImageInliner;
 import fr.sii.ogham.html.inliner.ImageInliner;
 import fr.sii.ogham.html.inliner.ImageResource;
 
@@ -37,6 +41,11 @@ import fr.sii.ogham.html.inliner.ImageResource;
  * <li>Extract images and generate attachments to join to the email</li>
  * <li>Maybe anything else</li>
  * </ul>
+ * <p>
+ * If the content is a {@link HtmlDocumentContent} (see
+ * {@link HtmlDocumentTranslator}), the already parsed document is directly
+ * updated so the HTML is neither parsed nor serialized again.
+ * </p>
  * 
  * @author Aurélien Baudet
  * 
@@ -68,6 +77,15 @@ public class InlineImageTranslator implements ContentTranslator {
 
 	@Override
 	public Content translate(Content content) throws ContentTranslatorException {
+		HtmlDocumentContent documentContent = HtmlUtils.getDocumentContent(content);
+		if (documentContent != null) {
+			List<String> images = HtmlUtils.getDistinctImageUrls(documentContent.getDocument());
+			if (!images.isEmpty()) {
+				List<Attachment> attachments = inline(documentContent, load(images));
+				return addAttachments(content, attachments);
+			}
+			return content;
+		}
 		if (content instanceof MayHaveStringContent && ((MayHaveStringContent) content).canProvideString()) {
 			String stringContent = ((MayHaveStringContent) content).asString();
 			List<String> images = HtmlUtils.getDistinctImageUrls(stringContent);
@@ -87,6 +105,19 @@ public class InlineImageTranslator implements ContentTranslator {
 		return content;
 	}
 
+	private List<Attachment> inline(HtmlDocumentContent content, List<ImageResource> imageResources) {
+		if (inliner instanceof DocumentImageInliner) {
+			LOG.debug("Inline images directly in the parsed HTML document");
+			Document doc = content.getDocument();
+			List<Attachment> attachments = ((DocumentImageInliner) inliner).inline(doc, imageResources);
+			content.setDocument(doc);
+			return attachments;
+		}
+		ContentWithImages contentWithImages = inliner.inline(content.asString(), imageResources);
+		content.setStringContent(contentWithImages.getContent());
+		return contentWithImages.getAttachments();
+	}
+
 	private List<ImageResource> load(List<String> images) throws ContentTranslatorException {
 		List<ImageResource> imageResources = new ArrayList<>(images.size());
 		for (String path : images) {
@@ -98,7 +129,7 @@ public class InlineImageTranslator implements ContentTranslator {
 	private void load(List<ImageResource> imageResources, String path) throws ContentTranslatorException {
 		try {
 			byte[] imgContent = IOUtils.toByteArray(resourceResolver.getResource(path).getInputStream());
-			String mimetype = mimetypeProvider.detect(new ByteArrayInputStream(imgContent)).toString();
+			String mimetype = mimetypeProvider.detect(new ByteArrayInputStream(imgContent), path).toString();
 			String imgName = new File(path).getName().toString();
 			imageResources.add(new ImageResource(imgName, path, imgContent, mimetype));
 		} catch (IOException e) {
@@ -133,4 +164,12 @@ public class InlineImageTranslator implements ContentTranslator {
 		}
 		return finalContent;
 	}
+
+	private static Content addAttachments(Content content, List<Attachment> attachments) {
+		if (content instanceof ContentWithAttachments) {
+			((ContentWithAttachments) content).addAttachments(attachments);
+			return content;
+		}
+		return new ContentWithAttachments(content, attachments);
+	}
 }
@@ -24,6 +24,37 @@ public class SmsConstants {
 		 */
 		public static final String SMSGLOBAL_REST_API_KEY_PROPERTY = PROPERTIES_PREFIX + ".smsglobal.api.key";
 		
+		/**
+		 * The key for smsglobal REST API secret
+		 */
+		public static final String SMSGLOBAL_REST_API_SECRET_PROPERTY = PROPERTIES_PREFIX + ".smsglobal.api.secret";
+		
+		/**
+		 * The key for smsglobal REST API URL
+		 */
+		public static final String SMSGLOBAL_REST_API_URL_PROPERTY = PROPERTIES_PREFIX + ".smsglobal.api.url";
+		
+		/**
+		 * The key for the maximum number of recipients sent in one request
+		 */
+		public static final String MAX_RECIPIENTS_PROPERTY = PROPERTIES_PREFIX + ".smsglobal.max.recipients";
+		
+		/**
+		 * The prefix for the configuration of the HTTP connections to
+		 * smsglobal (see {@link fr.sii.ogham.core.builder.HttpTransportBuilder})
+		 */
+		public static final String HTTP_PREFIX = PROPERTIES_PREFIX + ".smsglobal.http";
+		
+		/**
+		 * The URL of the REST API for sending SMS through smsglobal
+		 */
+		public static final String REST_API_URL = "https://api.smsglobal.com/v2/sms/";
+		
+		/**
+		 * The default maximum number of recipients sent in one request
+		 */
+		public static final int DEFAULT_MAX_RECIPIENTS = 100;
+		
 		private SmsGlobal() {
 			super();
 		}
@@ -66,6 +97,22 @@ public class SmsConstants {
 		 */
 		public static final String SMS_CODING_PROPERTY = PROPERTIES_PREFIX + ".ovh.smsCoding";
 		
+		/**
+		 * The prefix for the configuration of the HTTP connections to OVH
+		 * (see {@link fr.sii.ogham.core.builder.HttpTransportBuilder})
+		 */
+		public static final String HTTP_PREFIX = PROPERTIES_PREFIX + ".ovh.http";
+		
+		/**
+		 * The key for the maximum number of recipients sent in one request
+		 */
+		public static final String MAX_RECIPIENTS_PROPERTY = PROPERTIES_PREFIX + ".ovh.max.recipients";
+		
+		/**
+		 * The default maximum number of recipients sent in one request
+		 */
+		public static final int DEFAULT_MAX_RECIPIENTS = 50;
+		
 		/**
 		 * The URL of the HTTP API for sending SMS through OVH
 		 */
@@ -126,6 +173,42 @@ public class SmsConstants {
 		 */
 		public static final String WINDOW_MONITOR_INTERVAL_PROPERTY = SMPP_PREFIX + ".window.monitor.interval";
 
+		/**
+		 * The key for SMPP bind type property (TRANSMITTER or TRANSCEIVER).
+		 * Delivery receipts are only received by sessions bound as
+		 * TRANSCEIVER.
+		 */
+		public static final String BIND_TYPE_PROPERTY = SMPP_PREFIX + ".bind.type";
+
+		/**
+		 * The prefix for SMPP throughput properties
+		 */
+		public static final String THROUGHPUT_PREFIX = SMPP_PREFIX + ".throughput";
+
+		/**
+		 * The key for the maximum number of submit_sm per second on one
+		 * session (0 or negative for no limit)
+		 */
+		public static final String SESSION_THROUGHPUT_PROPERTY = THROUGHPUT_PREFIX + ".session";
+
+		/**
+		 * The key for the maximum number of submit_sm per second for all
+		 * sessions (0 or negative for no limit)
+		 */
+		public static final String ACCOUNT_THROUGHPUT_PROPERTY = THROUGHPUT_PREFIX + ".account";
+
+		/**
+		 * The key for the number of times a submit_sm rejected with a
+		 * throttling error is sent again
+		 */
+		public static final String THROTTLED_RETRIES_PROPERTY = THROUGHPUT_PREFIX + ".throttled.retries";
+
+		/**
+		 * The default number of times a submit_sm rejected with a throttling
+		 * error is sent again
+		 */
+		public static final int DEFAULT_THROTTLED_RETRIES = 3;
+
 		/**
 		 * The constant for interface version 3.3
 		 */
@@ -218,7 +301,137 @@ public class SmsConstants {
 			 * The default value for unbind timeout
 			 */
 			public static final long DEFAULT_UNBIND_TIMEOUT = 5000;
-			
+
+			/**
+			 * The prefix for SMPP session pool properties
+			 */
+			public static final String POOL_PREFIX = CLOUDHOPPER_PREFIX + ".pool";
+
+			/**
+			 * The key of property for the number of sessions kept bound
+			 */
+			public static final String POOL_MIN_SESSIONS_PROPERTY = POOL_PREFIX + ".min";
+
+			/**
+			 * The key of property for the maximum number of bound sessions
+			 */
+			public static final String POOL_MAX_SESSIONS_PROPERTY = POOL_PREFIX + ".max";
+
+			/**
+			 * The key of property for the time before an unused session is
+			 * closed
+			 */
+			public static final String POOL_IDLE_TIMEOUT_PROPERTY = POOL_PREFIX + ".idle.timeout";
+
+			/**
+			 * The key of property for the interval between two enquire_link
+			 * requests
+			 */
+			public static final String POOL_KEEP_ALIVE_INTERVAL_PROPERTY = POOL_PREFIX + ".keepalive.interval";
+
+			/**
+			 * The key of property for the time to wait for an available session
+			 */
+			public static final String POOL_ACQUIRE_TIMEOUT_PROPERTY = POOL_PREFIX + ".acquire.timeout";
+
+			/**
+			 * The key of property to enable asynchronous submit_sm (all
+			 * requests are written before waiting for the responses)
+			 */
+			public static final String ASYNC_SUBMIT_PROPERTY = CLOUDHOPPER_PREFIX + ".submit.async";
+
+			/**
+			 * The prefix for delivery receipts properties
+			 */
+			public static final String RECEIPT_PREFIX = CLOUDHOPPER_PREFIX + ".receipt";
+
+			/**
+			 * The key of property for the maximum number of sent messages
+			 * waiting for a delivery receipt
+			 */
+			public static final String RECEIPT_MAX_PENDING_PROPERTY = RECEIPT_PREFIX + ".max.pending";
+
+			/**
+			 * The key of property for the time after which a sent message is
+			 * no more waiting for a delivery receipt
+			 */
+			public static final String RECEIPT_TIME_TO_LIVE_PROPERTY = RECEIPT_PREFIX + ".ttl";
+
+			/**
+			 * The key of property for the radix (10 or 16) of the message ids
+			 * provided by the SMSC in submit_sm_resp
+			 */
+			public static final String RECEIPT_SUBMIT_ID_RADIX_PROPERTY = RECEIPT_PREFIX + ".id.radix.submit";
+
+			/**
+			 * The key of property for the radix (10 or 16) of the message ids
+			 * provided by the SMSC in delivery receipts
+			 */
+			public static final String RECEIPT_DELIVER_ID_RADIX_PROPERTY = RECEIPT_PREFIX + ".id.radix.deliver";
+
+			/**
+			 * The prefix for encoding properties
+			 */
+			public static final String ENCODING_PREFIX = CLOUDHOPPER_PREFIX + ".encoding";
+
+			/**
+			 * The key of property to automatically choose between GSM 7-bit
+			 * and UCS-2 encodings depending on the content of the message
+			 */
+			public static final String AUTO_ENCODING_PROPERTY = ENCODING_PREFIX + ".auto";
+
+			/**
+			 * The key of property to send packed GSM septets (8 septets in 7
+			 * bytes) when the encoding is automatically chosen
+			 */
+			public static final String GSM_PACKED_PROPERTY = ENCODING_PREFIX + ".gsm.packed";
+
+			/**
+			 * The default maximum number of sent messages waiting for a
+			 * delivery receipt
+			 */
+			public static final int DEFAULT_RECEIPT_MAX_PENDING = 100000;
+
+			/**
+			 * The default time after which a sent message is no more waiting
+			 * for a delivery receipt (48 hours)
+			 */
+			public static final long DEFAULT_RECEIPT_TIME_TO_LIVE = 172800000;
+
+			/**
+			 * The default radix of the message ids (hexadecimal ids also
+			 * match decimal ids if the SMSC uses the same string in both
+			 * PDUs)
+			 */
+			public static final int DEFAULT_RECEIPT_ID_RADIX = 16;
+
+			/**
+			 * The default number of sessions kept bound
+			 */
+			public static final int DEFAULT_POOL_MIN_SESSIONS = 0;
+
+			/**
+			 * The default maximum number of bound sessions. Several sessions
+			 * let concurrent threads send in parallel. The value is kept low
+			 * because SMSCs usually limit the number of binds per account.
+			 */
+			public static final int DEFAULT_POOL_MAX_SESSIONS = 4;
+
+			/**
+			 * The default time before an unused session is closed
+			 */
+			public static final long DEFAULT_POOL_IDLE_TIMEOUT = 300000;
+
+			/**
+			 * The default interval between two enquire_link requests
+			 */
+			public static final long DEFAULT_POOL_KEEP_ALIVE_INTERVAL = 30000;
+
+			/**
+			 * The default time to wait for an available session
+			 */
+			public static final long DEFAULT_POOL_ACQUIRE_TIMEOUT = 30000;
+
 			private CloudhopperConstants() {
 				super();
 			}
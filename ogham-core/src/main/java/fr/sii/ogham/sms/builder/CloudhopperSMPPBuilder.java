@@ -1,5 +1,7 @@
 package fr.sii.ogham.sms.builder;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import com.cloudhopper.commons.charset.CharsetUtil;
@@ -17,8 +19,12 @@ import fr.sii.ogham.sms.SmsConstants.SmppConstants.TimeoutConstants;
 import fr.sii.ogham.sms.exception.message.EncodingException;
 import fr.sii.ogham.sms.message.addressing.translator.PhoneNumberTranslator;
 import fr.sii.ogham.sms.sender.impl.CloudhopperSMPPSender;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.CloudhopperCharsetHandler;
 import fr.sii.ogham.sms.sender.impl.cloudhopper.CloudhopperOptions;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptListener;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.GsmUcs2CharsetHandler;
 import fr.sii.ogham.sms.sender.impl.cloudhopper.MapCloudhopperCharsetHandler;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SegmentingCharsetHandler;
 
 /**
  * Builder that helps to construct the Cloudhopper SMPP implementation.
@@ -39,24 +45,46 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 	 */
 	private CloudhopperOptions options;
 
+	/**
+	 * The listeners notified when delivery receipts are received
+	 */
+	private final List<DeliveryReceiptListener> receiptListeners = new ArrayList<>();
+
+	/**
+	 * The handler that encodes the content of the messages (null to use the
+	 * default charset handler)
+	 */
+	private CloudhopperCharsetHandler charsetHandler;
+
 	@Override
 	public CloudhopperSMPPSender build() throws BuildException {
-		if(options==null) {
-			options = new CloudhopperOptions(CloudhopperConstants.DEFAULT_RESPONSE_TIMEOUT, CloudhopperConstants.DEFAULT_UNBIND_TIMEOUT);
+		if (charsetHandler == null) {
+			charsetHandler = buildDefaultCharsetHandler();
 		}
 		
+		PhoneNumberTranslator fallbackPhoneNumberTranslator = new DefaultPhoneNumberTranslatorBuilder().useDefaults().build();
+
+		// receipts are only received by transceiver sessions
+		if (!receiptListeners.isEmpty() && sessionConfiguration.getType() != SmppBindType.TRANSCEIVER) {
+			sessionConfiguration.setType(SmppBindType.TRANSCEIVER);
+		}
+		CloudhopperSMPPSender sender = new CloudhopperSMPPSender(sessionConfiguration, getOrCreateOptions(), charsetHandler, fallbackPhoneNumberTranslator);
+		for (DeliveryReceiptListener listener : receiptListeners) {
+			sender.addDeliveryReceiptListener(listener);
+		}
+		return sender;
+	}
+
+	private static CloudhopperCharsetHandler buildDefaultCharsetHandler() throws BuildException {
 		// Default cloud hopper charset handler (UTF8 --> GSM)
 		FixedCharsetProvider defaultCharsetProvider = new FixedCharsetProvider();
-		MapCloudhopperCharsetHandler charsetHandler = new MapCloudhopperCharsetHandler(defaultCharsetProvider);
+		MapCloudhopperCharsetHandler defaultCharsetHandler = new MapCloudhopperCharsetHandler(defaultCharsetProvider);
 		try {
-			charsetHandler.addCharset(DEFAULT_CHARSET, CharsetUtil.NAME_GSM);
+			defaultCharsetHandler.addCharset(DEFAULT_CHARSET, CharsetUtil.NAME_GSM);
 		} catch (EncodingException e) {
 			throw new BuildException("Unable to build default charset handler", e);
 		}
-		
-		PhoneNumberTranslator fallbackPhoneNumberTranslator = new DefaultPhoneNumberTranslatorBuilder().useDefaults().build();
-
-		return new CloudhopperSMPPSender(sessionConfiguration, options, charsetHandler, fallbackPhoneNumberTranslator);
+		return defaultCharsetHandler;
 	}
 
 	/**
@@ -80,6 +108,7 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 	 * <li>Use the provided properties</li>
 	 * <li>Create configuration for SMPP session based on provided properties</li>
 	 * <li>Create Cloudhopper options based on provided properties</li>
+	 * <li>Choose the encoding of the messages based on provided properties</li>
 	 * </ul>
 	 * 
 	 * @param props
@@ -89,6 +118,7 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 	public CloudhopperSMPPBuilder useDefaults(Properties props) {
 		generateOptionsFrom(props);
 		generateSmppSessionConfigurationFrom(props);
+		generateEncodingFrom(props);
 		return this;
 	}
 	
@@ -117,6 +147,126 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 		return this;
 	}
 
+	/**
+	 * Configure the pool of SMPP sessions shared by all messages.
+	 * 
+	 * @param minSessions
+	 *            the number of sessions kept bound even if not used
+	 * @param maxSessions
+	 *            the maximum number of sessions bound at the same time
+	 * @param idleTimeout
+	 *            the time (in milliseconds) after which an unused session is
+	 *            closed
+	 * @param keepAliveInterval
+	 *            the interval (in milliseconds) between two enquire_link
+	 *            requests on idle sessions
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder withSessionPool(int minSessions, int maxSessions, long idleTimeout, long keepAliveInterval) {
+		CloudhopperOptions opts = getOrCreateOptions();
+		opts.setMinSessions(minSessions);
+		opts.setMaxSessions(maxSessions);
+		opts.setIdleTimeout(idleTimeout);
+		opts.setKeepAliveInterval(keepAliveInterval);
+		return this;
+	}
+
+	/**
+	 * Send all the submit_sm requests of a message without waiting for each
+	 * response. The responses are then awaited all at once. This keeps the
+	 * SMPP window full and avoids a network round-trip per request.
+	 * 
+	 * @param async
+	 *            true to enable asynchronous submission
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder withAsyncSubmit(boolean async) {
+		getOrCreateOptions().setAsyncSubmit(async);
+		return this;
+	}
+
+	/**
+	 * Limit the number of submit_sm sent per second to respect the throughput
+	 * allowed by the SMSC. Requests are paced smoothly and the rate is
+	 * lowered when the SMSC answers with a throttling error.
+	 * 
+	 * @param sessionMaxRate
+	 *            the maximum number of submit_sm per second on one session (0
+	 *            for no limit)
+	 * @param accountMaxRate
+	 *            the maximum number of submit_sm per second for all sessions
+	 *            (0 for no limit)
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder withThroughput(double sessionMaxRate, double accountMaxRate) {
+		CloudhopperOptions opts = getOrCreateOptions();
+		opts.setSessionMaxRate(sessionMaxRate);
+		opts.setAccountMaxRate(accountMaxRate);
+		return this;
+	}
+
+	/**
+	 * Provide your own handler to encode the content of the messages. If the
+	 * handler is a {@link SegmentingCharsetHandler}, it also chooses the
+	 * data_coding and splits the messages.
+	 * 
+	 * @param charsetHandler
+	 *            the handler to use
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder withCharsetHandler(CloudhopperCharsetHandler charsetHandler) {
+		this.charsetHandler = charsetHandler;
+		return this;
+	}
+
+	/**
+	 * Encode the messages with the GSM 7-bit default alphabet if possible,
+	 * with UCS-2 otherwise. The messages are split according to the chosen
+	 * encoding (160 GSM characters or 70 UCS-2 characters per message). See
+	 * {@link GsmUcs2CharsetHandler}.
+	 * 
+	 * @param packGsm
+	 *            true to pack GSM septets (8 septets in 7 bytes), false to send
+	 *            one septet per byte
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder withAutoEncoding(boolean packGsm) {
+		return withCharsetHandler(new GsmUcs2CharsetHandler(packGsm));
+	}
+
+	/**
+	 * Register a listener that is notified each time a delivery receipt is
+	 * received. The sessions are then bound as
+	 * {@link SmppBindType#TRANSCEIVER} in order to receive the delivery
+	 * receipts.
+	 * 
+	 * @param listener
+	 *            the listener to notify
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder withDeliveryReceiptListener(DeliveryReceiptListener listener) {
+		receiptListeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Configure how the message ids provided by the SMSC are read. Many SMSC
+	 * provide hexadecimal ids in submit_sm_resp and decimal ids in delivery
+	 * receipts.
+	 * 
+	 * @param submitIdRadix
+	 *            the radix of the message ids in submit_sm_resp (10 or 16)
+	 * @param deliverIdRadix
+	 *            the radix of the message ids in delivery receipts (10 or 16)
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder withMessageIdRadix(int submitIdRadix, int deliverIdRadix) {
+		CloudhopperOptions opts = getOrCreateOptions();
+		opts.setSubmitIdRadix(submitIdRadix);
+		opts.setDeliverIdRadix(deliverIdRadix);
+		return this;
+	}
+
 	/**
 	 * Generate additional options from properties.
 	 * 
@@ -125,8 +275,39 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 	 * @return this instance for fluent use
 	 */
 	public CloudhopperSMPPBuilder generateOptionsFrom(Properties props) {
+		// @formatter:off
 		options = new CloudhopperOptions(getProperty(props, CloudhopperConstants.RESPONSE_TIMEOUT_PROPERTY, CloudhopperConstants.DEFAULT_RESPONSE_TIMEOUT),
-				getProperty(props, TimeoutConstants.UNBIND_PROPERTY, CloudhopperConstants.DEFAULT_UNBIND_TIMEOUT));
+				getProperty(props, TimeoutConstants.UNBIND_PROPERTY, CloudhopperConstants.DEFAULT_UNBIND_TIMEOUT),
+				getProperty(props, CloudhopperConstants.POOL_MIN_SESSIONS_PROPERTY, CloudhopperConstants.DEFAULT_POOL_MIN_SESSIONS),
+				getProperty(props, CloudhopperConstants.POOL_MAX_SESSIONS_PROPERTY, CloudhopperConstants.DEFAULT_POOL_MAX_SESSIONS),
+				getProperty(props, CloudhopperConstants.POOL_IDLE_TIMEOUT_PROPERTY, CloudhopperConstants.DEFAULT_POOL_IDLE_TIMEOUT),
+				getProperty(props, CloudhopperConstants.POOL_KEEP_ALIVE_INTERVAL_PROPERTY, CloudhopperConstants.DEFAULT_POOL_KEEP_ALIVE_INTERVAL),
+				getProperty(props, CloudhopperConstants.POOL_ACQUIRE_TIMEOUT_PROPERTY, CloudhopperConstants.DEFAULT_POOL_ACQUIRE_TIMEOUT));
+		// @formatter:on
+		options.setAsyncSubmit(Boolean.parseBoolean(props.getProperty(CloudhopperConstants.ASYNC_SUBMIT_PROPERTY, "false")));
+		options.setReceiptMaxPending(getProperty(props, CloudhopperConstants.RECEIPT_MAX_PENDING_PROPERTY, CloudhopperConstants.DEFAULT_RECEIPT_MAX_PENDING));
+		options.setReceiptTimeToLive(getProperty(props, CloudhopperConstants.RECEIPT_TIME_TO_LIVE_PROPERTY, CloudhopperConstants.DEFAULT_RECEIPT_TIME_TO_LIVE));
+		options.setSubmitIdRadix(getProperty(props, CloudhopperConstants.RECEIPT_SUBMIT_ID_RADIX_PROPERTY, CloudhopperConstants.DEFAULT_RECEIPT_ID_RADIX));
+		options.setDeliverIdRadix(getProperty(props, CloudhopperConstants.RECEIPT_DELIVER_ID_RADIX_PROPERTY, CloudhopperConstants.DEFAULT_RECEIPT_ID_RADIX));
+		// throughput allowed by the SMSC (paced in addition to the window)
+		options.setSessionMaxRate(Double.parseDouble(props.getProperty(SmsConstants.SmppConstants.SESSION_THROUGHPUT_PROPERTY, "0")));
+		options.setAccountMaxRate(Double.parseDouble(props.getProperty(SmsConstants.SmppConstants.ACCOUNT_THROUGHPUT_PROPERTY, "0")));
+		options.setThrottledRetries(getProperty(props, SmsConstants.SmppConstants.THROTTLED_RETRIES_PROPERTY, SmsConstants.SmppConstants.DEFAULT_THROTTLED_RETRIES));
+		return this;
+	}
+	
+	/**
+	 * Choose the encoding of the messages from properties. The default
+	 * charset handler is kept if automatic encoding is not enabled.
+	 * 
+	 * @param props
+	 *            the properties to use for choosing the encoding
+	 * @return this instance for fluent use
+	 */
+	public CloudhopperSMPPBuilder generateEncodingFrom(Properties props) {
+		if (Boolean.parseBoolean(props.getProperty(CloudhopperConstants.AUTO_ENCODING_PROPERTY, "false"))) {
+			withAutoEncoding(Boolean.parseBoolean(props.getProperty(CloudhopperConstants.GSM_PACKED_PROPERTY, "false")));
+		}
 		return this;
 	}
 	
@@ -139,7 +320,8 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 	 * @return this instance for fluent use
 	 */
 	public CloudhopperSMPPBuilder generateSmppSessionConfigurationFrom(Properties props) {
-		sessionConfiguration = new SmppSessionConfiguration(SmppBindType.TRANSMITTER, props.getProperty(SmsConstants.SmppConstants.SYSTEMID_PROPERTY), props.getProperty(SmsConstants.SmppConstants.PASSWORD_PROPERTY));
+		SmppBindType bindType = SmppBindType.valueOf(props.getProperty(SmsConstants.SmppConstants.BIND_TYPE_PROPERTY, SmppBindType.TRANSMITTER.name()));
+		sessionConfiguration = new SmppSessionConfiguration(bindType, props.getProperty(SmsConstants.SmppConstants.SYSTEMID_PROPERTY), props.getProperty(SmsConstants.SmppConstants.PASSWORD_PROPERTY));
 		sessionConfiguration.setHost(props.getProperty(SmsConstants.SmppConstants.HOST_PROPERTY));
 		sessionConfiguration.setPort(Integer.parseInt(props.getProperty(SmsConstants.SmppConstants.PORT_PROPERTY)));
 		sessionConfiguration.setBindTimeout(getProperty(props, TimeoutConstants.BIND_PROPERTY, SmppConstants.DEFAULT_BIND_TIMEOUT));
@@ -159,9 +341,8 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 		// TODO: manage ssl properties
 //		sessionConfiguration.setSslConfiguration(value);
 //		sessionConfiguration.setUseSsl(value);
-		// TODO: allow to configure system type and bind type ?
+		// TODO: allow to configure system type ?
 //		sessionConfiguration.setSystemType(value);
-//		sessionConfiguration.setType(bindType);
 		sessionConfiguration.setWindowMonitorInterval(getProperty(props, SmsConstants.SmppConstants.WINDOW_MONITOR_INTERVAL_PROPERTY, SmppConstants.DEFAULT_WINDOW_MONITOR_INTERVAL));
 		sessionConfiguration.setWindowSize(getProperty(props, SmsConstants.SmppConstants.WINDOW_SIZE_PROPERTY, SmppConstants.DEFAULT_WINDOW_SIZE));
 		sessionConfiguration.setWindowWaitTimeout(getProperty(props, TimeoutConstants.WINDOW_WAIT_PROPERTY, SmppConstants.DEFAULT_WINDOW_WAIT_TIMEOUT));
@@ -173,6 +354,13 @@ public class CloudhopperSMPPBuilder implements Builder<CloudhopperSMPPSender> {
 		return this;
 	}
 	
+	private CloudhopperOptions getOrCreateOptions() {
+		if (options == null) {
+			options = new CloudhopperOptions(CloudhopperConstants.DEFAULT_RESPONSE_TIMEOUT, CloudhopperConstants.DEFAULT_UNBIND_TIMEOUT);
+		}
+		return options;
+	}
+
 	private int getProperty(Properties props, String key, int defaultValue) {
 		return Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)));
 	}
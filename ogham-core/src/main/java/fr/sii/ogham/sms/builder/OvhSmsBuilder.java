@@ -5,7 +5,10 @@ import java.net.URL;
 import java.util.Properties;
 
 import fr.sii.ogham.core.builder.Builder;
+import fr.sii.ogham.core.builder.HttpTransportBuilder;
 import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.util.HttpUtils;
+import fr.sii.ogham.core.util.http.HttpTransport;
 import fr.sii.ogham.sms.SmsConstants.OvhConstants;
 import fr.sii.ogham.sms.sender.impl.OvhSmsSender;
 import fr.sii.ogham.sms.sender.impl.ovh.OvhAuthParams;
@@ -39,6 +42,16 @@ public class OvhSmsBuilder implements Builder<OvhSmsSender> {
 	 */
 	private URL ovhUrl;
 
+	/**
+	 * The HTTP layer used to call OVH web service
+	 */
+	private HttpTransport transport;
+
+	/**
+	 * The maximum number of recipients per request
+	 */
+	private Integer maxRecipients;
+
 	@Override
 	public OvhSmsSender build() throws BuildException {
 		try {
@@ -60,8 +73,15 @@ public class OvhSmsBuilder implements Builder<OvhSmsSender> {
 											properties.getProperty(OvhConstants.TAG_PROPERTY), 
 											smsCoding==null ? null : SmsCoding.valueOf(smsCoding));
 			}
+			// dedicated connections configured using values from properties
+			if(transport==null) {
+				transport = properties==null ? HttpUtils.getDefaultTransport() : new HttpTransportBuilder().useDefaults(properties, OvhConstants.HTTP_PREFIX).build();
+			}
+			if(maxRecipients==null) {
+				maxRecipients = properties==null ? OvhConstants.DEFAULT_MAX_RECIPIENTS : Integer.parseInt(properties.getProperty(OvhConstants.MAX_RECIPIENTS_PROPERTY, String.valueOf(OvhConstants.DEFAULT_MAX_RECIPIENTS)));
+			}
 			// create sender implementation
-			return new OvhSmsSender(ovhUrl, authParams, options);
+			return new OvhSmsSender(ovhUrl, authParams, options, transport, maxRecipients);
 		} catch(MalformedURLException e) {
 			throw new BuildException("Invalid URL for OVH API", e);
 		}
@@ -73,6 +93,7 @@ public class OvhSmsBuilder implements Builder<OvhSmsSender> {
 	 * <li>Use the provided properties</li>
 	 * <li>Initialize OVH authentication using provided properties</li>
 	 * <li>Initialize OVH options using provided properties</li>
+	 * <li>Initialize HTTP connections to OVH using provided properties</li>
 	 * </ul>
 	 * 
 	 * @param properties
@@ -135,4 +156,30 @@ public class OvhSmsBuilder implements Builder<OvhSmsSender> {
 		return this;
 	}
 
+	/**
+	 * Set the HTTP layer used to call OVH web service. If not set, a dedicated
+	 * pool of connections is created using the properties prefixed by
+	 * {@link OvhConstants#HTTP_PREFIX}.
+	 * 
+	 * @param transport
+	 *            the HTTP layer
+	 * @return this instance for fluent use
+	 */
+	public OvhSmsBuilder withHttpTransport(HttpTransport transport) {
+		this.transport = transport;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of recipients sent in one request. If there are
+	 * more recipients, several requests are sent concurrently.
+	 * 
+	 * @param maxRecipients
+	 *            the maximum number of recipients per request
+	 * @return this instance for fluent use
+	 */
+	public OvhSmsBuilder withMaxRecipientsPerRequest(int maxRecipients) {
+		this.maxRecipients = maxRecipients;
+		return this;
+	}
 }
@@ -296,6 +296,7 @@ public class SmsBuilder implements MessagingSenderBuilder<ConditionalSender> {
 	 * used. The condition checks if:
 	 * <ul>
 	 * <li>The property <code>ogham.sms.smsglobal.api.key</code> is set</li>
+	 * <li>The property <code>ogham.sms.smsglobal.api.secret</code> is set</li>
 	 * </ul>
 	 * 
 	 * @param properties
@@ -303,9 +304,17 @@ public class SmsBuilder implements MessagingSenderBuilder<ConditionalSender> {
 	 * @return this builder instance for fluent use
 	 */
 	public SmsBuilder withSmsglobalRestApi(Properties properties) {
-		// Use smsglobal REST API only if
-		// SmsConstants.SMSGLOBAL_REST_API_KEY_PROPERTY is set
-//		registerImplementation(new RequiredPropertyCondition<Message>(SmsConstants.SmsGlobal.SMSGLOBAL_REST_API_KEY_PROPERTY, properties), new SmsglobalRestSender());
+		try {
+			// Use smsglobal REST API only if API key and secret are set
+			// @formatter:off
+			registerImplementation(new AndCondition<>(
+										new RequiredPropertyCondition<Message>(SmsConstants.SmsGlobal.SMSGLOBAL_REST_API_KEY_PROPERTY, properties),
+										new RequiredPropertyCondition<Message>(SmsConstants.SmsGlobal.SMSGLOBAL_REST_API_SECRET_PROPERTY, properties)),
+					new SmsglobalRestBuilder().useDefaults(properties));
+			// @formatter:on
+		} catch (Exception e) {
+			LOG.debug("Can't register smsglobal implementation", e);
+		}
 		return this;
 	}
 
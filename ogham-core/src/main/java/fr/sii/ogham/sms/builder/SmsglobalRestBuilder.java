@@ -0,0 +1,159 @@
+package fr.sii.ogham.sms.builder;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Properties;
+
+import fr.sii.ogham.core.builder.Builder;
+import fr.sii.ogham.core.builder.HttpTransportBuilder;
+import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.util.HttpUtils;
+import fr.sii.ogham.core.util.http.HttpTransport;
+import fr.sii.ogham.sms.SmsConstants.SmsGlobal;
+import fr.sii.ogham.sms.sender.impl.SmsglobalRestSender;
+import fr.sii.ogham.sms.sender.impl.smsglobal.SmsglobalAuthParams;
+
+/**
+ * Builder that helps to construct the smsglobal REST API implementation.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SmsglobalRestBuilder implements Builder<SmsglobalRestSender> {
+	/**
+	 * The properties to use
+	 */
+	private Properties properties;
+
+	/**
+	 * The required smsglobal authentication parameters
+	 */
+	private SmsglobalAuthParams authParams;
+
+	/**
+	 * The smsglobal REST API URL
+	 */
+	private URL url;
+
+	/**
+	 * The HTTP layer used to call smsglobal REST API
+	 */
+	private HttpTransport transport;
+
+	/**
+	 * The maximum number of recipients per request
+	 */
+	private Integer maxRecipients;
+
+	@Override
+	public SmsglobalRestSender build() throws BuildException {
+		try {
+			// initialize default url
+			if(url==null) {
+				url = new URL(properties==null ? SmsGlobal.REST_API_URL : properties.getProperty(SmsGlobal.SMSGLOBAL_REST_API_URL_PROPERTY, SmsGlobal.REST_API_URL));
+			}
+			// initialize default authentication parameters by reading values from properties
+			if(authParams==null) {
+				if(properties==null) {
+					throw new BuildException("smsglobal authentication is required: either provide the authentication parameters or the properties " + SmsGlobal.SMSGLOBAL_REST_API_KEY_PROPERTY + " and " + SmsGlobal.SMSGLOBAL_REST_API_SECRET_PROPERTY);
+				}
+				authParams = new SmsglobalAuthParams(properties.getProperty(SmsGlobal.SMSGLOBAL_REST_API_KEY_PROPERTY),
+														properties.getProperty(SmsGlobal.SMSGLOBAL_REST_API_SECRET_PROPERTY));
+			}
+			// dedicated connections configured using values from properties
+			if(transport==null) {
+				transport = properties==null ? HttpUtils.getDefaultTransport() : new HttpTransportBuilder().useDefaults(properties, SmsGlobal.HTTP_PREFIX).build();
+			}
+			if(maxRecipients==null) {
+				maxRecipients = properties==null ? SmsGlobal.DEFAULT_MAX_RECIPIENTS : Integer.parseInt(properties.getProperty(SmsGlobal.MAX_RECIPIENTS_PROPERTY, String.valueOf(SmsGlobal.DEFAULT_MAX_RECIPIENTS)));
+			}
+			// create sender implementation
+			return new SmsglobalRestSender(url, authParams, transport, maxRecipients);
+		} catch(MalformedURLException e) {
+			throw new BuildException("Invalid URL for smsglobal REST API", e);
+		}
+	}
+
+	/**
+	 * Tells the builder to use all default behaviors and values:
+	 * <ul>
+	 * <li>Use the provided properties</li>
+	 * <li>Initialize smsglobal authentication using provided properties</li>
+	 * <li>Initialize HTTP connections to smsglobal using provided properties</li>
+	 * </ul>
+	 * 
+	 * @param properties
+	 *            the properties to use
+	 * @return this instance for fluent use
+	 */
+	public SmsglobalRestBuilder useDefaults(Properties properties) {
+		withProperties(properties);
+		return this;
+	}
+
+	/**
+	 * Set the properties to use for configuring smsglobal implementation.
+	 * <p>
+	 * Automatically called by {@link #useDefaults(Properties)}
+	 * </p>
+	 * 
+	 * @param properties
+	 *            the properties to use
+	 * @return this instance for fluent use
+	 */
+	public SmsglobalRestBuilder withProperties(Properties properties) {
+		this.properties = properties;
+		return this;
+	}
+
+	/**
+	 * Set the URL of the smsglobal REST API.
+	 * 
+	 * @param url
+	 *            the URL of the smsglobal REST API
+	 * @return this instance for fluent use
+	 */
+	public SmsglobalRestBuilder withUrl(URL url) {
+		this.url = url;
+		return this;
+	}
+
+	/**
+	 * Set the authentication parameters (API key and secret).
+	 * 
+	 * @param authParams
+	 *            the authentication parameters
+	 * @return this instance for fluent use
+	 */
+	public SmsglobalRestBuilder withAuthParams(SmsglobalAuthParams authParams) {
+		this.authParams = authParams;
+		return this;
+	}
+
+	/**
+	 * Set the HTTP layer used to call smsglobal REST API. If not set, a
+	 * dedicated pool of connections is created using the properties prefixed
+	 * by {@link SmsGlobal#HTTP_PREFIX}.
+	 * 
+	 * @param transport
+	 *            the HTTP layer
+	 * @return this instance for fluent use
+	 */
+	public SmsglobalRestBuilder withHttpTransport(HttpTransport transport) {
+		this.transport = transport;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of recipients sent in one request. If there are
+	 * more recipients, several requests are sent concurrently.
+	 * 
+	 * @param maxRecipients
+	 *            the maximum number of recipients per request
+	 * @return this instance for fluent use
+	 */
+	public SmsglobalRestBuilder withMaxRecipientsPerRequest(int maxRecipients) {
+		this.maxRecipients = maxRecipients;
+		return this;
+	}
+}
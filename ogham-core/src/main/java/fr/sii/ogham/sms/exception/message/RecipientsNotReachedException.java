@@ -0,0 +1,47 @@
+package fr.sii.ogham.sms.exception.message;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import fr.sii.ogham.core.exception.MessageNotSentException;
+import fr.sii.ogham.sms.message.Recipient;
+import fr.sii.ogham.sms.message.Sms;
+
+/**
+ * Exception raised when an SMS sent to several recipients couldn't be
+ * delivered to some (or all) of the recipients. The recipients that have been
+ * reached and the cause of the failure for each other recipient are
+ * available.
+ * 
+ * @author Aurélien Baudet
+ * 
+ */
+public class RecipientsNotReachedException extends MessageNotSentException {
+
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * The recipients that have received the message
+	 */
+	private final List<Recipient> succeeded;
+
+	/**
+	 * The cause of the failure indexed by recipient
+	 */
+	private final Map<Recipient, Throwable> failures;
+
+	public RecipientsNotReachedException(String message, Sms msg, List<Recipient> succeeded, Map<Recipient, Throwable> failures) {
+		super(message, msg, failures.isEmpty() ? null : failures.values().iterator().next());
+		this.succeeded = Collections.unmodifiableList(succeeded);
+		this.failures = Collections.unmodifiableMap(failures);
+	}
+
+	public List<Recipient> getSucceeded() {
+		return succeeded;
+	}
+
+	public Map<Recipient, Throwable> getFailures() {
+		return failures;
+	}
+}
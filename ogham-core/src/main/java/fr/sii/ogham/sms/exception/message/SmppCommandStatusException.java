@@ -0,0 +1,28 @@
+package fr.sii.ogham.sms.exception.message;
+
+import fr.sii.ogham.core.exception.MessagingException;
+
+/**
+ * Exception raised when the SMSC answers to a request with an error status.
+ * 
+ * @author Aurélien Baudet
+ * 
+ */
+public class SmppCommandStatusException extends MessagingException {
+
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * The command_status of the response
+	 */
+	private final int commandStatus;
+
+	public SmppCommandStatusException(String message, int commandStatus) {
+		super(message);
+		this.commandStatus = commandStatus;
+	}
+
+	public int getCommandStatus() {
+		return commandStatus;
+	}
+}
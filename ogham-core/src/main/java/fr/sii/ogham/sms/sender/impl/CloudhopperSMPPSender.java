@@ -1,19 +1,22 @@
 package fr.sii.ogham.sms.sender.impl;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.cloudhopper.commons.gsm.GsmUtil;
+import com.cloudhopper.smpp.SmppBindType;
 import com.cloudhopper.smpp.SmppConstants;
-import com.cloudhopper.smpp.SmppSession;
 import com.cloudhopper.smpp.SmppSessionConfiguration;
-import com.cloudhopper.smpp.impl.DefaultSmppClient;
 import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
 import com.cloudhopper.smpp.type.Address;
 import com.cloudhopper.smpp.type.RecoverablePduException;
 import com.cloudhopper.smpp.type.SmppChannelException;
@@ -25,6 +28,7 @@ import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.sender.AbstractSpecializedSender;
 import fr.sii.ogham.sms.exception.message.EncodingException;
 import fr.sii.ogham.sms.exception.message.PhoneNumberTranslatorException;
+import fr.sii.ogham.sms.exception.message.SmppCommandStatusException;
 import fr.sii.ogham.sms.message.PhoneNumber;
 import fr.sii.ogham.sms.message.Recipient;
 import fr.sii.ogham.sms.message.Sms;
@@ -32,6 +36,15 @@ import fr.sii.ogham.sms.message.addressing.AddressedPhoneNumber;
 import fr.sii.ogham.sms.message.addressing.translator.PhoneNumberTranslator;
 import fr.sii.ogham.sms.sender.impl.cloudhopper.CloudhopperCharsetHandler;
 import fr.sii.ogham.sms.sender.impl.cloudhopper.CloudhopperOptions;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptHandler;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptListener;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.GsmUcs2CharsetHandler;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.ReferenceNumberGenerator;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SegmentedContent;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SegmentingCharsetHandler;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SmppSessionPool;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SmppSessionPool.PooledSession;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SubmitSmFuture;
 
 
 /**
@@ -39,21 +52,68 @@ import fr.sii.ogham.sms.sender.impl.cloudhopper.CloudhopperOptions;
  * href="https://github.com/twitter/cloudhopper-smpp">cloudhopper-smpp</a>
  * library.
  * 
+ * <p>
+ * Bound sessions are managed by a {@link SmppSessionPool} and shared by all
+ * messages (and all threads) instead of binding a new session for each
+ * message. Call {@link #close()} to unbind the sessions when the sender is no
+ * more used.
+ * </p>
+ * 
+ * <p>
+ * Messages can be sent asynchronously (see {@link #sendAsync(Sms)}) to keep
+ * the SMPP window full instead of waiting for each submit_sm_resp. If
+ * {@link CloudhopperOptions#isAsyncSubmit()} is enabled, {@link #send(Sms)}
+ * also writes all the submit_sm before waiting for the responses.
+ * </p>
+ * 
+ * <p>
+ * If the sessions are bound as {@link SmppBindType#TRANSCEIVER}, the delivery
+ * receipts sent by the SMSC are correlated with the sent messages and provided
+ * to the {@link DeliveryReceiptListener}s (see
+ * {@link #addDeliveryReceiptListener(DeliveryReceiptListener)}). As receipts
+ * are only received on bound sessions, you may keep at least one session
+ * bound (see {@link CloudhopperOptions#getMinSessions()}).
+ * </p>
+ * 
+ * <p>
+ * The submit_sm are paced to respect the throughput allowed by the SMSC (see
+ * {@link CloudhopperOptions#getSessionMaxRate()} and
+ * {@link CloudhopperOptions#getAccountMaxRate()}). A throttling error
+ * (ESME_RTHROTTLED) lowers the rate and the rejected submit_sm is sent again
+ * (at most {@link CloudhopperOptions#getThrottledRetries()} times), both by
+ * {@link #send(Sms)} and {@link #sendAsync(Sms)}. Any other error status (or a
+ * throttling error once the retries are exhausted) fails the message.
+ * </p>
+ * 
+ * <p>
+ * If the charset handler is a {@link SegmentingCharsetHandler}, it chooses the
+ * data_coding and splits the content (see {@link GsmUcs2CharsetHandler}).
+ * Otherwise the encoded content is split into parts of 140 bytes.
+ * </p>
+ * 
  * @author Aurélien Baudet
  */
-public class CloudhopperSMPPSender extends AbstractSpecializedSender<Sms> {
+public class CloudhopperSMPPSender extends AbstractSpecializedSender<Sms> implements Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(CloudhopperSMPPSender.class);
 
 	private static final int BODY_OFFSET = 6;
 
-	/** Configuration to bind an SmppSession as an ESME to an SMSC. */
-	private final SmppSessionConfiguration smppSessionConfiguration;
+	/**
+	 * Position of the reference number in the user data header of
+	 * concatenated messages
+	 */
+	private static final int REFERENCE_NUMBER_OFFSET = 3;
+
+	/**
+	 * The pool of sessions bound as an ESME to an SMSC, shared across messages.
+	 */
+	private final SmppSessionPool sessionPool;
 
 	/** Additional options. */
 	private final CloudhopperOptions options;
 
-	/** Random seed to generate reference number in case of split messages. */
-	private final Random splitMessagesReferenceGenerator = new Random();
+	/** Generates reference numbers in case of split messages. */
+	private final ReferenceNumberGenerator referenceNumberGenerator = new ReferenceNumberGenerator();
 
 	/**
 	 * This phone number translator will handle the fallback addressing policy
@@ -66,6 +126,12 @@ public class CloudhopperSMPPSender extends AbstractSpecializedSender<Sms> {
 	 */
 	private final CloudhopperCharsetHandler charsetHandler;
 
+	/**
+	 * Correlates delivery receipts with sent messages (null if sessions are
+	 * not bound as transceiver)
+	 */
+	private final DeliveryReceiptHandler receiptHandler;
+
 	/**
 	 * Initializes a CloudhopperSMPPSender with SMPP session configuration, some
 	 * options and a default phone translator to handle addressing policy.
@@ -79,9 +145,14 @@ public class CloudhopperSMPPSender extends AbstractSpecializedSender<Sms> {
 	 */
 	public CloudhopperSMPPSender(SmppSessionConfiguration smppSessionConfiguration, CloudhopperOptions options, CloudhopperCharsetHandler charsetHandler) {
 		super();
-		this.smppSessionConfiguration = smppSessionConfiguration;
 		this.options = options;
 		this.charsetHandler = charsetHandler;
+		if (smppSessionConfiguration.getType() == SmppBindType.TRANSCEIVER) {
+			receiptHandler = new DeliveryReceiptHandler(options.getReceiptMaxPending(), options.getReceiptTimeToLive(), options.getSubmitIdRadix(), options.getDeliverIdRadix());
+		} else {
+			receiptHandler = null;
+		}
+		this.sessionPool = new SmppSessionPool(smppSessionConfiguration, options, receiptHandler);
 	}
 
 	/**
@@ -106,70 +177,224 @@ public class CloudhopperSMPPSender extends AbstractSpecializedSender<Sms> {
 
 	@Override
 	public void send(Sms message) throws MessageException {
-		DefaultSmppClient client = new DefaultSmppClient();
-		SmppSession session = null;
+		if (options.isAsyncSubmit()) {
+			waitForResponses(sendAsync(message));
+			return;
+		}
+		List<SubmitSm> messages = createMessagesOrFail(message);
+		PooledSession session = acquireSession(message);
+		boolean broken = false;
 		try {
-			LOG.debug("Creating a new SMPP session...");
-			session = client.bind(smppSessionConfiguration);
-			LOG.info("SMPP session bounded");
-			for (SubmitSm msg : createMessages(message)) {
-				session.submit(msg, options.getResponseTimeout());
+			for (SubmitSm msg : messages) {
+				SubmitSmResp response = session.submit(msg, options.getResponseTimeout());
+				if (response.getCommandStatus() != SmppConstants.STATUS_OK) {
+					throw new MessageException("Failed to send SMPP message", message, new SmppCommandStatusException("submit_sm rejected by SMSC: " + response.getName() + " " + response.getResultMessage(), response.getCommandStatus()));
+				}
+				if (receiptHandler != null) {
+					receiptHandler.submitted(message, msg, response);
+				}
 			}
-		} catch (SmppInvalidArgumentException | PhoneNumberTranslatorException | EncodingException e) {
-			throw new MessageException("Failed to create SMPP message", message, e);
-		} catch (SmppTimeoutException | SmppChannelException | UnrecoverablePduException | InterruptedException | RecoverablePduException e) {
-			throw new MessageException("Failed to initialize SMPP session", message, e);
+		} catch (SmppChannelException e) {
+			// the connection is lost => the session will be replaced
+			broken = true;
+			throw new MessageException("Failed to send SMPP message", message, e);
+		} catch (SmppTimeoutException | UnrecoverablePduException | InterruptedException | RecoverablePduException e) {
+			throw new MessageException("Failed to send SMPP message", message, e);
 		} finally {
-			if (session != null) {
-				session.unbind(options.getUnbindTimeout());
-				session.close();
-				session.destroy();
+			releaseSession(session, broken);
+		}
+	}
+
+	/**
+	 * Sends the message without waiting for the responses of the SMSC. All
+	 * submit_sm requests are written on the session as long as the window
+	 * (see {@link SmppSessionConfiguration#getWindowSize()}) is not full. The
+	 * responses are correlated asynchronously and the returned future is
+	 * completed once all of them are received.
+	 * 
+	 * @param message
+	 *            the message to send
+	 * @return the future that provides the responses of the SMSC
+	 * @throws MessageException
+	 *             when the message couldn't be created or written
+	 */
+	public SubmitSmFuture sendAsync(Sms message) throws MessageException {
+		List<SubmitSm> messages = createMessagesOrFail(message);
+		SubmitSmFuture future = new SubmitSmFuture(message, messages.size());
+		PooledSession session = acquireSession(message);
+		boolean broken = false;
+		try {
+			for (int i = 0; i < messages.size(); i++) {
+				session.sendAsync(messages.get(i), future.part(i));
 			}
-			client.destroy();
+			return future;
+		} catch (SmppChannelException e) {
+			// the connection is lost => the session will be replaced
+			broken = true;
+			throw new MessageException("Failed to send SMPP message", message, e);
+		} catch (SmppTimeoutException | UnrecoverablePduException | InterruptedException | RecoverablePduException e) {
+			throw new MessageException("Failed to send SMPP message", message, e);
+		} finally {
+			releaseSession(session, broken);
 		}
 	}
 
-	private List<SubmitSm> createMessages(Sms message) throws SmppInvalidArgumentException, PhoneNumberTranslatorException, EncodingException {
-		List<SubmitSm> messages = new ArrayList<>();
-		for (Recipient recipient : message.getRecipients()) {
-			messages.addAll(createMessages(message, recipient));
+	/**
+	 * Register a listener that is notified each time a delivery receipt is
+	 * received.
+	 * 
+	 * @param listener
+	 *            the listener to register
+	 * @return this instance for fluent use
+	 * @throws IllegalStateException
+	 *             when the sessions are not bound as
+	 *             {@link SmppBindType#TRANSCEIVER} (no receipt can be
+	 *             received)
+	 */
+	public CloudhopperSMPPSender addDeliveryReceiptListener(DeliveryReceiptListener listener) {
+		if (receiptHandler == null) {
+			throw new IllegalStateException("Delivery receipts are only received by sessions bound as " + SmppBindType.TRANSCEIVER);
 		}
-		return messages;
+		receiptHandler.addListener(listener);
+		return this;
+	}
+
+	/**
+	 * @return the number of sent messages still waiting for a delivery
+	 *         receipt
+	 */
+	public int getPendingReceipts() {
+		return receiptHandler == null ? 0 : receiptHandler.getPendingReceipts();
+	}
+
+	/**
+	 * The current throughput allowed for all sessions. It may be lower than
+	 * {@link CloudhopperOptions#getAccountMaxRate()} if the SMSC recently
+	 * answered with throttling errors.
+	 * 
+	 * @return the current number of submit_sm per second (or -1 if not
+	 *         limited)
+	 */
+	public double getCurrentRate() {
+		return sessionPool.getAccountRate();
 	}
 
-	private List<SubmitSm> createMessages(Sms message, Recipient recipient) throws SmppInvalidArgumentException, PhoneNumberTranslatorException, EncodingException {
-		List<SubmitSm> messages = new ArrayList<>();
-		byte[] textBytes = charsetHandler.encode(message.getContent().toString());
+	/**
+	 * Unbind and close all the SMPP sessions. The sender can't be used anymore.
+	 */
+	@Override
+	public void close() {
+		sessionPool.close();
+	}
 
-		// generate new reference number
-		byte[] referenceNumber = new byte[1];
-		splitMessagesReferenceGenerator.nextBytes(referenceNumber);
+	private void waitForResponses(SubmitSmFuture future) throws MessageException {
+		try {
+			// the segments and the throttled requests sent again are not
+			// answered at the same time
+			future.getEach(options.getResponseTimeout(), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			throw new MessageException("Failed to send SMPP message", future.getMessage(), e.getCause());
+		} catch (TimeoutException | InterruptedException e) {
+			throw new MessageException("Failed to send SMPP message", future.getMessage(), e);
+		}
+	}
 
-		// split message when too long
-		byte[][] msgs = GsmUtil.createConcatenatedBinaryShortMessages(textBytes, referenceNumber[0]);
-		if (msgs == null) {
-			SubmitSm submit = createMessage(message, recipient, textBytes);
-			LOG.debug("SubmitSm generated with content '{}'", new String(textBytes));
-			messages.add(submit);
+	private PooledSession acquireSession(Sms message) throws MessageException {
+		try {
+			return sessionPool.acquire();
+		} catch (SmppTimeoutException | SmppChannelException | UnrecoverablePduException | InterruptedException e) {
+			throw new MessageException("Failed to initialize SMPP session", message, e);
+		}
+	}
+
+	private void releaseSession(PooledSession session, boolean broken) {
+		if (broken) {
+			sessionPool.invalidate(session);
 		} else {
-			LOG.debug("Content split into {} parts", msgs.length);
-			for (int i = 0; i < msgs.length; i++) {
-				SubmitSm submit = createMessage(message, recipient, msgs[i]);
-				LOG.debug("SubmitSm generated with content '{}'", new String(Arrays.copyOfRange(msgs[i], BODY_OFFSET, msgs[i].length)));
-				submit.setEsmClass(SmppConstants.ESM_CLASS_UDHI_MASK);
-				messages.add(submit);
+			sessionPool.release(session);
+		}
+	}
+
+	private List<SubmitSm> createMessagesOrFail(Sms message) throws MessageException {
+		try {
+			return createMessages(message);
+		} catch (SmppInvalidArgumentException | PhoneNumberTranslatorException | EncodingException e) {
+			throw new MessageException("Failed to create SMPP message", message, e);
+		}
+	}
+
+	/**
+	 * Generate the submit_sm requests for all the recipients. The content is
+	 * encoded and split only once for the message. Only the destination
+	 * address and the reference number of the concatenated parts differ
+	 * between recipients.
+	 */
+	private List<SubmitSm> createMessages(Sms message) throws SmppInvalidArgumentException, PhoneNumberTranslatorException, EncodingException {
+		SegmentedContent encoded = encode(message.getContent().toString());
+		byte[][] parts = encoded.getSegments();
+		LOG.debug("Content encoded into {} parts with data_coding {}", parts.length, encoded.getDataCoding());
+		Address from = toAddress(message.getFrom().getPhoneNumber());
+		List<Recipient> recipients = message.getRecipients();
+		List<SubmitSm> messages = new ArrayList<>(recipients.size() * parts.length);
+		for (Recipient recipient : recipients) {
+			Address to = toAddress(recipient.getPhoneNumber());
+			if (!encoded.isConcatenated()) {
+				messages.add(createMessage(from, to, parts[0], encoded.getDataCoding()));
+			} else {
+				byte referenceNumber = referenceNumberGenerator.next(to.getAddress());
+				for (byte[] part : parts) {
+					byte[] content = part.clone();
+					content[REFERENCE_NUMBER_OFFSET] = referenceNumber;
+					SubmitSm submit = createMessage(from, to, content, encoded.getDataCoding());
+					submit.setEsmClass(SmppConstants.ESM_CLASS_UDHI_MASK);
+					messages.add(submit);
+				}
 			}
 		}
 		return messages;
 	}
 
-	private SubmitSm createMessage(Sms message, Recipient recipient, byte[] content) throws SmppInvalidArgumentException, PhoneNumberTranslatorException {
+	/**
+	 * Encode and split the content. If the charset handler doesn't choose the
+	 * encoding (see {@link SegmentingCharsetHandler}), the content is split
+	 * into parts of 140 bytes and sent with the default data_coding.
+	 */
+	private SegmentedContent encode(String content) throws EncodingException {
+		if (charsetHandler instanceof SegmentingCharsetHandler) {
+			return ((SegmentingCharsetHandler) charsetHandler).encodeSegments(content);
+		}
+		byte[] textBytes = charsetHandler.encode(content);
+		// split message when too long (reference number is set per recipient)
+		byte[][] parts = GsmUtil.createConcatenatedBinaryShortMessages(textBytes, (byte) 0);
+		logParts(textBytes, parts);
+		if (parts == null) {
+			return new SegmentedContent(SmppConstants.DATA_CODING_DEFAULT, new byte[][] { textBytes }, false);
+		}
+		return new SegmentedContent(SmppConstants.DATA_CODING_DEFAULT, parts, true);
+	}
+
+	private static void logParts(byte[] textBytes, byte[][] parts) {
+		if (!LOG.isDebugEnabled()) {
+			return;
+		}
+		if (parts == null) {
+			LOG.debug("SubmitSm generated with content '{}'", new String(textBytes));
+			return;
+		}
+		LOG.debug("Content split into {} parts", parts.length);
+		for (byte[] part : parts) {
+			LOG.debug("SubmitSm generated with content '{}'", new String(Arrays.copyOfRange(part, BODY_OFFSET, part.length)));
+		}
+	}
+
+	private static SubmitSm createMessage(Address from, Address to, byte[] content, byte dataCoding) throws SmppInvalidArgumentException {
 		SubmitSm submit = new SubmitSm();
-		submit.setSourceAddress(toAddress(message.getFrom().getPhoneNumber()));
-		submit.setDestAddress(toAddress(recipient.getPhoneNumber()));
+		submit.setSourceAddress(from);
+		submit.setDestAddress(to);
 
 		// TODO: should be configurable ?
 		submit.setRegisteredDelivery(SmppConstants.REGISTERED_DELIVERY_SMSC_RECEIPT_REQUESTED);
+		submit.setDataCoding(dataCoding);
 		submit.setShortMessage(content);
 		return submit;
 	}
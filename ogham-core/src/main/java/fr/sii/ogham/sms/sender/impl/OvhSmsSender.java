@@ -3,7 +3,11 @@ package fr.sii.ogham.sms.sender.impl;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonProcessingException;
@@ -13,18 +17,23 @@ import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.exception.MessageNotSentException;
-import fr.sii.ogham.core.exception.util.HttpException;
-import fr.sii.ogham.core.exception.util.PhoneNumberException;
 import fr.sii.ogham.core.sender.AbstractSpecializedSender;
 import fr.sii.ogham.core.util.HttpUtils;
 import fr.sii.ogham.core.util.StringUtils;
+import fr.sii.ogham.core.util.http.HttpTransport;
 import fr.sii.ogham.core.util.http.Parameter;
 import fr.sii.ogham.core.util.http.Response;
+import fr.sii.ogham.sms.SmsConstants.OvhConstants;
+import fr.sii.ogham.sms.exception.message.RecipientsNotReachedException;
 import fr.sii.ogham.sms.message.PhoneNumber;
 import fr.sii.ogham.sms.message.Recipient;
 import fr.sii.ogham.sms.message.Sms;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.GsmUcs2CharsetHandler;
+import fr.sii.ogham.sms.sender.impl.http.HttpSmsHelper;
+import fr.sii.ogham.sms.sender.impl.http.HttpSmsHelper.ResponseHandler;
 import fr.sii.ogham.sms.sender.impl.ovh.OvhAuthParams;
 import fr.sii.ogham.sms.sender.impl.ovh.OvhOptions;
+import fr.sii.ogham.sms.sender.impl.ovh.SmsCoding;
 
 /**
  * Implementation that is able to send SMS through <a
@@ -40,6 +49,15 @@ import fr.sii.ogham.sms.sender.impl.ovh.OvhOptions;
  * example, 0033 6 01 02 03 04 is a valid French number (country code is 33,
  * additional '0' are added to reach the 4 digits)</li>
  * </ul>
+ * <p>
+ * The authentication parameters and the options are encoded only once when
+ * the sender is created. The recipients are split into chunks (OVH limits the
+ * number of recipients per request) and the chunks are sent concurrently. A
+ * message that is too long for one concatenated SMS is split into several
+ * messages that are sent in order. If some recipients couldn't be reached, a
+ * {@link RecipientsNotReachedException} indicates the failure for each
+ * recipient.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
@@ -51,19 +69,28 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	private static final String MESSAGE = "message";
 	private static final String TO = "to";
 	private static final String FROM = "from";
+	private static final String ACCOUNT = "account";
+	private static final String LOGIN = "login";
+	private static final String PASSWORD = "password";
+	private static final String NO_STOP = "noStop";
+	private static final String TAG = "tag";
+	private static final String SMS_CODING = "smsCoding";
 	private static final String RECIPIENTS_SEPARATOR = ",";
 	private static final int OK_STATUS = 200;
 	private static final int INTERNATIONAL_FORMAT_LENGTH = 13;
+	private static final String PROVIDER = "OVH";
 
 	/**
-	 * The authentication parameters
+	 * Maximum length (in GSM septets) of a message using 7-bit encoding (7
+	 * concatenated SMS of 153 septets)
 	 */
-	private final OvhAuthParams authParams;
+	private static final int MAX_NORMAL_LENGTH = 1071;
 
 	/**
-	 * The OVH options
+	 * Maximum length of a message using unicode encoding (7 concatenated SMS
+	 * of 67 characters)
 	 */
-	private final OvhOptions options;
+	private static final int MAX_UNICODE_LENGTH = 469;
 
 	/**
 	 * This is used to parse JSON response
@@ -71,38 +98,84 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	private final ObjectMapper mapper;
 
 	/**
-	 * The URL to OVH web service
+	 * The URL to OVH web service with the authentication parameters and
+	 * options already encoded
 	 */
-	private final URL url;
+	private final String requestUrl;
+
+	/**
+	 * The HTTP layer used to call OVH web service
+	 */
+	private final HttpTransport transport;
+
+	/**
+	 * The maximum number of recipients per request
+	 */
+	private final int maxRecipients;
+
+	/**
+	 * True if the messages are sent using unicode encoding
+	 */
+	private final boolean unicode;
 
 	public OvhSmsSender(URL url, OvhAuthParams authParams, OvhOptions options) {
+		this(url, authParams, options, HttpUtils.getDefaultTransport());
+	}
+
+	public OvhSmsSender(URL url, OvhAuthParams authParams, OvhOptions options, HttpTransport transport) {
+		this(url, authParams, options, transport, OvhConstants.DEFAULT_MAX_RECIPIENTS);
+	}
+
+	public OvhSmsSender(URL url, OvhAuthParams authParams, OvhOptions options, HttpTransport transport, int maxRecipients) {
 		super();
-		this.url = url;
-		this.authParams = authParams;
-		this.options = options;
+		this.transport = transport;
+		this.maxRecipients = maxRecipients;
+		this.unicode = options.getSmsCoding() == SmsCoding.UTF_8;
 		this.mapper = new ObjectMapper();
+		// @formatter:off
+		String query = HttpUtils.toQueryString(Arrays.asList(
+									new Parameter(ACCOUNT, authParams.getAccount()),
+									new Parameter(LOGIN, authParams.getLogin()),
+									new Parameter(PASSWORD, authParams.getPassword()),
+									new Parameter(NO_STOP, String.valueOf(options.getNoStop())),
+									new Parameter(TAG, options.getTag()),
+									new Parameter(SMS_CODING, options.getSmsCoding() == null ? null : String.valueOf(options.getSmsCoding().getValue())),
+									new Parameter(RESPONSE_TYPE, CONTENT_TYPE)));
+		// @formatter:on
+		String base = url.toString();
+		this.requestUrl = base + (base.contains("?") ? "&" : "?") + query;
 	}
 
 	@Override
-	public void send(Sms message) throws MessageException {
-		try {
-			// @formatter:off
-			Response response = HttpUtils.get(url.toString(), authParams, options,
-									new Parameter(RESPONSE_TYPE, CONTENT_TYPE),
-									// convert phone number to international format
-									new Parameter(FROM, toInternational(message.getFrom().getPhoneNumber())),
-									new Parameter(TO, StringUtils.join(convert(message.getRecipients()), RECIPIENTS_SEPARATOR)),
-									// TODO: manage long messages: how to do ??
-									new Parameter(MESSAGE, getContent(message)));
-			// @formatter:on
-			handleResponse(message, response);
-		} catch (IOException e) {
-			throw new MessageException("Failed to read response when sending SMS through OVH", message, e);
-		} catch (HttpException e) {
-			throw new MessageException("Failed to send SMS through OVH", message, e);
-		} catch (PhoneNumberException e) {
-			throw new MessageException("Failed to send SMS through OVH (invalid phone number)", message, e);
+	public void send(final Sms message) throws MessageException {
+		// convert phone numbers to international format
+		String from = toInternational(message.getFrom().getPhoneNumber());
+		List<List<Recipient>> chunks = HttpSmsHelper.chunk(message.getRecipients(), maxRecipients);
+		List<String> tos = new ArrayList<>(chunks.size());
+		for (List<Recipient> chunk : chunks) {
+			tos.add(StringUtils.join(convert(chunk), RECIPIENTS_SEPARATOR));
 		}
+		Map<Recipient, Throwable> failures = new LinkedHashMap<>();
+		ResponseHandler handler = new ResponseHandler() {
+			@Override
+			public void handle(Response response, List<Recipient> chunk, Map<Recipient, Throwable> failures) throws IOException, MessageException {
+				handleResponse(message, response);
+			}
+		};
+		// each part is sent to every chunk before sending the next part to
+		// keep the order of the parts
+		for (String part : split(getContent(message))) {
+			List<Future<Response>> futures = new ArrayList<>(chunks.size());
+			for (int i = 0; i < chunks.size(); i++) {
+				futures.add(HttpSmsHelper.failed(chunks.get(i), failures) ? null : transport.getAsync(requestUrl, Arrays.asList(new Parameter(FROM, from), new Parameter(TO, tos.get(i)), new Parameter(MESSAGE, part))));
+			}
+			for (int i = 0; i < chunks.size(); i++) {
+				if (futures.get(i) != null) {
+					HttpSmsHelper.waitForResponse(message, PROVIDER, futures.get(i), chunks.get(i), failures, handler);
+				}
+			}
+		}
+		HttpSmsHelper.checkFailures(message, PROVIDER, failures);
 	}
 
 	/**
@@ -153,10 +226,78 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	 *            the message that contains the content to extract
 	 * @return the content formatted for OVH
 	 */
-	private String getContent(Sms message) {
+	private static String getContent(Sms message) {
 		// if a string contains \r\n, only \r is kept
 		// if there are \n without \r, those \n are converted to \r
-		return message.getContent().toString().replaceAll("(\r)?\n", "\r");
+		String content = message.getContent().toString();
+		StringBuilder sb = new StringBuilder(content.length());
+		for (int i = 0; i < content.length(); i++) {
+			char c = content.charAt(i);
+			if (c == '\r' && i + 1 < content.length() && content.charAt(i + 1) == '\n') {
+				i++;
+			}
+			sb.append(c == '\n' ? '\r' : c);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Split the content into several messages if it is too long for one
+	 * (concatenated) SMS. Using 7-bit encoding, the length is counted in GSM
+	 * septets (characters of the extension table count twice). Content that
+	 * is not part of the GSM alphabet is sent using unicode.
+	 * 
+	 * @param content
+	 *            the whole content
+	 * @return the parts to send in order
+	 */
+	private List<String> split(String content) {
+		if (!unicode && isGsm(content)) {
+			return splitGsm(content);
+		}
+		return splitUnicode(content);
+	}
+
+	private static boolean isGsm(String content) {
+		for (int i = 0; i < content.length(); i++) {
+			if (GsmUcs2CharsetHandler.getSeptets(content.charAt(i)) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<String> splitGsm(String content) {
+		List<String> parts = new ArrayList<>();
+		int start = 0;
+		int septets = 0;
+		for (int i = 0; i < content.length(); i++) {
+			// an extension character (escape + septet) is never split
+			int length = GsmUcs2CharsetHandler.getSeptets(content.charAt(i));
+			if (septets + length > MAX_NORMAL_LENGTH) {
+				parts.add(content.substring(start, i));
+				start = i;
+				septets = 0;
+			}
+			septets += length;
+		}
+		parts.add(content.substring(start));
+		return parts;
+	}
+
+	private static List<String> splitUnicode(String content) {
+		List<String> parts = new ArrayList<>();
+		int start = 0;
+		do {
+			int end = Math.min(content.length(), start + MAX_UNICODE_LENGTH);
+			// never split a surrogate pair
+			if (end < content.length() && Character.isLowSurrogate(content.charAt(end))) {
+				end--;
+			}
+			parts.add(content.substring(start, end));
+			start = end;
+		} while (start < content.length());
+		return parts;
 	}
 
 	/**
@@ -166,9 +307,8 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	 * @param recipients
 	 *            the list of recipients
 	 * @return the list of international phone numbers
-	 * @throws PhoneNumberException
 	 */
-	private static List<String> convert(List<Recipient> recipients) throws PhoneNumberException {
+	private static List<String> convert(List<Recipient> recipients) {
 		List<String> tos = new ArrayList<>(recipients.size());
 		// convert phone numbers to international format
 		for (Recipient recipient : recipients) {
@@ -184,12 +324,11 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	 * @param phoneNumber
 	 *            the phone number to transform
 	 * @return the international phone number
-	 * @throws PhoneNumberException
 	 */
-	private static String toInternational(PhoneNumber phoneNumber) throws PhoneNumberException {
+	private static String toInternational(PhoneNumber phoneNumber) {
 		String number = phoneNumber.getNumber();
 		if (number.startsWith("+") || number.length() == INTERNATIONAL_FORMAT_LENGTH) {
-			return StringUtils.leftPad(number.replace("+", "").replaceAll("\\s+", ""), INTERNATIONAL_FORMAT_LENGTH, '0');
+			return StringUtils.leftPad(HttpSmsHelper.toDigits(phoneNumber), INTERNATIONAL_FORMAT_LENGTH, '0');
 		} else {
 			throw new IllegalArgumentException("Invalid phone number. OVH only accepts international phone numbers. Please write the phone number with the country prefix. "
 					+ "For example, if the number is 0601020304 and it is a French number, then the international number is +33601020304");
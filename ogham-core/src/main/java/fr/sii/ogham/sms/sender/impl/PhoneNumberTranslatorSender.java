@@ -1,5 +1,7 @@
 package fr.sii.ogham.sms.sender.impl;
 
+import java.io.Closeable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,6 +10,7 @@ import fr.sii.ogham.core.exception.MessageNotSentException;
 import fr.sii.ogham.core.message.Message;
 import fr.sii.ogham.core.sender.ConditionalSender;
 import fr.sii.ogham.core.sender.MessageSender;
+import fr.sii.ogham.core.util.IOUtils;
 import fr.sii.ogham.sms.exception.message.PhoneNumberTranslatorException;
 import fr.sii.ogham.sms.message.Contact;
 import fr.sii.ogham.sms.message.PhoneNumber;
@@ -25,7 +28,7 @@ import fr.sii.ogham.sms.message.addressing.translator.PhoneNumberTranslator;
  * @author cdejonghe
  * @see PhoneNumberTranslator
  */
-public class PhoneNumberTranslatorSender implements ConditionalSender {
+public class PhoneNumberTranslatorSender implements ConditionalSender, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(PhoneNumberTranslatorSender.class);
 
 	/** The translator that transforms the content of the message. */
@@ -99,6 +102,14 @@ public class PhoneNumberTranslatorSender implements ConditionalSender {
 		}
 	}
 
+	/**
+	 * Close the decorated sender if it holds resources.
+	 */
+	@Override
+	public void close() {
+		IOUtils.closeQuietly(delegate);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
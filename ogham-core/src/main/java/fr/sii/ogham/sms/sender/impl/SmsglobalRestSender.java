@@ -1,24 +1,268 @@
 package fr.sii.ogham.sms.sender.impl;
 
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.exception.MessageNotSentException;
 import fr.sii.ogham.core.sender.AbstractSpecializedSender;
+import fr.sii.ogham.core.util.Base64Utils;
+import fr.sii.ogham.core.util.HttpUtils;
+import fr.sii.ogham.core.util.http.HttpTransport;
+import fr.sii.ogham.core.util.http.Parameter;
+import fr.sii.ogham.core.util.http.Response;
+import fr.sii.ogham.sms.SmsConstants.SmsGlobal;
+import fr.sii.ogham.sms.exception.message.RecipientsNotReachedException;
+import fr.sii.ogham.sms.message.Recipient;
 import fr.sii.ogham.sms.message.Sms;
+import fr.sii.ogham.sms.sender.impl.http.HttpSmsHelper;
+import fr.sii.ogham.sms.sender.impl.http.HttpSmsHelper.ResponseHandler;
+import fr.sii.ogham.sms.sender.impl.smsglobal.SmsglobalAuthParams;
 
 /**
  * Implementation that sends a HTTP REST request on the <a
  * href="http://www.smsglobal.com/rest-api/">smsglobal REST API</a> .
+ * <p>
+ * Requests are authenticated using the MAC authentication scheme (signed with
+ * the API secret). The recipients are split into chunks (several destinations
+ * per request) and the chunks are sent concurrently through the
+ * {@link HttpTransport} (connections are pooled and kept alive). The response
+ * contains a result for each destination: a destination that is missing from
+ * the response or that has a failure status is considered as not reached. A
+ * response that can't be read (invalid JSON, result without destination or
+ * status) fails the whole chunk. If some recipients couldn't be reached, a
+ * {@link RecipientsNotReachedException} indicates the failure for each
+ * recipient.
+ * </p>
+ * <p>
+ * Long messages are split by smsglobal.
+ * </p>
  * 
  * @author Aurélien Baudet
  */
 public class SmsglobalRestSender extends AbstractSpecializedSender<Sms> {
 	private static final Logger LOG = LoggerFactory.getLogger(SmsglobalRestSender.class);
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String CONTENT_TYPE = "application/json";
+	private static final String AUTHORIZATION = "Authorization";
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+	private static final String ORIGIN = "origin";
+	private static final String DESTINATIONS = "destinations";
+	private static final String DESTINATION = "destination";
+	private static final String MESSAGE = "message";
+	private static final String MESSAGES = "messages";
+	private static final String STATUS = "status";
+	private static final Set<String> FAILURE_STATUS = new HashSet<>(Arrays.asList("failed", "error", "undelivered", "rejected", "expired"));
+	private static final int NONCE_SIZE = 16;
+	private static final int HEX = 16;
+	private static final int BYTE_MASK = 0xFF;
+	private static final int MILLISECONDS = 1000;
+	private static final String PROVIDER = "smsglobal";
+
+	/**
+	 * Used to generate the nonce of MAC authentication
+	 */
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/**
+	 * The URL of smsglobal REST API
+	 */
+	private final String url;
+
+	/**
+	 * The part of the MAC signature that is the same for every request
+	 * (method, path, host and port)
+	 */
+	private final String signedRequest;
+
+	/**
+	 * The API key
+	 */
+	private final String apiKey;
+
+	/**
+	 * The key used to sign requests
+	 */
+	private final SecretKeySpec signingKey;
+
+	/**
+	 * The HTTP layer used to call smsglobal REST API
+	 */
+	private final HttpTransport transport;
+
+	/**
+	 * The maximum number of recipients per request
+	 */
+	private final int maxRecipients;
+
+	/**
+	 * This is used to generate requests and parse responses
+	 */
+	private final ObjectMapper mapper;
+
+	public SmsglobalRestSender(URL url, SmsglobalAuthParams authParams) {
+		this(url, authParams, HttpUtils.getDefaultTransport(), SmsGlobal.DEFAULT_MAX_RECIPIENTS);
+	}
+
+	public SmsglobalRestSender(URL url, SmsglobalAuthParams authParams, HttpTransport transport, int maxRecipients) {
+		super();
+		this.url = url.toString();
+		this.apiKey = authParams.getApiKey();
+		this.signingKey = authParams.getApiSecret() == null ? null : new SecretKeySpec(authParams.getApiSecret().getBytes(UTF_8), HMAC_ALGORITHM);
+		this.transport = transport;
+		this.maxRecipients = maxRecipients;
+		this.mapper = new ObjectMapper();
+		int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+		this.signedRequest = "POST\n" + url.getPath() + "\n" + url.getHost() + "\n" + port + "\n\n";
+	}
 
 	@Override
-	public void send(Sms message) throws MessageException {
+	public void send(final Sms message) throws MessageException {
+		String from = HttpSmsHelper.toDigits(message.getFrom().getPhoneNumber());
+		String content = message.getContent().toString();
+		List<List<Recipient>> chunks = HttpSmsHelper.chunk(message.getRecipients(), maxRecipients);
+		List<Future<Response>> futures = new ArrayList<>(chunks.size());
+		for (List<Recipient> chunk : chunks) {
+			futures.add(transport.postAsync(url, createBody(from, chunk, content), CONTENT_TYPE, Collections.singletonList(new Parameter(AUTHORIZATION, sign(message)))));
+		}
+		Map<Recipient, Throwable> failures = new LinkedHashMap<>();
+		ResponseHandler handler = new ResponseHandler() {
+			@Override
+			public void handle(Response response, List<Recipient> chunk, Map<Recipient, Throwable> failures) throws IOException, MessageException {
+				handleResponse(message, response, chunk, failures);
+			}
+		};
+		for (int i = 0; i < chunks.size(); i++) {
+			HttpSmsHelper.waitForResponse(message, PROVIDER, futures.get(i), chunks.get(i), failures, handler);
+		}
+		HttpSmsHelper.checkFailures(message, PROVIDER, failures);
+		LOG.info("SMS successfully sent through smsglobal");
+		LOG.debug("Sent SMS: {}", message);
+	}
+
+	/**
+	 * Read the result for each destination of the chunk.
+	 * 
+	 * @param message
+	 *            the sent SMS
+	 * @param response
+	 *            the response of smsglobal
+	 * @param chunk
+	 *            the recipients sent in the request
+	 * @param failures
+	 *            the failures to complete
+	 * @throws IOException
+	 *             when the response is not valid JSON
+	 * @throws MessageException
+	 *             when the request failed or when a result has no destination
+	 *             or no status
+	 */
+	private void handleResponse(Sms message, Response response, List<Recipient> chunk, Map<Recipient, Throwable> failures) throws IOException, MessageException {
+		if (!response.getStatus().isSuccess()) {
+			LOG.error("Response status {}", response.getStatus());
+			LOG.error("Response body {}", response.getBody());
+			throw new MessageNotSentException("SMS couldn't be sent. Response status is " + response.getStatus() + ": " + response.getBody(), message);
+		}
+		LOG.debug("Response: {}", response.getBody());
+		Map<String, String> statuses = new HashMap<>();
+		JsonNode messages = mapper.readTree(response.getBody()).get(MESSAGES);
+		if (messages != null) {
+			for (JsonNode result : messages) {
+				String destination = getText(result, DESTINATION);
+				String status = getText(result, STATUS);
+				if (destination == null || status == null) {
+					throw new MessageException("Invalid smsglobal response: missing destination or status in " + result, message);
+				}
+				statuses.put(destination, status.toLowerCase(Locale.ENGLISH));
+			}
+		}
+		for (Recipient recipient : chunk) {
+			String number = HttpSmsHelper.toDigits(recipient.getPhoneNumber());
+			if (!statuses.containsKey(number)) {
+				failures.put(recipient, new MessageNotSentException("No result for " + number + " in smsglobal response", message));
+			} else if (FAILURE_STATUS.contains(statuses.get(number))) {
+				failures.put(recipient, new MessageNotSentException("SMS couldn't be sent through smsglobal to " + number + ": " + statuses.get(number), message));
+			}
+		}
+	}
+
+	private static String getText(JsonNode node, String field) {
+		JsonNode value = node.get(field);
+		return value == null ? null : value.getTextValue();
+	}
+
+	private String createBody(String from, List<Recipient> chunk, String content) {
+		ObjectNode body = mapper.createObjectNode();
+		body.put(ORIGIN, from);
+		ArrayNode destinations = body.putArray(DESTINATIONS);
+		for (Recipient recipient : chunk) {
+			destinations.add(HttpSmsHelper.toDigits(recipient.getPhoneNumber()));
+		}
+		body.put(MESSAGE, content);
+		return body.toString();
+	}
+
+	/**
+	 * Generate the value of the Authorization header using MAC authentication.
+	 * 
+	 * @param message
+	 *            the SMS to send
+	 * @return the value of the Authorization header
+	 * @throws MessageException
+	 *             when the signature couldn't be generated
+	 */
+	private String sign(Sms message) throws MessageException {
+		if (signingKey == null) {
+			throw new MessageException("Can't sign smsglobal request: API secret is not set", message);
+		}
+		try {
+			long timestamp = System.currentTimeMillis() / MILLISECONDS;
+			String nonce = generateNonce();
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(signingKey);
+			String signature = Base64Utils.encodeToString(mac.doFinal((timestamp + "\n" + nonce + "\n" + signedRequest).getBytes(UTF_8)));
+			return "MAC id=\"" + apiKey + "\", ts=\"" + timestamp + "\", nonce=\"" + nonce + "\", mac=\"" + signature + "\"";
+		} catch (GeneralSecurityException e) {
+			throw new MessageException("Failed to sign smsglobal request", message, e);
+		}
+	}
 
+	private static String generateNonce() {
+		byte[] bytes = new byte[NONCE_SIZE];
+		RANDOM.nextBytes(bytes);
+		StringBuilder sb = new StringBuilder(2 * NONCE_SIZE);
+		for (byte b : bytes) {
+			String hex = Integer.toString(b & BYTE_MASK, HEX);
+			if (hex.length() == 1) {
+				sb.append('0');
+			}
+			sb.append(hex);
+		}
+		return sb.toString();
 	}
 
 	@Override
@@ -1,14 +1,99 @@
 package fr.sii.ogham.sms.sender.impl.cloudhopper;
 
+import fr.sii.ogham.sms.SmsConstants.SmppConstants;
+import fr.sii.ogham.sms.SmsConstants.SmppConstants.CloudhopperConstants;
+
 public class CloudhopperOptions {
 	private long responseTimeout;
-	
+
 	private long unbindTimeout;
 
+	/**
+	 * The number of bound sessions the pool tries to keep open
+	 */
+	private int minSessions;
+
+	/**
+	 * The maximum number of bound sessions opened at the same time
+	 */
+	private int maxSessions;
+
+	/**
+	 * The time (in milliseconds) after which an unused session is closed (only
+	 * if there are more than {@link #minSessions} sessions opened)
+	 */
+	private long idleTimeout;
+
+	/**
+	 * The interval (in milliseconds) between two enquire_link requests sent on
+	 * idle sessions
+	 */
+	private long keepAliveInterval;
+
+	/**
+	 * The maximum time (in milliseconds) to wait for a session to be available
+	 * when all sessions are in use
+	 */
+	private long acquireTimeout;
+
+	/**
+	 * Send all the submit_sm of a message before waiting for the responses
+	 */
+	private boolean asyncSubmit;
+
+	/**
+	 * The maximum number of submit_sm per second on one session (0 for no
+	 * limit)
+	 */
+	private double sessionMaxRate;
+
+	/**
+	 * The maximum number of submit_sm per second for all sessions (0 for no
+	 * limit)
+	 */
+	private double accountMaxRate;
+
+	/**
+	 * The number of times a submit_sm rejected with a throttling error is
+	 * sent again
+	 */
+	private int throttledRetries = SmppConstants.DEFAULT_THROTTLED_RETRIES;
+
+	/**
+	 * The maximum number of sent messages waiting for a delivery receipt
+	 */
+	private int receiptMaxPending = CloudhopperConstants.DEFAULT_RECEIPT_MAX_PENDING;
+
+	/**
+	 * The time (in milliseconds) after which a sent message is no more waiting
+	 * for a delivery receipt
+	 */
+	private long receiptTimeToLive = CloudhopperConstants.DEFAULT_RECEIPT_TIME_TO_LIVE;
+
+	/**
+	 * The radix of the message ids provided in submit_sm_resp
+	 */
+	private int submitIdRadix = CloudhopperConstants.DEFAULT_RECEIPT_ID_RADIX;
+
+	/**
+	 * The radix of the message ids provided in delivery receipts
+	 */
+	private int deliverIdRadix = CloudhopperConstants.DEFAULT_RECEIPT_ID_RADIX;
+
 	public CloudhopperOptions(long responseTimeout, long unbindTimeout) {
+		this(responseTimeout, unbindTimeout, CloudhopperConstants.DEFAULT_POOL_MIN_SESSIONS, CloudhopperConstants.DEFAULT_POOL_MAX_SESSIONS, CloudhopperConstants.DEFAULT_POOL_IDLE_TIMEOUT,
+				CloudhopperConstants.DEFAULT_POOL_KEEP_ALIVE_INTERVAL, CloudhopperConstants.DEFAULT_POOL_ACQUIRE_TIMEOUT);
+	}
+
+	public CloudhopperOptions(long responseTimeout, long unbindTimeout, int minSessions, int maxSessions, long idleTimeout, long keepAliveInterval, long acquireTimeout) {
 		super();
 		this.responseTimeout = responseTimeout;
 		this.unbindTimeout = unbindTimeout;
+		this.minSessions = minSessions;
+		this.maxSessions = maxSessions;
+		this.idleTimeout = idleTimeout;
+		this.keepAliveInterval = keepAliveInterval;
+		this.acquireTimeout = acquireTimeout;
 	}
 
 	public long getResponseTimeout() {
@@ -26,4 +111,108 @@ public class CloudhopperOptions {
 	public void setUnbindTimeout(long unbindTimeout) {
 		this.unbindTimeout = unbindTimeout;
 	}
+
+	public int getMinSessions() {
+		return minSessions;
+	}
+
+	public void setMinSessions(int minSessions) {
+		this.minSessions = minSessions;
+	}
+
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	public void setMaxSessions(int maxSessions) {
+		this.maxSessions = maxSessions;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getKeepAliveInterval() {
+		return keepAliveInterval;
+	}
+
+	public void setKeepAliveInterval(long keepAliveInterval) {
+		this.keepAliveInterval = keepAliveInterval;
+	}
+
+	public long getAcquireTimeout() {
+		return acquireTimeout;
+	}
+
+	public void setAcquireTimeout(long acquireTimeout) {
+		this.acquireTimeout = acquireTimeout;
+	}
+
+	public boolean isAsyncSubmit() {
+		return asyncSubmit;
+	}
+
+	public void setAsyncSubmit(boolean asyncSubmit) {
+		this.asyncSubmit = asyncSubmit;
+	}
+
+	public int getReceiptMaxPending() {
+		return receiptMaxPending;
+	}
+
+	public void setReceiptMaxPending(int receiptMaxPending) {
+		this.receiptMaxPending = receiptMaxPending;
+	}
+
+	public long getReceiptTimeToLive() {
+		return receiptTimeToLive;
+	}
+
+	public void setReceiptTimeToLive(long receiptTimeToLive) {
+		this.receiptTimeToLive = receiptTimeToLive;
+	}
+
+	public int getSubmitIdRadix() {
+		return submitIdRadix;
+	}
+
+	public void setSubmitIdRadix(int submitIdRadix) {
+		this.submitIdRadix = submitIdRadix;
+	}
+
+	public int getDeliverIdRadix() {
+		return deliverIdRadix;
+	}
+
+	public void setDeliverIdRadix(int deliverIdRadix) {
+		this.deliverIdRadix = deliverIdRadix;
+	}
+
+	public double getSessionMaxRate() {
+		return sessionMaxRate;
+	}
+
+	public void setSessionMaxRate(double sessionMaxRate) {
+		this.sessionMaxRate = sessionMaxRate;
+	}
+
+	public double getAccountMaxRate() {
+		return accountMaxRate;
+	}
+
+	public void setAccountMaxRate(double accountMaxRate) {
+		this.accountMaxRate = accountMaxRate;
+	}
+
+	public int getThrottledRetries() {
+		return throttledRetries;
+	}
+
+	public void setThrottledRetries(int throttledRetries) {
+		this.throttledRetries = throttledRetries;
+	}
 }
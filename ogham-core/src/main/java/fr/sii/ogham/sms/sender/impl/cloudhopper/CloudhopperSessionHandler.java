@@ -0,0 +1,161 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cloudhopper.smpp.PduAsyncResponse;
+import com.cloudhopper.smpp.impl.DefaultSmppSessionHandler;
+import com.cloudhopper.smpp.pdu.DeliverSm;
+import com.cloudhopper.smpp.pdu.PduRequest;
+import com.cloudhopper.smpp.pdu.PduResponse;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SubmitSmFuture.Part;
+
+/**
+ * Session handler that:
+ * <ul>
+ * <li>tracks channel failures to never reuse a session whose connection has
+ * been lost</li>
+ * <li>correlates asynchronous submit_sm_resp with the {@link SubmitSmFuture}
+ * of the message</li>
+ * <li>lowers the throughput when the SMSC answers with a throttling error
+ * and sends the rejected submit_sm again (see
+ * {@link CloudhopperOptions#getThrottledRetries()})</li>
+ * <li>acknowledges the delivery receipts (deliver_sm) and provides them to
+ * the {@link DeliveryReceiptHandler} (if any)</li>
+ * </ul>
+ * 
+ * @author Aurélien Baudet
+ */
+public class CloudhopperSessionHandler extends DefaultSmppSessionHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(CloudhopperSessionHandler.class);
+
+	/**
+	 * The asynchronous requests that are waiting for a response
+	 */
+	private final Set<Part> pending;
+
+	/**
+	 * Correlates the delivery receipts (null if receipts are not handled)
+	 */
+	private final DeliveryReceiptHandler receiptHandler;
+
+	/**
+	 * Adapts the throughput according to the responses (may be null)
+	 */
+	private final SubmitThrottle throttle;
+
+	/**
+	 * The pool that sends again the throttled requests (null if throttled
+	 * requests fail)
+	 */
+	private final SmppSessionPool pool;
+
+	private volatile boolean channelClosed;
+
+	public CloudhopperSessionHandler() {
+		this(null, null, null);
+	}
+
+	public CloudhopperSessionHandler(DeliveryReceiptHandler receiptHandler) {
+		this(receiptHandler, null, null);
+	}
+
+	CloudhopperSessionHandler(DeliveryReceiptHandler receiptHandler, SubmitThrottle throttle, SmppSessionPool pool) {
+		super(LOG);
+		this.pending = Collections.newSetFromMap(new ConcurrentHashMap<Part, Boolean>());
+		this.receiptHandler = receiptHandler;
+		this.throttle = throttle;
+		this.pool = pool;
+	}
+
+	/**
+	 * Register an asynchronous request that is about to be sent.
+	 * 
+	 * @param request
+	 *            the request
+	 * @param part
+	 *            the part to notify when the response is received
+	 */
+	public void register(PduRequest<?> request, Part part) {
+		request.setReferenceObject(part);
+		pending.add(part);
+	}
+
+	/**
+	 * Unregister an asynchronous request that couldn't be sent.
+	 * 
+	 * @param request
+	 *            the request
+	 */
+	public void unregister(PduRequest<?> request) {
+		pending.remove(request.getReferenceObject());
+	}
+
+	@Override
+	public void fireExpectedPduResponseReceived(PduAsyncResponse response) {
+		Object reference = response.getRequest().getReferenceObject();
+		if (reference instanceof Part && pending.remove(reference)) {
+			Part part = (Part) reference;
+			boolean throttled = throttle != null && throttle.received(response.getResponse());
+			if (throttled && pool != null && response.getRequest() instanceof SubmitSm && pool.resend((SubmitSm) response.getRequest(), part)) {
+				return;
+			}
+			if (receiptHandler != null && response.getResponse() instanceof SubmitSmResp) {
+				receiptHandler.submitted(part.getMessage(), (SubmitSm) response.getRequest(), (SubmitSmResp) response.getResponse());
+			}
+			part.received(response.getResponse());
+		} else {
+			super.fireExpectedPduResponseReceived(response);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public PduResponse firePduRequestReceived(PduRequest request) {
+		if (request instanceof DeliverSm) {
+			if (receiptHandler != null) {
+				receiptHandler.received((DeliverSm) request);
+			}
+			// always acknowledge to prevent the SMSC from sending it again
+			return request.createResponse();
+		}
+		return super.firePduRequestReceived(request);
+	}
+
+	@Override
+	public void firePduRequestExpired(PduRequest request) {
+		Object reference = request.getReferenceObject();
+		if (reference instanceof Part && pending.remove(reference)) {
+			((Part) reference).failed(new SmppTimeoutException("No response received for " + request.getName() + " (sequence " + request.getSequenceNumber() + ")"));
+		} else {
+			super.firePduRequestExpired(request);
+		}
+	}
+
+	@Override
+	public void fireChannelUnexpectedlyClosed() {
+		channelClosed = true;
+		LOG.info("SMPP channel unexpectedly closed");
+		for (Part part : pending) {
+			if (pending.remove(part)) {
+				part.failed(new SmppChannelException("SMPP channel closed before receiving the response"));
+			}
+		}
+	}
+
+	/**
+	 * @return true if the connection has been lost
+	 */
+	public boolean isChannelClosed() {
+		return channelClosed;
+	}
+}
@@ -0,0 +1,129 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import fr.sii.ogham.sms.message.Sms;
+
+/**
+ * A delivery receipt received from the SMSC and correlated with the sent
+ * message.
+ * 
+ * @author Aurélien Baudet
+ */
+public class DeliveryReceiptEvent {
+	/**
+	 * The state of a message that has been delivered
+	 */
+	public static final String DELIVERED = "DELIVRD";
+
+	/**
+	 * The state of a message that is still in progress
+	 */
+	public static final String ENROUTE = "ENROUTE";
+
+	/**
+	 * The state of a message that is still in progress
+	 */
+	public static final String ACCEPTED = "ACCEPTD";
+
+	/**
+	 * The sent message or null if the receipt couldn't be correlated
+	 */
+	private final Sms message;
+
+	/**
+	 * The address of the recipient
+	 */
+	private final String destination;
+
+	/**
+	 * The id of the message provided by the SMSC
+	 */
+	private final String messageId;
+
+	/**
+	 * The state of the message
+	 */
+	private final String state;
+
+	/**
+	 * The network specific error code
+	 */
+	private final String error;
+
+	public DeliveryReceiptEvent(Sms message, String destination, String messageId, String state, String error) {
+		super();
+		this.message = message;
+		this.destination = destination;
+		this.messageId = messageId;
+		this.state = state;
+		this.error = error;
+	}
+
+	/**
+	 * The sent message. The message may be null if the receipt couldn't be
+	 * correlated (the message has been sent by another process or is too old
+	 * to still be indexed) or if the message is no more referenced by the
+	 * application (the message is not retained while waiting for the
+	 * receipt).
+	 * 
+	 * @return the sent message or null
+	 */
+	public Sms getMessage() {
+		return message;
+	}
+
+	/**
+	 * @return the address of the recipient (as sent to the SMSC)
+	 */
+	public String getDestination() {
+		return destination;
+	}
+
+	/**
+	 * @return the id of the message provided by the SMSC
+	 */
+	public String getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * The state of the message as provided by the SMSC (DELIVRD, EXPIRED,
+	 * DELETED, UNDELIV, ACCEPTD, UNKNOWN, REJECTD or ENROUTE).
+	 * 
+	 * @return the state of the message
+	 */
+	public String getState() {
+		return state;
+	}
+
+	/**
+	 * @return the network specific error code (may be null)
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return true if the message has been delivered to the recipient
+	 */
+	public boolean isDelivered() {
+		return DELIVERED.equalsIgnoreCase(state);
+	}
+
+	/**
+	 * @return true if no other receipt is expected for this message
+	 */
+	public boolean isFinal() {
+		return isFinal(state);
+	}
+
+	static boolean isFinal(String state) {
+		return !ENROUTE.equalsIgnoreCase(state) && !ACCEPTED.equalsIgnoreCase(state);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("DeliveryReceiptEvent [messageId=").append(messageId).append(", destination=").append(destination).append(", state=").append(state).append(", error=").append(error).append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,249 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cloudhopper.smpp.SmppConstants;
+import com.cloudhopper.smpp.pdu.DeliverSm;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+import com.cloudhopper.smpp.tlv.Tlv;
+import com.cloudhopper.smpp.tlv.TlvConvertException;
+import com.cloudhopper.smpp.util.DeliveryReceipt;
+import com.cloudhopper.smpp.util.SmppUtil;
+
+import fr.sii.ogham.sms.message.Sms;
+
+/**
+ * Correlates the delivery receipts (deliver_sm) received on the SMPP sessions
+ * with the sent messages and notifies the registered
+ * {@link DeliveryReceiptListener}s.
+ *
+ * <p>
+ * Each accepted submit_sm is indexed by the message id returned in the
+ * submit_sm_resp (see {@link DeliveryReceiptIndex}). The message id of a
+ * receipt is read from the receipted_message_id TLV if present (same format
+ * as in the submit_sm_resp), otherwise from the "id:" field of the receipt
+ * text (SMPP 3.4 appendix B format). The receipt text is parsed leniently as
+ * SMSC often don't strictly follow the format.
+ * </p>
+ *
+ * <p>
+ * Only the destination and a weak reference to the sent message are kept
+ * while waiting for the receipt: the handler doesn't prevent the messages
+ * from being garbage collected.
+ * </p>
+ *
+ * <p>
+ * Receipts are only received on sessions bound as transceiver (see
+ * {@link com.cloudhopper.smpp.SmppBindType#TRANSCEIVER}).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class DeliveryReceiptHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(DeliveryReceiptHandler.class);
+	private static final Charset RECEIPT_CHARSET = Charset.forName("ISO-8859-1");
+	private static final String ID_FIELD = "id";
+	private static final String STATE_FIELD = "stat";
+	private static final String ERROR_FIELD = "err";
+
+	/**
+	 * The sent messages indexed by message id
+	 */
+	private final DeliveryReceiptIndex<PendingReceipt> index;
+
+	/**
+	 * The radix of the message ids in submit_sm_resp
+	 */
+	private final int submitIdRadix;
+
+	/**
+	 * The radix of the message ids in the text of delivery receipts
+	 */
+	private final int receiptIdRadix;
+
+	private final List<DeliveryReceiptListener> listeners;
+
+	/**
+	 * Initialize the handler.
+	 *
+	 * @param maxPending
+	 *            the maximum number of messages waiting for a receipt
+	 * @param timeToLive
+	 *            the time (in milliseconds) after which a message is no more
+	 *            waiting for a receipt
+	 * @param submitIdRadix
+	 *            the radix used by the SMSC for the message ids in
+	 *            submit_sm_resp and in the receipted_message_id TLV (10 or
+	 *            16)
+	 * @param receiptIdRadix
+	 *            the radix used by the SMSC for the message ids in the text of
+	 *            delivery receipts (10 or 16)
+	 */
+	public DeliveryReceiptHandler(int maxPending, long timeToLive, int submitIdRadix, int receiptIdRadix) {
+		super();
+		this.index = new DeliveryReceiptIndex<>(maxPending, timeToLive);
+		this.submitIdRadix = submitIdRadix;
+		this.receiptIdRadix = receiptIdRadix;
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Register a listener that is notified for each received delivery
+	 * receipt.
+	 *
+	 * @param listener
+	 *            the listener to register
+	 * @return this instance for fluent use
+	 */
+	public DeliveryReceiptHandler addListener(DeliveryReceiptListener listener) {
+		listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Index the submitted message in order to correlate the future delivery
+	 * receipt. Nothing is done if the submit_sm has been rejected.
+	 *
+	 * @param message
+	 *            the sent message
+	 * @param submit
+	 *            the request sent to the SMSC
+	 * @param response
+	 *            the response of the SMSC
+	 */
+	public void submitted(Sms message, SubmitSm submit, SubmitSmResp response) {
+		String messageId = response.getMessageId();
+		if (response.getCommandStatus() != SmppConstants.STATUS_OK || messageId == null || messageId.isEmpty()) {
+			return;
+		}
+		index.put(DeliveryReceiptIndex.toKey(messageId, submitIdRadix), new PendingReceipt(message, submit.getDestAddress().getAddress()));
+	}
+
+	/**
+	 * Handle a deliver_sm received from the SMSC. If it is a delivery receipt,
+	 * the listeners are notified. Other deliver_sm (mobile originated
+	 * messages) are ignored.
+	 *
+	 * @param deliverSm
+	 *            the received request
+	 */
+	public void received(DeliverSm deliverSm) {
+		if (!SmppUtil.isMessageTypeAnyDeliveryReceipt(deliverSm.getEsmClass())) {
+			LOG.debug("Ignoring deliver_sm that is not a delivery receipt: {}", deliverSm);
+			return;
+		}
+		String text = deliverSm.getShortMessage() == null ? "" : new String(deliverSm.getShortMessage(), RECEIPT_CHARSET);
+		// the TLV uses the same format as the submit_sm_resp
+		String messageId = getOptionalString(deliverSm, SmppConstants.TAG_RECEIPTED_MSG_ID);
+		int radix = submitIdRadix;
+		if (messageId == null) {
+			messageId = getField(text, ID_FIELD);
+			radix = receiptIdRadix;
+		}
+		if (messageId == null) {
+			LOG.warn("Delivery receipt without message id: {}", text);
+			return;
+		}
+		String state = getState(deliverSm, text);
+		String error = getField(text, ERROR_FIELD);
+		long key = DeliveryReceiptIndex.toKey(messageId, radix);
+		// intermediate receipts => keep waiting for the final one
+		PendingReceipt pending = DeliveryReceiptEvent.isFinal(state) ? index.remove(key) : index.get(key);
+		DeliveryReceiptEvent event;
+		if (pending == null) {
+			LOG.debug("No sent message found for delivery receipt {}", messageId);
+			// the source of the receipt is the recipient of the message
+			event = new DeliveryReceiptEvent(null, deliverSm.getSourceAddress().getAddress(), messageId, state, error);
+		} else {
+			event = new DeliveryReceiptEvent(pending.message.get(), pending.destination, messageId, state, error);
+		}
+		LOG.debug("Delivery receipt received: {}", event);
+		for (DeliveryReceiptListener listener : listeners) {
+			try {
+				listener.onDeliveryReceipt(event);
+			} catch (RuntimeException e) {
+				LOG.warn("Listener " + listener + " failed", e);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of sent messages still waiting for a receipt
+	 */
+	public int getPendingReceipts() {
+		return index.size();
+	}
+
+	private static String getState(DeliverSm deliverSm, String text) {
+		Tlv tlv = deliverSm.getOptionalParameter(SmppConstants.TAG_MSG_STATE);
+		if (tlv != null) {
+			try {
+				return DeliveryReceipt.toStateText(tlv.getValueAsByte());
+			} catch (TlvConvertException e) {
+				LOG.debug("Invalid message_state TLV", e);
+			}
+		}
+		return getField(text, STATE_FIELD);
+	}
+
+	private static String getOptionalString(DeliverSm deliverSm, short tag) {
+		Tlv tlv = deliverSm.getOptionalParameter(tag);
+		if (tlv == null) {
+			return null;
+		}
+		try {
+			return tlv.getValueAsString();
+		} catch (TlvConvertException e) {
+			LOG.debug("Invalid TLV " + tag, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Find the value of the field in the receipt text (<code>name:value</code>
+	 * pairs separated by spaces). The name is case insensitive.
+	 *
+	 * @param text
+	 *            the text of the receipt
+	 * @param name
+	 *            the name of the field
+	 * @return the value or null if the field is missing
+	 */
+	private static String getField(String text, String name) {
+		int length = name.length();
+		for (int i = 0; i + length < text.length(); i++) {
+			if ((i == 0 || text.charAt(i - 1) == ' ') && text.charAt(i + length) == ':' && text.regionMatches(true, i, name, 0, length)) {
+				int start = i + length + 1;
+				int end = text.indexOf(' ', start);
+				return text.substring(start, end < 0 ? text.length() : end);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The information about a sent message that is waiting for a delivery
+	 * receipt. The message is only weakly referenced as receipts may be kept
+	 * for a long time.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static class PendingReceipt {
+		private final WeakReference<Sms> message;
+
+		private final String destination;
+
+		PendingReceipt(Sms message, String destination) {
+			super();
+			this.message = new WeakReference<>(message);
+			this.destination = destination;
+		}
+	}
+}
@@ -0,0 +1,346 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+/**
+ * Bounded and expiring index that associates the message id returned by the
+ * SMSC (in submit_sm_resp) to any value. It is used to correlate delivery
+ * receipts with the sent messages.
+ *
+ * <p>
+ * Message ids are stored as primitive <code>long</code> keys in open
+ * addressing tables (see {@link #toKey(String, int)}) so millions of pending
+ * receipts don't create millions of boxed keys and map entries. The index is
+ * split into segments that are locked independently to limit contention
+ * between the sending threads and the network threads that receive the
+ * receipts.
+ * </p>
+ *
+ * <p>
+ * Entries expire after the configured time to live (most SMSC never send a
+ * receipt after the validity period of the message). Expired entries are
+ * removed lazily. When a segment is full, expired entries are purged and if
+ * there is still no room, an existing entry is evicted to make room for the
+ * new one. As the limit is shared equally between segments, an entry may be
+ * evicted a bit before the index contains the maximum number of entries.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ * @param <V>
+ *            the type of the indexed values
+ */
+public class DeliveryReceiptIndex<V> {
+	private static final int MAX_SEGMENTS = 16;
+	private static final float LOAD_FACTOR = 0.75f;
+	private static final int MAX_HEX_DIGITS = 15;
+	private static final int MAX_DECIMAL_DIGITS = 18;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final long HASH_FLAG = Long.MIN_VALUE;
+
+	private final Segment<V>[] segments;
+
+	private final int segmentShift;
+
+	private final long timeToLive;
+
+	/**
+	 * Initialize the index.
+	 *
+	 * @param maxEntries
+	 *            the maximum number of entries kept in the index
+	 * @param timeToLive
+	 *            the time (in milliseconds) after which an entry expires
+	 */
+	@SuppressWarnings("unchecked")
+	public DeliveryReceiptIndex(int maxEntries, long timeToLive) {
+		super();
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("The index must be able to contain at least one entry");
+		}
+		int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxEntries));
+		this.segments = new Segment[count];
+		this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(count);
+		int perSegment = (maxEntries + count - 1) / count;
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment<>(perSegment);
+		}
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Index the value for the provided message id. If the message id is
+	 * already indexed, the value is replaced.
+	 *
+	 * @param key
+	 *            the message id (see {@link #toKey(String, int)})
+	 * @param value
+	 *            the value to index
+	 */
+	public void put(long key, V value) {
+		long hash = mix(key);
+		segmentFor(hash).put(key, hash, value, System.currentTimeMillis() + timeToLive);
+	}
+
+	/**
+	 * Get the value indexed for the message id. The value stays in the index.
+	 *
+	 * @param key
+	 *            the message id (see {@link #toKey(String, int)})
+	 * @return the value or null if not indexed or expired
+	 */
+	public V get(long key) {
+		long hash = mix(key);
+		return segmentFor(hash).get(key, hash, false);
+	}
+
+	/**
+	 * Get and remove the value indexed for the message id.
+	 *
+	 * @param key
+	 *            the message id (see {@link #toKey(String, int)})
+	 * @return the value or null if not indexed or expired
+	 */
+	public V remove(long key) {
+		long hash = mix(key);
+		return segmentFor(hash).get(key, hash, true);
+	}
+
+	/**
+	 * Remove all expired entries.
+	 *
+	 * @return the number of removed entries
+	 */
+	public int purge() {
+		long now = System.currentTimeMillis();
+		int purged = 0;
+		for (Segment<V> segment : segments) {
+			purged += segment.purge(now);
+		}
+		return purged;
+	}
+
+	/**
+	 * @return the number of entries currently indexed (including expired
+	 *         entries that are not purged yet)
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<V> segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of entries that have been evicted before expiration
+	 *         because the index was full
+	 */
+	public long getEvictions() {
+		long evictions = 0;
+		for (Segment<V> segment : segments) {
+			evictions += segment.evictions();
+		}
+		return evictions;
+	}
+
+	/**
+	 * Convert the message id provided by the SMSC into a key. Numeric ids
+	 * (the most common case) are parsed using the provided radix. SMSC often
+	 * use hexadecimal ids in submit_sm_resp and decimal ids in delivery
+	 * receipts, the radix allows to get the same key for both. Other ids are
+	 * hashed.
+	 *
+	 * @param messageId
+	 *            the message id provided by the SMSC
+	 * @param radix
+	 *            the radix used by the SMSC for numeric ids (10 or 16)
+	 * @return the key
+	 */
+	public static long toKey(String messageId, int radix) {
+		int maxDigits = radix > 10 ? MAX_HEX_DIGITS : MAX_DECIMAL_DIGITS;
+		int length = messageId.length();
+		// leading zeros are not significant
+		int start = 0;
+		while (start < length - 1 && messageId.charAt(start) == '0') {
+			start++;
+		}
+		if (length == 0 || length - start > maxDigits) {
+			return hash(messageId);
+		}
+		long value = 0;
+		for (int i = start; i < length; i++) {
+			int digit = Character.digit(messageId.charAt(i), radix);
+			if (digit < 0) {
+				return hash(messageId);
+			}
+			value = value * radix + digit;
+		}
+		return value;
+	}
+
+	private static long hash(String messageId) {
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < messageId.length(); i++) {
+			hash ^= messageId.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		// parsed ids are always positive => no collision with parsed ids
+		return hash | HASH_FLAG;
+	}
+
+	private static long mix(long key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private Segment<V> segmentFor(long hash) {
+		return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+	}
+
+	/**
+	 * Open addressing table (linear probing) protected by its own lock.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 * @param <V>
+	 *            the type of the indexed values
+	 */
+	private static final class Segment<V> {
+		private final long[] keys;
+		private final Object[] values;
+		private final long[] expirations;
+		private final int mask;
+		private final int maxSize;
+		private int size;
+		private long evictions;
+		/**
+		 * No entry expires before this date (lower bound) => avoids useless
+		 * scans
+		 */
+		private long nextExpiration = Long.MAX_VALUE;
+
+		Segment(int maxSize) {
+			super();
+			int capacity = Integer.highestOneBit(Math.max(2, (int) (maxSize / LOAD_FACTOR)) * 2 - 1);
+			this.keys = new long[capacity];
+			this.values = new Object[capacity];
+			this.expirations = new long[capacity];
+			this.mask = capacity - 1;
+			this.maxSize = maxSize;
+		}
+
+		synchronized void put(long key, long hash, V value, long expiration) {
+			int index = find(key, hash);
+			if (values[index] == null) {
+				if (size >= maxSize) {
+					makeRoom(hash);
+					index = find(key, hash);
+				}
+				size++;
+			}
+			keys[index] = key;
+			values[index] = value;
+			expirations[index] = expiration;
+			nextExpiration = Math.min(nextExpiration, expiration);
+		}
+
+		@SuppressWarnings("unchecked")
+		synchronized V get(long key, long hash, boolean remove) {
+			int index = find(key, hash);
+			Object value = values[index];
+			if (value == null) {
+				return null;
+			}
+			boolean expired = expirations[index] < System.currentTimeMillis();
+			if (remove || expired) {
+				delete(index);
+			}
+			return expired ? null : (V) value;
+		}
+
+		synchronized int purge(long now) {
+			if (now <= nextExpiration) {
+				return 0;
+			}
+			int purged = 0;
+			long next = Long.MAX_VALUE;
+			int i = 0;
+			while (i < values.length) {
+				if (values[i] != null && expirations[i] < now) {
+					// entries are shifted back => check the same slot again
+					delete(i);
+					purged++;
+				} else {
+					if (values[i] != null) {
+						next = Math.min(next, expirations[i]);
+					}
+					i++;
+				}
+			}
+			nextExpiration = next;
+			return purged;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized long evictions() {
+			return evictions;
+		}
+
+		/**
+		 * Find the slot that contains the key or the empty slot where the key
+		 * should be inserted.
+		 */
+		private int find(long key, long hash) {
+			int index = (int) hash & mask;
+			while (values[index] != null && keys[index] != key) {
+				index = (index + 1) & mask;
+			}
+			return index;
+		}
+
+		private void makeRoom(long hash) {
+			if (purge(System.currentTimeMillis()) > 0) {
+				return;
+			}
+			// no expired entry => evict the first entry near the home slot of
+			// the new key
+			int index = (int) hash & mask;
+			while (values[index] == null) {
+				index = (index + 1) & mask;
+			}
+			delete(index);
+			evictions++;
+		}
+
+		/**
+		 * Remove the entry and shift back the following entries of the probe
+		 * sequence so lookups never stop on a hole.
+		 */
+		private void delete(int index) {
+			int hole = index;
+			int next = (hole + 1) & mask;
+			while (values[next] != null) {
+				int home = (int) mix(keys[next]) & mask;
+				// move the entry if its home slot is not between the hole and
+				// its current position
+				if (((next - home) & mask) >= ((next - hole) & mask)) {
+					keys[hole] = keys[next];
+					values[hole] = values[next];
+					expirations[hole] = expirations[next];
+					hole = next;
+				}
+				next = (next + 1) & mask;
+			}
+			values[hole] = null;
+			size--;
+		}
+	}
+}
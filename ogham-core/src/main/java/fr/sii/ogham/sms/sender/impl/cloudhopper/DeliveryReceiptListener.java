@@ -0,0 +1,24 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+/**
+ * Callback notified each time a delivery receipt (deliver_sm) is received
+ * from the SMSC. The receipt is correlated with the sent message using the
+ * message id provided by the SMSC in the submit_sm_resp.
+ * 
+ * <p>
+ * Callbacks are executed by the network threads that receive the receipts so
+ * implementations must not block.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ * @see DeliveryReceiptEvent
+ */
+public interface DeliveryReceiptListener {
+	/**
+	 * Called when a delivery receipt is received.
+	 * 
+	 * @param event
+	 *            the delivery receipt and the associated message
+	 */
+	void onDeliveryReceipt(DeliveryReceiptEvent event);
+}
@@ -0,0 +1,358 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import java.util.Arrays;
+
+import com.cloudhopper.smpp.SmppConstants;
+
+import fr.sii.ogham.sms.exception.message.EncodingException;
+
+/**
+ * Charset handler that selects the encoding that needs the fewest segments:
+ * the GSM 7-bit default alphabet (with its extension table) if all the
+ * characters can be encoded with it, UCS-2 otherwise. Characters that are
+ * not part of the GSM alphabet are never replaced.
+ *
+ * <p>
+ * The content is scanned only once: characters are looked up in a
+ * precomputed table and converted to septets at the same time. The septets
+ * are written in a buffer that is reused by the thread for the next messages.
+ * Only the segments sent to the SMSC are allocated.
+ * </p>
+ *
+ * <p>
+ * A GSM message contains up to 160 characters (153 per segment when
+ * concatenated, characters of the extension table count twice). A UCS-2
+ * message contains up to 70 characters (67 per segment). An escaped character
+ * or a surrogate pair is never split between two segments.
+ * </p>
+ *
+ * <p>
+ * By default, GSM septets are sent unpacked (one septet per byte) as expected
+ * by most SMSC. Some SMSC expect packed septets (8 septets in 7 bytes), see
+ * {@link #GsmUcs2CharsetHandler(boolean)}.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class GsmUcs2CharsetHandler implements SegmentingCharsetHandler {
+	private static final int UDH_LENGTH = 6;
+	private static final byte UDH_IE_LENGTH = 0x05;
+	private static final byte UDH_IE_CONCATENATED = 0x00;
+	private static final byte UDH_CONCATENATED_LENGTH = 0x03;
+	private static final int MAX_SEGMENTS = 255;
+	private static final int GSM_MAX_SINGLE = 160;
+	private static final int GSM_MAX_PART = 153;
+	private static final int UCS2_MAX_SINGLE = 70;
+	private static final int UCS2_MAX_PART = 67;
+	/**
+	 * Packed septets of a concatenated message are aligned on a septet
+	 * boundary after the 6 bytes of the user data header
+	 */
+	private static final int UDH_FILL_BITS = 1;
+	private static final int SEPTET_BITS = 7;
+	private static final int SEPTET_MASK = 0x7F;
+	private static final byte ESCAPE = 0x1B;
+	private static final int NOT_GSM = -1;
+	private static final int EXTENDED = 0x80;
+	private static final char EURO = '\u20AC';
+	private static final int EURO_CODE = 0x65;
+	private static final int LOOKUP_SIZE = 0x400;
+
+	/**
+	 * GSM 03.38 default alphabet indexed by septet (the escape character at
+	 * 0x1B is never looked up)
+	 */
+	private static final String BASIC_TABLE = "@\u00A3$\u00A5\u00E8\u00E9\u00F9\u00EC\u00F2\u00C7\n\u00D8\u00F8\r\u00C5\u00E5"
+			+ "\u0394_\u03A6\u0393\u039B\u03A9\u03A0\u03A8\u03A3\u0398\u039E\u001B\u00C6\u00E6\u00DF\u00C9"
+			+ " !\"#\u00A4%&'()*+,-./0123456789:;<=>?"
+			+ "\u00A1ABCDEFGHIJKLMNOPQRSTUVWXYZ\u00C4\u00D6\u00D1\u00DC\u00A7"
+			+ "\u00BFabcdefghijklmnopqrstuvwxyz\u00E4\u00F6\u00F1\u00FC\u00E0";
+
+	/**
+	 * Characters of the GSM 03.38 extension table (the euro sign is handled
+	 * separately as it is outside of the lookup table)
+	 */
+	private static final String EXTENSION_TABLE = "\f^{}\\[~]|";
+
+	/**
+	 * The septets of {@link #EXTENSION_TABLE} (sent after an escape septet)
+	 */
+	private static final byte[] EXTENSION_CODES = { 0x0A, 0x14, 0x28, 0x29, 0x2F, 0x3C, 0x3D, 0x3E, 0x40 };
+
+	/**
+	 * The septet of each character (ORed with {@link #EXTENDED} for
+	 * characters of the extension table) or {@link #NOT_GSM}
+	 */
+	private static final short[] LOOKUP = new short[LOOKUP_SIZE];
+
+	static {
+		Arrays.fill(LOOKUP, (short) NOT_GSM);
+		for (int i = 0; i < BASIC_TABLE.length(); i++) {
+			if (i != ESCAPE) {
+				LOOKUP[BASIC_TABLE.charAt(i)] = (short) i;
+			}
+		}
+		for (int i = 0; i < EXTENSION_TABLE.length(); i++) {
+			LOOKUP[EXTENSION_TABLE.charAt(i)] = (short) (EXTENDED | EXTENSION_CODES[i]);
+		}
+	}
+
+	private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+		@Override
+		protected Buffers initialValue() {
+			return new Buffers();
+		}
+	};
+
+	/**
+	 * Send packed GSM septets
+	 */
+	private final boolean packed;
+
+	/**
+	 * Initialize the handler to send unpacked GSM septets.
+	 */
+	public GsmUcs2CharsetHandler() {
+		this(false);
+	}
+
+	/**
+	 * Initialize the handler.
+	 *
+	 * @param packed
+	 *            true to pack GSM septets (8 septets in 7 bytes), false to send
+	 *            one septet per byte
+	 */
+	public GsmUcs2CharsetHandler(boolean packed) {
+		super();
+		this.packed = packed;
+	}
+
+	@Override
+	public byte[] encode(String messageStringContent) throws EncodingException {
+		checkLength(messageStringContent);
+		Buffers buffers = BUFFERS.get();
+		byte[] septets = buffers.septets(messageStringContent.length());
+		int length = toSeptets(messageStringContent, septets);
+		if (length == NOT_GSM) {
+			byte[] ucs2 = new byte[messageStringContent.length() * 2];
+			toUcs2(messageStringContent, 0, messageStringContent.length(), ucs2, 0);
+			return ucs2;
+		}
+		return gsm(septets, 0, length, 0, 0);
+	}
+
+	@Override
+	public SegmentedContent encodeSegments(String messageStringContent) throws EncodingException {
+		checkLength(messageStringContent);
+		Buffers buffers = BUFFERS.get();
+		byte[] septets = buffers.septets(messageStringContent.length());
+		int length = toSeptets(messageStringContent, septets);
+		if (length == NOT_GSM) {
+			return ucs2(messageStringContent, buffers.boundaries);
+		}
+		return gsm(septets, length, buffers.boundaries);
+	}
+
+	/**
+	 * Get the number of septets needed to encode the character using the GSM
+	 * 03.38 default alphabet. The characters of the extension table (
+	 * <code>{ } [ ] ~ \ | ^ &euro;</code> and form feed) need an escape septet.
+	 *
+	 * @param c
+	 *            the character
+	 * @return 1 for the basic table, 2 for the extension table or -1 if the
+	 *         character is not part of the GSM alphabet
+	 */
+	public static int getSeptets(char c) {
+		int septet = lookup(c);
+		if (septet == NOT_GSM) {
+			return NOT_GSM;
+		}
+		return (septet & EXTENDED) != 0 ? 2 : 1;
+	}
+
+	/**
+	 * Get the septet of the character.
+	 *
+	 * @param c
+	 *            the character
+	 * @return the septet (ORed with {@link #EXTENDED} for the extension table)
+	 *         or {@link #NOT_GSM}
+	 */
+	private static int lookup(char c) {
+		if (c < LOOKUP_SIZE) {
+			return LOOKUP[c];
+		}
+		return c == EURO ? EXTENDED | EURO_CODE : NOT_GSM;
+	}
+
+	/**
+	 * Convert the content into unpacked septets.
+	 *
+	 * @return the number of septets or {@link #NOT_GSM} if a character is not
+	 *         part of the GSM alphabet
+	 */
+	private static int toSeptets(String content, byte[] septets) {
+		int length = 0;
+		for (int i = 0; i < content.length(); i++) {
+			int septet = lookup(content.charAt(i));
+			if (septet == NOT_GSM) {
+				return NOT_GSM;
+			}
+			if ((septet & EXTENDED) != 0) {
+				septets[length++] = ESCAPE;
+			}
+			septets[length++] = (byte) (septet & SEPTET_MASK);
+		}
+		return length;
+	}
+
+	private SegmentedContent gsm(byte[] septets, int length, int[] boundaries) throws EncodingException {
+		if (length <= GSM_MAX_SINGLE) {
+			return new SegmentedContent(SmppConstants.DATA_CODING_DEFAULT, new byte[][] { gsm(septets, 0, length, 0, 0) }, false);
+		}
+		int count = 0;
+		int start = 0;
+		while (start < length) {
+			int end = Math.min(start + GSM_MAX_PART, length);
+			// never separate the escape septet from the escaped character
+			if (end < length && septets[end - 1] == ESCAPE) {
+				end--;
+			}
+			count = addBoundary(boundaries, count, end);
+			start = end;
+		}
+		byte[][] segments = new byte[count][];
+		start = 0;
+		for (int i = 0; i < count; i++) {
+			segments[i] = gsm(septets, start, boundaries[i] - start, UDH_LENGTH, UDH_FILL_BITS);
+			writeHeader(segments[i], count, i);
+			start = boundaries[i];
+		}
+		return new SegmentedContent(SmppConstants.DATA_CODING_DEFAULT, segments, true);
+	}
+
+	/**
+	 * Copy (or pack) the septets into a new array.
+	 *
+	 * @param offset
+	 *            the number of bytes to reserve at the beginning of the array
+	 *            for the user data header
+	 * @param fillBits
+	 *            the number of bits to skip after the header when septets are
+	 *            packed
+	 */
+	private byte[] gsm(byte[] septets, int start, int length, int offset, int fillBits) {
+		if (!packed) {
+			byte[] segment = new byte[offset + length];
+			System.arraycopy(septets, start, segment, offset, length);
+			return segment;
+		}
+		int bits = offset == 0 ? 0 : fillBits;
+		byte[] segment = new byte[offset + (bits + length * SEPTET_BITS + Byte.SIZE - 1) / Byte.SIZE];
+		for (int i = 0; i < length; i++) {
+			int septet = septets[start + i] & SEPTET_MASK;
+			int index = offset + (bits >> 3);
+			int shift = bits & (Byte.SIZE - 1);
+			segment[index] |= (byte) (septet << shift);
+			if (shift > 1) {
+				segment[index + 1] |= (byte) (septet >> (Byte.SIZE - shift));
+			}
+			bits += SEPTET_BITS;
+		}
+		return segment;
+	}
+
+	private static SegmentedContent ucs2(String content, int[] boundaries) throws EncodingException {
+		int length = content.length();
+		if (length <= UCS2_MAX_SINGLE) {
+			byte[] segment = new byte[length * 2];
+			toUcs2(content, 0, length, segment, 0);
+			return new SegmentedContent(SmppConstants.DATA_CODING_UCS2, new byte[][] { segment }, false);
+		}
+		int count = 0;
+		int start = 0;
+		while (start < length) {
+			int end = Math.min(start + UCS2_MAX_PART, length);
+			// never separate the characters of a surrogate pair
+			if (end < length && Character.isHighSurrogate(content.charAt(end - 1))) {
+				end--;
+			}
+			count = addBoundary(boundaries, count, end);
+			start = end;
+		}
+		byte[][] segments = new byte[count][];
+		start = 0;
+		for (int i = 0; i < count; i++) {
+			segments[i] = new byte[UDH_LENGTH + (boundaries[i] - start) * 2];
+			writeHeader(segments[i], count, i);
+			toUcs2(content, start, boundaries[i], segments[i], UDH_LENGTH);
+			start = boundaries[i];
+		}
+		return new SegmentedContent(SmppConstants.DATA_CODING_UCS2, segments, true);
+	}
+
+	/**
+	 * Write the characters as UCS-2 (big endian UTF-16 code units).
+	 */
+	private static void toUcs2(String content, int start, int end, byte[] out, int offset) {
+		int index = offset;
+		for (int i = start; i < end; i++) {
+			char c = content.charAt(i);
+			out[index++] = (byte) (c >> Byte.SIZE);
+			out[index++] = (byte) c;
+		}
+	}
+
+	private static int addBoundary(int[] boundaries, int count, int end) throws EncodingException {
+		if (count == MAX_SEGMENTS) {
+			throw new EncodingException("Message is too long to be sent in " + MAX_SEGMENTS + " segments");
+		}
+		boundaries[count] = end;
+		return count + 1;
+	}
+
+	/**
+	 * Write the user data header of a concatenated message (the reference
+	 * number is set for each recipient).
+	 */
+	private static void writeHeader(byte[] segment, int count, int index) {
+		segment[0] = UDH_IE_LENGTH;
+		segment[1] = UDH_IE_CONCATENATED;
+		segment[2] = UDH_CONCATENATED_LENGTH;
+		segment[3] = 0;
+		segment[4] = (byte) count;
+		segment[5] = (byte) (index + 1);
+	}
+
+	private static void checkLength(String content) throws EncodingException {
+		// even without escaped characters, the message can't be sent
+		if (content.length() > MAX_SEGMENTS * GSM_MAX_PART) {
+			throw new EncodingException("Message is too long to be sent in " + MAX_SEGMENTS + " segments");
+		}
+	}
+
+	/**
+	 * Buffers reused by a thread to encode messages.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private static final class Buffers {
+		private static final int INITIAL_CAPACITY = GSM_MAX_SINGLE * 2;
+
+		private byte[] septets = new byte[INITIAL_CAPACITY];
+
+		private final int[] boundaries = new int[MAX_SEGMENTS];
+
+		/**
+		 * Get the septets buffer (large enough if all characters are escaped).
+		 */
+		byte[] septets(int characters) {
+			if (septets.length < characters * 2) {
+				septets = new byte[characters * 2];
+			}
+			return septets;
+		}
+	}
+}
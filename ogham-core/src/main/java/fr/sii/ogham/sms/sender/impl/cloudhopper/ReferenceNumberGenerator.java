@@ -0,0 +1,63 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Generates the reference numbers of concatenated messages. The reference
+ * number only needs to be different for the concatenated messages sent to the
+ * same destination at the same time (the handset uses it to reassemble the
+ * parts). A counter is used per destination instead of a shared random
+ * generator so threads sending to different destinations never contend.
+ * 
+ * <p>
+ * Destinations are spread over a fixed number of counters (to not keep one
+ * counter per destination in memory). Destinations that share a counter still
+ * get consecutive reference numbers. Counters start at a random value to
+ * avoid reusing the same references after a restart.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ */
+public class ReferenceNumberGenerator {
+	private static final int DEFAULT_COUNTERS = 1024;
+
+	private final AtomicIntegerArray counters;
+
+	private final int mask;
+
+	public ReferenceNumberGenerator() {
+		this(DEFAULT_COUNTERS);
+	}
+
+	/**
+	 * Initialize the generator.
+	 * 
+	 * @param counters
+	 *            the number of counters (rounded to a power of 2)
+	 */
+	public ReferenceNumberGenerator(int counters) {
+		super();
+		int size = Integer.highestOneBit(Math.max(1, counters));
+		this.counters = new AtomicIntegerArray(size);
+		this.mask = size - 1;
+		Random random = new Random();
+		for (int i = 0; i < size; i++) {
+			this.counters.set(i, random.nextInt());
+		}
+	}
+
+	/**
+	 * Get the next 8 bits reference number for the destination.
+	 * 
+	 * @param destination
+	 *            the address of the recipient
+	 * @return the reference number
+	 */
+	public byte next(String destination) {
+		int hash = destination.hashCode();
+		// spread high bits as numbers often differ only by the last digits
+		hash ^= hash >>> 16;
+		return (byte) counters.getAndIncrement(hash & mask);
+	}
+}
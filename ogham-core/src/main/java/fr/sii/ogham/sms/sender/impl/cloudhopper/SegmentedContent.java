@@ -0,0 +1,59 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+/**
+ * The content of a message encoded and split into the short messages that are
+ * sent to the SMSC (one submit_sm per segment).
+ *
+ * <p>
+ * If the message is concatenated, each segment starts with the user data
+ * header (6 bytes) that references the concatenated message. The reference
+ * number of the header is left to 0 and is set for each recipient.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class SegmentedContent {
+	/**
+	 * The SMPP data_coding that indicates how the segments are encoded
+	 */
+	private final byte dataCoding;
+
+	/**
+	 * The encoded segments
+	 */
+	private final byte[][] segments;
+
+	/**
+	 * True if the segments start with a user data header
+	 */
+	private final boolean concatenated;
+
+	/**
+	 * Initialize the encoded content.
+	 *
+	 * @param dataCoding
+	 *            the SMPP data_coding of the segments
+	 * @param segments
+	 *            the encoded segments
+	 * @param concatenated
+	 *            true if the segments start with a user data header
+	 */
+	public SegmentedContent(byte dataCoding, byte[][] segments, boolean concatenated) {
+		super();
+		this.dataCoding = dataCoding;
+		this.segments = segments;
+		this.concatenated = concatenated;
+	}
+
+	public byte getDataCoding() {
+		return dataCoding;
+	}
+
+	public byte[][] getSegments() {
+		return segments;
+	}
+
+	public boolean isConcatenated() {
+		return concatenated;
+	}
+}
@@ -0,0 +1,26 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import fr.sii.ogham.sms.exception.message.EncodingException;
+
+/**
+ * Charset handler that also chooses the SMPP data_coding and splits the
+ * message according to the selected encoding. The split depends on the
+ * encoding (a segment contains 153 GSM characters but only 67 UCS-2
+ * characters) so both are decided at the same time.
+ *
+ * @author Aurélien Baudet
+ */
+public interface SegmentingCharsetHandler extends CloudhopperCharsetHandler {
+
+	/**
+	 * Encodes the message string content and splits it into short messages
+	 * if the content doesn't fit in a single one.
+	 *
+	 * @param messageStringContent
+	 *            the message as string to encode
+	 * @return the encoded segments and their data_coding
+	 * @throws EncodingException
+	 *             when message can't be encoded
+	 */
+	SegmentedContent encodeSegments(String messageStringContent) throws EncodingException;
+}
@@ -0,0 +1,635 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cloudhopper.smpp.SmppSession;
+import com.cloudhopper.smpp.SmppSessionConfiguration;
+import com.cloudhopper.smpp.impl.DefaultSmppClient;
+import com.cloudhopper.smpp.pdu.EnquireLink;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+import com.cloudhopper.smpp.type.RecoverablePduException;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+import com.cloudhopper.smpp.type.UnrecoverablePduException;
+
+import fr.sii.ogham.core.util.DaemonThreadFactory;
+import fr.sii.ogham.core.util.RateLimiter;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SubmitSmFuture.Part;
+
+/**
+ * Pool of bound {@link SmppSession}s shared by all the sending threads. Sessions
+ * are bound lazily (or in background to keep {@link CloudhopperOptions#getMinSessions()}
+ * sessions ready) and are reused across messages instead of binding and
+ * unbinding for each message.
+ *
+ * <p>
+ * Background tasks periodically:
+ * </p>
+ * <ul>
+ * <li>send enquire_link requests on idle sessions to keep them alive (every
+ * {@link CloudhopperOptions#getKeepAliveInterval()}, disabled if 0)</li>
+ * <li>close sessions that have been unused for more than
+ * {@link CloudhopperOptions#getIdleTimeout()} (as long as there are more than
+ * {@link CloudhopperOptions#getMinSessions()} sessions)</li>
+ * <li>bind new sessions to replace broken ones</li>
+ * </ul>
+ * <p>
+ * Sessions whose channel has been closed are never given back and a new
+ * session is bound instead.
+ * </p>
+ *
+ * <p>
+ * The submit_sm are paced to never exceed the throughput allowed by the SMSC
+ * for each session ({@link CloudhopperOptions#getSessionMaxRate()}) and for
+ * the whole account ({@link CloudhopperOptions#getAccountMaxRate()}). The rate
+ * is lowered when the SMSC answers with a throttling error and the rejected
+ * submit_sm is sent again.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ */
+public class SmppSessionPool {
+	private static final Logger LOG = LoggerFactory.getLogger(SmppSessionPool.class);
+	private static final long DEFAULT_EVICTION_INTERVAL = 30000;
+	private static final long MIN_EVICTION_INTERVAL = 10;
+
+	/**
+	 * The client used to bind new sessions
+	 */
+	private final DefaultSmppClient client;
+
+	/**
+	 * The executor used by the client to handle network I/O
+	 */
+	private final ExecutorService ioExecutor;
+
+	/**
+	 * The executor that runs keep-alive and eviction
+	 */
+	private final ScheduledExecutorService maintenanceExecutor;
+
+	/**
+	 * The executor that expires requests that are waiting for a response for
+	 * too long
+	 */
+	private final ScheduledExecutorService windowMonitorExecutor;
+
+	/**
+	 * The executor that sends again the asynchronous requests rejected by a
+	 * throttling error (responses are received on I/O threads that must not
+	 * wait for the throttle)
+	 */
+	private final ExecutorService retryExecutor;
+
+	/**
+	 * The configuration used to bind sessions
+	 */
+	private final SmppSessionConfiguration configuration;
+
+	/**
+	 * The options for the pool
+	 */
+	private final CloudhopperOptions options;
+
+	/**
+	 * Bound sessions that are not currently used. Most recently used sessions
+	 * are at the head so unneeded sessions stay at the tail and expire.
+	 */
+	private final BlockingDeque<PooledSession> idle;
+
+	/**
+	 * One permit per session that can be used at the same time
+	 */
+	private final Semaphore available;
+
+	/**
+	 * The number of sessions currently opened (idle or in use)
+	 */
+	private final AtomicInteger opened;
+
+	/**
+	 * Correlates the delivery receipts received on the sessions (may be null)
+	 */
+	private final DeliveryReceiptHandler receiptHandler;
+
+	/**
+	 * Limits the throughput for all sessions (null if not limited)
+	 */
+	private final RateLimiter accountLimiter;
+
+	private volatile boolean closed;
+
+	/**
+	 * Initialize the pool. No session is bound here.
+	 *
+	 * @param configuration
+	 *            the configuration used to bind the sessions
+	 * @param options
+	 *            the pool options
+	 */
+	public SmppSessionPool(SmppSessionConfiguration configuration, CloudhopperOptions options) {
+		this(configuration, options, null);
+	}
+
+	/**
+	 * Initialize the pool. No session is bound here.
+	 *
+	 * @param configuration
+	 *            the configuration used to bind the sessions
+	 * @param options
+	 *            the pool options
+	 * @param receiptHandler
+	 *            the handler that correlates the delivery receipts received
+	 *            on the sessions (null to ignore receipts)
+	 */
+	public SmppSessionPool(SmppSessionConfiguration configuration, CloudhopperOptions options, DeliveryReceiptHandler receiptHandler) {
+		super();
+		this.configuration = configuration;
+		this.options = options;
+		this.receiptHandler = receiptHandler;
+		this.accountLimiter = options.getAccountMaxRate() > 0 ? new RateLimiter(options.getAccountMaxRate()) : null;
+		this.idle = new LinkedBlockingDeque<>();
+		this.available = new Semaphore(options.getMaxSessions(), true);
+		this.opened = new AtomicInteger();
+		ioExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("ogham-smpp-io"));
+		maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("ogham-smpp-pool"));
+		windowMonitorExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("ogham-smpp-window"));
+		retryExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("ogham-smpp-retry"));
+		client = new DefaultSmppClient(ioExecutor, options.getMaxSessions(), windowMonitorExecutor);
+		// eviction doesn't depend on keep-alive: idle sessions are closed even
+		// if enquire_link is disabled
+		maintenanceExecutor.scheduleWithFixedDelay(new Eviction(), 0, getEvictionInterval(options), TimeUnit.MILLISECONDS);
+		if (options.getKeepAliveInterval() > 0) {
+			maintenanceExecutor.scheduleWithFixedDelay(new KeepAlive(), options.getKeepAliveInterval(), options.getKeepAliveInterval(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Get a bound session. If a session is idle it is reused, otherwise a new
+	 * session is bound. If {@link CloudhopperOptions#getMaxSessions()} sessions
+	 * are already in use, the call blocks until one is released (or until
+	 * {@link CloudhopperOptions#getAcquireTimeout()} is reached).
+	 *
+	 * The session must be given back using either
+	 * {@link #release(PooledSession)} or {@link #invalidate(PooledSession)}.
+	 *
+	 * @return the bound session
+	 * @throws SmppTimeoutException
+	 *             when no session became available in time or when the bind
+	 *             timed out
+	 * @throws SmppChannelException
+	 *             when the connection to the SMSC failed
+	 * @throws UnrecoverablePduException
+	 *             when the bind request failed
+	 * @throws InterruptedException
+	 *             when the thread was interrupted while waiting
+	 */
+	public PooledSession acquire() throws SmppTimeoutException, SmppChannelException, UnrecoverablePduException, InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("SMPP session pool is closed");
+		}
+		if (!available.tryAcquire(options.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+			throw new SmppTimeoutException("No SMPP session available after " + options.getAcquireTimeout() + "ms");
+		}
+		try {
+			PooledSession session;
+			while ((session = idle.pollFirst()) != null) {
+				if (session.isUsable()) {
+					LOG.debug("Reusing SMPP session {}", session);
+					return session;
+				}
+				LOG.info("SMPP session {} is no more bound, discarding it", session);
+				destroy(session);
+			}
+			return bind();
+		} catch (SmppTimeoutException | SmppChannelException | UnrecoverablePduException | InterruptedException | RuntimeException e) {
+			available.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Give back the session to the pool once the message has been sent.
+	 *
+	 * @param session
+	 *            the session to give back
+	 */
+	public void release(PooledSession session) {
+		session.touch();
+		if (closed || !session.isUsable()) {
+			destroy(session);
+		} else {
+			idle.offerFirst(session);
+		}
+		available.release();
+	}
+
+	/**
+	 * Give back a session that is not usable anymore (for example because the
+	 * channel failed). The session is closed and a new one will be bound when
+	 * needed.
+	 *
+	 * @param session
+	 *            the broken session
+	 */
+	public void invalidate(PooledSession session) {
+		LOG.info("SMPP session {} invalidated", session);
+		destroy(session);
+		available.release();
+	}
+
+	/**
+	 * Unbind and close all idle sessions and stop background tasks. Sessions
+	 * that are currently in use are closed when released.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		maintenanceExecutor.shutdownNow();
+		PooledSession session;
+		while ((session = idle.pollFirst()) != null) {
+			destroy(session);
+		}
+		// pending retries fail as no session can be acquired anymore
+		retryExecutor.shutdown();
+		client.destroy();
+		ioExecutor.shutdown();
+		windowMonitorExecutor.shutdownNow();
+	}
+
+	/**
+	 * @return the number of sessions currently opened (idle or in use)
+	 */
+	public int getOpenedSessions() {
+		return opened.get();
+	}
+
+	/**
+	 * @return the number of sessions opened but currently unused
+	 */
+	public int getIdleSessions() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the current number of submit_sm per second allowed for all
+	 *         sessions (or -1 if not limited)
+	 */
+	public double getAccountRate() {
+		return accountLimiter == null ? -1 : accountLimiter.getRate();
+	}
+
+	/**
+	 * Send again, in background, an asynchronous submit_sm that has been
+	 * rejected by a throttling error. The session that received the response
+	 * may already be used by another thread or closed, so the request is sent
+	 * on a session acquired from the pool for the retry. The request goes
+	 * through the throttle again so it is sent once the lowered rate allows
+	 * it.
+	 * 
+	 * @param submit
+	 *            the throttled request
+	 * @param part
+	 *            the part that will be notified when the response is
+	 *            received
+	 * @return false if the request has already been sent again
+	 *         {@link CloudhopperOptions#getThrottledRetries()} times
+	 */
+	boolean resend(final SubmitSm submit, final Part part) {
+		if (!part.retry(options.getThrottledRetries())) {
+			return false;
+		}
+		LOG.debug("submit_sm throttled by SMSC, sending it again");
+		try {
+			retryExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					resendNow(submit, part);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the pool is closed
+			part.failed(e);
+		}
+		return true;
+	}
+
+	private void resendNow(SubmitSm submit, Part part) {
+		PooledSession session = null;
+		boolean broken = false;
+		try {
+			session = acquire();
+			// a new sequence number is assigned when sent again
+			submit.removeSequenceNumber();
+			session.sendAsync(submit, part);
+		} catch (SmppChannelException e) {
+			broken = true;
+			part.failed(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			part.failed(e);
+		} catch (RecoverablePduException | UnrecoverablePduException | SmppTimeoutException | RuntimeException e) {
+			part.failed(e);
+		} finally {
+			if (session != null && broken) {
+				invalidate(session);
+			} else if (session != null) {
+				release(session);
+			}
+		}
+	}
+
+	private PooledSession bind() throws SmppTimeoutException, SmppChannelException, UnrecoverablePduException, InterruptedException {
+		LOG.debug("Binding a new SMPP session...");
+		RateLimiter sessionLimiter = options.getSessionMaxRate() > 0 ? new RateLimiter(options.getSessionMaxRate()) : null;
+		SubmitThrottle throttle = new SubmitThrottle(accountLimiter, sessionLimiter);
+		CloudhopperSessionHandler handler = new CloudhopperSessionHandler(receiptHandler, throttle, this);
+		SmppSession session = client.bind(configuration, handler);
+		opened.incrementAndGet();
+		PooledSession pooled = new PooledSession(session, handler, throttle, options.getThrottledRetries());
+		LOG.info("SMPP session {} bound", pooled);
+		return pooled;
+	}
+
+	private void destroy(PooledSession pooled) {
+		SmppSession session = pooled.getSession();
+		try {
+			if (session.isBound()) {
+				session.unbind(options.getUnbindTimeout());
+			}
+		} catch (RuntimeException e) {
+			LOG.debug("Failed to unbind SMPP session " + pooled, e);
+		} finally {
+			session.destroy();
+			opened.decrementAndGet();
+		}
+	}
+
+	/**
+	 * The interval between two checks of the idle sessions. Idle sessions are
+	 * closed at most half the idle timeout after expiration.
+	 */
+	private static long getEvictionInterval(CloudhopperOptions options) {
+		if (options.getIdleTimeout() <= 0) {
+			return DEFAULT_EVICTION_INTERVAL;
+		}
+		return Math.max(MIN_EVICTION_INTERVAL, options.getIdleTimeout() / 2);
+	}
+
+	/**
+	 * Check each idle session at most once: sessions are taken from the tail
+	 * (least recently used) and put back at the tail if still needed.
+	 * 
+	 * @param check
+	 *            decides if the session is kept
+	 */
+	private void checkIdleSessions(IdleCheck check) throws InterruptedException {
+		for (int i = idle.size(); i > 0 && !closed && available.tryAcquire(); i--) {
+			try {
+				PooledSession session = idle.pollLast();
+				if (session == null) {
+					return;
+				}
+				if (!session.isUsable()) {
+					LOG.info("SMPP session {} is no more bound, discarding it", session);
+					destroy(session);
+				} else if (check.keep(session)) {
+					idle.offerLast(session);
+				} else {
+					destroy(session);
+				}
+			} finally {
+				available.release();
+			}
+		}
+	}
+
+	/**
+	 * Decides if an idle session is kept in the pool.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private interface IdleCheck {
+		boolean keep(PooledSession session) throws InterruptedException;
+	}
+
+	/**
+	 * Periodic task that closes unneeded idle sessions and binds new sessions
+	 * to keep the minimum number of sessions.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private class Eviction implements Runnable, IdleCheck {
+		@Override
+		public void run() {
+			try {
+				checkIdleSessions(this);
+				fill();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				LOG.warn("SMPP session pool eviction failed", e);
+			}
+		}
+
+		@Override
+		public boolean keep(PooledSession session) {
+			if (options.getIdleTimeout() > 0 && session.getIdleTime() > options.getIdleTimeout() && opened.get() > options.getMinSessions()) {
+				LOG.debug("SMPP session {} unused for {}ms, closing it", session, session.getIdleTime());
+				return false;
+			}
+			return true;
+		}
+
+		private void fill() throws InterruptedException {
+			while (!closed && opened.get() < options.getMinSessions() && available.tryAcquire()) {
+				try {
+					idle.offerLast(bind());
+				} catch (SmppTimeoutException | SmppChannelException | UnrecoverablePduException e) {
+					LOG.warn("Failed to bind SMPP session", e);
+					return;
+				} finally {
+					available.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Periodic task that sends enquire_link requests on idle sessions to keep
+	 * them alive.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	private class KeepAlive implements Runnable, IdleCheck {
+		@Override
+		public void run() {
+			try {
+				checkIdleSessions(this);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				LOG.warn("SMPP session pool keep-alive failed", e);
+			}
+		}
+
+		@Override
+		public boolean keep(PooledSession session) throws InterruptedException {
+			try {
+				session.getSession().enquireLink(new EnquireLink(), options.getResponseTimeout());
+				return true;
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				LOG.info("enquire_link failed on SMPP session " + session + ", discarding it", e);
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * A session managed by the pool.
+	 *
+	 * @author Aurélien Baudet
+	 */
+	public static class PooledSession {
+		private final SmppSession session;
+
+		private final CloudhopperSessionHandler handler;
+
+		private final SubmitThrottle throttle;
+
+		private final int throttledRetries;
+
+		private volatile long lastUsed;
+
+		PooledSession(SmppSession session, CloudhopperSessionHandler handler, SubmitThrottle throttle, int throttledRetries) {
+			super();
+			this.session = session;
+			this.handler = handler;
+			this.throttle = throttle;
+			this.throttledRetries = throttledRetries;
+			touch();
+		}
+
+		/**
+		 * @return the bound session to use for sending requests
+		 */
+		public SmppSession getSession() {
+			return session;
+		}
+
+		/**
+		 * Send the submit_sm and wait for the response. The request is paced
+		 * according to the allowed throughput. If the SMSC indicates that the
+		 * throughput is exceeded, the rate is lowered and the request is sent
+		 * again (at most {@link CloudhopperOptions#getThrottledRetries()}
+		 * times).
+		 * 
+		 * @param submit
+		 *            the request to send
+		 * @param timeout
+		 *            the time to wait for the response
+		 * @return the response of the SMSC
+		 * @throws RecoverablePduException
+		 *             when the request couldn't be encoded
+		 * @throws UnrecoverablePduException
+		 *             when the request couldn't be encoded
+		 * @throws SmppTimeoutException
+		 *             when no response has been received in time
+		 * @throws SmppChannelException
+		 *             when the request couldn't be written
+		 * @throws InterruptedException
+		 *             when the thread was interrupted while waiting
+		 */
+		public SubmitSmResp submit(SubmitSm submit, long timeout) throws RecoverablePduException, UnrecoverablePduException, SmppTimeoutException, SmppChannelException, InterruptedException {
+			for (int attempt = 0;; attempt++) {
+				throttle.acquire();
+				SubmitSmResp response = session.submit(submit, timeout);
+				if (!throttle.received(response) || attempt >= throttledRetries) {
+					return response;
+				}
+				LOG.debug("submit_sm throttled by SMSC on session {}, sending it again", this);
+				// a new sequence number is assigned when sent again
+				submit.removeSequenceNumber();
+			}
+		}
+
+		/**
+		 * @return the current number of submit_sm per second allowed for this
+		 *         session (or -1 if not limited)
+		 */
+		public double getRate() {
+			return throttle.getRate();
+		}
+
+		/**
+		 * Send the submit_sm without waiting for the response. The response
+		 * is provided to the part once received. The request is paced
+		 * according to the allowed throughput. If the window is full, the
+		 * call blocks until a slot is available (at most the window wait
+		 * timeout).
+		 * 
+		 * @param submit
+		 *            the request to send
+		 * @param part
+		 *            the part that will be notified when the response is
+		 *            received
+		 * @throws RecoverablePduException
+		 *             when the request couldn't be encoded
+		 * @throws UnrecoverablePduException
+		 *             when the request couldn't be encoded
+		 * @throws SmppTimeoutException
+		 *             when no slot was available in the window
+		 * @throws SmppChannelException
+		 *             when the request couldn't be written
+		 * @throws InterruptedException
+		 *             when the thread was interrupted while waiting for a slot
+		 */
+		public void sendAsync(SubmitSm submit, Part part) throws RecoverablePduException, UnrecoverablePduException, SmppTimeoutException, SmppChannelException, InterruptedException {
+			throttle.acquire();
+			handler.register(submit, part);
+			boolean sent = false;
+			try {
+				session.sendRequestPdu(submit, session.getConfiguration().getWindowWaitTimeout(), false);
+				sent = true;
+				part.sent();
+			} finally {
+				if (!sent) {
+					handler.unregister(submit);
+				}
+			}
+		}
+
+		boolean isUsable() {
+			return !handler.isChannelClosed() && session.isBound();
+		}
+
+		void touch() {
+			lastUsed = System.currentTimeMillis();
+		}
+
+		long getIdleTime() {
+			return System.currentTimeMillis() - lastUsed;
+		}
+
+		@Override
+		public String toString() {
+			return session.getConfiguration().getName() + "@" + Integer.toHexString(System.identityHashCode(session)) + " [" + session.getStateName() + "]";
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cloudhopper.smpp.SmppConstants;
+import com.cloudhopper.smpp.pdu.PduResponse;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+
+import fr.sii.ogham.sms.exception.message.SmppCommandStatusException;
+import fr.sii.ogham.sms.message.Sms;
+
+/**
+ * The pending result of an {@link Sms} sent asynchronously. A {@link Sms} may
+ * generate several submit_sm requests (one per recipient and per part). The
+ * future completes once every submit_sm_resp has been received or as soon as
+ * one request fails. A submit_sm rejected by a throttling error is sent again
+ * by the session before being considered as failed (see
+ * {@link CloudhopperOptions#getThrottledRetries()}).
+ * 
+ * <p>
+ * Instead of blocking on {@link #get()}, {@link SubmitSmListener}s can be
+ * registered to be notified on completion.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ */
+public class SubmitSmFuture implements Future<List<SubmitSmResp>> {
+	private static final Logger LOG = LoggerFactory.getLogger(SubmitSmFuture.class);
+
+	/**
+	 * The sent message
+	 */
+	private final Sms message;
+
+	/**
+	 * The received responses indexed by the part index
+	 */
+	private final SubmitSmResp[] responses;
+
+	/**
+	 * The number of responses still expected
+	 */
+	private final AtomicInteger remaining;
+
+	/**
+	 * Ensures completion is done only once
+	 */
+	private final AtomicBoolean done;
+
+	/**
+	 * Released when the future is done
+	 */
+	private final CountDownLatch latch;
+
+	private final List<SubmitSmListener> listeners;
+
+	private volatile Throwable failure;
+
+	/**
+	 * The last time a submit_sm has been written or a response has been
+	 * received
+	 */
+	private volatile long lastActivity;
+
+	/**
+	 * Initialize the future for the provided message.
+	 * 
+	 * @param message
+	 *            the message to send
+	 * @param parts
+	 *            the number of submit_sm requests generated for the message
+	 */
+	public SubmitSmFuture(Sms message, int parts) {
+		super();
+		this.message = message;
+		this.responses = new SubmitSmResp[parts];
+		this.remaining = new AtomicInteger(parts);
+		this.done = new AtomicBoolean(parts == 0);
+		this.latch = new CountDownLatch(parts == 0 ? 0 : 1);
+		this.listeners = new CopyOnWriteArrayList<>();
+		this.lastActivity = System.currentTimeMillis();
+	}
+
+	/**
+	 * Register a listener. If the future is already done, the listener is
+	 * immediately called.
+	 * 
+	 * @param listener
+	 *            the listener to notify on completion
+	 * @return this instance for fluent use
+	 */
+	public SubmitSmFuture addListener(SubmitSmListener listener) {
+		listeners.add(listener);
+		if (isDone() && listeners.remove(listener)) {
+			notify(listener);
+		}
+		return this;
+	}
+
+	/**
+	 * @return the sent message
+	 */
+	public Sms getMessage() {
+		return message;
+	}
+
+	/**
+	 * Reference to attach to a submit_sm in order to correlate its response
+	 * with this future.
+	 * 
+	 * @param index
+	 *            the index of the part
+	 * @return the reference for the part
+	 */
+	public Part part(int index) {
+		return new Part(this, index);
+	}
+
+	void received(int index, PduResponse response) {
+		if (response.getCommandStatus() != SmppConstants.STATUS_OK || !(response instanceof SubmitSmResp)) {
+			failed(new SmppCommandStatusException("submit_sm rejected by SMSC: " + response.getName() + " " + response.getResultMessage(), response.getCommandStatus()));
+			return;
+		}
+		responses[index] = (SubmitSmResp) response;
+		lastActivity = System.currentTimeMillis();
+		if (remaining.decrementAndGet() == 0 && done.compareAndSet(false, true)) {
+			complete();
+		}
+	}
+
+	void failed(Throwable cause) {
+		if (done.compareAndSet(false, true)) {
+			failure = cause;
+			complete();
+		}
+	}
+
+	private void complete() {
+		latch.countDown();
+		for (SubmitSmListener listener : listeners) {
+			if (listeners.remove(listener)) {
+				notify(listener);
+			}
+		}
+	}
+
+	private void notify(SubmitSmListener listener) {
+		try {
+			if (failure == null) {
+				listener.onSuccess(message, getResponses());
+			} else {
+				listener.onFailure(message, failure);
+			}
+		} catch (RuntimeException e) {
+			LOG.warn("Listener " + listener + " failed", e);
+		}
+	}
+
+	private List<SubmitSmResp> getResponses() {
+		return Collections.unmodifiableList(Arrays.asList(responses));
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		// requests are already sent
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return latch.getCount() == 0;
+	}
+
+	@Override
+	public List<SubmitSmResp> get() throws InterruptedException, ExecutionException {
+		latch.await();
+		return result();
+	}
+
+	@Override
+	public List<SubmitSmResp> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!latch.await(timeout, unit)) {
+			throw new TimeoutException("No response received from SMSC for " + remaining.get() + "/" + responses.length + " submit_sm after " + unit.toMillis(timeout) + "ms");
+		}
+		return result();
+	}
+
+	/**
+	 * Wait until all responses are received. Unlike {@link #get(long, TimeUnit)},
+	 * the timeout applies to each submit_sm and not to the whole message: the
+	 * wait goes on as long as a submit_sm has been written (including
+	 * throttled requests sent again) or a response has been received less
+	 * than <code>timeout</code> ago.
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait for each response
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the responses of the SMSC
+	 * @throws InterruptedException
+	 *             when the thread was interrupted while waiting
+	 * @throws ExecutionException
+	 *             when a request failed
+	 * @throws TimeoutException
+	 *             when no response has been received in time
+	 */
+	public List<SubmitSmResp> getEach(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		long timeoutMs = unit.toMillis(timeout);
+		long wait = timeoutMs;
+		while (!latch.await(wait, TimeUnit.MILLISECONDS)) {
+			long idle = System.currentTimeMillis() - lastActivity;
+			if (idle >= timeoutMs) {
+				throw new TimeoutException("No response received from SMSC for " + remaining.get() + "/" + responses.length + " submit_sm after " + timeoutMs + "ms");
+			}
+			wait = timeoutMs - idle;
+		}
+		return result();
+	}
+
+	private List<SubmitSmResp> result() throws ExecutionException {
+		if (failure != null) {
+			throw new ExecutionException(failure);
+		}
+		return getResponses();
+	}
+
+	/**
+	 * Correlates one submit_sm with the future of the whole message.
+	 * 
+	 * @author Aurélien Baudet
+	 */
+	public static class Part {
+		private final SubmitSmFuture future;
+
+		private final int index;
+
+		/**
+		 * The number of times the submit_sm has been sent again
+		 */
+		private final AtomicInteger retries;
+
+		Part(SubmitSmFuture future, int index) {
+			super();
+			this.future = future;
+			this.index = index;
+			this.retries = new AtomicInteger();
+		}
+
+		Sms getMessage() {
+			return future.getMessage();
+		}
+
+		void received(PduResponse response) {
+			future.received(index, response);
+		}
+
+		void sent() {
+			future.lastActivity = System.currentTimeMillis();
+		}
+
+		void failed(Throwable cause) {
+			future.failed(cause);
+		}
+
+		/**
+		 * Count a new attempt to send the submit_sm.
+		 * 
+		 * @param maxRetries
+		 *            the maximum number of times the submit_sm can be sent
+		 *            again
+		 * @return true if the submit_sm can be sent again
+		 */
+		boolean retry(int maxRetries) {
+			return !future.isDone() && retries.getAndIncrement() < maxRetries;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import java.util.List;
+
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+
+import fr.sii.ogham.sms.message.Sms;
+
+/**
+ * Callback notified once all the submit_sm requests generated for a
+ * {@link Sms} have been answered by the SMSC (or once one of them failed).
+ * 
+ * <p>
+ * Callbacks are executed by the network threads that receive the responses so
+ * implementations must not block.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ * @see SubmitSmFuture
+ */
+public interface SubmitSmListener {
+	/**
+	 * Called when every submit_sm has been accepted by the SMSC.
+	 * 
+	 * @param message
+	 *            the sent message
+	 * @param responses
+	 *            the responses in the same order as the submitted parts
+	 */
+	void onSuccess(Sms message, List<SubmitSmResp> responses);
+
+	/**
+	 * Called when the message could not be sent (at least one part has been
+	 * rejected, has expired or the connection has been lost).
+	 * 
+	 * @param message
+	 *            the message that couldn't be sent
+	 * @param cause
+	 *            the reason of the failure
+	 */
+	void onFailure(Sms message, Throwable cause);
+}
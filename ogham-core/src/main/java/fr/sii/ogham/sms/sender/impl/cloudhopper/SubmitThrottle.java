@@ -0,0 +1,86 @@
+package fr.sii.ogham.sms.sender.impl.cloudhopper;
+
+import com.cloudhopper.smpp.SmppConstants;
+import com.cloudhopper.smpp.pdu.PduResponse;
+
+import fr.sii.ogham.core.util.RateLimiter;
+
+/**
+ * Paces the submit_sm sent on a session according to the maximum throughput
+ * allowed for the session and for the whole account (shared by all the
+ * sessions). Both limits are optional.
+ * 
+ * <p>
+ * The responses of the SMSC are used to adapt the rate: a throttling error
+ * (ESME_RTHROTTLED) lowers the rate of both limiters while accepted requests
+ * let the rate go back up to the configured maximum.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ */
+class SubmitThrottle {
+	/**
+	 * Limits the rate for all sessions (may be null)
+	 */
+	private final RateLimiter account;
+
+	/**
+	 * Limits the rate for the session (may be null)
+	 */
+	private final RateLimiter session;
+
+	SubmitThrottle(RateLimiter account, RateLimiter session) {
+		super();
+		this.account = account;
+		this.session = session;
+	}
+
+	/**
+	 * Wait until a submit_sm can be sent.
+	 * 
+	 * @throws InterruptedException
+	 *             when the thread is interrupted while waiting
+	 */
+	void acquire() throws InterruptedException {
+		if (account != null) {
+			account.acquire();
+		}
+		if (session != null) {
+			session.acquire();
+		}
+	}
+
+	/**
+	 * Adapt the rate according to the response of the SMSC.
+	 * 
+	 * @param response
+	 *            the response of the SMSC
+	 * @return true if the request has been rejected because the rate is too
+	 *         high
+	 */
+	boolean received(PduResponse response) {
+		boolean throttled = response.getCommandStatus() == SmppConstants.STATUS_THROTTLED;
+		if (account != null) {
+			update(account, throttled);
+		}
+		if (session != null) {
+			update(session, throttled);
+		}
+		return throttled;
+	}
+
+	/**
+	 * @return the current rate of the session (or -1 if not limited)
+	 */
+	double getRate() {
+		return session == null ? -1 : session.getRate();
+	}
+
+	private static void update(RateLimiter limiter, boolean throttled) {
+		if (throttled) {
+			limiter.throttled();
+		} else {
+			limiter.succeeded();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package fr.sii.ogham.sms.sender.impl.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.util.http.Response;
+import fr.sii.ogham.sms.exception.message.RecipientsNotReachedException;
+import fr.sii.ogham.sms.message.PhoneNumber;
+import fr.sii.ogham.sms.message.Recipient;
+import fr.sii.ogham.sms.message.Sms;
+
+/**
+ * Helper for the senders that call an HTTP API of an SMS provider. The
+ * recipients are split into chunks (one request per chunk). The failures are
+ * collected for each recipient so that the recipients that have been reached
+ * can be reported (see {@link RecipientsNotReachedException}).
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public final class HttpSmsHelper {
+	private static final Logger LOG = LoggerFactory.getLogger(HttpSmsHelper.class);
+
+	/**
+	 * Split the recipients into chunks that can be sent in a single request.
+	 *
+	 * @param recipients
+	 *            all the recipients
+	 * @param maxRecipients
+	 *            the maximum number of recipients per request
+	 * @return the chunks of recipients
+	 */
+	public static List<List<Recipient>> chunk(List<Recipient> recipients, int maxRecipients) {
+		List<List<Recipient>> chunks = new ArrayList<>();
+		for (int i = 0; i < recipients.size(); i += maxRecipients) {
+			chunks.add(recipients.subList(i, Math.min(recipients.size(), i + maxRecipients)));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Wait for the response of a request and let the handler read it. If the
+	 * request failed or if the response couldn't be read, every recipient of
+	 * the chunk is marked as failed.
+	 *
+	 * @param message
+	 *            the sent SMS
+	 * @param provider
+	 *            the name of the provider (used in error messages)
+	 * @param future
+	 *            the pending response
+	 * @param chunk
+	 *            the recipients sent in the request
+	 * @param failures
+	 *            the failures to complete
+	 * @param handler
+	 *            reads the response
+	 * @throws MessageException
+	 *             when the current thread is interrupted while waiting
+	 */
+	public static void waitForResponse(Sms message, String provider, Future<Response> future, List<Recipient> chunk, Map<Recipient, Throwable> failures, ResponseHandler handler)
+			throws MessageException {
+		try {
+			handler.handle(future.get(), chunk, failures);
+		} catch (ExecutionException e) {
+			LOG.error("Failed to send SMS through {}", provider, e.getCause());
+			fail(chunk, new MessageException("Failed to send SMS through " + provider, message, e.getCause()), failures);
+		} catch (IOException e) {
+			fail(chunk, new MessageException("Failed to read response when sending SMS through " + provider, message, e), failures);
+		} catch (MessageException e) {
+			fail(chunk, e, failures);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessageException("Interrupted while sending SMS through " + provider, message, e);
+		}
+	}
+
+	/**
+	 * Mark every recipient of the chunk as failed.
+	 *
+	 * @param chunk
+	 *            the recipients sent in the request
+	 * @param cause
+	 *            the failure
+	 * @param failures
+	 *            the failures to complete
+	 */
+	public static void fail(List<Recipient> chunk, Throwable cause, Map<Recipient, Throwable> failures) {
+		for (Recipient recipient : chunk) {
+			failures.put(recipient, cause);
+		}
+	}
+
+	/**
+	 * Check if the recipients of the chunk have already failed.
+	 *
+	 * @param chunk
+	 *            the recipients sent in the request
+	 * @param failures
+	 *            the failures
+	 * @return true if the chunk has failed
+	 */
+	public static boolean failed(List<Recipient> chunk, Map<Recipient, Throwable> failures) {
+		return failures.containsKey(chunk.get(0));
+	}
+
+	/**
+	 * Fail if some recipients couldn't be reached.
+	 *
+	 * @param message
+	 *            the sent SMS
+	 * @param provider
+	 *            the name of the provider (used in error messages)
+	 * @param failures
+	 *            the failure of each recipient that couldn't be reached
+	 * @throws RecipientsNotReachedException
+	 *             when at least one recipient couldn't be reached
+	 */
+	public static void checkFailures(Sms message, String provider, Map<Recipient, Throwable> failures) throws RecipientsNotReachedException {
+		if (!failures.isEmpty()) {
+			List<Recipient> succeeded = new ArrayList<>(message.getRecipients());
+			succeeded.removeAll(failures.keySet());
+			throw new RecipientsNotReachedException("SMS couldn't be sent through " + provider + " to " + failures.size() + " recipient(s) out of " + message.getRecipients().size(), message,
+					succeeded, failures);
+		}
+	}
+
+	/**
+	 * Remove the '+' and the spaces of the phone number.
+	 *
+	 * @param phoneNumber
+	 *            the phone number to convert
+	 * @return the number with only digits (alphanumeric sender names are kept
+	 *         without spaces)
+	 */
+	public static String toDigits(PhoneNumber phoneNumber) {
+		String number = phoneNumber.getNumber();
+		StringBuilder sb = new StringBuilder(number.length());
+		for (int i = 0; i < number.length(); i++) {
+			char c = number.charAt(i);
+			if (c != '+' && !Character.isWhitespace(c)) {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the response of the provider for a chunk of recipients.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	public interface ResponseHandler {
+		/**
+		 * Read the response. The recipients that couldn't be reached are added
+		 * to the failures.
+		 *
+		 * @param response
+		 *            the response of the provider
+		 * @param chunk
+		 *            the recipients sent in the request
+		 * @param failures
+		 *            the failures to complete
+		 * @throws IOException
+		 *             when the response couldn't be read
+		 * @throws MessageException
+		 *             when the whole chunk failed
+		 */
+		void handle(Response response, List<Recipient> chunk, Map<Recipient, Throwable> failures) throws IOException, MessageException;
+	}
+
+	private HttpSmsHelper() {
+		super();
+	}
+}
@@ -0,0 +1,34 @@
+package fr.sii.ogham.sms.sender.impl.smsglobal;
+
+/**
+ * Authentication parameters required by smsglobal REST API (API key and
+ * secret generated in MXT).
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SmsglobalAuthParams {
+	/**
+	 * The API key
+	 */
+	private final String apiKey;
+
+	/**
+	 * The secret used to sign requests
+	 */
+	private final String apiSecret;
+
+	public SmsglobalAuthParams(String apiKey, String apiSecret) {
+		super();
+		this.apiKey = apiKey;
+		this.apiSecret = apiSecret;
+	}
+
+	public String getApiKey() {
+		return apiKey;
+	}
+
+	public String getApiSecret() {
+		return apiSecret;
+	}
+}
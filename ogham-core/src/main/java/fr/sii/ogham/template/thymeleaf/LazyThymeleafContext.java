@@ -0,0 +1,169 @@
+package fr.sii.ogham.template.thymeleaf;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.thymeleaf.context.AbstractContext;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.VariablesMap;
+
+/**
+ * Thymeleaf context that reads the variables from the source map only when the
+ * template needs them. Thymeleaf {@link org.thymeleaf.context.Context} copies
+ * all the variables so every value has to be computed even if the template
+ * only uses a few of them. This is costly when the variables come from a bean
+ * (see {@link fr.sii.ogham.core.util.bean.BeanPropertiesMap}) as every getter
+ * is called.
+ * <p>
+ * Each variable is read at most once from the source. Operations that need
+ * all the variables (iteration, size...) read all the remaining variables.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class LazyThymeleafContext implements IContext {
+	/**
+	 * Standard context only used to generate execution information
+	 */
+	private final org.thymeleaf.context.Context executionInfoContext;
+
+	/**
+	 * The variables read lazily from the source
+	 */
+	private final LazyVariablesMap variables;
+
+	/**
+	 * Initialize the context with the source of the variables and the locale.
+	 * 
+	 * @param source
+	 *            the source of the variables
+	 * @param locale
+	 *            the locale (may be null to use the default locale)
+	 */
+	public LazyThymeleafContext(Map<String, Object> source, Locale locale) {
+		super();
+		this.executionInfoContext = locale == null ? new org.thymeleaf.context.Context() : new org.thymeleaf.context.Context(locale);
+		this.variables = new LazyVariablesMap(source);
+	}
+
+	@Override
+	public VariablesMap<String, Object> getVariables() {
+		return variables;
+	}
+
+	@Override
+	public Locale getLocale() {
+		return executionInfoContext.getLocale();
+	}
+
+	@Override
+	public void addContextExecutionInfo(String templateName) {
+		executionInfoContext.addContextExecutionInfo(templateName);
+		variables.put(AbstractContext.EXEC_INFO_VARIABLE_NAME, executionInfoContext.getVariables().get(AbstractContext.EXEC_INFO_VARIABLE_NAME));
+	}
+
+	/**
+	 * Variables that are copied from the source on first access.
+	 * 
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class LazyVariablesMap extends VariablesMap<String, Object> {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The source of the variables (null once all variables are copied)
+		 */
+		private transient Map<String, Object> source;
+
+		public LazyVariablesMap(Map<String, Object> source) {
+			super();
+			this.source = source;
+		}
+
+		@Override
+		public Object get(Object key) {
+			load(key);
+			return super.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return super.containsKey(key) || (source != null && source.containsKey(key));
+		}
+
+		@Override
+		public boolean containsValue(Object value) {
+			loadAll();
+			return super.containsValue(value);
+		}
+
+		@Override
+		public int size() {
+			loadAll();
+			return super.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			loadAll();
+			return super.isEmpty();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			loadAll();
+			return super.keySet();
+		}
+
+		@Override
+		public Collection<Object> values() {
+			loadAll();
+			return super.values();
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			loadAll();
+			return super.entrySet();
+		}
+
+		@Override
+		public Object remove(Object key) {
+			load(key);
+			return super.remove(key);
+		}
+
+		@Override
+		public void clear() {
+			source = null;
+			super.clear();
+		}
+
+		@Override
+		public VariablesMap<String, Object> clone() {
+			loadAll();
+			return super.clone();
+		}
+
+		private void load(Object key) {
+			if (source != null && !super.containsKey(key) && source.containsKey(key)) {
+				super.put((String) key, source.get(key));
+			}
+		}
+
+		private void loadAll() {
+			if (source != null) {
+				for (Entry<String, Object> entry : source.entrySet()) {
+					if (!super.containsKey(entry.getKey())) {
+						super.put(entry.getKey(), entry.getValue());
+					}
+				}
+				source = null;
+			}
+		}
+	}
+}
@@ -1,23 +1,39 @@
 package fr.sii.ogham.template.thymeleaf;
 
+import java.util.Locale;
+import java.util.Map;
+
+import org.thymeleaf.context.IContext;
+
 import fr.sii.ogham.core.exception.template.ContextException;
 import fr.sii.ogham.core.template.context.Context;
 import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.util.bean.BeanPropertiesMap;
 
 /**
  * Simple converter that is able to handle {@link Context} and
  * {@link LocaleContext}.
+ * <p>
+ * If the variables are provided by a bean (see {@link BeanPropertiesMap}), a
+ * {@link LazyThymeleafContext} is used so only the properties used by the
+ * template are read.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
  */
 public class SimpleThymeleafContextConverter implements ThymeleafContextConverter {
 	@Override
-	public org.thymeleaf.context.Context convert(Context context) throws ContextException {
+	public IContext convert(Context context) throws ContextException {
+		Map<String, Object> variables = context.getVariables();
+		Locale locale = context instanceof LocaleContext ? ((LocaleContext) context).getLocale() : null;
+		if (variables instanceof BeanPropertiesMap) {
+			return new LazyThymeleafContext(variables, locale);
+		}
 		org.thymeleaf.context.Context thymeleafContext = new org.thymeleaf.context.Context();
-		thymeleafContext.setVariables(context.getVariables());
-		if (context instanceof LocaleContext) {
-			thymeleafContext.setLocale(((LocaleContext) context).getLocale());
+		thymeleafContext.setVariables(variables);
+		if (locale != null) {
+			thymeleafContext.setLocale(locale);
 		}
 		return thymeleafContext;
 	}
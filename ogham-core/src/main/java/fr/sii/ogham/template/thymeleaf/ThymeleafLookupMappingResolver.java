@@ -105,6 +105,10 @@ public class ThymeleafLookupMappingResolver implements ITemplateResolver {
 		}
 	}
 
+	public Map<String, ITemplateResolver> getMapping() {
+		return mapping;
+	}
+
 	public List<ITemplateResolver> getResolvers() {
 		return new ArrayList<ITemplateResolver>(mapping.values());
 	}
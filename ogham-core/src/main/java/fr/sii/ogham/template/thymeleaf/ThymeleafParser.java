@@ -1,19 +1,34 @@
 package fr.sii.ogham.template.thymeleaf;
 
+import java.net.URLConnection;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.thymeleaf.Template;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.TemplateProcessingParameters;
+import org.thymeleaf.context.IContext;
 import org.thymeleaf.exceptions.TemplateEngineException;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+import org.thymeleaf.templateresolver.TemplateResolution;
 
 import fr.sii.ogham.core.exception.template.ContextException;
 import fr.sii.ogham.core.exception.template.ParseException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.RenderableContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.template.context.Context;
 import fr.sii.ogham.core.template.parser.TemplateParser;
 
 /**
  * Implementation for Thymeleaf template engine.
+ * <p>
+ * By default, the template is evaluated immediately and the result is
+ * provided as {@link StringContent}. If streaming is enabled, the template is
+ * only resolved and parsed (to fail early if the template is invalid) and a
+ * {@link RenderableContent} is provided. The template is then evaluated
+ * directly into the message body when the message is transmitted.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
@@ -21,6 +36,11 @@ import fr.sii.ogham.core.template.parser.TemplateParser;
 public class ThymeleafParser implements TemplateParser {
 	private static final Logger LOG = LoggerFactory.getLogger(ThymeleafParser.class);
 
+	/**
+	 * The Mime Type used when it can't be guessed from the template name
+	 */
+	private static final String DEFAULT_MIMETYPE = "text/plain";
+
 	/**
 	 * Thymeleaf engine
 	 */
@@ -30,11 +50,34 @@ public class ThymeleafParser implements TemplateParser {
 	 * Converts general context into Thymeleaf specific context
 	 */
 	private ThymeleafContextConverter contextConverter;
-	
+
+	/**
+	 * True to provide {@link RenderableContent} instead of evaluating the
+	 * template immediately
+	 */
+	private boolean streaming;
+
 	public ThymeleafParser(TemplateEngine engine, ThymeleafContextConverter contextConverter) {
+		this(engine, contextConverter, false);
+	}
+
+	/**
+	 * Initialize the parser.
+	 * 
+	 * @param engine
+	 *            the Thymeleaf engine
+	 * @param contextConverter
+	 *            converts general context into Thymeleaf specific context
+	 * @param streaming
+	 *            true to evaluate the template when the message is
+	 *            transmitted (see {@link RenderableContent}), false to
+	 *            evaluate it immediately
+	 */
+	public ThymeleafParser(TemplateEngine engine, ThymeleafContextConverter contextConverter, boolean streaming) {
 		super();
 		this.engine = engine;
 		this.contextConverter = contextConverter;
+		this.streaming = streaming;
 	}
 
 	public ThymeleafParser(TemplateEngine engine) {
@@ -44,11 +87,15 @@ public class ThymeleafParser implements TemplateParser {
 	@Override
 	public Content parse(String templateName, Context ctx) throws ParseException {
 		try {
+			if (streaming) {
+				return prepare(templateName, contextConverter.convert(ctx));
+			}
 			LOG.debug("Parsing Thymeleaf template {} with context {}...", templateName, ctx);
-			String result = engine.process(templateName, contextConverter.convert(ctx));
+			IContext context = contextConverter.convert(ctx);
+			String result = engine.process(templateName, context);
 			LOG.debug("Template {} successfully parsed with context {}. Result:", templateName);
 			LOG.debug(result);
-			return new StringContent(result);
+			return new StringContent(result, getMimeType(templateName, context));
 		} catch (TemplateEngineException e) {
 			throw new ParseException("Failed to parse template with thymeleaf", templateName, ctx, e);
 		} catch (ContextException e) {
@@ -56,6 +103,41 @@ public class ThymeleafParser implements TemplateParser {
 		}
 	}
 
+	private RenderableContent prepare(String templateName, IContext context) {
+		LOG.debug("Preparing Thymeleaf template {} for streaming...", templateName);
+		if (!engine.isInitialized()) {
+			engine.initialize();
+		}
+		// resolve and parse the template now (cached by Thymeleaf) to fail
+		// early and to know the type of the result
+		Template template = engine.getTemplateRepository().getTemplate(new TemplateProcessingParameters(engine.getConfiguration(), templateName, context));
+		String mimeType = guessMimeType(template.getTemplateResolution().getResourceName());
+		return new RenderableContent(new ThymeleafRenderer(engine, templateName, context), mimeType == null ? DEFAULT_MIMETYPE : mimeType);
+	}
+
+	/**
+	 * Get the Mime Type of the result from the name of the resolved template
+	 * (no template loading is done).
+	 */
+	private String getMimeType(String templateName, IContext context) {
+		TemplateProcessingParameters params = new TemplateProcessingParameters(engine.getConfiguration(), templateName, context);
+		for (ITemplateResolver resolver : engine.getTemplateResolvers()) {
+			TemplateResolution resolution = resolver.resolveTemplate(params);
+			if (resolution != null) {
+				return guessMimeType(resolution.getResourceName());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Only text and HTML are guessed, other types are detected on the result
+	 */
+	private static String guessMimeType(String resourceName) {
+		String mimeType = resourceName == null ? null : URLConnection.guessContentTypeFromName(resourceName);
+		return "text/html".equals(mimeType) || DEFAULT_MIMETYPE.equals(mimeType) ? mimeType : null;
+	}
+
 	@Override
 	public String toString() {
 		return "ThymeleafParser";
@@ -0,0 +1,55 @@
+package fr.sii.ogham.template.thymeleaf;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.exceptions.TemplateEngineException;
+
+import fr.sii.ogham.core.message.content.RenderableContent.Renderer;
+
+/**
+ * Evaluates a Thymeleaf template directly into a writer.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ThymeleafRenderer implements Renderer {
+	/**
+	 * Thymeleaf engine
+	 */
+	private final TemplateEngine engine;
+
+	/**
+	 * The name of the template to evaluate
+	 */
+	private final String templateName;
+
+	/**
+	 * The Thymeleaf context used for evaluation
+	 */
+	private final IContext context;
+
+	public ThymeleafRenderer(TemplateEngine engine, String templateName, IContext context) {
+		super();
+		this.engine = engine;
+		this.templateName = templateName;
+		this.context = context;
+	}
+
+	@Override
+	public void render(Writer writer) throws IOException {
+		try {
+			engine.process(templateName, context, writer);
+			writer.flush();
+		} catch (TemplateEngineException e) {
+			throw new IOException("Failed to render template " + templateName + " with thymeleaf", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ThymeleafRenderer [templateName=" + templateName + "]";
+	}
+}
@@ -1,8 +1,8 @@
 package fr.sii.ogham.template.thymeleaf;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -17,6 +17,11 @@ import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
  * Detector that reads the content of the template. If the template contains the
  * Thymeleaf namespace (http://www.thymeleaf.org) then the detector returns
  * true. Otherwise it returns false.
+ * <p>
+ * The namespace is declared at the beginning of the template (root element),
+ * so only the first characters of the template are read (see
+ * {@link #DEFAULT_MAX_SCAN_SIZE}).
+ * </p>
  * 
  * @author Aurélien Baudet
  *
@@ -29,16 +34,42 @@ public class ThymeleafTemplateDetector implements TemplateEngineDetector {
 	 */
 	private static final Pattern NAMESPACE_PATTERN = Pattern.compile("xmlns[^=]+=\\s*\"http://www.thymeleaf.org\"");
 
+	/**
+	 * The default maximum number of characters read from the template
+	 */
+	public static final int DEFAULT_MAX_SCAN_SIZE = 8192;
+
+	/**
+	 * The maximum number of characters read from the template
+	 */
+	private final int maxScanSize;
+
+	public ThymeleafTemplateDetector() {
+		this(DEFAULT_MAX_SCAN_SIZE);
+	}
+
+	/**
+	 * Initialize the detector with the maximum number of characters to read.
+	 * 
+	 * @param maxScanSize
+	 *            the maximum number of characters read from the template
+	 */
+	public ThymeleafTemplateDetector(int maxScanSize) {
+		super();
+		this.maxScanSize = maxScanSize;
+	}
+
 	@Override
 	public boolean canParse(String templateName, Context ctx, Resource template) throws EngineDetectionException {
 		LOG.debug("Checking if Thymeleaf can handle the template {}", templateName);
-		try (BufferedReader br = new BufferedReader(new InputStreamReader(template.getInputStream()))) {
-			String line;
-			boolean containsThymeleafNamespace;
-			do {
-				line = br.readLine();
-				containsThymeleafNamespace = NAMESPACE_PATTERN.matcher(line).find();
-			} while (line != null && !containsThymeleafNamespace);
+		try (Reader reader = new InputStreamReader(template.getInputStream())) {
+			char[] buffer = new char[maxScanSize];
+			int length = 0;
+			int read;
+			while (length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) != -1) {
+				length += read;
+			}
+			boolean containsThymeleafNamespace = NAMESPACE_PATTERN.matcher(new String(buffer, 0, length)).find();
 			if(containsThymeleafNamespace) {
 				LOG.debug("The template {} contains the namespace http://www.thymeleaf.org. Thymeleaf can be used", templateName);
 			} else {
@@ -0,0 +1,31 @@
+package fr.sii.ogham.template.thymeleaf.adapter;
+
+import org.thymeleaf.templateresolver.ITemplateResolver;
+
+import fr.sii.ogham.core.resource.resolver.MemoryResourceResolver;
+import fr.sii.ogham.core.resource.resolver.RelativeResolver;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+
+/**
+ * Adapter that converts general {@link MemoryResourceResolver} into Thymeleaf
+ * specific {@link MemoryTemplateResolver}.
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class MemoryResolverAdapter implements ThymeleafResolverAdapter {
+
+	@Override
+	public boolean supports(ResourceResolver resolver) {
+		return resolver instanceof MemoryResourceResolver || (resolver instanceof RelativeResolver && ((RelativeResolver) resolver).getDelegate() instanceof MemoryResourceResolver);
+	}
+
+	@Override
+	public ITemplateResolver adapt(ResourceResolver resolver) {
+		if (resolver instanceof RelativeResolver) {
+			return new MemoryTemplateResolver((MemoryResourceResolver) ((RelativeResolver) resolver).getDelegate());
+		}
+		return new MemoryTemplateResolver((MemoryResourceResolver) resolver);
+	}
+
+}
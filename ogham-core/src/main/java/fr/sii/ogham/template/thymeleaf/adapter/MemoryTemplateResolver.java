@@ -0,0 +1,48 @@
+package fr.sii.ogham.template.thymeleaf.adapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.thymeleaf.TemplateProcessingParameters;
+import org.thymeleaf.resourceresolver.IResourceResolver;
+import org.thymeleaf.templateresolver.TemplateResolver;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.resource.resolver.MemoryResourceResolver;
+
+/**
+ * Template resolver that provides the templates registered in a
+ * {@link MemoryResourceResolver}. The template name is the generated path so
+ * prefix and suffix are never applied.
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class MemoryTemplateResolver extends TemplateResolver {
+	public MemoryTemplateResolver(final MemoryResourceResolver resolver) {
+		super();
+		// decode with the charset used to provide the content
+		setCharacterEncoding(resolver.getCharset().name());
+		super.setResourceResolver(new IResourceResolver() {
+			@Override
+			public String getName() {
+				return "MEMORY";
+			}
+
+			@Override
+			public InputStream getResourceAsStream(TemplateProcessingParameters templateProcessingParameters, String resourceName) {
+				try {
+					return resolver.getResource(resourceName).getInputStream();
+				} catch (ResourceResolutionException | IOException e) {
+					// template not found
+					return null;
+				}
+			}
+		});
+	}
+
+	@Override
+	protected String computeResourceName(TemplateProcessingParameters templateProcessingParameters) {
+		return templateProcessingParameters.getTemplateName();
+	}
+}
@@ -1,8 +1,16 @@
 package fr.sii.ogham.template.thymeleaf.builder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.cache.StandardCacheManager;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 
 import fr.sii.ogham.core.builder.TemplateParserBuilder;
@@ -12,12 +20,17 @@ import fr.sii.ogham.core.resource.resolver.ResourceResolver;
 import fr.sii.ogham.core.template.parser.TemplateParser;
 import fr.sii.ogham.template.exception.NoResolverAdapterException;
 import fr.sii.ogham.template.thymeleaf.ThymeleafLookupMappingResolver;
+import fr.sii.ogham.template.thymeleaf.SimpleThymeleafContextConverter;
 import fr.sii.ogham.template.thymeleaf.ThymeleafParser;
 import fr.sii.ogham.template.thymeleaf.adapter.ClassPathResolverAdapter;
 import fr.sii.ogham.template.thymeleaf.adapter.FileResolverAdapter;
 import fr.sii.ogham.template.thymeleaf.adapter.FirstSupportingResolverAdapter;
+import fr.sii.ogham.template.thymeleaf.adapter.MemoryResolverAdapter;
 import fr.sii.ogham.template.thymeleaf.adapter.StringResolverAdapter;
 import fr.sii.ogham.template.thymeleaf.adapter.ThymeleafResolverAdapter;
+import fr.sii.ogham.template.thymeleaf.cache.ObservableCacheManager;
+import fr.sii.ogham.template.thymeleaf.cache.ObservableTemplateCache;
+import fr.sii.ogham.template.thymeleaf.cache.ThymeleafWarmUp;
 
 /**
  * Specialized builder for Thymeleaf template engine.
@@ -56,13 +69,54 @@ public class ThymeleafBuilder implements TemplateParserBuilder {
 	 */
 	private String suffix;
 
+	/**
+	 * The maximum number of parsed templates kept in cache
+	 */
+	private int templateCacheMaxSize;
+
+	/**
+	 * The cache manager installed on the engine (null until built)
+	 */
+	private ObservableCacheManager cacheManager;
+
+	/**
+	 * Enable/disable the cache for the templates of a lookup
+	 */
+	private Map<String, Boolean> cacheable;
+
+	/**
+	 * The time to live (in milliseconds) of the templates of a lookup in the
+	 * cache
+	 */
+	private Map<String, Long> cacheTimeToLive;
+
+	/**
+	 * True to evaluate templates when messages are transmitted
+	 */
+	private boolean streaming;
+
+	/**
+	 * The names of the templates to load at build time
+	 */
+	private List<String> warmUpTemplates;
+
+	/**
+	 * The directories that contain templates to load at build time
+	 */
+	private List<String> warmUpDirectories;
+
 	public ThymeleafBuilder() {
 		super();
 		this.engine = new TemplateEngine();
 		this.lookupResolver = new ThymeleafLookupMappingResolver();
-		this.resolverAdapter = new FirstSupportingResolverAdapter(new ClassPathResolverAdapter(), new FileResolverAdapter(), new StringResolverAdapter());
+		this.resolverAdapter = new FirstSupportingResolverAdapter(new ClassPathResolverAdapter(), new FileResolverAdapter(), new StringResolverAdapter(), new MemoryResolverAdapter());
 		prefix = "";
 		suffix = "";
+		templateCacheMaxSize = StandardCacheManager.DEFAULT_TEMPLATE_CACHE_MAX_SIZE;
+		cacheable = new HashMap<>();
+		cacheTimeToLive = new HashMap<>();
+		warmUpTemplates = new ArrayList<>();
+		warmUpDirectories = new ArrayList<>();
 	}
 
 	@Override
@@ -75,8 +129,47 @@ public class ThymeleafBuilder implements TemplateParserBuilder {
 				templateResolver.setSuffix(suffix);
 			}
 		}
+		configureCache();
 		engine.addTemplateResolver(lookupResolver);
-		return new ThymeleafParser(engine);
+		if (!warmUpTemplates.isEmpty() || !warmUpDirectories.isEmpty()) {
+			ThymeleafWarmUp warmUp = new ThymeleafWarmUp(lookupResolver, prefix, suffix);
+			warmUp.addTemplates(warmUpTemplates.toArray(new String[warmUpTemplates.size()]));
+			for (String directory : warmUpDirectories) {
+				warmUp.addDirectory(directory);
+			}
+			warmUp.warmUp(engine);
+		}
+		return new ThymeleafParser(engine, new SimpleThymeleafContextConverter(), streaming);
+	}
+
+	private void configureCache() {
+		for (Entry<String, Boolean> entry : cacheable.entrySet()) {
+			org.thymeleaf.templateresolver.TemplateResolver resolver = getTemplateResolver(entry.getKey());
+			if (resolver != null) {
+				resolver.setCacheable(entry.getValue());
+			}
+		}
+		for (Entry<String, Long> entry : cacheTimeToLive.entrySet()) {
+			org.thymeleaf.templateresolver.TemplateResolver resolver = getTemplateResolver(entry.getKey());
+			if (resolver != null) {
+				resolver.setCacheTTLMs(entry.getValue());
+			}
+		}
+		// only replace the default cache manager (not a custom one)
+		if (!engine.isInitialized() && engine.getCacheManager() != null && engine.getCacheManager().getClass() == StandardCacheManager.class) {
+			LOG.debug("Using template cache with maximum size {}", templateCacheMaxSize);
+			cacheManager = new ObservableCacheManager(templateCacheMaxSize);
+			engine.setCacheManager(cacheManager);
+		}
+	}
+
+	private org.thymeleaf.templateresolver.TemplateResolver getTemplateResolver(String lookup) {
+		ITemplateResolver resolver = lookupResolver.getMapping().get(lookup);
+		if (resolver instanceof org.thymeleaf.templateresolver.TemplateResolver) {
+			return (org.thymeleaf.templateresolver.TemplateResolver) resolver;
+		}
+		LOG.warn("Can't configure cache for lookup '{}': no configurable resolver registered", lookup);
+		return null;
 	}
 
 	/**
@@ -147,6 +240,104 @@ public class ThymeleafBuilder implements TemplateParserBuilder {
 		}
 	}
 
+	/**
+	 * Set the maximum number of parsed templates kept in cache. When the
+	 * cache is full, the least recently used template is evicted. A negative
+	 * value means no limit. This limit is shared by all the lookups. By
+	 * default, the Thymeleaf default size is used (
+	 * {@link StandardCacheManager#DEFAULT_TEMPLATE_CACHE_MAX_SIZE}).
+	 * 
+	 * @param maxSize
+	 *            the maximum number of templates in cache
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafBuilder withTemplateCacheMaxSize(int maxSize) {
+		this.templateCacheMaxSize = maxSize;
+		return this;
+	}
+
+	/**
+	 * Configure the cache for the templates resolved by the resolver
+	 * registered for the lookup.
+	 * 
+	 * @param lookup
+	 *            the lookup prefix (without the ':' character)
+	 * @param cacheable
+	 *            true to keep the parsed templates in cache, false to parse
+	 *            them on each use
+	 * @param timeToLive
+	 *            the time (in milliseconds) a template is kept in cache (null
+	 *            for no expiration)
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafBuilder withTemplateCache(String lookup, boolean cacheable, Long timeToLive) {
+		this.cacheable.put(lookup, cacheable);
+		this.cacheTimeToLive.put(lookup, timeToLive);
+		return this;
+	}
+
+	/**
+	 * Resolve and parse the templates when the parser is built instead of on
+	 * first use.
+	 * 
+	 * @param templateNames
+	 *            the names of the templates exactly as used for sending (with
+	 *            lookup if any)
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafBuilder withWarmUp(String... templateNames) {
+		warmUpTemplates.addAll(Arrays.asList(templateNames));
+		return this;
+	}
+
+	/**
+	 * Resolve and parse all the templates under the directory when the parser
+	 * is built instead of on first use. Only classpath and file system
+	 * lookups can be listed.
+	 * 
+	 * @param directory
+	 *            the directory relative to the prefix (with lookup if any)
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafBuilder withWarmUpDirectory(String directory) {
+		warmUpDirectories.add(directory);
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Enable/disable streaming. If enabled, the templates are not evaluated
+	 * when the message is prepared but directly into the message body when
+	 * the message is transmitted. This avoids keeping the whole result in
+	 * memory.
+	 * </p>
+	 * <p>
+	 * The evaluated templates are not available as string so they are sent
+	 * as-is: CSS and images are not inlined and the subject can't be
+	 * extracted from the content. Only enable it for templates that don't
+	 * need it. Disabled by default.
+	 * </p>
+	 * 
+	 * @param streaming
+	 *            true to enable streaming
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafBuilder withStreaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+
+	/**
+	 * Give access to the template cache statistics (hits, misses,
+	 * evictions...).
+	 * 
+	 * @return the template cache or null if the parser is not built yet or if
+	 *         a custom cache manager is used
+	 */
+	public ObservableTemplateCache getTemplateCache() {
+		return cacheManager == null ? null : cacheManager.getTemplateCache();
+	}
+
 	/**
 	 * Give access to the Thymeleaf template engine in order to be able to
 	 * customize it.
@@ -0,0 +1,86 @@
+package fr.sii.ogham.template.thymeleaf.cache;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.thymeleaf.Template;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.dom.Node;
+
+/**
+ * Cache manager for Thymeleaf that uses an {@link ObservableTemplateCache} for
+ * templates in order to have a bounded template cache that provides
+ * statistics. The other caches are the standard Thymeleaf ones.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ObservableCacheManager implements ICacheManager {
+	/**
+	 * The standard manager used for all caches except templates
+	 */
+	private final StandardCacheManager delegate;
+
+	/**
+	 * The template cache
+	 */
+	private final ObservableTemplateCache templateCache;
+
+	/**
+	 * Initialize the manager with the maximum number of cached templates.
+	 * 
+	 * @param templateCacheMaxSize
+	 *            the maximum number of templates (negative for no limit)
+	 */
+	public ObservableCacheManager(int templateCacheMaxSize) {
+		super();
+		delegate = new StandardCacheManager();
+		templateCache = new ObservableTemplateCache(templateCacheMaxSize, delegate.getTemplateCacheValidityChecker());
+	}
+
+	/**
+	 * Initialize the manager with the default Thymeleaf maximum number of
+	 * cached templates.
+	 */
+	public ObservableCacheManager() {
+		this(StandardCacheManager.DEFAULT_TEMPLATE_CACHE_MAX_SIZE);
+	}
+
+	@Override
+	public ObservableTemplateCache getTemplateCache() {
+		return templateCache;
+	}
+
+	@Override
+	public ICache<String, List<Node>> getFragmentCache() {
+		return delegate.getFragmentCache();
+	}
+
+	@Override
+	public ICache<String, Properties> getMessageCache() {
+		return delegate.getMessageCache();
+	}
+
+	@Override
+	public ICache<String, Object> getExpressionCache() {
+		return delegate.getExpressionCache();
+	}
+
+	@Override
+	public <K, V> ICache<K, V> getSpecificCache(String name) {
+		return delegate.getSpecificCache(name);
+	}
+
+	@Override
+	public List<String> getAllSpecificCacheNames() {
+		return delegate.getAllSpecificCacheNames();
+	}
+
+	@Override
+	public void clearAllCaches() {
+		templateCache.clear();
+		delegate.clearAllCaches();
+	}
+}
@@ -0,0 +1,194 @@
+package fr.sii.ogham.template.thymeleaf.cache;
+
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.thymeleaf.Template;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+
+/**
+ * Template cache for Thymeleaf that is bounded in number of templates and
+ * that counts the hits, the misses, the evictions and the expirations. When
+ * the cache is full, the least recently used template is evicted.
+ * <p>
+ * Templates are read without locking. Only the eviction, when a template is
+ * added to a full cache, is synchronized.
+ * </p>
+ * <p>
+ * The validity of a cached template (time to live, cacheable...) is checked
+ * using the provided validity checker. This is configured on the template
+ * resolvers (see
+ * {@link org.thymeleaf.templateresolver.TemplateResolver#setCacheTTLMs(Long)}).
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ObservableTemplateCache implements ICache<String, Template> {
+	/**
+	 * The maximum number of templates (negative for no limit)
+	 */
+	private final int maxSize;
+
+	/**
+	 * The checker used when no checker is provided to get the template
+	 */
+	private final ICacheEntryValidityChecker<? super String, ? super Template> validityChecker;
+
+	/**
+	 * The cached templates
+	 */
+	private final ConcurrentMap<String, CacheEntry> cache;
+
+	/**
+	 * Logical clock used to know which template was used least recently
+	 */
+	private final AtomicLong clock = new AtomicLong();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong expirations = new AtomicLong();
+
+	/**
+	 * Initialize the cache.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of templates (negative for no limit)
+	 * @param validityChecker
+	 *            the checker used to know if a template is still valid (may
+	 *            be null)
+	 */
+	public ObservableTemplateCache(int maxSize, ICacheEntryValidityChecker<? super String, ? super Template> validityChecker) {
+		super();
+		this.maxSize = maxSize;
+		this.validityChecker = validityChecker;
+		this.cache = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public void put(String key, Template value) {
+		cache.put(key, new CacheEntry(value, clock.incrementAndGet()));
+		if (maxSize >= 0 && cache.size() > maxSize) {
+			evict();
+		}
+	}
+
+	private synchronized void evict() {
+		while (cache.size() > maxSize) {
+			Entry<String, CacheEntry> eldest = null;
+			for (Entry<String, CacheEntry> entry : cache.entrySet()) {
+				if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+					eldest = entry;
+				}
+			}
+			if (eldest == null) {
+				return;
+			}
+			if (cache.remove(eldest.getKey(), eldest.getValue())) {
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public Template get(String key) {
+		return get(key, validityChecker);
+	}
+
+	@Override
+	public Template get(String key, ICacheEntryValidityChecker<? super String, ? super Template> checker) {
+		CacheEntry entry = cache.get(key);
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if (checker != null && !checker.checkIsValueStillValid(key, entry.template, entry.creationTime)) {
+			if (cache.remove(key, entry)) {
+				expirations.incrementAndGet();
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+		entry.lastAccess = clock.incrementAndGet();
+		hits.incrementAndGet();
+		return entry.template;
+	}
+
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public void clearKey(String key) {
+		cache.remove(key);
+	}
+
+	/**
+	 * @return the number of cached templates
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of times a valid template was found in the cache
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of times a template was not found in the cache (or
+	 *         was no more valid)
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of templates removed because the cache was full
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the number of templates removed because they were no more valid
+	 */
+	public long getExpirationCount() {
+		return expirations.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ObservableTemplateCache [size=").append(size()).append(", maxSize=").append(maxSize).append(", hits=").append(hits).append(", misses=").append(misses).append(", evictions=")
+				.append(evictions).append(", expirations=").append(expirations).append("]");
+		return builder.toString();
+	}
+
+	private static class CacheEntry {
+		private final Template template;
+		private final long creationTime;
+		private volatile long lastAccess;
+
+		public CacheEntry(Template template, long lastAccess) {
+			super();
+			this.template = template;
+			this.creationTime = System.currentTimeMillis();
+			this.lastAccess = lastAccess;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package fr.sii.ogham.template.thymeleaf.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.TemplateProcessingParameters;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.FileTemplateResolver;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+
+import fr.sii.ogham.template.thymeleaf.ThymeleafLookupMappingResolver;
+
+/**
+ * Resolves and parses templates before the first message is sent. The parsed
+ * templates are stored in the template cache of the engine so the first
+ * messages don't have to pay the cost of resolution and parsing.
+ * <p>
+ * The templates can be provided by name (exactly as used for sending) or
+ * by directory. For directories, all the templates under the directory are
+ * loaded. Directory listing is only supported for classpath (directory or
+ * jar) and file system resolvers.
+ * </p>
+ * <p>
+ * A template that can't be loaded doesn't stop the warm-up: the error is
+ * logged and the template will be loaded on first use.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ThymeleafWarmUp {
+	private static final Logger LOG = LoggerFactory.getLogger(ThymeleafWarmUp.class);
+
+	/**
+	 * The resolver used to find the resolver associated to each lookup
+	 */
+	private final ThymeleafLookupMappingResolver lookupResolver;
+
+	/**
+	 * The prefix used to find templates
+	 */
+	private final String prefix;
+
+	/**
+	 * The suffix used to find templates
+	 */
+	private final String suffix;
+
+	/**
+	 * The names of the templates to load
+	 */
+	private final Set<String> templateNames;
+
+	/**
+	 * The directories that contain templates to load
+	 */
+	private final Set<String> directories;
+
+	public ThymeleafWarmUp(ThymeleafLookupMappingResolver lookupResolver, String prefix, String suffix) {
+		super();
+		this.lookupResolver = lookupResolver;
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.templateNames = new LinkedHashSet<>();
+		this.directories = new LinkedHashSet<>();
+	}
+
+	/**
+	 * Register templates to load.
+	 * 
+	 * @param names
+	 *            the names of the templates (with lookup if any)
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafWarmUp addTemplates(String... names) {
+		for (String name : names) {
+			templateNames.add(name);
+		}
+		return this;
+	}
+
+	/**
+	 * Register a directory to load all the templates it contains (including
+	 * sub-directories).
+	 * 
+	 * @param directory
+	 *            the directory relative to the prefix (with lookup if any)
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafWarmUp addDirectory(String directory) {
+		directories.add(directory);
+		return this;
+	}
+
+	/**
+	 * @return true if there is nothing to load
+	 */
+	public boolean isEmpty() {
+		return templateNames.isEmpty() && directories.isEmpty();
+	}
+
+	/**
+	 * Resolve and parse every registered template. The engine is initialized
+	 * if needed.
+	 * 
+	 * @param engine
+	 *            the engine that loads and caches the templates
+	 * @return the number of templates loaded
+	 */
+	public int warmUp(TemplateEngine engine) {
+		Set<String> names = new LinkedHashSet<>(templateNames);
+		for (String directory : directories) {
+			names.addAll(list(directory));
+		}
+		engine.initialize();
+		int loaded = 0;
+		for (String name : names) {
+			try {
+				engine.getTemplateRepository().getTemplate(new TemplateProcessingParameters(engine.getConfiguration(), name, new Context()));
+				loaded++;
+			} catch (RuntimeException e) {
+				LOG.warn("Failed to warm up template " + name + ". It will be loaded on first use", e);
+			}
+		}
+		LOG.info("{} templates loaded during warm-up", loaded);
+		return loaded;
+	}
+
+	/**
+	 * List the template names under the directory.
+	 * 
+	 * @param directory
+	 *            the directory relative to the prefix (with lookup if any)
+	 * @return the template names
+	 */
+	public List<String> list(String directory) {
+		ITemplateResolver resolver = lookupResolver.getResolver(directory);
+		String realDirectory = lookupResolver.getTemplateName(directory);
+		String lookupPrefix = directory.substring(0, directory.length() - realDirectory.length());
+		String base = normalize(prefix + realDirectory);
+		List<String> relativePaths = new ArrayList<>();
+		try {
+			if (resolver instanceof ClassLoaderTemplateResolver) {
+				listClasspath(base.startsWith("/") ? base.substring(1) : base, relativePaths);
+			} else if (resolver instanceof FileTemplateResolver) {
+				listFiles(new File(base), "", relativePaths);
+			} else {
+				LOG.warn("Can't list templates in {}: directory listing is not supported by {}", directory, resolver);
+			}
+		} catch (IOException | URISyntaxException e) {
+			LOG.warn("Failed to list templates in " + directory, e);
+		}
+		List<String> names = new ArrayList<>(relativePaths.size());
+		String nameBase = normalize(directory.substring(lookupPrefix.length()));
+		for (String relativePath : relativePaths) {
+			if (relativePath.endsWith(suffix)) {
+				String path = relativePath.substring(0, relativePath.length() - suffix.length());
+				names.add(lookupPrefix + (nameBase.isEmpty() ? path : nameBase + path));
+			}
+		}
+		return names;
+	}
+
+	private static void listClasspath(String base, List<String> relativePaths) throws IOException, URISyntaxException {
+		Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(base.isEmpty() ? "" : base.substring(0, base.length() - 1));
+		while (urls.hasMoreElements()) {
+			URL url = urls.nextElement();
+			if ("file".equals(url.getProtocol())) {
+				listFiles(new File(url.toURI()), "", relativePaths);
+			} else if ("jar".equals(url.getProtocol())) {
+				URLConnection connection = url.openConnection();
+				if (connection instanceof JarURLConnection) {
+					listJar(((JarURLConnection) connection).getJarFile(), base, relativePaths);
+				}
+			}
+		}
+	}
+
+	private static void listJar(JarFile jar, String base, List<String> relativePaths) {
+		Enumeration<JarEntry> entries = jar.entries();
+		while (entries.hasMoreElements()) {
+			JarEntry entry = entries.nextElement();
+			if (!entry.isDirectory() && entry.getName().startsWith(base)) {
+				relativePaths.add(entry.getName().substring(base.length()));
+			}
+		}
+	}
+
+	private static void listFiles(File directory, String relativePath, List<String> relativePaths) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				listFiles(file, relativePath + file.getName() + "/", relativePaths);
+			} else {
+				relativePaths.add(relativePath + file.getName());
+			}
+		}
+	}
+
+	/**
+	 * Ensure that the directory ends with a '/' (unless empty)
+	 */
+	private static String normalize(String directory) {
+		if (directory.isEmpty() || directory.endsWith("/")) {
+			return directory;
+		}
+		return directory + "/";
+	}
+}
@@ -0,0 +1,51 @@
+package fr.sii.ogham.it.email;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import fr.sii.ogham.core.builder.MessagingBuilder;
+import fr.sii.ogham.core.service.BulkMessagingService;
+import fr.sii.ogham.core.service.BulkSendReport;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class EmailBulkTest {
+
+	private BulkMessagingService oghamService;
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
+
+	@Before
+	public void setUp() throws IOException {
+		Properties props = new Properties(System.getProperties());
+		props.load(getClass().getResourceAsStream("/application.properties"));
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		oghamService = new MessagingBuilder().useAllDefaults(props).buildBulk();
+	}
+
+	@Test
+	public void sendAll() throws javax.mail.MessagingException {
+		Email noRecipient = new Email("Invalid", "string body");
+		BulkSendReport report = oghamService.sendAll(Arrays.asList(new Email("First", "string body", "recipient1@sii.fr"), noRecipient, new Email("Second", "string body", "recipient2@sii.fr")));
+		Assert.assertEquals(2, report.getSucceeded().size());
+		Assert.assertEquals(1, report.getFailures().size());
+		Assert.assertSame(noRecipient, report.getFailures().get(0).getMessage());
+		Assert.assertEquals(2, greenMail.getReceivedMessages().length);
+		Assert.assertEquals("First", greenMail.getReceivedMessages()[0].getSubject());
+		Assert.assertEquals("Second", greenMail.getReceivedMessages()[1].getSubject());
+	}
+}
@@ -0,0 +1,98 @@
+package fr.sii.ogham.it.email;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import javax.mail.Message;
+import javax.mail.internet.MimeMultipart;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import fr.sii.ogham.core.builder.MessagingBuilder;
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.message.content.RenderableContent;
+import fr.sii.ogham.core.service.BulkSendReport;
+import fr.sii.ogham.email.merge.MailMerge;
+import fr.sii.ogham.email.merge.MergeEntry;
+import fr.sii.ogham.email.merge.MergeTemplate;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.helper.email.AssertEmail;
+import fr.sii.ogham.helper.email.ExpectedContent;
+import fr.sii.ogham.helper.email.ExpectedEmail;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.mock.context.SimpleBean;
+
+public class EmailMailMergeTest {
+
+	private MailMerge mailMerge;
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
+
+	@Before
+	public void setUp() throws IOException, MessagingException {
+		Properties props = new Properties(System.getProperties());
+		props.load(getClass().getResourceAsStream("/application.properties"));
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		mailMerge = new MessagingBuilder().useAllDefaults(props).buildMailMerge();
+	}
+
+	@Test
+	public void withResources() throws MessagingException, javax.mail.MessagingException, IOException {
+		MergeTemplate template = mailMerge.prepare("classpath:/template/thymeleaf/source/resources.html");
+		Assert.assertEquals(5, template.getAttachments().size());
+		Assert.assertEquals("merge:/1", template.getName());
+
+		BulkSendReport report = mailMerge.send(template, "Template", Arrays.asList(new MergeEntry(new SimpleBean("foo", 42), "recipient@sii.fr"), new MergeEntry(new SimpleBean("bar", 12), "other@sii.fr")));
+
+		Assert.assertTrue(report.isSuccess());
+		Message[] received = greenMail.getReceivedMessages();
+		Assert.assertEquals(2, received.length);
+		AssertEmail.assertSimilar(new ExpectedEmail("Template", new ExpectedContent(getClass().getResourceAsStream("/template/thymeleaf/expected/resources_foo_42.html"), "text/html.*"), "test.sender@sii.fr", "recipient@sii.fr"), received[0]);
+		// related part contains the HTML and the 5 images
+		MimeMultipart related = (MimeMultipart) ((MimeMultipart) received[1].getContent()).getBodyPart(0).getContent();
+		Assert.assertEquals(6, related.getCount());
+		Assert.assertTrue(GreenMailUtil.getBody(received[1]).contains("bar"));
+	}
+
+	@Test
+	public void onlyVariablesEvaluatedPerRecipient() throws MessagingException, IOException {
+		MergeTemplate template = mailMerge.prepare("classpath:/template/thymeleaf/source/resources.html");
+
+		Email email = template.createEmail("Template", new MergeEntry(new SimpleBean("foo", 42), "recipient@sii.fr"));
+
+		// the content is neither parsed nor inlined again by the email translators
+		Assert.assertTrue(email.getContent() instanceof RenderableContent);
+		String html = ((RenderableContent) email.getContent()).renderToString();
+		Assert.assertTrue(html.contains("foo"));
+		Assert.assertFalse(html.contains("<link"));
+	}
+
+	@Test
+	public void severalHelpersFromSameBuilder() throws MessagingException, IOException {
+		Properties props = new Properties(System.getProperties());
+		props.load(getClass().getResourceAsStream("/application.properties"));
+		MessagingBuilder builder = new MessagingBuilder().useAllDefaults(props);
+		MailMerge first = builder.buildMailMerge();
+		MailMerge second = builder.buildMailMerge();
+
+		// the templates prepared by each helper are still resolved
+		for (MailMerge helper : Arrays.asList(first, second)) {
+			MergeTemplate template = helper.prepare("classpath:/template/thymeleaf/source/resources.html");
+			Email email = template.createEmail("Template", new MergeEntry(new SimpleBean("foo", 42), "recipient@sii.fr"));
+			Assert.assertTrue(((RenderableContent) email.getContent()).renderToString().contains("foo"));
+		}
+	}
+}
@@ -3,6 +3,7 @@ package fr.sii.ogham.it.html.translator;
 import java.io.IOException;
 
 import org.apache.commons.io.IOUtils;
+import org.jsoup.nodes.Document;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -11,11 +12,13 @@ import org.junit.Test;
 import fr.sii.ogham.core.builder.LookupMappingResourceResolverBuilder;
 import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.HtmlDocumentContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.resource.resolver.LookupMappingResolver;
 import fr.sii.ogham.helper.html.AssertHtml;
 import fr.sii.ogham.helper.rule.LoggingTestRule;
 import fr.sii.ogham.html.inliner.impl.jsoup.JsoupCssInliner;
+import fr.sii.ogham.html.translator.HtmlDocumentTranslator;
 import fr.sii.ogham.html.translator.InlineCssTranslator;
 
 public class JsoupInlineCssTranslatorTest {
@@ -45,6 +48,19 @@ public class JsoupInlineCssTranslatorTest {
 		AssertHtml.assertSimilar(expected, result.toString());
 	}
 	
+	@Test
+	public void sharedDocument() throws IOException, ContentTranslatorException {
+		String source = IOUtils.toString(getClass().getResourceAsStream(SOURCE_FOLDER+"externalStyles.html"));
+		String expected = IOUtils.toString(getClass().getResourceAsStream(EXPECTED_FOLDER+"externalStyles.html"));
+		Content sourceContent = new HtmlDocumentTranslator().translate(new StringContent(source));
+		Assert.assertTrue("Content should be converted to a document", sourceContent instanceof HtmlDocumentContent);
+		Document doc = ((HtmlDocumentContent) sourceContent).getDocument();
+		Content result = translator.translate(sourceContent);
+		Assert.assertSame("Content should be the same (updated)", sourceContent, result);
+		Assert.assertSame("Document should not be parsed again", doc, ((HtmlDocumentContent) result).getDocument());
+		AssertHtml.assertSimilar(expected, result.toString());
+	}
+	
 	@Test
 	public void notHtml() throws ContentTranslatorException {
 		StringContent sourceContent = new StringContent("<link href=\"file.css\" rel=\"stylesheet\" />");
@@ -0,0 +1,39 @@
+package fr.sii.ogham.ut.core.mimetype;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.mimetype.HtmlOrTextMimeTypeProvider;
+
+public class HtmlOrTextMimeTypeProviderTest {
+	private HtmlOrTextMimeTypeProvider provider = new HtmlOrTextMimeTypeProvider(100);
+
+	@Test
+	public void html() throws MimeTypeDetectionException {
+		Assert.assertEquals("text/html", provider.detect("<!DOCTYPE html><html><body>foo</body></html>").getBaseType());
+		Assert.assertEquals("text/html", provider.detect("\n  <HTML xmlns:th=\"http://www.thymeleaf.org\"></HTML>").getBaseType());
+		Assert.assertEquals("text/html", provider.detect("<?xml version=\"1.0\"?>\n<!-- comment --><html></html>").getBaseType());
+	}
+
+	@Test
+	public void text() throws MimeTypeDetectionException {
+		Assert.assertEquals("text/plain", provider.detect("Hello foo, the value is 42").getBaseType());
+		Assert.assertEquals("text/plain", provider.detect("1 < 2").getBaseType());
+		Assert.assertEquals("text/plain", provider.detect("").getBaseType());
+	}
+
+	@Test
+	public void boundedScan() throws MimeTypeDetectionException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append(' ');
+		}
+		Assert.assertEquals("text/plain", provider.detect(sb.append("<html></html>").toString()).getBaseType());
+	}
+
+	@Test(expected = MimeTypeDetectionException.class)
+	public void streamNotSupported() throws MimeTypeDetectionException {
+		provider.detect(getClass().getResourceAsStream("/template/thymeleaf/source/simple.html"));
+	}
+}
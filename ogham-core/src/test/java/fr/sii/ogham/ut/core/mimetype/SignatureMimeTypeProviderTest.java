@@ -0,0 +1,92 @@
+package fr.sii.ogham.ut.core.mimetype;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.JMimeMagicProvider;
+import fr.sii.ogham.core.mimetype.MimeTypeProvider;
+import fr.sii.ogham.core.mimetype.SignatureMimeTypeProvider;
+
+public class SignatureMimeTypeProviderTest {
+	@Rule
+	public final TemporaryFolder temp = new TemporaryFolder();
+
+	private SignatureMimeTypeProvider provider = new SignatureMimeTypeProvider();
+
+	@Test
+	public void signatures() throws MimeTypeDetectionException, IOException {
+		Assert.assertEquals("image/gif", provider.detect(getClass().getResourceAsStream("/template/thymeleaf/source/images/fb.gif")).getBaseType());
+		Assert.assertEquals("application/pdf", provider.detect(getClass().getResourceAsStream("/attachment/04-Java-OOP-Basics.pdf")).getBaseType());
+		Assert.assertEquals("image/png", detect(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0));
+		Assert.assertEquals("image/jpeg", detect(0xFF, 0xD8, 0xFF, 0xE0));
+		Assert.assertEquals("image/webp", detect('R', 'I', 'F', 'F', 1, 2, 3, 4, 'W', 'E', 'B', 'P'));
+		Assert.assertEquals("audio/x-wav", detect('R', 'I', 'F', 'F', 1, 2, 3, 4, 'W', 'A', 'V', 'E'));
+	}
+
+	@Test
+	public void text() throws MimeTypeDetectionException {
+		Assert.assertEquals("text/plain", provider.detect(new ByteArrayInputStream("hello world".getBytes())).getBaseType());
+		Assert.assertEquals("text/html", provider.detect(getClass().getResourceAsStream("/template/thymeleaf/source/simple.html")).getBaseType());
+		Assert.assertEquals("image/svg+xml", provider.detect("<?xml version=\"1.0\"?><svg></svg>").getBaseType());
+	}
+
+	@Test(expected = MimeTypeDetectionException.class)
+	public void unknownBinary() throws MimeTypeDetectionException {
+		provider.detect(new ByteArrayInputStream(new byte[] { 0x01, 0x02, 0x03, 0x04 }));
+	}
+
+	@Test
+	public void onlyHeaderRead() throws MimeTypeDetectionException, IOException {
+		InputStream stream = new ByteArrayInputStream(new byte[100000]);
+		try {
+			provider.detect(stream);
+		} catch (MimeTypeDetectionException e) {
+			// expected: only zeros
+		}
+		Assert.assertTrue("only the header should be read", stream.available() > 90000);
+	}
+
+	@Test
+	public void extensionFirst() throws MimeTypeDetectionException, IOException {
+		File file = temp.newFile("fake.png");
+		Files.write(file.toPath(), "not an image".getBytes());
+		Assert.assertEquals("image/png", provider.getMimeType(file).getBaseType());
+	}
+
+	@Test
+	public void extensionFromName() throws MimeTypeDetectionException, IOException {
+		InputStream stream = new ByteArrayInputStream("%PDF-1.4".getBytes());
+		MimeTypeProvider fallback = new FallbackMimeTypeProvider(provider, new JMimeMagicProvider());
+		Assert.assertEquals("image/png", fallback.detect(stream, "images/logo.PNG").getBaseType());
+		Assert.assertEquals("the content should not be read", 8, stream.available());
+		Assert.assertEquals("application/pdf", fallback.detect(stream, "unknown.ext").getBaseType());
+		Assert.assertEquals("text/plain", provider.detect(new ByteArrayInputStream("text".getBytes()), null).getBaseType());
+	}
+
+	@Test
+	public void fileCache() throws MimeTypeDetectionException, IOException {
+		File file = temp.newFile("content");
+		Files.write(file.toPath(), "%PDF-1.4".getBytes());
+		Assert.assertEquals("application/pdf", provider.getMimeType(file).getBaseType());
+		Files.write(file.toPath(), "plain text content".getBytes());
+		Assert.assertEquals("text/plain", provider.getMimeType(file).getBaseType());
+	}
+
+	private String detect(int... bytes) throws MimeTypeDetectionException {
+		byte[] content = new byte[bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			content[i] = (byte) bytes[i];
+		}
+		return provider.detect(new ByteArrayInputStream(content)).getBaseType();
+	}
+}
@@ -0,0 +1,85 @@
+package fr.sii.ogham.ut.core.resource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.resource.ByteResource;
+import fr.sii.ogham.core.resource.resolver.CachingResourceResolver;
+import fr.sii.ogham.core.resource.resolver.FileResolver;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class CachingResourceResolverTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private ResourceResolver delegate;
+
+	@Before
+	public void setUp() throws ResourceResolutionException {
+		delegate = Mockito.mock(ResourceResolver.class);
+		Mockito.when(delegate.getResource("small")).thenReturn(new ByteResource("small", new byte[10]));
+		Mockito.when(delegate.getResource("other")).thenReturn(new ByteResource("other", new byte[10]));
+		Mockito.when(delegate.getResource("big")).thenReturn(new ByteResource("big", new byte[100]));
+	}
+
+	@Test
+	public void cached() throws ResourceResolutionException {
+		CachingResourceResolver resolver = new CachingResourceResolver(delegate, 100, 50);
+		Assert.assertSame(resolver.getResource("small"), resolver.getResource("small"));
+		Mockito.verify(delegate, Mockito.times(1)).getResource("small");
+		Assert.assertEquals(10, resolver.getSize());
+	}
+
+	@Test
+	public void tooBig() throws ResourceResolutionException {
+		CachingResourceResolver resolver = new CachingResourceResolver(delegate, 100, 50);
+		resolver.getResource("big");
+		resolver.getResource("big");
+		Mockito.verify(delegate, Mockito.times(2)).getResource("big");
+		Assert.assertEquals(0, resolver.getSize());
+	}
+
+	@Test
+	public void leastRecentlyUsedEvicted() throws ResourceResolutionException {
+		CachingResourceResolver resolver = new CachingResourceResolver(delegate, 15, 15);
+		resolver.getResource("small");
+		resolver.getResource("other");
+		resolver.getResource("other");
+		resolver.getResource("small");
+		Mockito.verify(delegate, Mockito.times(2)).getResource("small");
+		Mockito.verify(delegate, Mockito.times(1)).getResource("other");
+		Assert.assertEquals(10, resolver.getSize());
+	}
+
+	@Test
+	public void fileUpdated() throws IOException, ResourceResolutionException {
+		File file = folder.newFile("style.css");
+		write(file, "p {color: red;}");
+		CachingResourceResolver resolver = new CachingResourceResolver(new FileResolver());
+		Assert.assertEquals("p {color: red;}", IOUtils.toString(resolver.getResource(file.getPath()).getInputStream()));
+		write(file, "p {color: blue;}");
+		file.setLastModified(file.lastModified() + 2000);
+		Assert.assertEquals("p {color: blue;}", IOUtils.toString(resolver.getResource(file.getPath()).getInputStream()));
+	}
+
+	private static void write(File file, String content) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(content.getBytes("UTF-8"));
+		}
+	}
+}
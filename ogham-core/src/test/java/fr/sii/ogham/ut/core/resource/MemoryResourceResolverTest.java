@@ -0,0 +1,31 @@
+package fr.sii.ogham.ut.core.resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.resource.resolver.MemoryResourceResolver;
+import fr.sii.ogham.core.util.IOUtils;
+
+public class MemoryResourceResolverTest {
+	private static final String CONTENT = "été €";
+
+	@Test
+	public void utf8ByDefault() throws ResourceResolutionException, IOException {
+		MemoryResourceResolver resolver = new MemoryResourceResolver();
+		String path = resolver.register(CONTENT);
+
+		Assert.assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), IOUtils.toByteArray(resolver.getResource(path).getInputStream()));
+	}
+
+	@Test
+	public void explicitCharset() throws ResourceResolutionException, IOException {
+		MemoryResourceResolver resolver = new MemoryResourceResolver(StandardCharsets.UTF_16BE);
+		String path = resolver.register(CONTENT);
+
+		Assert.assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_16BE), IOUtils.toByteArray(resolver.getResource(path).getInputStream()));
+	}
+}
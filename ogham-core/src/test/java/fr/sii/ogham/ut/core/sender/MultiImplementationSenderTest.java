@@ -0,0 +1,129 @@
+package fr.sii.ogham.ut.core.sender;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.sii.ogham.core.condition.Condition;
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.sender.MessageSender;
+import fr.sii.ogham.sms.message.Sms;
+import fr.sii.ogham.sms.sender.SmsSender;
+
+public class MultiImplementationSenderTest {
+	private static final int IMPLEMENTATIONS = 200;
+
+	private static final int DISPATCHERS = 4;
+
+	@Test
+	public void concurrentRegisterAndDispatch() throws Exception {
+		final SmsSender sender = new SmsSender(new AcceptAll(), new CountingSender());
+		final AtomicInteger sent = new AtomicInteger();
+		final CountDownLatch registered = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(DISPATCHERS + 1);
+		try {
+			Future<?> registration = executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < IMPLEMENTATIONS; i++) {
+						sender.addImplementation(new AcceptAll(), new CountingSender());
+					}
+					registered.countDown();
+				}
+			});
+			Future<?>[] dispatchers = new Future<?>[DISPATCHERS];
+			for (int i = 0; i < DISPATCHERS; i++) {
+				dispatchers[i] = executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						Sms sms = new Sms("content", "0102030405");
+						while (registered.getCount() > 0) {
+							try {
+								sender.send(sms);
+								sent.incrementAndGet();
+							} catch (MessageException e) {
+								throw new IllegalStateException(e);
+							}
+						}
+					}
+				});
+			}
+			// any ConcurrentModificationException or failed dispatch is rethrown here
+			registration.get(10, TimeUnit.SECONDS);
+			for (Future<?> dispatcher : dispatchers) {
+				dispatcher.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		Assert.assertEquals(IMPLEMENTATIONS + 1, sender.getImplementations().size());
+		Assert.assertEquals(sent.get(), CountingSender.TOTAL.get());
+	}
+
+	@Test
+	public void implementationsAreReadOnly() {
+		SmsSender sender = new SmsSender(new AcceptAll(), new CountingSender());
+		Map<Condition<Message>, MessageSender> implementations = sender.getImplementations();
+		try {
+			implementations.put(new AcceptAll(), mock(MessageSender.class));
+			Assert.fail("implementations should not be modifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		sender.addImplementation(new AcceptAll(), new CountingSender());
+		Assert.assertEquals(1, implementations.size());
+		Assert.assertEquals(2, sender.getImplementations().size());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void selectedSenderPerThread() throws Exception {
+		final MessageSender implementation = new CountingSender();
+		final SmsSender sender = new SmsSender(new AcceptAll(), implementation);
+		Assert.assertNull(sender.getSender());
+
+		Assert.assertTrue(sender.supports(new Sms("content", "0102030405")));
+
+		Assert.assertSame(implementation, sender.getSender());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// the selection of this thread is not visible to other threads
+			Future<MessageSender> other = executor.submit(new Callable<MessageSender>() {
+				@Override
+				public MessageSender call() {
+					return sender.getSender();
+				}
+			});
+			Assert.assertNull(other.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static class AcceptAll implements Condition<Message> {
+		@Override
+		public boolean accept(Message obj) {
+			return true;
+		}
+	}
+
+	private static class CountingSender implements MessageSender {
+		private static final AtomicInteger TOTAL = new AtomicInteger();
+
+		@Override
+		public void send(Message message) throws MessageException {
+			TOTAL.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package fr.sii.ogham.ut.core.template;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.exception.template.EngineDetectionException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.core.resource.Resource;
+import fr.sii.ogham.core.resource.SimpleResource;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
+import fr.sii.ogham.core.template.parser.AutoDetectTemplateParser;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class AutoDetectTemplateParserTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private ResourceResolver resolver;
+	private TemplateEngineDetector detector;
+	private TemplateParser parser;
+	private Map<TemplateEngineDetector, TemplateParser> detectors;
+
+	@Before
+	public void setUp() throws EngineDetectionException {
+		resolver = Mockito.mock(ResourceResolver.class);
+		detector = Mockito.mock(TemplateEngineDetector.class);
+		parser = Mockito.mock(TemplateParser.class);
+		Mockito.when(detector.canParse(Matchers.anyString(), Matchers.any(Context.class), Matchers.any(Resource.class))).thenReturn(true);
+		detectors = new LinkedHashMap<>();
+		detectors.put(detector, parser);
+	}
+
+	@Test
+	public void detectedOnce() throws ParseException, ResourceResolutionException, EngineDetectionException {
+		Mockito.when(resolver.getResource("template")).thenReturn(new SimpleResource("content".getBytes()));
+		AutoDetectTemplateParser autoDetect = new AutoDetectTemplateParser(resolver, detectors);
+		autoDetect.parse("template", null);
+		autoDetect.parse("template", null);
+		Mockito.verify(resolver, Mockito.times(1)).getResource("template");
+		Mockito.verify(detector, Mockito.times(1)).canParse(Matchers.anyString(), Matchers.any(Context.class), Matchers.any(Resource.class));
+		Mockito.verify(parser, Mockito.times(2)).parse("template", null);
+	}
+
+	@Test
+	public void cacheDisabled() throws ParseException, ResourceResolutionException {
+		Mockito.when(resolver.getResource("template")).thenReturn(new SimpleResource("content".getBytes()));
+		AutoDetectTemplateParser autoDetect = new AutoDetectTemplateParser(resolver, detectors, 0);
+		autoDetect.parse("template", null);
+		autoDetect.parse("template", null);
+		Mockito.verify(resolver, Mockito.times(2)).getResource("template");
+	}
+
+	@Test
+	public void fileUpdated() throws ParseException, ResourceResolutionException, IOException {
+		File file = folder.newFile("template.html");
+		Mockito.when(resolver.getResource("template")).thenReturn(new FileResource(file));
+		AutoDetectTemplateParser autoDetect = new AutoDetectTemplateParser(resolver, detectors);
+		autoDetect.parse("template", null);
+		autoDetect.parse("template", null);
+		Mockito.verify(resolver, Mockito.times(1)).getResource("template");
+		file.setLastModified(file.lastModified() - 10000);
+		autoDetect.parse("template", null);
+		Mockito.verify(resolver, Mockito.times(2)).getResource("template");
+	}
+}
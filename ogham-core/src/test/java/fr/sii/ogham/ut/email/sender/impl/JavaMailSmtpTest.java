@@ -6,6 +6,8 @@ import java.util.Properties;
 
 import javax.mail.MessagingException;
 
+import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -42,6 +44,11 @@ public class JavaMailSmtpTest {
 		sender = new JavaMailBuilder().useDefaults(props).build();
 	}
 	
+	@After
+	public void tearDown() {
+		sender.close();
+	}
+	
 	@Test
 	public void simple() throws MessageException, MessagingException {
 		sender.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "recipient@sii.fr"));
@@ -55,6 +62,15 @@ public class JavaMailSmtpTest {
 		AssertAttachment.assertEquals(new ExpectedAttachment("/attachment/04-Java-OOP-Basics.pdf", "application/pdf.*"), greenMail.getReceivedMessages());
 	}
 	
+	@Test
+	public void severalEmails() throws MessageException, MessagingException {
+		for (int i = 0; i < 3; i++) {
+			sender.send(new Email("Subject " + i, "Body", new EmailAddress("custom.sender@sii.fr"), "recipient@sii.fr"));
+		}
+		Assert.assertEquals(3, greenMail.getReceivedMessages().length);
+		Assert.assertEquals("Subject 2", greenMail.getReceivedMessages()[2].getSubject());
+	}
+	
 	@Test(expected=IllegalArgumentException.class)
 	public void invalid() throws MessageException {
 		sender.send(new Email("subject", "content"));
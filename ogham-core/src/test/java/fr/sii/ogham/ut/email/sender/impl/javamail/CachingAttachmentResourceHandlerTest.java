@@ -0,0 +1,110 @@
+package fr.sii.ogham.ut.email.sender.impl.javamail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import javax.mail.MessagingException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import fr.sii.ogham.core.charset.FixedCharsetProvider;
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.mimetype.HtmlOrTextMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.SignatureMimeTypeProvider;
+import fr.sii.ogham.core.resource.ByteResource;
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.email.attachment.Attachment;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.email.message.EmailAddress;
+import fr.sii.ogham.email.sender.impl.JavaMailSender;
+import fr.sii.ogham.email.sender.impl.javamail.CachingAttachmentResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.FileResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.MapAttachmentResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.MapContentHandler;
+import fr.sii.ogham.email.sender.impl.javamail.StreamResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.StringContentHandler;
+import fr.sii.ogham.helper.email.AssertAttachment;
+import fr.sii.ogham.helper.email.ExpectedAttachment;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class CachingAttachmentResourceHandlerTest {
+	private static final String PDF = "/attachment/04-Java-OOP-Basics.pdf";
+
+	private JavaMailSender sender;
+
+	private CachingAttachmentResourceHandler handler;
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
+
+	@Before
+	public void setUp() {
+		MapAttachmentResourceHandler attachmentHandler = new MapAttachmentResourceHandler();
+		attachmentHandler.addResourceHandler(FileResource.class, new FileResourceHandler(new SignatureMimeTypeProvider()));
+		attachmentHandler.addResourceHandler(ByteResource.class, new StreamResourceHandler(new SignatureMimeTypeProvider()));
+		handler = new CachingAttachmentResourceHandler(attachmentHandler, 1024 * 1024);
+		sender = createSender(handler);
+	}
+
+	@After
+	public void tearDown() {
+		sender.close();
+	}
+
+	@Test
+	public void sameFileEncodedOnce() throws MessageException, MessagingException, IOException {
+		File file = new File(getClass().getResource(PDF).getFile());
+		sender.send(new Email("Subject", "Body", new EmailAddress("sender@sii.fr"), "recipient1@sii.fr", new Attachment(file)));
+		sender.send(new Email("Subject", "Body", new EmailAddress("sender@sii.fr"), "recipient2@sii.fr", new Attachment(file)));
+		Assert.assertEquals(2, greenMail.getReceivedMessages().length);
+		for (javax.mail.Message message : greenMail.getReceivedMessages()) {
+			AssertAttachment.assertEquals(new ExpectedAttachment(PDF, "application/pdf.*"), message);
+		}
+		Assert.assertEquals(1, handler.getMisses());
+		Assert.assertEquals(1, handler.getHits());
+	}
+
+	@Test
+	public void sameContentEncodedOnce() throws MessageException, MessagingException, IOException {
+		byte[] content = Files.readAllBytes(new File(getClass().getResource(PDF).getFile()).toPath());
+		sender.send(new Email("Subject", "Body", new EmailAddress("sender@sii.fr"), "recipient1@sii.fr", new Attachment(new ByteResource("first.pdf", content))));
+		sender.send(new Email("Subject", "Body", new EmailAddress("sender@sii.fr"), "recipient2@sii.fr", new Attachment(new ByteResource("second.pdf", content))));
+		AssertAttachment.assertEquals(new ExpectedAttachment("first.pdf", "application/pdf.*", content), greenMail.getReceivedMessages()[0]);
+		AssertAttachment.assertEquals(new ExpectedAttachment("second.pdf", "application/pdf.*", content), greenMail.getReceivedMessages()[1]);
+		Assert.assertEquals(1, handler.getMisses());
+		Assert.assertEquals(1, handler.getHits());
+	}
+
+	@Test
+	public void tooBigNotCached() throws MessageException, MessagingException, IOException {
+		sender.close();
+		handler = new CachingAttachmentResourceHandler(new FileResourceHandler(new SignatureMimeTypeProvider()), 1024);
+		sender = createSender(handler);
+		sender.send(new Email("Subject", "Body", new EmailAddress("sender@sii.fr"), "recipient@sii.fr", new Attachment(new File(getClass().getResource(PDF).getFile()))));
+		AssertAttachment.assertEquals(new ExpectedAttachment(PDF, "application/pdf.*"), greenMail.getReceivedMessages());
+		Assert.assertEquals(0, handler.getMisses());
+		Assert.assertEquals(0, handler.getSize());
+	}
+
+	private static JavaMailSender createSender(CachingAttachmentResourceHandler attachmentHandler) {
+		Properties props = new Properties(System.getProperties());
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		MapContentHandler contentHandler = new MapContentHandler();
+		contentHandler.addContentHandler(StringContent.class, new StringContentHandler(new HtmlOrTextMimeTypeProvider(), new FixedCharsetProvider()));
+		return new JavaMailSender(props, contentHandler, attachmentHandler, null);
+	}
+}
@@ -0,0 +1,35 @@
+package fr.sii.ogham.ut.email.sender.impl.javamail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.email.sender.impl.javamail.FileChannelDataSource;
+
+public class FileChannelDataSourceTest {
+	private File file = new File(getClass().getResource("/attachment/04-Java-OOP-Basics.pdf").getFile());
+
+	@Test
+	public void readSeveralTimes() throws IOException {
+		FileChannelDataSource dataSource = new FileChannelDataSource(file, "application/pdf");
+		byte[] expected = Files.readAllBytes(file.toPath());
+		try (InputStream stream = dataSource.getInputStream()) {
+			Assert.assertArrayEquals(expected, IOUtils.toByteArray(stream));
+		}
+		try (InputStream stream = dataSource.getInputStream()) {
+			Assert.assertArrayEquals(expected, IOUtils.toByteArray(stream));
+		}
+		Assert.assertEquals("application/pdf", dataSource.getContentType());
+		Assert.assertEquals("04-Java-OOP-Basics.pdf", dataSource.getName());
+	}
+
+	@Test(expected = IOException.class)
+	public void readOnly() throws IOException {
+		new FileChannelDataSource(file, "application/pdf").getOutputStream();
+	}
+}
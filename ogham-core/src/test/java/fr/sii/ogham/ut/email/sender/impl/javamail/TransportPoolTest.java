@@ -0,0 +1,159 @@
+package fr.sii.ogham.ut.email.sender.impl.javamail;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.Message.RecipientType;
+import javax.mail.MessagingException;
+import javax.mail.Provider;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.sii.ogham.email.sender.impl.javamail.TransportPool;
+import fr.sii.ogham.email.sender.impl.javamail.TransportPool.PooledTransport;
+
+public class TransportPoolTest {
+	private static final String PROTOCOL = "recording";
+
+	private Session session;
+
+	@Before
+	public void setUp() {
+		RecordingTransport.CONNECTS.set(0);
+		RecordingTransport.CLOSES.set(0);
+		RecordingTransport.DISCONNECTED.set(false);
+		Properties props = new Properties();
+		props.setProperty("mail.transport.protocol", PROTOCOL);
+		props.setProperty("mail." + PROTOCOL + ".host", "localhost");
+		session = Session.getInstance(props);
+		session.addProvider(new Provider(Provider.Type.TRANSPORT, PROTOCOL, RecordingTransport.class.getName(), "ogham", "test"));
+	}
+
+	@Test
+	public void connectionReused() throws MessagingException {
+		TransportPool pool = new TransportPool(1, 0, 60000, 60000);
+
+		PooledTransport first = send(pool);
+		PooledTransport second = send(pool);
+
+		Assert.assertSame(first, second);
+		Assert.assertTrue(second.isReused());
+		Assert.assertEquals(1, RecordingTransport.CONNECTS.get());
+		Assert.assertEquals(0, RecordingTransport.CLOSES.get());
+	}
+
+	@Test
+	public void connectionClosedAfterMaxMessages() throws MessagingException {
+		TransportPool pool = new TransportPool(1, 2, 60000, 60000);
+
+		PooledTransport first = send(pool);
+		PooledTransport second = send(pool);
+		PooledTransport third = send(pool);
+
+		Assert.assertSame(first, second);
+		Assert.assertNotSame(second, third);
+		Assert.assertFalse(third.isReused());
+		Assert.assertEquals(2, RecordingTransport.CONNECTS.get());
+		Assert.assertEquals(1, RecordingTransport.CLOSES.get());
+	}
+
+	@Test
+	public void idleConnectionExpired() throws Exception {
+		TransportPool pool = new TransportPool(1, 0, 50, 60000);
+
+		PooledTransport first = send(pool);
+		Thread.sleep(200);
+		PooledTransport second = send(pool);
+
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(2, RecordingTransport.CONNECTS.get());
+		Assert.assertEquals(1, RecordingTransport.CLOSES.get());
+	}
+
+	@Test
+	public void extraIdleConnectionClosed() throws MessagingException {
+		TransportPool pool = new TransportPool(1, 0, 60000, 60000);
+
+		// two connections in use at the same time
+		PooledTransport first = pool.acquire(session, null);
+		PooledTransport second = pool.acquire(session, null);
+		pool.release(first);
+		pool.release(second);
+
+		Assert.assertEquals(2, RecordingTransport.CONNECTS.get());
+		Assert.assertEquals(1, RecordingTransport.CLOSES.get());
+		pool.close();
+		Assert.assertEquals(2, RecordingTransport.CLOSES.get());
+	}
+
+	@Test
+	public void closedConnectionReplacedBeforeSending() throws Exception {
+		TransportPool pool = new TransportPool(1, 0, 60000, 0);
+
+		PooledTransport first = send(pool);
+		// the server closes the connection
+		RecordingTransport.DISCONNECTED.set(true);
+		Thread.sleep(10);
+		PooledTransport second = pool.acquire(session, null);
+
+		Assert.assertNotSame(first, second);
+		Assert.assertFalse(second.isReused());
+		Assert.assertEquals(2, RecordingTransport.CONNECTS.get());
+		Assert.assertEquals(1, RecordingTransport.CLOSES.get());
+	}
+
+	private PooledTransport send(TransportPool pool) throws MessagingException {
+		PooledTransport pooled = pool.acquire(session, null);
+		MimeMessage message = new MimeMessage(session);
+		message.setRecipient(RecipientType.TO, new InternetAddress("recipient@sii.fr"));
+		message.setText("body");
+		pooled.send(message);
+		pool.release(pooled);
+		return pooled;
+	}
+
+	public static class RecordingTransport extends Transport {
+		static final AtomicInteger CONNECTS = new AtomicInteger();
+
+		static final AtomicInteger CLOSES = new AtomicInteger();
+
+		static final AtomicBoolean DISCONNECTED = new AtomicBoolean();
+
+		public RecordingTransport(Session session, URLName urlname) {
+			super(session, urlname);
+		}
+
+		@Override
+		protected boolean protocolConnect(String host, int port, String user, String password) throws MessagingException {
+			CONNECTS.incrementAndGet();
+			return true;
+		}
+
+		@Override
+		public synchronized boolean isConnected() {
+			// simulates the NOOP command
+			return !DISCONNECTED.get() && super.isConnected();
+		}
+
+		@Override
+		public void sendMessage(Message msg, Address[] addresses) throws MessagingException {
+			// nothing to send
+		}
+
+		@Override
+		public synchronized void close() throws MessagingException {
+			CLOSES.incrementAndGet();
+			super.close();
+		}
+	}
+}
@@ -5,15 +5,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import org.apache.commons.io.IOUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.junit.Assert;
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 
 import fr.sii.ogham.helper.html.AssertHtml;
 import fr.sii.ogham.helper.rule.LoggingTestRule;
 import fr.sii.ogham.html.inliner.ExternalCss;
+import fr.sii.ogham.html.inliner.impl.jsoup.CssSelector;
 import fr.sii.ogham.html.inliner.impl.jsoup.JsoupCssInliner;
 
 public class JsoupCssInlinerTest {
@@ -63,7 +66,6 @@ public class JsoupCssInlinerTest {
 	}
 	
 	@Test
-	@Ignore("Not yet implemented")
 	public void overrideStyles() throws IOException {
 		String source = IOUtils.toString(getClass().getResourceAsStream(SOURCE_FOLDER+"overrideStyles.html"));
 		String css1 = IOUtils.toString(getClass().getResourceAsStream(SOURCE_FOLDER+"css/external1.css"));
@@ -74,9 +76,39 @@ public class JsoupCssInlinerTest {
 	}
 	
 	@Test
-	@Ignore("Not yet implemented")
 	public void cssPriority() throws IOException {
-		// TODO: test css with rules with higher priority before rules with lower priority
-		Assert.fail("Not implemented");
+		String source = "<html><head><style>#title {color: red;} .title {color: blue; font-weight: bold;} h1 {color: green;}</style></head><body><h1 id=\"title\" class=\"title\">title</h1></body></html>";
+		Element h1 = Jsoup.parse(inliner.inline(source, new ArrayList<ExternalCss>())).select("h1").first();
+		Assert.assertEquals("color: red; font-weight: bold;", h1.attr("style"));
+	}
+
+	@Test
+	public void fallbackSelectorPriority() throws IOException {
+		// nth-child with argument is not compiled and is evaluated by jsoup
+		Assert.assertFalse(CssSelector.parse("p:nth-child(2) span.x").isCompiled());
+		Assert.assertEquals(0x000202, CssSelector.parse("p:nth-child(2) span.x").getSpecificity());
+		String source = "<html><head><style>p:nth-child(2) span.x {color: red;} div span.x {color: blue;}</style></head><body><div><p>a</p><p><span class=\"x\">b</span></p></div></body></html>";
+		Element span = Jsoup.parse(inliner.inline(source, new ArrayList<ExternalCss>())).select("span").first();
+		Assert.assertEquals("color: red;", span.attr("style"));
+	}
+
+	@Test
+	public void commentsAndMediaQueries() throws IOException {
+		String source = "<html><head><style>/* p {color: red;} */ p {color: blue; /* font-size: 10px; */} @media (max-width: 600px) { p {color: green;} } a:hover {color: red;}</style></head><body><p>text</p></body></html>";
+		Document doc = Jsoup.parse(inliner.inline(source, new ArrayList<ExternalCss>()));
+		Assert.assertEquals("color: blue;", doc.select("p").first().attr("style"));
+		String remaining = doc.select("style").first().data();
+		Assert.assertTrue(remaining.contains("@media (max-width: 600px) { p {color: green;} }"));
+		Assert.assertTrue(remaining.contains("a:hover {color: red;}"));
+	}
+
+	@Test
+	public void commasInsideSelectors() throws IOException {
+		String source = "<html><head><style>p[title=\"a,b\"], span:not(.x, .y) {color: red;}</style></head><body><p title=\"a,b\">a</p><p title=\"a\">b</p><span class=\"x\">c</span><span class=\"z\">d</span></body></html>";
+		Document doc = Jsoup.parse(inliner.inline(source, new ArrayList<ExternalCss>()));
+		Assert.assertEquals("color: red;", doc.select("p").get(0).attr("style"));
+		Assert.assertEquals("", doc.select("p").get(1).attr("style"));
+		Assert.assertEquals("", doc.select("span").get(0).attr("style"));
+		Assert.assertEquals("color: red;", doc.select("span").get(1).attr("style"));
 	}
 }
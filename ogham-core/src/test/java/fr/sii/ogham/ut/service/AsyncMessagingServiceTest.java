@@ -0,0 +1,200 @@
+package fr.sii.ogham.ut.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import fr.sii.ogham.core.exception.MessageNotSentException;
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.service.AsyncMessagingService;
+import fr.sii.ogham.core.service.AsyncMessagingService.RejectionPolicy;
+import fr.sii.ogham.core.service.MessagingService;
+import fr.sii.ogham.sms.message.Sms;
+
+public class AsyncMessagingServiceTest {
+	private MessagingService delegate;
+
+	private AsyncMessagingService service;
+
+	@Before
+	public void setUp() {
+		delegate = mock(MessagingService.class);
+	}
+
+	@After
+	public void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	public void sendAsync() throws Exception {
+		service = new AsyncMessagingService(delegate, 2, 10, RejectionPolicy.REJECT);
+		Sms sms = new Sms("content", "0102030405");
+
+		Future<Message> future = service.sendAsync(sms);
+
+		Assert.assertSame(sms, future.get(5, TimeUnit.SECONDS));
+		verify(delegate).send(sms);
+		Assert.assertEquals(1, service.getSucceededCount());
+		Assert.assertEquals(0, service.getFailedCount());
+	}
+
+	@Test
+	public void failure() throws Exception {
+		service = new AsyncMessagingService(delegate, 2, 10, RejectionPolicy.REJECT);
+		Sms sms = new Sms("content", "0102030405");
+		MessagingException cause = new MessagingException("failed");
+		doThrow(cause).when(delegate).send(sms);
+
+		Future<Message> future = service.sendAsync(sms);
+
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			Assert.fail("should have failed");
+		} catch (ExecutionException e) {
+			Assert.assertSame(cause, e.getCause());
+		}
+		Assert.assertEquals(1, service.getFailedCount());
+	}
+
+	@Test
+	public void rejectWhenFull() throws Exception {
+		service = new AsyncMessagingService(delegate, 1, 1, RejectionPolicy.REJECT);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				blocked.countDown();
+				release.await();
+				return null;
+			}
+		}).when(delegate).send(any(Message.class));
+
+		service.sendAsync(new Sms("first", "0102030405"));
+		blocked.await(5, TimeUnit.SECONDS);
+		service.sendAsync(new Sms("queued", "0102030405"));
+		Assert.assertEquals(1, service.getActiveCount());
+		Assert.assertEquals(1, service.getQueueSize());
+		try {
+			service.sendAsync(new Sms("rejected", "0102030405"));
+			Assert.fail("should have been rejected");
+		} catch (MessageNotSentException e) {
+			// expected
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void callerRunsRejectedAfterShutdown() throws Exception {
+		service = new AsyncMessagingService(delegate, 1, 1, RejectionPolicy.CALLER_RUNS);
+		service.shutdown();
+		Sms sms = new Sms("content", "0102030405");
+		try {
+			service.sendAsync(sms);
+			Assert.fail("should have been rejected");
+		} catch (MessageNotSentException e) {
+			// expected
+		}
+		verify(delegate, never()).send(sms);
+	}
+
+	@Test
+	public void closeSendsQueuedMessagesThenClosesDelegate() throws Exception {
+		service = new AsyncMessagingService(delegate, 1, 10, RejectionPolicy.REJECT);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				blocked.countDown();
+				Thread.sleep(100);
+				return null;
+			}
+		}).when(delegate).send(any(Message.class));
+		Sms first = new Sms("first", "0102030405");
+		Sms queued = new Sms("queued", "0102030405");
+		service.sendAsync(first);
+		blocked.await(5, TimeUnit.SECONDS);
+		service.sendAsync(queued);
+
+		service.close();
+
+		InOrder order = inOrder(delegate);
+		order.verify(delegate).send(first);
+		order.verify(delegate).send(queued);
+		order.verify(delegate).close();
+		Assert.assertEquals(2, service.getSucceededCount());
+	}
+
+	@Test
+	public void blockRejectedWhenShutdownWhileWaiting() throws Exception {
+		service = new AsyncMessagingService(delegate, 1, 1, RejectionPolicy.BLOCK);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch releaseFirst = new CountDownLatch(1);
+		final CountDownLatch releaseOthers = new CountDownLatch(1);
+		final Sms first = new Sms("first", "0102030405");
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				if (invocation.getArguments()[0] == first) {
+					blocked.countDown();
+					releaseFirst.await();
+				} else {
+					releaseOthers.await();
+				}
+				return null;
+			}
+		}).when(delegate).send(any(Message.class));
+		service.sendAsync(first);
+		blocked.await(5, TimeUnit.SECONDS);
+		service.sendAsync(new Sms("queued", "0102030405"));
+		final Sms waiting = new Sms("waiting", "0102030405");
+		final AtomicReference<Exception> result = new AtomicReference<>();
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					service.sendAsync(waiting);
+				} catch (MessagingException e) {
+					result.set(e);
+				}
+			}
+		});
+		producer.start();
+		// wait until the producer is blocked on the full queue
+		long deadline = System.currentTimeMillis() + 5000;
+		while (producer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		// shutdown while waiting, then make room in the queue
+		service.shutdown();
+		releaseFirst.countDown();
+		producer.join(5000);
+		releaseOthers.countDown();
+
+		Assert.assertTrue("message should be rejected", result.get() instanceof MessageNotSentException);
+		Assert.assertTrue(service.awaitTermination(5, TimeUnit.SECONDS));
+		verify(delegate, never()).send(waiting);
+	}
+}
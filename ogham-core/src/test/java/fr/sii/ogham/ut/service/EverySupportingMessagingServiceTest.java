@@ -0,0 +1,42 @@
+package fr.sii.ogham.ut.service;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import fr.sii.ogham.core.condition.FixedCondition;
+import fr.sii.ogham.core.filler.MessageFiller;
+import fr.sii.ogham.core.message.Message;
+import fr.sii.ogham.core.sender.ContentTranslatorSender;
+import fr.sii.ogham.core.sender.FillerSender;
+import fr.sii.ogham.core.sender.MessageSender;
+import fr.sii.ogham.core.service.EverySupportingMessagingService;
+import fr.sii.ogham.core.service.MessagingService;
+import fr.sii.ogham.core.service.WrapExceptionMessagingService;
+import fr.sii.ogham.core.translator.content.ContentTranslator;
+import fr.sii.ogham.sms.sender.SmsSender;
+
+public class EverySupportingMessagingServiceTest {
+	@Test
+	public void closePropagatedToSenders() throws IOException {
+		MessageSender failing = mock(MessageSender.class, withSettings().extraInterfaces(Closeable.class));
+		doThrow(new IOException("already closed")).when((Closeable) failing).close();
+		MessageSender closeable = mock(MessageSender.class, withSettings().extraInterfaces(Closeable.class));
+		SmsSender sms = new SmsSender(new FixedCondition<Message>(true), failing);
+		sms.addImplementation(new FixedCondition<Message>(false), closeable);
+		MessagingService service = new WrapExceptionMessagingService(new EverySupportingMessagingService(
+				new FillerSender(mock(MessageFiller.class), new ContentTranslatorSender(mock(ContentTranslator.class), sms))));
+
+		service.close();
+
+		// a failure to close a sender doesn't prevent closing the others
+		verify((Closeable) failing).close();
+		verify((Closeable) closeable).close();
+	}
+}
@@ -1,16 +1,26 @@
 package fr.sii.ogham.ut.sms.sender.impl;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.jsmpp.bean.SubmitSm;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.cloudhopper.smpp.SmppConstants;
 import com.cloudhopper.smpp.SmppSessionConfiguration;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
 
 import fr.sii.ogham.core.exception.MessagingException;
 import fr.sii.ogham.helper.rule.LoggingTestRule;
@@ -19,13 +29,18 @@ import fr.sii.ogham.helper.sms.ExpectedAddressedPhoneNumber;
 import fr.sii.ogham.helper.sms.ExpectedSms;
 import fr.sii.ogham.helper.sms.SplitSms;
 import fr.sii.ogham.helper.sms.rule.JsmppServerRule;
-import fr.sii.ogham.helper.sms.rule.SmppServerRule;
+import fr.sii.ogham.sms.SmsConstants;
+import fr.sii.ogham.sms.SmsConstants.SmppConstants.CloudhopperConstants;
 import fr.sii.ogham.sms.builder.CloudhopperSMPPBuilder;
+import fr.sii.ogham.sms.exception.message.SmppCommandStatusException;
 import fr.sii.ogham.sms.message.Sender;
 import fr.sii.ogham.sms.message.Sms;
 import fr.sii.ogham.sms.message.addressing.NumberingPlanIndicator;
 import fr.sii.ogham.sms.message.addressing.TypeOfNumber;
 import fr.sii.ogham.sms.sender.impl.CloudhopperSMPPSender;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptEvent;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptListener;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SubmitSmFuture;
 
 public class CloudhopperSmppTest {
 	private static final String NATIONAL_PHONE_NUMBER = "0203040506";
@@ -38,7 +53,7 @@ public class CloudhopperSmppTest {
 	public final LoggingTestRule loggingRule = new LoggingTestRule();
 
 	@Rule
-	public final SmppServerRule<SubmitSm> smppServer = new JsmppServerRule();
+	public final JsmppServerRule smppServer = new JsmppServerRule();
 
 	@Before
 	public void setUp() throws IOException {
@@ -48,6 +63,11 @@ public class CloudhopperSmppTest {
 		sender = new CloudhopperSMPPBuilder().withSmppSessionConfiguration(configuration).build();
 	}
 
+	@After
+	public void tearDown() {
+		sender.close();
+	}
+
 	@Test
 	public void simple() throws MessagingException, IOException {
 		sender.send(new Sms("sms content", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
@@ -92,6 +112,230 @@ public class CloudhopperSmppTest {
 		AssertSms.assertEquals(Arrays.asList(expected1, expected2), smppServer.getReceivedMessages());
 	}
 
+	@Test
+	public void longMessageSeveralRecipients() throws MessagingException, IOException {
+		// Given
+		String to2 = "0000000001";
+		String content = "sms content with a very very very loooooooooooooooooooonnnnnnnnnnnnnnnnng message that is over 160 characters in order to test the behavior of the sender when message has to be split";
+
+		// When
+		sender.send(new Sms(content, new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER, to2));
+
+		// Then
+		List<SubmitSm> received = smppServer.getReceivedMessages();
+		Assert.assertEquals(4, received.size());
+		for (int i = 0; i < received.size(); i += 2) {
+			byte[] first = received.get(i).getShortMessage();
+			byte[] second = received.get(i + 1).getShortMessage();
+			Assert.assertEquals(received.get(i).getDestAddress(), received.get(i + 1).getDestAddress());
+			// same reference number for the parts of the same recipient
+			Assert.assertEquals(first[3], second[3]);
+			// part count and part index
+			Assert.assertEquals(2, first[4]);
+			Assert.assertEquals(1, first[5]);
+			Assert.assertEquals(2, second[4]);
+			Assert.assertEquals(2, second[5]);
+		}
+		AssertSms.assertEquals(Arrays.asList(
+				new ExpectedSms("sms content with a very very very loooooooooooooooooooonnnnnnnnnnnnnnnnng message that is over 160 characters in order to test the beh",
+						new ExpectedAddressedPhoneNumber(INTERNATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+						new ExpectedAddressedPhoneNumber(NATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value())),
+				new ExpectedSms("avior of the sender when message has to be split",
+						new ExpectedAddressedPhoneNumber(INTERNATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+						new ExpectedAddressedPhoneNumber(NATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value())),
+				new ExpectedSms("sms content with a very very very loooooooooooooooooooonnnnnnnnnnnnnnnnng message that is over 160 characters in order to test the beh",
+						new ExpectedAddressedPhoneNumber(INTERNATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+						new ExpectedAddressedPhoneNumber(to2, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value())),
+				new ExpectedSms("avior of the sender when message has to be split",
+						new ExpectedAddressedPhoneNumber(INTERNATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+						new ExpectedAddressedPhoneNumber(to2, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()))),
+				received);
+	}
+
+	@Test
+	public void sessionReused() throws MessagingException, IOException {
+		// Given
+		String from = INTERNATIONAL_PHONE_NUMBER;
+
+		// When
+		sender.send(new Sms("first", new Sender(from), NATIONAL_PHONE_NUMBER));
+		sender.send(new Sms("second", new Sender(from), NATIONAL_PHONE_NUMBER));
+
+		// Then
+		ExpectedSms expected1 = new ExpectedSms("first",
+				new ExpectedAddressedPhoneNumber(from, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+				new ExpectedAddressedPhoneNumber(NATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()));
+		ExpectedSms expected2 = new ExpectedSms("second",
+				new ExpectedAddressedPhoneNumber(from, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+				new ExpectedAddressedPhoneNumber(NATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()));
+		AssertSms.assertEquals(Arrays.asList(expected1, expected2), smppServer.getReceivedMessages());
+		Assert.assertEquals("session should be bound only once", 1, smppServer.getConnectionCount());
+	}
+
+	@Test
+	public void idleSessionClosedWithoutKeepAlive() throws Exception {
+		// Given
+		SmppSessionConfiguration configuration = new SmppSessionConfiguration();
+		configuration.setHost("127.0.0.1");
+		configuration.setPort(smppServer.getPort());
+		CloudhopperSMPPSender idleSender = new CloudhopperSMPPBuilder().withSmppSessionConfiguration(configuration).withSessionPool(0, 1, 100, 0).build();
+		try {
+			// When
+			idleSender.send(new Sms("first", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
+			Thread.sleep(500);
+			idleSender.send(new Sms("second", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
+		} finally {
+			idleSender.close();
+		}
+
+		// Then
+		Assert.assertEquals(2, smppServer.getReceivedMessages().size());
+		Assert.assertEquals("idle session should be closed and a new one bound", 2, smppServer.getConnectionCount());
+	}
+
+	@Test
+	public void async() throws Exception {
+		// Given
+		String from = INTERNATIONAL_PHONE_NUMBER;
+		String content = "sms content with a very very very loooooooooooooooooooonnnnnnnnnnnnnnnnng message that is over 160 characters in order to test the behavior of the sender when message has to be split";
+
+		// When
+		SubmitSmFuture future = sender.sendAsync(new Sms(content, new Sender(from), NATIONAL_PHONE_NUMBER));
+		List<SubmitSmResp> responses = future.get(5, TimeUnit.SECONDS);
+
+		// Then
+		Assert.assertEquals(2, responses.size());
+		for (SubmitSmResp response : responses) {
+			Assert.assertEquals(SmppConstants.STATUS_OK, response.getCommandStatus());
+		}
+		AssertSms.assertEquals(new SplitSms(
+				new ExpectedAddressedPhoneNumber(from, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+				new ExpectedAddressedPhoneNumber(NATIONAL_PHONE_NUMBER, TypeOfNumber.UNKNOWN.value(), NumberingPlanIndicator.ISDN_TELEPHONE.value()),
+				"sms content with a very very very loooooooooooooooooooonnnnnnnnnnnnnnnnng message that is over 160 characters in order to test the beh", "avior of the sender when message has to be split"),
+				smppServer.getReceivedMessages());
+	}
+
+	@Test
+	public void throughput() throws Exception {
+		// Given
+		sender.close();
+		SmppSessionConfiguration configuration = new SmppSessionConfiguration();
+		configuration.setHost("127.0.0.1");
+		configuration.setPort(smppServer.getPort());
+		sender = new CloudhopperSMPPBuilder().withSmppSessionConfiguration(configuration).withThroughput(0, 20).build();
+
+		// When
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 5; i++) {
+			sender.send(new Sms("sms content", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
+		}
+		long elapsed = System.currentTimeMillis() - start;
+
+		// Then
+		Assert.assertTrue("submit_sm should be paced (" + elapsed + "ms)", elapsed >= 190);
+		Assert.assertEquals(5, smppServer.getReceivedMessages().size());
+		Assert.assertEquals(20, sender.getCurrentRate(), 0.01);
+	}
+
+	@Test
+	public void asyncThrottledSentAgain() throws Exception {
+		// Given
+		smppServer.reject(1, SmppConstants.STATUS_THROTTLED);
+
+		// When
+		List<SubmitSmResp> responses = sender.sendAsync(new Sms("sms content", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER)).get(5, TimeUnit.SECONDS);
+
+		// Then
+		Assert.assertEquals(1, responses.size());
+		Assert.assertEquals(SmppConstants.STATUS_OK, responses.get(0).getCommandStatus());
+		Assert.assertEquals(1, smppServer.getReceivedMessages().size());
+	}
+
+	@Test
+	public void asyncSubmitFromPropertiesThrottledSentAgain() throws Exception {
+		// Given
+		sender.close();
+		Properties props = new Properties();
+		props.setProperty(SmsConstants.SmppConstants.HOST_PROPERTY, "127.0.0.1");
+		props.setProperty(SmsConstants.SmppConstants.PORT_PROPERTY, String.valueOf(smppServer.getPort()));
+		props.setProperty(SmsConstants.SmppConstants.ACCOUNT_THROUGHPUT_PROPERTY, "50");
+		props.setProperty(CloudhopperConstants.ASYNC_SUBMIT_PROPERTY, "true");
+		// options generated after the session configuration must keep the throughput
+		sender = new CloudhopperSMPPBuilder().generateSmppSessionConfigurationFrom(props).generateOptionsFrom(props).build();
+		Assert.assertEquals(50, sender.getCurrentRate(), 0.01);
+		smppServer.reject(2, SmppConstants.STATUS_THROTTLED);
+		String content = "sms content with a very very very loooooooooooooooooooonnnnnnnnnnnnnnnnng message that is over 160 characters in order to test the behavior of the sender when message has to be split";
+
+		// When
+		sender.send(new Sms(content, new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER, "0000000001"));
+
+		// Then
+		Assert.assertEquals(4, smppServer.getReceivedMessages().size());
+	}
+
+	@Test
+	public void syncThrottledSentAgain() throws Exception {
+		smppServer.reject(1, SmppConstants.STATUS_THROTTLED);
+		sender.send(new Sms("sms content", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
+		Assert.assertEquals(1, smppServer.getReceivedMessages().size());
+	}
+
+	@Test(expected = MessagingException.class)
+	public void syncRejected() throws Exception {
+		smppServer.reject(1, SmppConstants.STATUS_SUBMITFAIL);
+		sender.send(new Sms("sms content", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
+	}
+
+	@Test
+	public void asyncRejected() throws Exception {
+		smppServer.reject(1, SmppConstants.STATUS_SUBMITFAIL);
+		try {
+			sender.sendAsync(new Sms("sms content", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER)).get(5, TimeUnit.SECONDS);
+			Assert.fail("submit_sm should be rejected");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof SmppCommandStatusException);
+		}
+	}
+
+	@Test
+	public void deliveryReceipts() throws Exception {
+		// Given
+		sender.close();
+		SmppSessionConfiguration configuration = new SmppSessionConfiguration();
+		configuration.setHost("127.0.0.1");
+		configuration.setPort(smppServer.getPort());
+		final BlockingQueue<DeliveryReceiptEvent> receipts = new LinkedBlockingQueue<>();
+		sender = new CloudhopperSMPPBuilder()
+					.withSmppSessionConfiguration(configuration)
+					// the simulator sends hexadecimal ids and decimal ids in receipts
+					.withMessageIdRadix(16, 10)
+					.withDeliveryReceiptListener(new DeliveryReceiptListener() {
+						@Override
+						public void onDeliveryReceipt(DeliveryReceiptEvent event) {
+							receipts.add(event);
+						}
+					})
+					.build();
+		Sms first = new Sms("first", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER);
+		Sms second = new Sms("second", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER);
+
+		// When
+		sender.send(first);
+		sender.sendAsync(second).get(5, TimeUnit.SECONDS);
+
+		// Then
+		DeliveryReceiptEvent receipt1 = receipts.poll(5, TimeUnit.SECONDS);
+		DeliveryReceiptEvent receipt2 = receipts.poll(5, TimeUnit.SECONDS);
+		Assert.assertNotNull("receipts should be received", receipt2);
+		for (DeliveryReceiptEvent receipt : Arrays.asList(receipt1, receipt2)) {
+			Assert.assertTrue(receipt.isDelivered());
+			Assert.assertTrue(receipt.isFinal());
+			Assert.assertEquals(NATIONAL_PHONE_NUMBER, receipt.getDestination());
+		}
+		Assert.assertTrue((receipt1.getMessage() == first && receipt2.getMessage() == second) || (receipt1.getMessage() == second && receipt2.getMessage() == first));
+		Assert.assertEquals(0, sender.getPendingReceipts());
+	}
+
 	@Test
 	@Ignore("Not yet implemented")
 	public void charsets() throws MessagingException, IOException {
@@ -100,9 +344,22 @@ public class CloudhopperSmppTest {
 	}
 
 	@Test
-	@Ignore("Not yet implemented")
 	public void unicode() throws MessagingException, IOException {
-		// TODO: test unicode characters
-		Assert.fail("not implemented");
+		SmppSessionConfiguration configuration = new SmppSessionConfiguration();
+		configuration.setHost("127.0.0.1");
+		configuration.setPort(smppServer.getPort());
+		CloudhopperSMPPSender autoSender = new CloudhopperSMPPBuilder().withSmppSessionConfiguration(configuration).withAutoEncoding(false).build();
+		try {
+			autoSender.send(new Sms("sms content", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
+			autoSender.send(new Sms("Привет, ça va ?", new Sender(INTERNATIONAL_PHONE_NUMBER), NATIONAL_PHONE_NUMBER));
+		} finally {
+			autoSender.close();
+		}
+		List<SubmitSm> received = smppServer.getReceivedMessages();
+		Assert.assertEquals(2, received.size());
+		Assert.assertEquals(SmppConstants.DATA_CODING_DEFAULT, received.get(0).getDataCoding());
+		Assert.assertEquals("sms content", new String(received.get(0).getShortMessage(), StandardCharsets.US_ASCII));
+		Assert.assertEquals(SmppConstants.DATA_CODING_UCS2, received.get(1).getDataCoding());
+		Assert.assertEquals("Привет, ça va ?", new String(received.get(1).getShortMessage(), StandardCharsets.UTF_16BE));
 	}
 }
@@ -11,10 +11,10 @@ import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 
 import org.junit.Assert;
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -22,8 +22,10 @@ import com.github.tomakehurst.wiremock.junit.WireMockRule;
 
 import fr.sii.ogham.core.exception.MessagingException;
 import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.core.util.StringUtils;
 import fr.sii.ogham.helper.rule.LoggingTestRule;
 import fr.sii.ogham.sms.builder.OvhSmsBuilder;
+import fr.sii.ogham.sms.exception.message.RecipientsNotReachedException;
 import fr.sii.ogham.sms.message.Sender;
 import fr.sii.ogham.sms.message.Sms;
 import fr.sii.ogham.sms.sender.impl.OvhSmsSender;
@@ -106,10 +108,95 @@ public class OvhSmsTest {
 	}
 
 	@Test
-	@Ignore("Not yet implemented")
 	public void longMessage() throws MessagingException, IOException {
-		// TODO: implement test
-		Assert.fail("Not yet implemented");
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		String first = StringUtils.leftPad("", 1071, 'a');
+		sender.send(new Sms(first + "bbb", new Sender("0033203040506"), "0033605040302"));
+		verify(2, getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi")));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("to", equalTo("0033605040302"))
+					.withQueryParam("message", equalTo(first)));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("to", equalTo("0033605040302"))
+					.withQueryParam("message", equalTo("bbb")));
+	}
+
+	@Test
+	public void longMessageWithExtensionCharacters() throws MessagingException, IOException {
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		// 1070 septets: the euro sign needs 2 more septets (escape + code) so
+		// it can't be sent in the first part
+		String first = StringUtils.leftPad("", 1068, 'a') + "{";
+		sender.send(new Sms(first + "\u20AC", new Sender("0033203040506"), "0033605040302"));
+		verify(2, getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi")));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("to", equalTo("0033605040302"))
+					.withQueryParam("message", equalTo(first)));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("to", equalTo("0033605040302"))
+					.withQueryParam("message", equalTo("\u20AC")));
+	}
+
+	@Test
+	public void recipientsChunks() throws MessagingException, IOException {
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		sender = new OvhSmsBuilder()
+				.withUrl(new URL("http://localhost:"+serverRule.port()+"/cgi-bin/sms/http2sms.cgi"))
+				.withAuthParams(new OvhAuthParams("sms-nic-foobar42", "login", "password"))
+				.withOptions(new OvhOptions())
+				.withMaxRecipientsPerRequest(2)
+				.build();
+		sender.send(new Sms("sms content", new Sender("0033203040506"), "0033605040302", "0033605040303", "0033605040304"));
+		verify(2, getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi")));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("account", equalTo("sms-nic-foobar42"))
+					.withQueryParam("to", equalTo("0033605040302,0033605040303"))
+					.withQueryParam("message", equalTo("sms content")));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("account", equalTo("sms-nic-foobar42"))
+					.withQueryParam("to", equalTo("0033605040304"))
+					.withQueryParam("message", equalTo("sms content")));
+	}
+
+	@Test
+	public void someRecipientsNotReached() throws MessagingException, IOException {
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		stubFor(get(urlMatching(".*to=0033605040304.*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ko.json")))));
+		sender = new OvhSmsBuilder()
+				.withUrl(new URL("http://localhost:"+serverRule.port()+"/cgi-bin/sms/http2sms.cgi"))
+				.withAuthParams(new OvhAuthParams("sms-nic-foobar42", "login", "password"))
+				.withOptions(new OvhOptions())
+				.withMaxRecipientsPerRequest(2)
+				.build();
+		Sms sms = new Sms("sms content", new Sender("0033203040506"), "0033605040302", "0033605040303", "0033605040304");
+		try {
+			sender.send(sms);
+			Assert.fail("should fail for the last recipient");
+		} catch(RecipientsNotReachedException e) {
+			Assert.assertEquals(Arrays.asList(sms.getRecipients().get(0), sms.getRecipients().get(1)), e.getSucceeded());
+			Assert.assertEquals(1, e.getFailures().size());
+			Assert.assertTrue(e.getFailures().containsKey(sms.getRecipients().get(2)));
+		}
 	}
 
 	@Test
@@ -0,0 +1,129 @@
+package fr.sii.ogham.ut.sms.sender.impl;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.sms.builder.SmsglobalRestBuilder;
+import fr.sii.ogham.sms.exception.message.RecipientsNotReachedException;
+import fr.sii.ogham.sms.message.Sender;
+import fr.sii.ogham.sms.message.Sms;
+import fr.sii.ogham.sms.sender.impl.SmsglobalRestSender;
+import fr.sii.ogham.sms.sender.impl.smsglobal.SmsglobalAuthParams;
+
+public class SmsglobalRestTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public WireMockRule serverRule = new WireMockRule(8079);
+
+	private SmsglobalRestSender sender;
+
+	@Before
+	public void setUp() throws IOException {
+		stubFor(post(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/smsglobal/response/ok.json")))));
+		sender = new SmsglobalRestBuilder()
+						.withUrl(new URL("http://localhost:"+serverRule.port()+"/v2/sms/"))
+						.withAuthParams(new SmsglobalAuthParams("api-key", "api-secret"))
+						.withMaxRecipientsPerRequest(2)
+						.build();
+	}
+
+	@Test(expected=BuildException.class)
+	public void missingAuthentication() throws BuildException {
+		new SmsglobalRestBuilder().build();
+	}
+
+	@Test
+	public void simple() throws MessagingException, IOException {
+		sender.send(new Sms("sms content", new Sender("+33203040506"), "+33605040302"));
+		verify(postRequestedFor(urlEqualTo("/v2/sms/"))
+					.withHeader("Content-Type", containing("application/json"))
+					.withHeader("Authorization", matching("MAC id=\"api-key\", ts=\"[0-9]+\", nonce=\"[0-9a-f]{32}\", mac=\"[A-Za-z0-9+/=]+\""))
+					.withRequestBody(equalTo("{\"origin\":\"33203040506\",\"destinations\":[\"33605040302\"],\"message\":\"sms content\"}")));
+	}
+
+	@Test
+	public void recipientsChunks() throws MessagingException, IOException {
+		sender.send(new Sms("sms content", new Sender("+33203040506"), "+33605040302", "+33605040303", "+33605040304"));
+		verify(2, postRequestedFor(urlEqualTo("/v2/sms/")));
+		verify(postRequestedFor(urlEqualTo("/v2/sms/"))
+					.withRequestBody(equalTo("{\"origin\":\"33203040506\",\"destinations\":[\"33605040302\",\"33605040303\"],\"message\":\"sms content\"}")));
+		verify(postRequestedFor(urlEqualTo("/v2/sms/"))
+					.withRequestBody(equalTo("{\"origin\":\"33203040506\",\"destinations\":[\"33605040304\"],\"message\":\"sms content\"}")));
+	}
+
+	@Test
+	public void someRecipientsNotReached() throws MessagingException, IOException {
+		stubFor(post(urlMatching(".*"))
+				.withRequestBody(containing("33605040304"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/smsglobal/response/rejected.json")))));
+		Sms sms = new Sms("sms content", new Sender("+33203040506"), "+33605040302", "+33605040303", "+33605040304");
+		try {
+			sender.send(sms);
+			Assert.fail("should fail for the last recipient");
+		} catch(RecipientsNotReachedException e) {
+			Assert.assertEquals(Arrays.asList(sms.getRecipients().get(0), sms.getRecipients().get(1)), e.getSucceeded());
+			Assert.assertEquals(1, e.getFailures().size());
+			Assert.assertTrue(e.getFailures().containsKey(sms.getRecipients().get(2)));
+		}
+	}
+
+	@Test
+	public void invalidResponse() throws MessagingException, IOException {
+		stubFor(post(urlMatching(".*"))
+				.withRequestBody(containing("33605040304"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/smsglobal/response/missing-status.json")))));
+		Sms sms = new Sms("sms content", new Sender("+33203040506"), "+33605040302", "+33605040303", "+33605040304");
+		try {
+			sender.send(sms);
+			Assert.fail("should fail for the chunk with invalid response");
+		} catch(RecipientsNotReachedException e) {
+			Assert.assertEquals(Arrays.asList(sms.getRecipients().get(0), sms.getRecipients().get(1)), e.getSucceeded());
+			Assert.assertEquals(1, e.getFailures().size());
+			Assert.assertTrue(e.getFailures().get(sms.getRecipients().get(2)) instanceof MessageException);
+		}
+	}
+
+	@Test(expected=MessagingException.class)
+	public void unauthorized() throws MessagingException, IOException {
+		stubFor(post(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(401)));
+		sender.send(new Sms("sms content", new Sender("+33203040506"), "+33605040302"));
+	}
+}
@@ -0,0 +1,106 @@
+package fr.sii.ogham.ut.sms.sender.impl.cloudhopper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.cloudhopper.smpp.SmppConstants;
+import com.cloudhopper.smpp.pdu.DeliverSm;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+import com.cloudhopper.smpp.tlv.Tlv;
+import com.cloudhopper.smpp.type.Address;
+import com.cloudhopper.smpp.type.SmppInvalidArgumentException;
+
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.sms.message.Sms;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptEvent;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptHandler;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptListener;
+
+public class DeliveryReceiptHandlerTest {
+	private static final String DESTINATION = "0102030405";
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private BlockingQueue<DeliveryReceiptEvent> receipts;
+
+	private DeliveryReceiptHandler handler;
+
+	@Before
+	public void setUp() {
+		receipts = new LinkedBlockingQueue<>();
+		// hexadecimal ids in submit_sm_resp and decimal ids in receipt text
+		handler = new DeliveryReceiptHandler(100, 60000, 16, 10);
+		handler.addListener(new DeliveryReceiptListener() {
+			@Override
+			public void onDeliveryReceipt(DeliveryReceiptEvent event) {
+				receipts.add(event);
+			}
+		});
+	}
+
+	@Test
+	public void receiptedMessageIdUsesSubmitRadix() throws Exception {
+		Sms sms = new Sms("content", DESTINATION);
+		submitted(sms, "1f");
+
+		// 0x1f == 31: the TLV has the same format as the submit_sm_resp
+		DeliverSm receipt = receipt("id:31 stat:DELIVRD err:000");
+		receipt.addOptionalParameter(new Tlv(SmppConstants.TAG_RECEIPTED_MSG_ID, "1f\0".getBytes(StandardCharsets.US_ASCII)));
+		handler.received(receipt);
+
+		DeliveryReceiptEvent event = receipts.poll();
+		Assert.assertSame(sms, event.getMessage());
+		Assert.assertEquals(DESTINATION, event.getDestination());
+		Assert.assertEquals("1f", event.getMessageId());
+		Assert.assertTrue(event.isDelivered());
+		Assert.assertEquals(0, handler.getPendingReceipts());
+	}
+
+	@Test
+	public void textMessageIdUsesReceiptRadix() throws Exception {
+		Sms sms = new Sms("content", DESTINATION);
+		submitted(sms, "1f");
+
+		handler.received(receipt("id:31 stat:DELIVRD err:000"));
+
+		DeliveryReceiptEvent event = receipts.poll();
+		Assert.assertSame(sms, event.getMessage());
+		Assert.assertEquals("31", event.getMessageId());
+		Assert.assertEquals(0, handler.getPendingReceipts());
+	}
+
+	@Test
+	public void intermediateReceiptKeepsWaiting() throws Exception {
+		Sms sms = new Sms("content", DESTINATION);
+		submitted(sms, "1f");
+
+		handler.received(receipt("id:31 stat:ENROUTE err:000"));
+
+		Assert.assertSame(sms, receipts.poll().getMessage());
+		Assert.assertEquals(1, handler.getPendingReceipts());
+	}
+
+	private void submitted(Sms sms, String messageId) {
+		SubmitSm submit = new SubmitSm();
+		submit.setDestAddress(new Address((byte) 0, (byte) 0, DESTINATION));
+		SubmitSmResp response = submit.createResponse();
+		response.setMessageId(messageId);
+		handler.submitted(sms, submit, response);
+	}
+
+	private static DeliverSm receipt(String text) throws SmppInvalidArgumentException {
+		DeliverSm deliverSm = new DeliverSm();
+		deliverSm.setEsmClass(SmppConstants.ESM_CLASS_MT_SMSC_DELIVERY_RECEIPT);
+		deliverSm.setSourceAddress(new Address((byte) 0, (byte) 0, DESTINATION));
+		deliverSm.setShortMessage(text.getBytes(StandardCharsets.ISO_8859_1));
+		return deliverSm;
+	}
+}
@@ -0,0 +1,67 @@
+package fr.sii.ogham.ut.sms.sender.impl.cloudhopper;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.DeliveryReceiptIndex;
+
+public class DeliveryReceiptIndexTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void putGetRemove() {
+		DeliveryReceiptIndex<String> index = new DeliveryReceiptIndex<>(10000, 60000);
+		for (long i = 0; i < 1000; i++) {
+			index.put(i, "message" + i);
+		}
+		Assert.assertEquals(1000, index.size());
+		Assert.assertEquals("message42", index.get(42));
+		Assert.assertEquals("message42", index.remove(42));
+		Assert.assertNull(index.get(42));
+		for (long i = 0; i < 1000; i++) {
+			if (i != 42) {
+				Assert.assertEquals("message" + i, index.remove(i));
+			}
+		}
+		Assert.assertEquals(0, index.size());
+		Assert.assertEquals(0, index.getEvictions());
+	}
+
+	@Test
+	public void bounded() {
+		DeliveryReceiptIndex<String> index = new DeliveryReceiptIndex<>(100, 60000);
+		for (long i = 0; i < 1000; i++) {
+			index.put(i, "message" + i);
+		}
+		Assert.assertTrue(index.size() <= 112);
+		Assert.assertEquals(1000 - index.size(), index.getEvictions());
+		// the most recent one is always kept
+		Assert.assertEquals("message999", index.get(999));
+	}
+
+	@Test
+	public void expiration() throws InterruptedException {
+		DeliveryReceiptIndex<String> index = new DeliveryReceiptIndex<>(100, 50);
+		index.put(1, "first");
+		index.put(2, "second");
+		Thread.sleep(100);
+		Assert.assertNull(index.get(1));
+		Assert.assertEquals(1, index.purge());
+		Assert.assertEquals(0, index.size());
+	}
+
+	@Test
+	public void messageIdFormats() {
+		// hexadecimal in submit_sm_resp and decimal in receipt
+		Assert.assertEquals(DeliveryReceiptIndex.toKey("1f", 16), DeliveryReceiptIndex.toKey("31", 10));
+		// leading zeros are ignored
+		Assert.assertEquals(DeliveryReceiptIndex.toKey("0000001f", 16), DeliveryReceiptIndex.toKey("1F", 16));
+		// non numeric ids are hashed
+		Assert.assertEquals(DeliveryReceiptIndex.toKey("msg-abc", 16), DeliveryReceiptIndex.toKey("msg-abc", 10));
+		Assert.assertNotEquals(DeliveryReceiptIndex.toKey("msg-abc", 16), DeliveryReceiptIndex.toKey("msg-abd", 16));
+		Assert.assertTrue(DeliveryReceiptIndex.toKey("msg-abc", 16) < 0);
+	}
+}
@@ -0,0 +1,120 @@
+package fr.sii.ogham.ut.sms.sender.impl.cloudhopper;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.cloudhopper.commons.charset.CharsetUtil;
+import com.cloudhopper.smpp.SmppConstants;
+
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.sms.exception.message.EncodingException;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.GsmUcs2CharsetHandler;
+import fr.sii.ogham.sms.sender.impl.cloudhopper.SegmentedContent;
+
+public class GsmUcs2CharsetHandlerTest {
+	private static final Charset UCS2 = Charset.forName("UTF-16BE");
+
+	private static final int UDH_LENGTH = 6;
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private final GsmUcs2CharsetHandler handler = new GsmUcs2CharsetHandler();
+
+	@Test
+	public void gsmSameAsCloudhopper() throws EncodingException {
+		String content = "@£$¥èéùìòÇ\nØø\rÅåΔ_ΦΓΛΩΠΨΣΘΞÆæßÉ !\"#¤%&'()*+,-./0123456789:;<=>?¡ABCXYZÄÖÑÜ§¿abcxyzäöñüà^{}\\[~]|€\f";
+		SegmentedContent encoded = handler.encodeSegments(content);
+		Assert.assertEquals(SmppConstants.DATA_CODING_DEFAULT, encoded.getDataCoding());
+		Assert.assertFalse(encoded.isConcatenated());
+		Assert.assertArrayEquals(CharsetUtil.encode(content, CharsetUtil.CHARSET_GSM), encoded.getSegments()[0]);
+	}
+
+	@Test
+	public void gsmSingleMessage() throws EncodingException {
+		SegmentedContent encoded = handler.encodeSegments(repeat('a', 160));
+		Assert.assertEquals(1, encoded.getSegments().length);
+		Assert.assertEquals(160, encoded.getSegments()[0].length);
+	}
+
+	@Test
+	public void gsmConcatenated() throws EncodingException {
+		String content = repeat('a', 200);
+		SegmentedContent encoded = handler.encodeSegments(content);
+		Assert.assertTrue(encoded.isConcatenated());
+		Assert.assertEquals(2, encoded.getSegments().length);
+		Assert.assertEquals(UDH_LENGTH + 153, encoded.getSegments()[0].length);
+		Assert.assertEquals(UDH_LENGTH + 47, encoded.getSegments()[1].length);
+		Assert.assertEquals(2, encoded.getSegments()[1][4]);
+		Assert.assertEquals(2, encoded.getSegments()[1][5]);
+		Assert.assertEquals(content, decodeGsm(encoded));
+	}
+
+	@Test
+	public void escapedCharacterNotSplit() throws EncodingException {
+		// the euro sign needs 2 septets and would be split at 152/153
+		String content = repeat('a', 152) + "€" + repeat('b', 10);
+		SegmentedContent encoded = handler.encodeSegments(content);
+		Assert.assertEquals(UDH_LENGTH + 152, encoded.getSegments()[0].length);
+		Assert.assertEquals(content, decodeGsm(encoded));
+	}
+
+	@Test
+	public void ucs2WhenNotGsm() throws EncodingException {
+		String content = "Привет ça va";
+		SegmentedContent encoded = handler.encodeSegments(content);
+		Assert.assertEquals(SmppConstants.DATA_CODING_UCS2, encoded.getDataCoding());
+		Assert.assertFalse(encoded.isConcatenated());
+		Assert.assertEquals(content, new String(encoded.getSegments()[0], UCS2));
+	}
+
+	@Test
+	public void ucs2Concatenated() throws EncodingException {
+		// surrogate pair at 66/67 must not be split
+		String content = repeat('é', 66) + "😀" + repeat('ж', 10);
+		SegmentedContent encoded = handler.encodeSegments(content);
+		Assert.assertEquals(2, encoded.getSegments().length);
+		Assert.assertEquals(UDH_LENGTH + 66 * 2, encoded.getSegments()[0].length);
+		StringBuilder sb = new StringBuilder();
+		for (byte[] segment : encoded.getSegments()) {
+			sb.append(new String(segment, UDH_LENGTH, segment.length - UDH_LENGTH, UCS2));
+		}
+		Assert.assertEquals(content, sb.toString());
+	}
+
+	@Test
+	public void packed() throws EncodingException {
+		String content = "hello world";
+		SegmentedContent encoded = new GsmUcs2CharsetHandler(true).encodeSegments(content);
+		Assert.assertArrayEquals(CharsetUtil.encode(content, CharsetUtil.NAME_PACKED_GSM), encoded.getSegments()[0]);
+		SegmentedContent single = new GsmUcs2CharsetHandler(true).encodeSegments(repeat('a', 160));
+		Assert.assertEquals(140, single.getSegments()[0].length);
+		SegmentedContent concatenated = new GsmUcs2CharsetHandler(true).encodeSegments(repeat('a', 306));
+		Assert.assertEquals(2, concatenated.getSegments().length);
+		Assert.assertEquals(140, concatenated.getSegments()[0].length);
+		Assert.assertEquals(140, concatenated.getSegments()[1].length);
+	}
+
+	@Test(expected = EncodingException.class)
+	public void tooLong() throws EncodingException {
+		handler.encodeSegments(repeat('ж', 255 * 67 + 1));
+	}
+
+	private static String decodeGsm(SegmentedContent encoded) {
+		StringBuilder sb = new StringBuilder();
+		for (byte[] segment : encoded.getSegments()) {
+			sb.append(CharsetUtil.decode(Arrays.copyOfRange(segment, UDH_LENGTH, segment.length), CharsetUtil.CHARSET_GSM));
+		}
+		return sb.toString();
+	}
+
+	private static String repeat(char c, int times) {
+		char[] chars = new char[times];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+}
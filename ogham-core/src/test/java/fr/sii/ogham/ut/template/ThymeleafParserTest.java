@@ -49,6 +49,7 @@ public class ThymeleafParserTest {
 		Assert.assertNotNull("content should not be null", content);
 		Assert.assertTrue("content should be StringContent", content instanceof StringContent);
 		AssertTemplate.assertSimilar("/template/thymeleaf/expected/simple_foo_42.html", content);
+		Assert.assertEquals("text/html", ((StringContent) content).getMimeType());
 	}
 	
 	@Test
@@ -57,6 +58,7 @@ public class ThymeleafParserTest {
 		Assert.assertNotNull("content should not be null", content);
 		Assert.assertTrue("content should be StringContent", content instanceof StringContent);
 		AssertTemplate.assertSimilar("/template/thymeleaf/expected/simple_foo_42.txt", content);
+		Assert.assertEquals("text/plain", ((StringContent) content).getMimeType());
 	}
 	
 	@Test
@@ -95,4 +97,20 @@ public class ThymeleafParserTest {
 	public void invalid() throws ParseException, IOException {
 		parser.parse("classpath:invalid.html", new BeanContext(new NestedBean(new SimpleBean("foo", 42))));
 	}
+
+	@Test
+	public void onlyUsedPropertiesRead() throws ParseException, IOException {
+		Content content = parser.parse("classpath:simple.html", new BeanContext(new PartiallyReadableBean("foo", 42)));
+		AssertTemplate.assertSimilar("/template/thymeleaf/expected/simple_foo_42.html", content);
+	}
+
+	public static class PartiallyReadableBean extends SimpleBean {
+		public PartiallyReadableBean(String name, int value) {
+			super(name, value);
+		}
+
+		public String getUnused() {
+			throw new IllegalStateException("property not used by the template should not be read");
+		}
+	}
 }
@@ -0,0 +1,76 @@
+package fr.sii.ogham.ut.template;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.builder.TemplateBuilder;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.template.context.BeanContext;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.mock.context.SimpleBean;
+import fr.sii.ogham.template.thymeleaf.builder.ThymeleafBuilder;
+import fr.sii.ogham.template.thymeleaf.cache.ObservableTemplateCache;
+
+public class ThymeleafTemplateCacheTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void warmUp() throws ParseException {
+		ThymeleafBuilder thymeleafBuilder = new ThymeleafBuilder().withWarmUp("classpath:simple.html");
+		TemplateParser parser = new TemplateBuilder().registerTemplateParser(thymeleafBuilder).useDefaultResolvers().withPrefix("/template/thymeleaf/source/").build();
+		ObservableTemplateCache cache = thymeleafBuilder.getTemplateCache();
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(1, cache.getMissCount());
+		parser.parse("classpath:simple.html", new BeanContext(new SimpleBean("foo", 42)));
+		Assert.assertEquals(1, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void warmUpDirectory() {
+		ThymeleafBuilder thymeleafBuilder = new ThymeleafBuilder().withWarmUpDirectory("classpath:fragments");
+		new TemplateBuilder().registerTemplateParser(thymeleafBuilder).useDefaultResolvers().withPrefix("/template/thymeleaf/source/").build();
+		Assert.assertTrue("templates should be in cache", thymeleafBuilder.getTemplateCache().size() > 0);
+	}
+
+	@Test
+	public void eviction() throws ParseException {
+		ThymeleafBuilder thymeleafBuilder = new ThymeleafBuilder().withTemplateCacheMaxSize(1);
+		TemplateParser parser = new TemplateBuilder().registerTemplateParser(thymeleafBuilder).useDefaultResolvers().withPrefix("/template/thymeleaf/source/").build();
+		parser.parse("classpath:simple.html", new BeanContext(new SimpleBean("foo", 42)));
+		parser.parse("classpath:simple.txt", new BeanContext(new SimpleBean("foo", 42)));
+		ObservableTemplateCache cache = thymeleafBuilder.getTemplateCache();
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void leastRecentlyUsedEvicted() throws ParseException {
+		ThymeleafBuilder thymeleafBuilder = new ThymeleafBuilder().withTemplateCacheMaxSize(2);
+		TemplateParser parser = new TemplateBuilder().registerTemplateParser(thymeleafBuilder).useDefaultResolvers().withPrefix("/template/thymeleaf/source/").build();
+		BeanContext context = new BeanContext(new SimpleBean("foo", 42));
+		parser.parse("classpath:simple.html", context);
+		parser.parse("classpath:simple.txt", context);
+		// simple.html becomes the most recently used
+		parser.parse("classpath:simple.html", context);
+		parser.parse("classpath:locale.txt", context);
+		parser.parse("classpath:simple.html", context);
+		ObservableTemplateCache cache = thymeleafBuilder.getTemplateCache();
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(1, cache.getEvictionCount());
+		Assert.assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void notCacheable() throws ParseException {
+		ThymeleafBuilder thymeleafBuilder = new ThymeleafBuilder().withTemplateCache("classpath", false, null);
+		TemplateParser parser = new TemplateBuilder().registerTemplateParser(thymeleafBuilder).useDefaultResolvers().withPrefix("/template/thymeleaf/source/").build();
+		parser.parse("classpath:simple.html", new BeanContext(new SimpleBean("foo", 42)));
+		parser.parse("classpath:simple.html", new BeanContext(new SimpleBean("foo", 42)));
+		Assert.assertEquals(0, thymeleafBuilder.getTemplateCache().size());
+		Assert.assertEquals(0, thymeleafBuilder.getTemplateCache().getHitCount());
+	}
+}
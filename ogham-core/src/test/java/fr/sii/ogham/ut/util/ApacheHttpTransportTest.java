@@ -0,0 +1,110 @@
+package fr.sii.ogham.ut.util;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import fr.sii.ogham.core.builder.HttpTransportBuilder;
+import fr.sii.ogham.core.exception.util.HttpException;
+import fr.sii.ogham.core.util.http.ApacheHttpTransport;
+import fr.sii.ogham.core.util.http.HttpStatus;
+import fr.sii.ogham.core.util.http.Parameter;
+import fr.sii.ogham.core.util.http.Response;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class ApacheHttpTransportTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public WireMockRule serverRule = new WireMockRule(8079);
+
+	private ApacheHttpTransport transport;
+
+	private String baseUrl;
+
+	@Before
+	public void setUp() {
+		transport = new HttpTransportBuilder().withMaxConnections(10, 5).withTimeouts(1000, 2000).build();
+		baseUrl = "http://localhost:" + serverRule.port();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		transport.close();
+	}
+
+	@Test
+	public void getWithParameters() throws HttpException {
+		stubFor(get(urlMatching("/api.*")).willReturn(aResponse().withStatus(200).withBody("ok")));
+		Response response = transport.get(baseUrl + "/api?a=1", Arrays.asList(new Parameter("b", "hello world"), new Parameter("c", null)));
+		Assert.assertEquals(HttpStatus.OK, response.getStatus());
+		Assert.assertEquals("ok", response.getBody());
+		verify(getRequestedFor(urlEqualTo("/api?a=1&b=hello%20world")));
+	}
+
+	@Test
+	public void postBody() throws HttpException {
+		stubFor(post(urlPathEqualTo("/api")).willReturn(aResponse().withStatus(201).withBody("{\"id\":42}")));
+		Response response = transport.post(baseUrl + "/api", "{\"to\":\"+33601020304\"}", "application/json");
+		Assert.assertEquals(HttpStatus.CREATED, response.getStatus());
+		Assert.assertEquals("{\"id\":42}", response.getBody());
+		verify(postRequestedFor(urlPathEqualTo("/api")).withHeader("Content-Type", equalTo("application/json; charset=UTF-8")).withRequestBody(equalTo("{\"to\":\"+33601020304\"}")));
+	}
+
+	@Test
+	public void postForm() throws HttpException {
+		stubFor(post(urlPathEqualTo("/form")).willReturn(aResponse().withStatus(200)));
+		Response response = transport.post(baseUrl + "/form", Arrays.asList(new Parameter("a", "1"), new Parameter("b", "x y")));
+		Assert.assertEquals(HttpStatus.OK, response.getStatus());
+		Assert.assertEquals("", response.getBody());
+		verify(postRequestedFor(urlPathEqualTo("/form")).withRequestBody(equalTo("a=1&b=x+y")));
+	}
+
+	@Test
+	public void async() throws InterruptedException, ExecutionException {
+		stubFor(get(urlMatching("/slow.*")).willReturn(aResponse().withStatus(200).withBody("done").withFixedDelay(200)));
+		List<Future<Response>> futures = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			futures.add(transport.getAsync(baseUrl + "/slow", Arrays.asList(new Parameter("i", String.valueOf(i)))));
+		}
+		for (Future<Response> future : futures) {
+			Assert.assertEquals("done", future.get().getBody());
+		}
+		Assert.assertEquals(0, transport.getLeasedConnections());
+		Assert.assertTrue("connections should be kept alive", transport.getAvailableConnections() > 0);
+	}
+
+	@Test(expected = HttpException.class)
+	public void readTimeout() throws Throwable {
+		stubFor(get(urlMatching("/timeout.*")).willReturn(aResponse().withStatus(200).withFixedDelay(3000)));
+		try {
+			transport.getAsync(baseUrl + "/timeout", new ArrayList<Parameter>()).get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package fr.sii.ogham.ut.util;
+
+import java.beans.IntrospectionException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import fr.sii.ogham.core.util.bean.BeanAccessors;
+import fr.sii.ogham.mock.context.SimpleBean;
+
+public class BeanAccessorsTest {
+	@Test
+	public void cached() throws IntrospectionException {
+		Assert.assertSame(BeanAccessors.getReadAccessors(SimpleBean.class), BeanAccessors.getReadAccessors(SimpleBean.class));
+		Assert.assertTrue(BeanAccessors.getReadAccessors(SimpleBean.class).containsKey("name"));
+	}
+
+	@Test
+	public void classLoaderNotRetained() throws Exception {
+		// the control loader is never given to BeanAccessors: if it is not
+		// collected either, the JVM didn't unload classes (explicit GC
+		// disabled, class unloading turned off...) and nothing can be concluded
+		WeakReference<ClassLoader> control = loadInIsolatedLoader(false);
+		WeakReference<ClassLoader> loader = loadInIsolatedLoader(true);
+		for (int i = 0; i < 50 && (loader.get() != null || control.get() != null); i++) {
+			allocate();
+			System.gc();
+			Thread.sleep(20);
+		}
+		Assume.assumeTrue("classes are not unloaded by this JVM", control.get() == null);
+		Assert.assertNull("class loader of the bean should be collected", loader.get());
+	}
+
+	private static WeakReference<ClassLoader> loadInIsolatedLoader(boolean introspect) throws Exception {
+		URL classes = IsolatedBean.class.getProtectionDomain().getCodeSource().getLocation();
+		URLClassLoader loader = new URLClassLoader(new URL[] { classes }, ClassLoader.getSystemClassLoader().getParent());
+		Class<?> clazz = loader.loadClass(IsolatedBean.class.getName());
+		Assert.assertNotSame(IsolatedBean.class, clazz);
+		if (introspect) {
+			Assert.assertTrue(BeanAccessors.getReadAccessors(clazz).containsKey("name"));
+		}
+		loader.close();
+		return new WeakReference<ClassLoader>(loader);
+	}
+
+	private static void allocate() {
+		// bounded garbage to help the collector to run
+		List<byte[]> garbage = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			garbage.add(new byte[1024 * 1024]);
+		}
+		garbage.clear();
+	}
+
+	public static class IsolatedBean {
+		public String getName() {
+			return "isolated";
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package fr.sii.ogham.ut.util;
+
+import java.beans.IntrospectionException;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+import fr.sii.ogham.core.util.bean.BeanPropertiesMap;
+import fr.sii.ogham.mock.context.SimpleBean;
+
+public class BeanPropertiesMapTest {
+	@Test
+	public void lazy() throws IntrospectionException {
+		CountingBean bean = new CountingBean();
+		Map<String, Object> map = new BeanPropertiesMap(bean);
+		Assert.assertTrue(map.containsKey("name"));
+		Assert.assertTrue(map.containsKey("failing"));
+		Assert.assertFalse(map.containsKey("class"));
+		Assert.assertEquals(0, bean.calls);
+		Assert.assertEquals("foo", map.get("name"));
+		Assert.assertEquals("foo", map.get("name"));
+		Assert.assertEquals(1, bean.calls);
+		Assert.assertNull(map.get("unknown"));
+	}
+
+	@Test(expected = FieldAccessException.class)
+	public void failingGetter() throws IntrospectionException {
+		new BeanPropertiesMap(new CountingBean()).get("failing");
+	}
+
+	@Test
+	public void sameAsBean() throws IntrospectionException {
+		Map<String, Object> map = new BeanPropertiesMap(new SimpleBean("foo", 42));
+		Assert.assertEquals(3, map.size());
+		Assert.assertEquals("foo", map.get("name"));
+		Assert.assertEquals(42, map.get("value"));
+		Assert.assertTrue(map.entrySet().size() == 3);
+	}
+
+	public static class CountingBean {
+		private int calls;
+
+		public String getName() {
+			calls++;
+			return "foo";
+		}
+
+		public String getFailing() {
+			throw new IllegalStateException("should not be called");
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package fr.sii.ogham.ut.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.util.RateLimiter;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class RateLimiterTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void paced() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter(100);
+		long start = System.nanoTime();
+		for (int i = 0; i < 11; i++) {
+			limiter.acquire();
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// first permit is immediate, then one every 10ms
+		Assert.assertTrue("permits should be paced (" + elapsed + "ms)", elapsed >= 95);
+	}
+
+	@Test
+	public void adaptive() {
+		RateLimiter limiter = new RateLimiter(100);
+		Assert.assertEquals(100, limiter.getRate(), 0.01);
+		limiter.throttled();
+		Assert.assertEquals(50, limiter.getRate(), 0.01);
+		for (int i = 0; i < 10; i++) {
+			limiter.throttled();
+		}
+		// never lower than 1/32 of the maximum rate
+		Assert.assertEquals(100.0 / 32, limiter.getRate(), 0.01);
+		for (int i = 0; i < 1000; i++) {
+			limiter.succeeded();
+		}
+		// never higher than the maximum rate
+		Assert.assertEquals(100, limiter.getRate(), 0.01);
+	}
+}
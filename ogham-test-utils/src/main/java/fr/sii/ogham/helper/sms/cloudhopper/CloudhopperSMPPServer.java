@@ -53,6 +53,11 @@ public class CloudhopperSMPPServer implements SmppServerSimulator<PduRequest> {
 	public List<PduRequest> getReceivedMessages() {
 		return new ArrayList<>(serverHandler.getSessionHandler().getReceivedPduRequests());
 	}
+
+	@Override
+	public int getConnectionCount() {
+		return server.getChannelConnects();
+	}
 	
 	private static SmppServerConfiguration createSmppServerConfiguration(int port) {
 		SmppServerConfiguration configuration = new SmppServerConfiguration();
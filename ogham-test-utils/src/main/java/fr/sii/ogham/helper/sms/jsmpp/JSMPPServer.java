@@ -57,4 +57,21 @@ public class JSMPPServer implements SmppServerSimulator<SubmitSm> {
 		return simulator.getReceivedMessages();
 	}
 
+	@Override
+	public int getConnectionCount() {
+		return simulator.getConnectionCount();
+	}
+
+	/**
+	 * Answer the next submit_sm requests with an error status.
+	 * 
+	 * @param count
+	 *            the number of submit_sm to reject
+	 * @param status
+	 *            the command_status of the submit_sm_resp
+	 */
+	public void reject(int count, int status) {
+		simulator.reject(count, status);
+	}
+
 }
@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jsmpp.bean.CancelSm;
 import org.jsmpp.bean.DataSm;
@@ -46,6 +47,9 @@ public class JSMPPServerSimulator extends ServerResponseDeliveryAdapter implemen
 	private int port;
 	private boolean stopped;
 	private List<SubmitSm> receivedMessages = new ArrayList<>();
+	private final AtomicInteger connectionCount = new AtomicInteger();
+	private final AtomicInteger rejected = new AtomicInteger();
+	private volatile int rejectStatus;
 	private SMPPServerSessionListener sessionListener;
 	private SMPPServerSession serverSession;
 
@@ -62,6 +66,7 @@ public class JSMPPServerSimulator extends ServerResponseDeliveryAdapter implemen
 			}
 			while (!stopped) {
 				serverSession = sessionListener.accept();
+				connectionCount.incrementAndGet();
 				LOG.info("Accepting connection for session {}", serverSession.getSessionId());
 				serverSession.setMessageReceiverListener(this);
 				serverSession.setResponseDeliveryListener(this);
@@ -77,6 +82,22 @@ public class JSMPPServerSimulator extends ServerResponseDeliveryAdapter implemen
 	public synchronized void reset() {
 		stopped = false;
 		receivedMessages.clear();
+		connectionCount.set(0);
+		rejected.set(0);
+	}
+
+	/**
+	 * Answer the next submit_sm requests with an error status. The rejected
+	 * requests are not part of the received messages.
+	 * 
+	 * @param count
+	 *            the number of submit_sm to reject
+	 * @param status
+	 *            the command_status of the submit_sm_resp
+	 */
+	public void reject(int count, int status) {
+		rejectStatus = status;
+		rejected.set(count);
 	}
 
 	public synchronized void stop() {
@@ -108,6 +129,10 @@ public class JSMPPServerSimulator extends ServerResponseDeliveryAdapter implemen
 	}
 
 	public MessageId onAcceptSubmitSm(SubmitSm submitSm, SMPPServerSession source) throws ProcessRequestException {
+		if (consumeRejection()) {
+			LOG.debug("Rejecting submit_sm with status {}", rejectStatus);
+			throw new ProcessRequestException("submit_sm rejected", rejectStatus);
+		}
 		MessageId messageId = messageIDGenerator.newMessageId();
 		byte[] shortMessage = submitSm.getShortMessage();
 		if(submitSm.isUdhi()) {
@@ -122,6 +147,18 @@ public class JSMPPServerSimulator extends ServerResponseDeliveryAdapter implemen
 		return messageId;
 	}
 
+	private boolean consumeRejection() {
+		for (;;) {
+			int remaining = rejected.get();
+			if (remaining <= 0) {
+				return false;
+			}
+			if (rejected.compareAndSet(remaining, remaining - 1)) {
+				return true;
+			}
+		}
+	}
+
 	public void onSubmitSmRespSent(MessageId messageId, SMPPServerSession source) {
 		LOG.debug("submit_sm_resp with message_id {} has been sent", messageId);
 	}
@@ -154,4 +191,8 @@ public class JSMPPServerSimulator extends ServerResponseDeliveryAdapter implemen
 	public int getPort() {
 		return port;
 	}
+
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
 }
\ No newline at end of file
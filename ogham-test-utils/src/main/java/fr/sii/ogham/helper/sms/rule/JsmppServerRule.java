@@ -5,6 +5,7 @@ import org.jsmpp.bean.SubmitSm;
 import fr.sii.ogham.helper.sms.jsmpp.JSMPPServer;
 
 public class JsmppServerRule extends SmppServerRule<SubmitSm> {
+	private final JSMPPServer server;
 
 	/**
 	 * Initialize the server with the provided port.
@@ -13,7 +14,12 @@ public class JsmppServerRule extends SmppServerRule<SubmitSm> {
 	 *            the port used by the server
 	 */
 	public JsmppServerRule(int port) {
-		super(new JSMPPServer(port));
+		this(new JSMPPServer(port));
+	}
+
+	private JsmppServerRule(JSMPPServer server) {
+		super(server);
+		this.server = server;
 	}
 
 	/**
@@ -23,5 +29,18 @@ public class JsmppServerRule extends SmppServerRule<SubmitSm> {
 		this(SmppServerRule.DEFAULT_PORT);
 	}
 
+	/**
+	 * Answer the next submit_sm requests with an error status (for example
+	 * to simulate throttling errors).
+	 * 
+	 * @param count
+	 *            the number of submit_sm to reject
+	 * @param status
+	 *            the command_status of the submit_sm_resp
+	 */
+	public void reject(int count, int status) {
+		server.reject(count, status);
+	}
+
 
 }
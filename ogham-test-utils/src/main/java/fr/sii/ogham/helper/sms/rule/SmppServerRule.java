@@ -75,6 +75,16 @@ public class SmppServerRule<M> implements TestRule {
 		return server.getReceivedMessages();
 	}
 
+	/**
+	 * Provide the number of connections accepted by the server during the
+	 * execution of the test.
+	 * 
+	 * @return the number of accepted connections
+	 */
+	public int getConnectionCount() {
+		return server.getConnectionCount();
+	}
+
 	
 	
 	private final class StartServerStatement extends Statement {
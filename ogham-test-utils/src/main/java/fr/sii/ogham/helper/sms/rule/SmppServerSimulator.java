@@ -10,4 +10,6 @@ public interface SmppServerSimulator<M> {
 	public int getPort();
 	
 	public List<M> getReceivedMessages();
+
+	public int getConnectionCount();
 }